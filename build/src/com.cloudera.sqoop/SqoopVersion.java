@@ -0,0 +1,17 @@
+// generated by src/scripts/write-version-info.sh
+package com.cloudera.sqoop;
+public final class SqoopVersion {
+  public SqoopVersion() {
+  }
+  public static final String VERSION="0.1-SNAPSHOT";
+  public static final String GIT_HASH="107d2936a9ca6a7fca02525e8d78ee2f214a46d1";
+  public static final String COMPILE_USER="";
+  public static final String COMPILE_HOST="vm";
+  public static final String COMPILE_DATE="Sun Oct 18 20:18:35 UTC 2026";
+  public String toString() {
+    return "Sqoop " + VERSION + "\n"
+        + "git commit id " + GIT_HASH + "\n"
+        + "Compiled by " + COMPILE_USER + "@" + COMPILE_HOST
+        + " on " + COMPILE_DATE + "\n";
+  }
+}
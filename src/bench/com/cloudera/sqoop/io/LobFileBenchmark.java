@@ -0,0 +1,169 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing, sequentially reading, and randomly seeking within a
+ * LobFile on the local filesystem. Each write or sequential read
+ * operation processes a whole file of FILE_BYTES bytes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LobFileBenchmark {
+
+  /** Total size of the record data in each file. */
+  public static final int FILE_BYTES = 32 * 1024 * 1024;
+
+  @Param({ "1024", "1048576" })
+  protected int recordSize;
+
+  @Param({ CodecMap.NONE, CodecMap.DEFLATE })
+  protected String codec;
+
+  private Configuration conf;
+  private Path readPath;
+  private Path writePath;
+  private byte [] recordData;
+  private byte [] readBuf;
+  private long [] recordOffsets;
+  private Random random;
+  private LobFile.Reader seekReader;
+
+  @Setup
+  public void setup() throws IOException {
+    this.conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+
+    File baseDir = new File(System.getProperty("test.build.data",
+        System.getProperty("java.io.tmpdir")), "lobbench");
+    Path basePath = new Path(baseDir.getAbsolutePath());
+    FileSystem.getLocal(conf).mkdirs(basePath);
+    this.readPath = new Path(basePath, "read-" + recordSize + "-" + codec);
+    this.writePath = new Path(basePath, "write-" + recordSize + "-" + codec);
+
+    // Random bytes would defeat the codec; use a repeating pattern with
+    // some variation so that compression has realistic work to do.
+    this.recordData = new byte[recordSize];
+    Random r = new Random(42);
+    for (int i = 0; i < recordSize; i++) {
+      recordData[i] = (byte) ((i % 64 < 48) ? 'a' + (i % 26) : r.nextInt());
+    }
+    this.readBuf = new byte[64 * 1024];
+
+    this.recordOffsets = writeFile(readPath);
+    this.random = new Random(42);
+    this.seekReader = LobFile.open(readPath, conf);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    seekReader.close();
+    FileSystem fs = FileSystem.getLocal(conf);
+    fs.delete(readPath, false);
+    fs.delete(writePath, false);
+  }
+
+  /**
+   * Write FILE_BYTES of records to a new LobFile.
+   * @return the offset of each record.
+   */
+  private long [] writeFile(Path p) throws IOException {
+    int numRecords = Math.max(1, FILE_BYTES / recordSize);
+    long [] offsets = new long[numRecords];
+    LobFile.Writer writer = LobFile.create(p, conf, false, codec);
+    try {
+      for (int i = 0; i < numRecords; i++) {
+        offsets[i] = writer.tell();
+        OutputStream out = writer.writeBlobRecord(recordSize);
+        out.write(recordData);
+        out.close();
+      }
+    } finally {
+      writer.close();
+    }
+
+    return offsets;
+  }
+
+  @Benchmark
+  public long [] write() throws IOException {
+    return writeFile(writePath);
+  }
+
+  @Benchmark
+  public long readSequential() throws IOException {
+    long total = 0;
+    LobFile.Reader reader = LobFile.open(readPath, conf);
+    try {
+      while (reader.next()) {
+        InputStream in = reader.readBlobRecord();
+        while (true) {
+          int len = in.read(readBuf);
+          if (-1 == len) {
+            break;
+          }
+          total += len;
+        }
+        in.close();
+      }
+    } finally {
+      reader.close();
+    }
+
+    return total;
+  }
+
+  @Benchmark
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public ByteBuffer readRandom() throws IOException {
+    seekReader.seek(recordOffsets[random.nextInt(recordOffsets.length)]);
+    if (!seekReader.next()) {
+      throw new IOException("No record at seek target");
+    }
+    return seekReader.readBlobRecordBuffer();
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures writing TOTAL_BYTES through a SplittingOutputStream in
+ * record-sized chunks, calling allowSplit() after each record as the
+ * direct-mode import mappers do.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SplittingOutputStreamBenchmark {
+
+  /** Bytes written per benchmark invocation. */
+  public static final int TOTAL_BYTES = 32 * 1024 * 1024;
+
+  /** Split cutoff; each invocation produces several files. */
+  public static final long CUTOFF_BYTES = 8 * 1024 * 1024;
+
+  @Param({ "100", "8192" })
+  protected int recordSize;
+
+  @Param({ "false", "true" })
+  protected boolean gzip;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path baseDir;
+  private Path destDir;
+  private int runId;
+  private byte [] record;
+
+  @Setup
+  public void setup() throws IOException {
+    this.conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+    this.fs = FileSystem.getLocal(conf);
+
+    File base = new File(System.getProperty("test.build.data",
+        System.getProperty("java.io.tmpdir")), "splitbench");
+    this.baseDir = new Path(base.getAbsolutePath());
+    fs.delete(baseDir, true);
+
+    this.record = new byte[recordSize];
+    for (int i = 0; i < recordSize - 1; i++) {
+      record[i] = (byte) ('a' + (i % 26));
+    }
+    record[recordSize - 1] = '\n';
+  }
+
+  /**
+   * SplittingOutputStream refuses to overwrite files, so each invocation
+   * writes into a fresh directory.
+   */
+  @Setup(Level.Invocation)
+  public void setupInvocation() throws IOException {
+    if (null != destDir) {
+      fs.delete(destDir, true);
+    }
+    this.destDir = new Path(baseDir, "run-" + runId++);
+    fs.mkdirs(destDir);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    fs.delete(baseDir, true);
+  }
+
+  @Benchmark
+  public void write() throws IOException {
+    SplittingOutputStream out = new SplittingOutputStream(conf, destDir,
+        "part-", CUTOFF_BYTES, gzip);
+    try {
+      for (int written = 0; written < TOTAL_BYTES; written += recordSize) {
+        out.write(record);
+        out.allowSplit();
+      }
+    } finally {
+      out.close();
+    }
+  }
+}
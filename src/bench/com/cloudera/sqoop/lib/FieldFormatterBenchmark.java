@@ -0,0 +1,114 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures FieldFormatter.escapeAndEnclose() over a batch of field values.
+ * The 'delimiters' parameter selects how much work each call has to do:
+ * "default" never escapes or encloses, "mysql" escapes and encloses only
+ * the fields that need it, and "enclosed" encloses every field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FieldFormatterBenchmark {
+
+  /** Number of field values formatted per benchmark invocation. */
+  public static final int NUM_FIELDS = 64;
+
+  @Param({ "default", "mysql", "enclosed" })
+  protected String delimiters;
+
+  private DelimiterSet delimiterSet;
+  private String [] fields;
+
+  /**
+   * @return the DelimiterSet named by a benchmark parameter.
+   */
+  static DelimiterSet getDelimiters(String name) {
+    if ("default".equals(name)) {
+      return DelimiterSet.DEFAULT_DELIMITERS;
+    } else if ("mysql".equals(name)) {
+      return DelimiterSet.MYSQL_DELIMITERS;
+    } else if ("enclosed".equals(name)) {
+      return new DelimiterSet(',', '\n', '"', '\\', true);
+    } else {
+      throw new IllegalArgumentException("Unknown delimiters: " + name);
+    }
+  }
+
+  /**
+   * Generates reproducible field values of varying length. About one in
+   * four contains a field delimiter, and one in eight contains a quote or
+   * backslash that must be escaped.
+   */
+  static String [] makeFields(int numFields, long seed) {
+    Random r = new Random(seed);
+    String [] out = new String[numFields];
+    for (int i = 0; i < numFields; i++) {
+      StringBuilder sb = new StringBuilder();
+      int len = 4 + r.nextInt(40);
+      for (int j = 0; j < len; j++) {
+        sb.append((char) ('a' + r.nextInt(26)));
+      }
+
+      int special = r.nextInt(8);
+      if (special < 2) {
+        sb.insert(r.nextInt(len), ',');
+      } else if (special == 2) {
+        sb.insert(r.nextInt(len), r.nextBoolean() ? '\'' : '\\');
+      }
+      out[i] = sb.toString();
+    }
+
+    return out;
+  }
+
+  @Setup
+  public void setup() {
+    this.delimiterSet = getDelimiters(delimiters);
+    this.fields = makeFields(NUM_FIELDS, 42);
+  }
+
+  @Benchmark
+  public void escapeAndEnclose(Blackhole bh) {
+    for (String field : fields) {
+      bh.consume(FieldFormatter.escapeAndEnclose(field, delimiterSet));
+    }
+  }
+}
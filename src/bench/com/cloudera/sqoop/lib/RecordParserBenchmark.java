@@ -0,0 +1,103 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.lib;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures RecordParser.parseRecord() on a single delimited line, for
+ * each of the input types the generated parse() methods hand it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordParserBenchmark {
+
+  @Param({ "default", "mysql", "enclosed" })
+  protected String delimiters;
+
+  @Param({ "8", "64" })
+  protected int numFields;
+
+  private RecordParser parser;
+  private String line;
+  private Text text;
+  private char [] chars;
+
+  @Setup
+  public void setup() {
+    DelimiterSet delimiterSet =
+        FieldFormatterBenchmark.getDelimiters(delimiters);
+    this.parser = new RecordParser(delimiterSet);
+
+    StringBuilder sb = new StringBuilder();
+    String [] fields = FieldFormatterBenchmark.makeFields(numFields, 42);
+    for (int i = 0; i < fields.length; i++) {
+      if (i > 0) {
+        sb.append(delimiterSet.getFieldsTerminatedBy());
+      }
+
+      if (DelimiterSet.NULL_CHAR == delimiterSet.getEnclosedBy()) {
+        // Without an enclosing character, field delimiters in the data
+        // cannot be represented; leave them out.
+        sb.append(fields[i].replace(
+            "" + delimiterSet.getFieldsTerminatedBy(), ""));
+      } else {
+        sb.append(FieldFormatter.escapeAndEnclose(fields[i], delimiterSet));
+      }
+    }
+    sb.append(delimiterSet.getLinesTerminatedBy());
+
+    this.line = sb.toString();
+    this.text = new Text(line);
+    this.chars = line.toCharArray();
+  }
+
+  @Benchmark
+  public List<String> parseCharSequence() throws RecordParser.ParseError {
+    return parser.parseRecord(line);
+  }
+
+  @Benchmark
+  public List<String> parseText() throws RecordParser.ParseError {
+    return parser.parseRecord(text);
+  }
+
+  @Benchmark
+  public List<String> parseCharArray() throws RecordParser.ParseError {
+    return parser.parseRecord(chars);
+  }
+}
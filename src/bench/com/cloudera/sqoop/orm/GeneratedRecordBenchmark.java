@@ -0,0 +1,203 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.orm;
+
+import java.io.File;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.Text;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.cloudera.sqoop.SqoopOptions;
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.manager.ConnManager;
+import com.cloudera.sqoop.manager.HsqldbManager;
+import com.cloudera.sqoop.util.ClassLoaderStack;
+
+/**
+ * Measures the text and Writable serialization methods of classes
+ * generated by ClassWriter. The record class for each schema is generated
+ * and compiled during setup from a table in an in-memory HSQLDB database,
+ * exactly as the codegen tool would do it.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GeneratedRecordBenchmark {
+
+  private static final String DB_URL = "jdbc:hsqldb:mem:sqoopbench";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+
+  /** Two integer columns; the smallest useful record. */
+  private static final String NARROW_COLS = "ID INT, VAL INT";
+  private static final String NARROW_LINE = "42,1138";
+
+  /** A typical fact-table row mixing numeric, text and temporal types. */
+  private static final String WIDE_COLS = "ID INT, CUSTOMER_ID BIGINT, "
+      + "NAME VARCHAR(64), EMAIL VARCHAR(128), ADDRESS VARCHAR(256), "
+      + "BALANCE DECIMAL(12,2), SCORE DOUBLE, ACTIVE BOOLEAN, "
+      + "CREATED TIMESTAMP, BIRTHDAY DATE, NOTES VARCHAR(1024)";
+  private static final String WIDE_LINE = "42,9000000001,Jane Q. Public,"
+      + "jane.public@example.com,1600 Pennsylvania Ave NW Washington DC 20500,"
+      + "123456.78,3.25,true,2010-06-01 12:34:56.0,1970-01-01,null";
+
+  @Param({ "narrow", "wide" })
+  protected String schema;
+
+  private ClassLoader prevClassLoader;
+  private SqoopRecord record;
+  private SqoopRecord target;
+  private Text text;
+  private DataOutputBuffer outBuf;
+  private DataInputBuffer inBuf;
+  private byte [] serialized;
+  private int serializedLen;
+
+  @Setup
+  public void setup() throws Exception {
+    String cols;
+    String line;
+    if ("narrow".equals(schema)) {
+      cols = NARROW_COLS;
+      line = NARROW_LINE;
+    } else if ("wide".equals(schema)) {
+      cols = WIDE_COLS;
+      line = WIDE_LINE;
+    } else {
+      throw new IllegalArgumentException("Unknown schema: " + schema);
+    }
+
+    String tableName = "BENCH_" + schema.toUpperCase();
+    String className = "BenchRecord_" + schema;
+    createTable(tableName, cols);
+
+    File workDir = new File(System.getProperty("test.build.data",
+        System.getProperty("java.io.tmpdir")), "sqoop-bench-" + schema);
+    SqoopOptions options = new SqoopOptions(DB_URL, tableName);
+    options.setCodeOutputDir(new File(workDir, "src").getAbsolutePath());
+    options.setJarOutputDir(new File(workDir, "classes").getAbsolutePath());
+    options.setClassName(className);
+
+    this.prevClassLoader = generateClass(options, tableName, className);
+    Class<?> recordClass = Class.forName(className, true,
+        Thread.currentThread().getContextClassLoader());
+
+    this.record = (SqoopRecord) recordClass.newInstance();
+    this.target = (SqoopRecord) recordClass.newInstance();
+    this.text = new Text(line);
+    record.parse(text);
+
+    this.outBuf = new DataOutputBuffer();
+    record.write(outBuf);
+    this.serializedLen = outBuf.getLength();
+    this.serialized = Arrays.copyOf(outBuf.getData(), serializedLen);
+    this.inBuf = new DataInputBuffer();
+  }
+
+  @TearDown
+  public void tearDown() {
+    if (null != prevClassLoader) {
+      ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+    }
+  }
+
+  /** Create an empty table with the given column definitions. */
+  private void createTable(String tableName, String cols)
+      throws ClassNotFoundException, SQLException {
+    Class.forName(DRIVER_CLASS);
+    Connection conn = DriverManager.getConnection(DB_URL);
+    try {
+      Statement st = conn.createStatement();
+      st.executeUpdate("DROP TABLE " + tableName + " IF EXISTS");
+      st.executeUpdate("CREATE TABLE " + tableName + " (" + cols + ")");
+      st.close();
+    } finally {
+      conn.close();
+    }
+  }
+
+  /**
+   * Generate, compile and load the record class for a table.
+   * @return the previous context classloader.
+   */
+  private ClassLoader generateClass(SqoopOptions options, String tableName,
+      String className) throws IOException, SQLException {
+    ConnManager manager = new HsqldbManager(options);
+    try {
+      CompilationManager compileMgr = new CompilationManager(options);
+      ClassWriter writer = new ClassWriter(options, manager, tableName,
+          compileMgr);
+      writer.generate();
+      compileMgr.compile();
+      compileMgr.jar();
+      return ClassLoaderStack.addJarFile(compileMgr.getJarFilename(),
+          className);
+    } finally {
+      manager.close();
+    }
+  }
+
+  @Benchmark
+  public String toText() {
+    return record.toString();
+  }
+
+  @Benchmark
+  public SqoopRecord parseText() throws RecordParser.ParseError {
+    target.parse(text);
+    return target;
+  }
+
+  @Benchmark
+  public int write() throws IOException {
+    outBuf.reset();
+    record.write(outBuf);
+    return outBuf.getLength();
+  }
+
+  @Benchmark
+  public SqoopRecord readFields() throws IOException {
+    inBuf.reset(serialized, serializedLen);
+    target.readFields(inBuf);
+    return target;
+  }
+}
@@ -30,6 +30,8 @@ import org.apache.hadoop.util.ToolRunner;
 
 import com.cloudera.sqoop.tool.HelpTool;
 import com.cloudera.sqoop.tool.SqoopTool;
+import com.cloudera.sqoop.util.MetricsRegistry;
+import com.cloudera.sqoop.util.Profiler;
 
 /**
  * Main entry-point for Sqoop
@@ -131,7 +133,28 @@ public class Sqoop extends Configured implements Tool {
       return 1; // Exit on exception here.
     }
 
-    return tool.run(options);
+    MetricsRegistry metrics = MetricsRegistry.get();
+    metrics.registerMBean(getConf());
+    Profiler profiler = null;
+    if (options.isProfile()) {
+      profiler = new Profiler();
+      metrics.setProfiler(profiler);
+    }
+
+    int ret;
+    MetricsRegistry.Timer.Context phase = metrics.startPhase("tool");
+    try {
+      ret = tool.run(options);
+    } finally {
+      phase.stop();
+      if (null != profiler) {
+        metrics.setProfiler(null);
+        profiler.report(getConf());
+      }
+    }
+
+    metrics.writeReport(getConf());
+    return ret;
   }
 
   /**
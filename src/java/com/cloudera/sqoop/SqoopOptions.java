@@ -97,6 +97,10 @@ public class SqoopOptions {
   private String hiveTableName;
   private String packageName; // package to prepend to auto-named classes.
 
+  // If true, generated classes hold nullable numeric and boolean columns
+  // in primitive fields plus a null bitmap instead of boxed objects.
+  private boolean primitiveFields;
+
   // package+class to apply to individual table import.
   // also used as an *input* class with existingJarFile.
   private String className; 
@@ -115,6 +119,10 @@ public class SqoopOptions {
   // to external files on disk.
   private long maxInlineLobSize;
 
+  // Number of rows the JDBC driver should fetch per round trip; null means
+  // use the connection manager's default streaming strategy.
+  private Integer fetchSize;
+
   // HDFS path to read from when performing an export
   private String exportDir;
 
@@ -122,6 +130,9 @@ public class SqoopOptions {
   private DelimiterSet outputDelimiters;
   private boolean areDelimsManuallySet;
 
+  // If true, record and report the time and resources of each phase.
+  private boolean profile;
+
   private Configuration conf;
 
   public static final int DEFAULT_NUM_MAPPERS = 4;
@@ -483,6 +494,17 @@ public class SqoopOptions {
     this.direct = isDirect;
   }
 
+  /**
+   * @return true if the phases of the tool run should be profiled.
+   */
+  public boolean isProfile() {
+    return profile;
+  }
+
+  public void setProfile(boolean doProfile) {
+    this.profile = doProfile;
+  }
+
   /**
    * @return the number of map tasks to use for import.
    */
@@ -517,6 +539,18 @@ public class SqoopOptions {
     this.packageName = name;
   }
 
+  /**
+   * @return true if generated classes should store numeric and boolean
+   * columns in primitive fields (set via --primitive-fields).
+   */
+  public boolean usePrimitiveFields() {
+    return primitiveFields;
+  }
+
+  public void setUsePrimitiveFields(boolean primitive) {
+    this.primitiveFields = primitive;
+  }
+
   public String getHiveHome() {
     return hiveHome;
   }
@@ -900,6 +934,18 @@ public class SqoopOptions {
     this.maxInlineLobSize = limit;
   }
 
+  /**
+   * @return the JDBC fetch size requested by the user, or null if the
+   * connection manager should choose one.
+   */
+  public Integer getFetchSize() {
+    return this.fetchSize;
+  }
+
+  public void setFetchSize(Integer size) {
+    this.fetchSize = size;
+  }
+
   /**
    * @return true if the delimiters have been explicitly set by the user.
    */
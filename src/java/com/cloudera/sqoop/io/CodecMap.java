@@ -28,7 +28,8 @@ import org.apache.hadoop.util.ReflectionUtils;
 
 /**
  * Provides a mapping from codec names to concrete implementation class names.
- * This is used by LobFile.
+ * This is used by LobFile. Codecs that are not registered here may be named
+ * by the fully-qualified name of their CompressionCodec class.
  */
 public final class CodecMap {
 
@@ -36,6 +37,10 @@ public final class CodecMap {
   public static final String NONE = "none";
   public static final String DEFLATE = "deflate";
   public static final String LZO = "lzo";
+  public static final String GZIP = "gzip";
+  public static final String BZIP2 = "bzip2";
+  public static final String SNAPPY = "snappy";
+  public static final String LZ4 = "lz4";
 
   private static Map<String, String> codecNames;
   static {
@@ -45,21 +50,48 @@ public final class CodecMap {
     codecNames.put(NONE,    null);
     codecNames.put(DEFLATE, "org.apache.hadoop.io.compress.DefaultCodec");
     codecNames.put(LZO,     "com.hadoop.compression.lzo.LzoCodec");
+    codecNames.put(GZIP,    "org.apache.hadoop.io.compress.GzipCodec");
+    codecNames.put(BZIP2,   "org.apache.hadoop.io.compress.BZip2Codec");
+
+    // These codecs only exist in some versions of Hadoop.
+    putIfPresent(SNAPPY,    "org.apache.hadoop.io.compress.SnappyCodec");
+    putIfPresent(LZ4,       "org.apache.hadoop.io.compress.Lz4Codec");
   }
 
   private CodecMap() {
   }
 
+  /**
+   * Register a codec name only if its class can be loaded.
+   */
+  private static void putIfPresent(String codecName, String className) {
+    try {
+      Class.forName(className, false, CodecMap.class.getClassLoader());
+      codecNames.put(codecName, className);
+    } catch (ClassNotFoundException cnfe) {
+      // Not available in this version of Hadoop.
+    } catch (LinkageError le) {
+      // Not usable in this version of Hadoop.
+    }
+  }
+
   /**
    * Given a codec name, return the name of the concrete class
    * that implements it (or 'null' in the case of the "none" codec).
+   * A name that is not registered but looks like a class name is returned
+   * as-is.
    * @throws UnsupportedCodecException if a codec cannot be found
    * with the supplied name.
    */
   public static String getCodecClassName(String codecName)
       throws UnsupportedCodecException {
     if (!codecNames.containsKey(codecName)) {
-      throw new UnsupportedCodecException(codecName);
+      if (null != codecName && codecName.indexOf('.') > 0) {
+        return codecName;
+      }
+      throw new UnsupportedCodecException("Unsupported codec " + codecName
+          + "; expected one of " + getCodecNames()
+          + " or the class name of a CompressionCodec");
     }
 
     return codecNames.get(codecName);
@@ -79,14 +111,22 @@ public final class CodecMap {
       if (null == codecClassName) {
         return null;
       }
+      Class<?> cls = conf.getClassByName(codecClassName);
+      if (!CompressionCodec.class.isAssignableFrom(cls)) {
+        throw new UnsupportedCodecException("Class " + codecClassName
+            + " is not a CompressionCodec");
+      }
       Class<? extends CompressionCodec> codecClass =
-          (Class<? extends CompressionCodec>)
-          conf.getClassByName(codecClassName);
+          cls.asSubclass(CompressionCodec.class);
       return (CompressionCodec) ReflectionUtils.newInstance(
           codecClass, conf);
     } catch (ClassNotFoundException cnfe) {
       throw new UnsupportedCodecException("Cannot find codec class "
           + codecClassName + " for codec " + codecName);
+    } catch (RuntimeException re) {
+      // ReflectionUtils wraps any failure to construct the codec.
+      throw new UnsupportedCodecException("Cannot create codec "
+          + codecName + ": " + re);
     }
   }
 
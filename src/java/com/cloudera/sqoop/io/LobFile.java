@@ -25,12 +25,16 @@ import java.io.DataInputStream;
 import java.io.DataOutput;
 import java.io.DataOutputStream;
 import java.io.EOFException;
+import java.io.File;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.rmi.server.UID;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
@@ -61,10 +65,14 @@ import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.io.WritableUtils;
 import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.CompressionInputStream;
+import org.apache.hadoop.io.compress.CompressionOutputStream;
 import org.apache.hadoop.io.compress.Compressor;
 import org.apache.hadoop.io.compress.CompressorStream;
 import org.apache.hadoop.io.compress.Decompressor;
 import org.apache.hadoop.io.compress.DecompressorStream;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.io.compress.zlib.BuiltInZlibDeflater;
 
 /**
  * File format which stores large object records.
@@ -84,6 +92,32 @@ public final class LobFile {
   public static final Log LOG = LogFactory.getLog(LobFile.class.getName());
 
   public static final int LATEST_LOB_VERSION = 0;
+
+  /**
+   * conf key: records in local, uncompressed LobFiles at least this many
+   * bytes long are memory-mapped by Reader.readBlobRecordBuffer(); shorter
+   * records are read with positional reads. A negative value disables
+   * memory mapping.
+   */
+  public static final String MMAP_THRESHOLD_KEY = "sqoop.lob.mmap.threshold";
+
+  public static final long DEFAULT_MMAP_THRESHOLD = 256 * 1024;
+
+  /**
+   * conf key: compression level (0-9) to use with the deflate codec.
+   * If unset, the codec's default level is used.
+   */
+  public static final String COMPRESSION_LEVEL_KEY =
+      "sqoop.lob.compression.level";
+
+  /**
+   * conf key: if true, compressed LobFiles decide for each record whether
+   * compressing it saves space, and store records that do not shrink
+   * uncompressed. The decision is recorded in the index. Files written
+   * this way cannot be read by older versions of LobFile.
+   */
+  public static final String ADAPTIVE_COMPRESSION_KEY =
+      "sqoop.lob.compression.adaptive";
   static final char [] HEADER_ID_STR = { 'L', 'O', 'B' };
 
   // Value for entryId to write to the beginning of an IndexSegment. 
@@ -257,6 +291,7 @@ public final class LobFile {
     public static final String ENTRY_ENCODING_KEY = "EntryEncoding";
     public static final String COMPRESSION_CODEC_KEY = "CompressionCodec";
     public static final String ENTRIES_PER_SEGMENT_KEY = "EntriesPerSegment";
+    public static final String RECORD_FLAGS_KEY = "RecordFlags";
 
     // Standard entry encodings.
     public static final String CLOB_ENCODING = "CLOB";
@@ -362,20 +397,26 @@ public final class LobFile {
     // The IndexTableEntry that describes this IndexSegment in the IndexTable.
     private IndexTableEntry tableEntry;
 
-    public IndexSegment(IndexTableEntry tableEntry) {
+    // If true, each record length is shifted left by one bit and the low
+    // bit is set if the record is stored uncompressed in a compressed file.
+    private boolean hasRecordFlags;
+
+    public IndexSegment(IndexTableEntry tableEntry, boolean hasRecordFlags) {
       this.recordLenBytes = new BytesWritable();
       this.outputBuffer = new DataOutputBuffer(10); // max VLong size.
       this.tableEntry = tableEntry;
+      this.hasRecordFlags = hasRecordFlags;
     }
 
     /**
      * Read an IndexSegment from an existing file.
      */
-    public IndexSegment(IndexTableEntry tableEntry, DataInput in)
-        throws IOException {
+    public IndexSegment(IndexTableEntry tableEntry, boolean hasRecordFlags,
+        DataInput in) throws IOException {
       this.recordLenBytes = new BytesWritable();
       this.outputBuffer = new DataOutputBuffer(10);
       this.tableEntry = tableEntry;
+      this.hasRecordFlags = hasRecordFlags;
       readFields(in);
     }
 
@@ -389,15 +430,24 @@ public final class LobFile {
 
     /**
      * Add a recordLength to the recordLenBytes array.
+     * @param recordLen the length of the record in the file.
+     * @param storedRaw true if the record is stored uncompressed in a
+     * compressed file. Only recorded if this segment has record flags.
      */
-    public void addRecordLen(long recordLen) throws IOException {
+    public void addRecordLen(long recordLen, boolean storedRaw)
+        throws IOException {
+      long entry = recordLen;
+      if (hasRecordFlags) {
+        entry = (recordLen << 1) | (storedRaw ? 1 : 0);
+      }
+
       // Allocate space for the new bytes.
-      int numBytes = WritableUtils.getVIntSize(recordLen);
+      int numBytes = WritableUtils.getVIntSize(entry);
       recordLenBytes.setSize(recordLenBytes.getLength() + numBytes);
 
       // Write the new bytes into a temporary buffer wrapped in a DataOutput.
       outputBuffer.reset();
-      WritableUtils.writeVLong(outputBuffer, recordLen);
+      WritableUtils.writeVLong(outputBuffer, entry);
 
       // Then copy those new bytes into the end of the recordLenBytes array.
       System.arraycopy(outputBuffer.getData(), 0, recordLenBytes.getBytes(),
@@ -449,6 +499,9 @@ public final class LobFile {
       byte [] segmentData = new byte[(int) length];
       in.readFully(segmentData);
       recordLenBytes = new BytesWritable(segmentData);
+      recordOffsets = null;
+      recordLens = null;
+      recordStoredRaw = null;
 
       reset(); // Reset the iterator allowing the user to yield offset/lengths.
     }
@@ -456,25 +509,73 @@ public final class LobFile {
 
     // The following methods are used by a Reader to walk through the index
     // segment and get data about the records described in this segment of
-    // the index.
-    
-    private DataInputBuffer dataInputBuf;
+    // the index. The VLong-encoded record lengths are decoded once into
+    // primitive arrays of record offsets and lengths, which can then be
+    // iterated over or binary-searched.
 
-    // The following two fields are advanced by the next() method.
-    private long curOffset; // offset into the file of the current record.
-    private long curLen; // length of the current record in bytes.
+    private long [] recordOffsets;
+    private long [] recordLens;
 
-    // Used to allow rewindOnce() to go backwards a single position in the
-    // iterator.
-    private int prevInputBufPos; // prev offset into dataInputBuf.
-    private long prevOffset;
-    private long prevLen;
+    // Per-record "stored uncompressed" flags, if hasRecordFlags is set.
+    private boolean [] recordStoredRaw;
+
+    // Index of the current record in recordOffsets / recordLens; -1 before
+    // the first call to next().
+    private int curRecord;
 
     /**
      * Resets the record index iterator.
      */
     public void reset() {
-      this.dataInputBuf = null;
+      this.curRecord = -1;
+    }
+
+    /**
+     * Decode the record lengths into recordOffsets and recordLens.
+     */
+    private void decode() {
+      if (null != recordOffsets) {
+        return; // Already decoded.
+      }
+
+      DataInputBuffer dataInputBuf = new DataInputBuffer();
+      dataInputBuf.reset(recordLenBytes.getBytes(), 0,
+          recordLenBytes.getLength());
+
+      // Each VLong takes at least one byte.
+      long [] offsets = new long[recordLenBytes.getLength()];
+      long [] lens = new long[recordLenBytes.getLength()];
+      boolean [] storedRaw = new boolean[recordLenBytes.getLength()];
+      int numRecords = 0;
+      long offset = this.tableEntry.getFirstIndexOffset();
+      try {
+        while (dataInputBuf.getPosition() < dataInputBuf.getLength()) {
+          long len = WritableUtils.readVLong(dataInputBuf);
+          if (hasRecordFlags) {
+            storedRaw[numRecords] = (len & 1) != 0;
+            len = len >>> 1;
+          }
+          offsets[numRecords] = offset;
+          lens[numRecords] = len;
+          offset += len;
+          numRecords++;
+        }
+      } catch (IOException ioe) {
+        // Shouldn't happen; data in DataInputBuffer is materialized.
+        throw new RuntimeException(ioe);
+      }
+
+      this.recordOffsets = Arrays.copyOf(offsets, numRecords);
+      this.recordLens = Arrays.copyOf(lens, numRecords);
+      this.recordStoredRaw = Arrays.copyOf(storedRaw, numRecords);
+    }
+
+    /**
+     * @return the number of records described in this IndexSegment.
+     */
+    public int getNumRecords() {
+      decode();
+      return recordOffsets.length;
     }
 
     /**
@@ -484,63 +585,54 @@ public final class LobFile {
      * @return true if there is another record described in this IndexSegment.
      */
     public boolean next() {
-      this.prevOffset = this.curOffset;
-      if (null == dataInputBuf) {
-        // We need to set up the iterator; this is the first use.
-        if (null == recordLenBytes) {
-          return false; // We don't have any records?
-        }
+      if (curRecord + 1 < getNumRecords()) {
+        curRecord++;
+        return true;
+      }
 
-        this.dataInputBuf = new DataInputBuffer();
-        this.dataInputBuf.reset(recordLenBytes.getBytes(),
-            0, recordLenBytes.getLength());
+      curRecord = recordOffsets.length;
+      return false;
+    }
 
-        this.curOffset = this.tableEntry.getFirstIndexOffset();
-        this.prevOffset = 0;
-      } else {
-        this.curOffset += this.curLen;
+    /**
+     * Undoes a single call to next(). This makes a subsequent call to
+     * next() yield the same iterated values as the previous call.
+     */
+    public void rewindOnce() {
+      if (curRecord >= 0) {
+        curRecord--;
       }
+    }
 
-      boolean available = dataInputBuf.getPosition() < dataInputBuf.getLength();
-      if (available) {
-        this.prevInputBufPos = dataInputBuf.getPosition();
-        // Then read out the next record length.
-        try {
-          this.prevLen = this.curLen;
-          this.curLen = WritableUtils.readVLong(dataInputBuf);
-        } catch (IOException ioe) {
-          // Shouldn't happen; data in DataInputBuffer is materialized.
-          throw new RuntimeException(ioe);
+    /**
+     * Binary-search for the first record starting at or after an offset.
+     * @param start the offset from the beginning of the file.
+     * @return the index of the record within this IndexSegment, or
+     * getNumRecords() if every record here starts before 'start'.
+     */
+    public int findRecord(long start) {
+      decode();
+      int lo = 0;
+      int hi = recordOffsets.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (recordOffsets[mid] < start) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
         }
       }
 
-      return available;
+      return lo;
     }
 
     /**
-     * Undoes a single call to next(). This cannot be called twice in a row;
-     * before calling this again, next() must be called in the interim. This
-     * makes a subsequent call to next() yield the same iterated values as the
-     * previous call.
+     * Positions the iterator so that the next call to next() yields the
+     * record with the specified index.
+     * @param recordIdx the index of the record within this IndexSegment.
      */
-    public void rewindOnce() {
-      // Move the buffer backwards so we deserialize the same VLong with
-      // the next call.
-      if (prevInputBufPos == 0) {
-        // We actually rewound the first next() in the iterator.
-        // Just reset the iterator to the beginning. Otherwise we'll
-        // backfill it with bogus data.
-        reset();
-      } else {
-        // Use the normal codepath; move the serialization buffer
-        // backwards and restores the previously yielded values.
-        dataInputBuf.reset(recordLenBytes.getBytes(), prevInputBufPos,
-            recordLenBytes.getLength() - prevInputBufPos);
-
-        // And restore the previously-yielded values.
-        this.curLen = this.prevLen;
-        this.curOffset = this.prevOffset;
-      }
+    public void positionBefore(int recordIdx) {
+      this.curRecord = recordIdx - 1;
     }
 
     /**
@@ -549,7 +641,7 @@ public final class LobFile {
      * @return the length in bytes of the current record.
      */
     public long getCurRecordLen() {
-      return curLen;
+      return recordLens[curRecord];
     }
 
     /**
@@ -559,7 +651,165 @@ public final class LobFile {
      * current record.
      */
     public long getCurRecordStart() {
-      return curOffset;
+      return recordOffsets[curRecord];
+    }
+
+    /**
+     * Returns whether the current record is stored uncompressed in a
+     * compressed file.
+     * You must call next() and it must return true before calling this method.
+     * @return true if the current record must not be decompressed.
+     */
+    public boolean isCurRecordStoredRaw() {
+      return recordStoredRaw[curRecord];
+    }
+  }
+
+  /**
+   * Returns whether records compressed with the named codec are framed by
+   * a plain CompressorStream around the codec's compressor. LobFile has
+   * always written deflate and lzo records this way, so these codecs keep
+   * that framing and existing files remain readable. Other codecs use the
+   * streams that the codec itself creates.
+   */
+  private static boolean usesCompressorStream(String codecName) {
+    return CodecMap.DEFLATE.equals(codecName)
+        || CodecMap.LZO.equals(codecName);
+  }
+
+  /**
+   * Wrap an OutputStream in a stream that compresses a record.
+   */
+  private static CompressionOutputStream createCompressionStream(
+      CompressionCodec codec, String codecName, OutputStream out,
+      Compressor compressor) throws IOException {
+    if (usesCompressorStream(codecName)) {
+      return new CompressorStream(out, compressor);
+    }
+    return codec.createOutputStream(out, compressor);
+  }
+
+  /**
+   * Wrap an InputStream in a stream that decompresses a record.
+   */
+  private static CompressionInputStream createDecompressionStream(
+      CompressionCodec codec, String codecName, InputStream in,
+      Decompressor decompressor) throws IOException {
+    if (usesCompressorStream(codecName)) {
+      return new DecompressorStream(in, decompressor);
+    }
+    return codec.createInputStream(in, decompressor);
+  }
+
+  /**
+   * An OutputStream which decides whether a record should be compressed.
+   * It buffers the start of the record and compresses that sample with a
+   * trial compressor. If the sample does not shrink enough, the whole
+   * record is written uncompressed; otherwise it is compressed. Records
+   * that fit entirely in the sample are written from the trial output,
+   * so they are only compressed once.
+   */
+  private static class AdaptiveCompressionStream extends OutputStream {
+    // Number of bytes at the start of each record to test-compress.
+    static final int SAMPLE_SIZE = 64 * 1024;
+
+    // A record is compressed only if the compressed sample is at most
+    // this fraction of the original size.
+    static final double MAX_COMPRESSED_FRACTION = 0.9;
+
+    private final OutputStream out;
+    private final CompressionCodec codec;
+    private final String codecName;
+    private final Compressor compressor;
+    private final byte [] sample;
+    private int sampleLen;
+
+    // Null until the compression decision has been made.
+    private OutputStream target;
+    private boolean compressed;
+
+    AdaptiveCompressionStream(OutputStream out, CompressionCodec codec,
+        String codecName, Compressor compressor, byte [] sampleBuf) {
+      this.out = out;
+      this.codec = codec;
+      this.codecName = codecName;
+      this.compressor = compressor;
+      this.sample = sampleBuf;
+    }
+
+    /**
+     * @return true if the record was compressed. Only valid after close().
+     */
+    public boolean isCompressed() {
+      return compressed;
+    }
+
+    /**
+     * Compress the sample; decide whether to compress the record; and
+     * direct further writes accordingly.
+     * @param atEnd true if the sample holds the entire record.
+     */
+    private void decide(boolean atEnd) throws IOException {
+      DataOutputBuffer trialOut = new DataOutputBuffer();
+      if (null != compressor) {
+        compressor.reset();
+      }
+      CompressionOutputStream trial = createCompressionStream(codec,
+          codecName, trialOut, compressor);
+      trial.write(sample, 0, sampleLen);
+      trial.finish();
+
+      this.compressed =
+          trialOut.getLength() <= sampleLen * MAX_COMPRESSED_FRACTION;
+      if (atEnd) {
+        if (compressed) {
+          out.write(trialOut.getData(), 0, trialOut.getLength());
+        } else {
+          out.write(sample, 0, sampleLen);
+        }
+        this.target = out;
+        return;
+      }
+
+      if (compressed) {
+        if (null != compressor) {
+          compressor.reset();
+        }
+        this.target = createCompressionStream(codec, codecName, out,
+            compressor);
+      } else {
+        this.target = out;
+      }
+      target.write(sample, 0, sampleLen);
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte [] buf, int off, int len) throws IOException {
+      if (null == target) {
+        if (sampleLen + len <= sample.length) {
+          System.arraycopy(buf, off, sample, sampleLen, len);
+          sampleLen += len;
+          return;
+        }
+        decide(false);
+      }
+
+      target.write(buf, off, len);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null == target) {
+        decide(true);
+      } else if (target != out) {
+        ((CompressionOutputStream) target).finish();
+      }
+      target.flush();
     }
   }
 
@@ -797,6 +1047,12 @@ public final class LobFile {
     private CompressionCodec codec;
     private Compressor compressor;
 
+    // If true, each record is only compressed if it shrinks; the choice
+    // is recorded in the index. sampleBuf holds the start of each record
+    // while this is decided.
+    private boolean adaptiveCompression;
+    private byte [] sampleBuf;
+
     // The LobIndex we are constructing.
     private LinkedList<IndexSegment> indexSegments;
     // Number of entries in the current IndexSegment.
@@ -853,13 +1109,36 @@ public final class LobFile {
       if (this.codecName != null) {
         this.codec = CodecMap.getCodec(codecName, conf);
         if (null != this.codec) {
-          this.compressor = codec.createCompressor();
+          this.compressor = createCompressor();
+          this.adaptiveCompression = conf.getBoolean(
+              ADAPTIVE_COMPRESSION_KEY, false);
+          if (adaptiveCompression) {
+            this.sampleBuf = new byte[AdaptiveCompressionStream.SAMPLE_SIZE];
+          }
         }
       }
       
       init();
     }
 
+    /**
+     * Create a Compressor for the codec, honoring any compression level
+     * set in the configuration. The level is applied to the deflate codec
+     * through the java.util.zip-based deflater; other codecs use their
+     * default settings.
+     */
+    private Compressor createCompressor() {
+      int level = conf.getInt(COMPRESSION_LEVEL_KEY, -1);
+      if (level >= 0 && DefaultCodec.class.equals(codec.getClass())) {
+        LOG.debug("Using deflate compression level " + level);
+        return new BuiltInZlibDeflater(level);
+      } else if (level >= 0) {
+        LOG.debug("Ignoring compression level for codec " + codecName);
+      }
+
+      return codec.createCompressor();
+    }
+
     /**
      * Open the file and write its header.
      */
@@ -882,6 +1161,10 @@ public final class LobFile {
         m.put(MetaBlock.COMPRESSION_CODEC_KEY, this.codecName);
       }
 
+      if (adaptiveCompression) {
+        m.put(MetaBlock.RECORD_FLAGS_KEY, "true");
+      }
+
       // Serialize the value of maxEntriesPerSegment as a VInt in a byte array
       // and put that into the metablock as ENTRIES_PER_SEGMENT_KEY.
       int segmentBufLen = WritableUtils.getVIntSize(this.maxEntriesPerSegment);
@@ -954,11 +1237,16 @@ public final class LobFile {
         // Now close the "main" stream.
         this.userCountingOutputStream.close();
 
+        // Did we decide against compressing this record?
+        boolean storedRaw = this.userOutputStream
+            instanceof AdaptiveCompressionStream
+            && !((AdaptiveCompressionStream) userOutputStream).isCompressed();
+
         // Write the true length of the current record to the index.
         updateIndex(this.userCountingOutputStream.getByteCount()
             + RecordStartMark.START_MARK_LENGTH
             + WritableUtils.getVIntSize(curEntryId)
-            + WritableUtils.getVIntSize(curClaimedLen));
+            + WritableUtils.getVIntSize(curClaimedLen), storedRaw);
 
         this.userOutputStream = null;
         this.userCountingOutputStream = null;
@@ -973,11 +1261,13 @@ public final class LobFile {
      * Write in the current IndexSegment, the true compressed length of the
      * record we just finished writing.
      * @param curRecordLen the true length in bytes of the compressed record.
+     * @param storedRaw true if the record was not compressed.
      */
-    private void updateIndex(long curRecordLen) throws IOException {
+    private void updateIndex(long curRecordLen, boolean storedRaw)
+        throws IOException {
       LOG.debug("Adding index entry: id=" + curEntryId
-          + "; len=" + curRecordLen);
-      indexSegments.getLast().addRecordLen(curRecordLen);
+          + "; len=" + curRecordLen + "; raw=" + storedRaw);
+      indexSegments.getLast().addRecordLen(curRecordLen, storedRaw);
       entriesInSegment++;
       curEntryId++;
     }
@@ -1020,7 +1310,8 @@ public final class LobFile {
         // The current segment is full. Start a new one.
         this.entriesInSegment = 0;
         IndexTableEntry tableEntry = new IndexTableEntry();
-        IndexSegment curSegment = new IndexSegment(tableEntry);
+        IndexSegment curSegment = new IndexSegment(tableEntry,
+            adaptiveCompression);
         this.indexSegments.add(curSegment);
 
         long filePos = tell();
@@ -1052,11 +1343,18 @@ public final class LobFile {
       if (null == this.codec) {
         // No codec; pass thru the same OutputStream to the user.
         this.userOutputStream = this.userCountingOutputStream;
+      } else if (adaptiveCompression) {
+        // Compress the record only if it turns out to be compressible.
+        this.userOutputStream = new AdaptiveCompressionStream(
+            this.userCountingOutputStream, codec, codecName, compressor,
+            sampleBuf);
       } else {
         // Wrap our CountingOutputStream in a compressing OutputStream to
         // give to the user.
-        this.compressor.reset();
-        this.userOutputStream = new CompressorStream(
+        if (null != this.compressor) {
+          this.compressor.reset();
+        }
+        this.userOutputStream = createCompressionStream(codec, codecName,
             this.userCountingOutputStream, compressor);
       }
 
@@ -1080,6 +1378,61 @@ public final class LobFile {
     }
   }
 
+  /**
+   * A contiguous range of records within a LobFile, aligned on IndexSegment
+   * boundaries. Ranges returned by Reader.getRecordRanges() are disjoint
+   * and together cover every record in the file, so each can be consumed
+   * independently, e.g., by a separate thread or map task that opens its
+   * own Reader, calls seek(getStartOffset()), and then calls next() until
+   * it returns false or getRecordOffset() reaches getEndOffset().
+   */
+  public static class RecordRange {
+    private final long startOffset;
+    private final long endOffset;
+    private final long firstEntryId;
+
+    public RecordRange(long startOffset, long endOffset, long firstEntryId) {
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.firstEntryId = firstEntryId;
+    }
+
+    /**
+     * @return the offset of the first record in the range.
+     */
+    public long getStartOffset() {
+      return this.startOffset;
+    }
+
+    /**
+     * @return the offset just past the last record in the range. Every
+     * record in the range starts before this offset.
+     */
+    public long getEndOffset() {
+      return this.endOffset;
+    }
+
+    /**
+     * @return the entryId of the first record in the range.
+     */
+    public long getFirstEntryId() {
+      return this.firstEntryId;
+    }
+
+    /**
+     * @return true if a record starting at 'offset' belongs to this range.
+     */
+    public boolean contains(long offset) {
+      return offset >= startOffset && offset < endOffset;
+    }
+
+    @Override
+    public String toString() {
+      return "RecordRange(" + startOffset + ", " + endOffset + "; first id="
+          + firstEntryId + ")";
+    }
+  }
+
   /**
    * Class that can read a LobFile. Create with LobFile.open().
    */
@@ -1158,12 +1511,66 @@ public final class LobFile {
      */
     public abstract InputStream readBlobRecord() throws IOException;
 
+    /**
+     * Reads the next binary record fully into a ByteBuffer. Implementations
+     * may return a read-only buffer that maps the file directly, so the
+     * buffer's contents must not be modified. The default implementation
+     * copies the record from readBlobRecord().
+     * @return a ByteBuffer positioned at the start of the record data,
+     * whose limit is the end of the record.
+     */
+    public ByteBuffer readBlobRecordBuffer() throws IOException {
+      InputStream is = readBlobRecord();
+      try {
+        byte [] buf = new byte[(int) Math.min(Math.max(getRecordLen(), 16),
+            Integer.MAX_VALUE - 8)];
+        int len = 0;
+        while (true) {
+          if (len == buf.length) {
+            if (buf.length == Integer.MAX_VALUE - 8) {
+              throw new IOException("Record too large for a ByteBuffer");
+            }
+            buf = Arrays.copyOf(buf,
+                (int) Math.min(2L * buf.length, Integer.MAX_VALUE - 8));
+          }
+
+          int bytesRead = is.read(buf, len, buf.length - len);
+          if (-1 == bytesRead) {
+            break;
+          }
+          len += bytesRead;
+        }
+
+        return ByteBuffer.wrap(buf, 0, len);
+      } finally {
+        is.close();
+      }
+    }
+
     /**
      * @return a java.io.Reader allowing the user to read the next character
      * record from the file.
      */
     public abstract java.io.Reader readClobRecord() throws IOException;
 
+    /**
+     * @return true if the file holds character (CLOB) records, or false
+     * if it holds binary (BLOB) records.
+     */
+    public abstract boolean isCharData();
+
+    /**
+     * Divides the records of the file into at most 'maxRanges' disjoint
+     * ranges along IndexSegment boundaries, balanced by the number of
+     * bytes of record data in each. This only consults the IndexTable, and
+     * does not move the Reader's cursor.
+     * @param maxRanges the maximum number of ranges to return.
+     * @return the ranges, in file order. A file with no records has no
+     * ranges.
+     */
+    public abstract List<RecordRange> getRecordRanges(int maxRanges)
+        throws IOException;
+
     /**
      * Closes the reader.
      */
@@ -1208,9 +1615,13 @@ public final class LobFile {
     private Configuration conf;
 
     // Codec to use to decompress the file.
+    private String codecName;
     private CompressionCodec codec;
     private Decompressor decompressor;
 
+    // True if the index records which records are stored uncompressed.
+    private boolean hasRecordFlags;
+
     // Length of the entire file.
     private long fileLen;
 
@@ -1235,6 +1646,10 @@ public final class LobFile {
     // true length from the index.
     private long indexRecordLen;
 
+    // After we've aligned on a record, this is true if it is stored
+    // uncompressed even though the file has a codec.
+    private boolean indexRecordStoredRaw;
+
     // tmp buffer used to consume RecordStartMarks during alignment.
     private byte [] tmpRsmBuf;
 
@@ -1261,9 +1676,22 @@ public final class LobFile {
     // The IndexTable that provides fast pointers to the IndexSegments.
     private IndexTable indexTable;
 
+    // The lastIndexOffset of each IndexTableEntry, for binary search.
+    private long [] segmentLastOffsets;
+
+    // IndexSegments that have already been read from the file, by position
+    // in the indexTable.
+    private IndexSegment [] segmentCache;
+
     // The path being opened.
     private Path path;
 
+    // If the file is on the local filesystem, the local file, and a
+    // FileChannel for positional reads and memory mapping. The channel is
+    // opened by the first call to readBlobRecordBuffer().
+    private File localFile;
+    private FileChannel localChannel;
+
     // Users should use LobFile.open() instead of directly calling this.
     V0Reader(Path path, Configuration conf, LobFileHeader header,
         DataInputStream dis, FSDataInputStream stream, long fileLen)
@@ -1277,6 +1705,9 @@ public final class LobFile {
       this.tmpRsmBuf = new byte[RecordStartMark.START_MARK_LENGTH];
       this.fileLen = fileLen;
       LOG.debug("Opening LobFile path: " + path);
+      if ("file".equals(this.path.toUri().getScheme())) {
+        this.localFile = new File(this.path.toUri().getPath());
+      }
       openCodec();
       openIndex();
     }
@@ -1286,7 +1717,7 @@ public final class LobFile {
      * create an instance of it.
      */
     private void openCodec() throws IOException {
-      String codecName = header.getMetaBlock().getString(
+      this.codecName = header.getMetaBlock().getString(
           MetaBlock.COMPRESSION_CODEC_KEY);
       if (null != codecName) {
         LOG.debug("Decompressing file with codec: " + codecName);
@@ -1295,6 +1726,9 @@ public final class LobFile {
           this.decompressor = codec.createDecompressor();
         }
       }
+
+      this.hasRecordFlags = null != header.getMetaBlock().getString(
+          MetaBlock.RECORD_FLAGS_KEY);
     }
 
     /**
@@ -1363,6 +1797,13 @@ public final class LobFile {
       }
 
       this.indexTable = new IndexTable(dataIn);
+
+      int numSegments = indexTable.size();
+      this.segmentLastOffsets = new long[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        this.segmentLastOffsets[i] = indexTable.get(i).getLastIndexOffset();
+      }
+      this.segmentCache = new IndexSegment[numSegments];
     }
 
     /**
@@ -1387,6 +1828,14 @@ public final class LobFile {
         return;
       }
 
+      IndexSegment cached = segmentCache[curIndexSegmentId];
+      if (null != cached) {
+        // We've read this one before.
+        cached.reset();
+        this.curIndexSegment = cached;
+        return;
+      }
+
       // Otherwise, seek to the segment and load it.
       IndexTableEntry tableEntry = indexTable.get(curIndexSegmentId);
       long segmentOffset = tableEntry.getSegmentOffset();
@@ -1414,7 +1863,8 @@ public final class LobFile {
 
       // Read the IndexSegment proper.
       this.curIndexSegment = new IndexSegment(
-          this.indexTable.get(curIndexSegmentId), this.dataIn);
+          this.indexTable.get(curIndexSegmentId), hasRecordFlags, this.dataIn);
+      this.segmentCache[curIndexSegmentId] = this.curIndexSegment;
     }
 
     /**
@@ -1465,6 +1915,55 @@ public final class LobFile {
       return this.path;
     }
 
+    @Override
+    /** {@inheritDoc} */
+    public boolean isCharData() {
+      return MetaBlock.CLOB_ENCODING.equals(header.getMetaBlock().getString(
+          MetaBlock.ENTRY_ENCODING_KEY));
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public List<RecordRange> getRecordRanges(int maxRanges)
+        throws IOException {
+      if (maxRanges < 1) {
+        throw new IllegalArgumentException("maxRanges must be positive");
+      }
+
+      checkForNull(this.underlyingInput);
+      List<RecordRange> ranges = new ArrayList<RecordRange>();
+      int numSegments = indexTable.size();
+      if (0 == numSegments) {
+        return ranges;
+      }
+
+      // The IndexSegments are written directly after the last record, so
+      // the first of them marks the end of the record data.
+      long dataEnd = indexTable.get(0).getSegmentOffset();
+      long dataStart = indexTable.get(0).getFirstIndexOffset();
+      long targetBytes = Math.max(1,
+          (dataEnd - dataStart + maxRanges - 1) / maxRanges);
+
+      // Greedily close a range once it holds at least targetBytes of data;
+      // every range but the last is then at least that large, so at most
+      // maxRanges are produced.
+      IndexTableEntry rangeStart = indexTable.get(0);
+      for (int i = 1; i <= numSegments; i++) {
+        long segmentEnd = (i == numSegments) ? dataEnd
+            : indexTable.get(i).getFirstIndexOffset();
+        if (i == numSegments
+            || segmentEnd - rangeStart.getFirstIndexOffset() >= targetBytes) {
+          ranges.add(new RecordRange(rangeStart.getFirstIndexOffset(),
+              segmentEnd, rangeStart.getFirstIndexId()));
+          if (i < numSegments) {
+            rangeStart = indexTable.get(i);
+          }
+        }
+      }
+
+      return ranges;
+    }
+
     @Override
     /** {@inheritDoc} */
     public long tell() throws IOException {
@@ -1489,54 +1988,47 @@ public final class LobFile {
     private void searchForRecord(long start) throws IOException {
       LOG.debug("Looking for the first record at/after offset " + start);
 
-      // Scan through the IndexTable until we find the IndexSegment
-      // that contains the offset. 
-      for (int i = 0; i < indexTable.size(); i++) {
-        IndexTableEntry tableEntry = indexTable.get(i);
-        if (LOG.isDebugEnabled()) {
-          LOG.debug("Checking index table entry for range: "
-              + tableEntry.getFirstIndexOffset() + ", "
-              + tableEntry.getLastIndexOffset());
+      // Binary-search the IndexTable for the first IndexSegment whose
+      // last record starts at or after the offset.
+      int lo = 0;
+      int hi = segmentLastOffsets.length;
+      while (lo < hi) {
+        int mid = (lo + hi) >>> 1;
+        if (segmentLastOffsets[mid] < start) {
+          lo = mid + 1;
+        } else {
+          hi = mid;
         }
+      }
 
-        if (tableEntry.containsOffset(start)) {
-          // Seek to the IndexSegment associated with this tableEntry.
-          curIndexSegmentId = i;
-          loadIndexSegment();
-          
-          // Use this index segment. The record index iterator
-          // is at the beginning of the IndexSegment, since we just
-          // read it in.
-          LOG.debug("Found matching index segment.");
-          while (this.curIndexSegment.next()) {
-            long curStart = this.curIndexSegment.getCurRecordStart();
-            if (curStart >= start) {
-              LOG.debug("Found seek target record with offset " + curStart);
-              // This is the first record to meet this criterion.
-              // Rewind the index iterator by one so that the next()
-              // method will do the right thing. next() will also
-              // take care of actually seeking to the correct position
-              // in the file to read the record proper.
-              this.curIndexSegment.rewindOnce();
-              return;
-            }
-          }
+      // If lo is past the end of the table, the record is not in the
+      // file; this advances the IndexSegment iterator to the end of the
+      // road so that next() returns false.
+      curIndexSegmentId = lo;
+      loadIndexSegment();
+      if (null == this.curIndexSegment) {
+        return;
+      }
 
-          // If it wasn't actually in this IndexSegment, then we've
-          // got a corrupt IndexTableEntry; the entry represented that
-          // the segment ran longer than it actually does.
-          throw new IOException("IndexTableEntry claims last offset of "
-              + tableEntry.getLastIndexOffset()
-              + " but IndexSegment ends early."
-              + " The IndexTable appears corrupt.");
-        }
+      int recordIdx = this.curIndexSegment.findRecord(start);
+      if (recordIdx == this.curIndexSegment.getNumRecords()) {
+        // If it wasn't actually in this IndexSegment, then we've
+        // got a corrupt IndexTableEntry; the entry represented that
+        // the segment ran longer than it actually does.
+        throw new IOException("IndexTableEntry claims last offset of "
+            + segmentLastOffsets[lo]
+            + " but IndexSegment ends early."
+            + " The IndexTable appears corrupt.");
       }
 
-      // If we didn't return inside the loop, then we've searched the entire
-      // file and it's not there. Advance the IndexSegment iterator to 
-      // the end of the road so that next() returns false.
-      this.curIndexSegmentId = indexTable.size();
-      loadIndexSegment();
+      if (LOG.isDebugEnabled()) {
+        LOG.debug("Found seek target record in segment " + lo + " at index "
+            + recordIdx);
+      }
+
+      // The next() method will take care of actually seeking to the
+      // correct position in the file to read the record proper.
+      this.curIndexSegment.positionBefore(recordIdx);
     }
 
     /**
@@ -1627,6 +2119,7 @@ public final class LobFile {
 
       // Determine where the next record starts.
       this.indexRecordLen = this.curIndexSegment.getCurRecordLen();
+      this.indexRecordStoredRaw = this.curIndexSegment.isCurRecordStoredRaw();
       this.curRecordOffset = this.curIndexSegment.getCurRecordStart();
 
       LOG.debug("Next record starts at position: " + this.curRecordOffset
@@ -1710,15 +2203,84 @@ public final class LobFile {
           - WritableUtils.getVIntSize(this.claimedRecordLen);
       LOG.debug("Yielding stream to user with length " + streamLen);
       this.userInputStream = new FixedLengthInputStream(this.dataIn, streamLen);
-      if (this.codec != null) {
+      if (this.codec != null && !this.indexRecordStoredRaw) {
         // The user needs to decompress the data; wrap the InputStream.
-        decompressor.reset();
-        this.userInputStream = new DecompressorStream(
-            this.userInputStream, decompressor);
+        if (null != decompressor) {
+          decompressor.reset();
+        }
+        this.userInputStream = createDecompressionStream(codec,
+            codecName, this.userInputStream, decompressor);
       }
       return this.userInputStream;
     }
 
+    @Override
+    /**
+     * {@inheritDoc}
+     * Uncompressed records in local files are returned without copying
+     * them through the input stream: large records are memory-mapped and
+     * small ones are read with a single positional read.
+     */
+    public ByteBuffer readBlobRecordBuffer() throws IOException {
+      if (!isRecordAvailable()) {
+        // we're not currently aligned on a record-start.
+        // Try to get the next one.
+        if (!next()) {
+          // No more records available.
+          throw new EOFException("End of file reached.");
+        }
+      }
+
+      if (null == localFile || (null != codec && !indexRecordStoredRaw)) {
+        return super.readBlobRecordBuffer();
+      }
+
+      // Ensure any previously-open user record stream is closed.
+      closeUserStream();
+
+      // Mark this record as consumed.
+      this.isAligned = false;
+
+      long headerLen = RecordStartMark.START_MARK_LENGTH
+          + WritableUtils.getVIntSize(this.curEntryId)
+          + WritableUtils.getVIntSize(this.claimedRecordLen);
+      long dataStart = this.curRecordOffset + headerLen;
+      long dataLen = this.indexRecordLen - headerLen;
+      if (dataLen > Integer.MAX_VALUE) {
+        throw new IOException("Record of " + dataLen
+            + " bytes is too large for a ByteBuffer");
+      }
+
+      if (null == localChannel) {
+        localChannel = new RandomAccessFile(localFile, "r").getChannel();
+      }
+
+      ByteBuffer buf;
+      long mmapThreshold = conf.getLong(MMAP_THRESHOLD_KEY,
+          DEFAULT_MMAP_THRESHOLD);
+      if (mmapThreshold >= 0 && dataLen >= mmapThreshold) {
+        LOG.debug("Mapping record of " + dataLen + " bytes at " + dataStart);
+        buf = localChannel.map(FileChannel.MapMode.READ_ONLY, dataStart,
+            dataLen);
+      } else {
+        buf = ByteBuffer.allocate((int) dataLen);
+        while (buf.hasRemaining()) {
+          int bytesRead = localChannel.read(buf, dataStart + buf.position());
+          if (-1 == bytesRead) {
+            throw new EOFException("End of file reached inside record.");
+          }
+        }
+        buf.flip();
+      }
+
+      // Move the stream past the record, so that next() does not consume
+      // the record data through the stream.
+      this.underlyingInput.seek(dataStart + dataLen);
+      this.dataIn = new DataInputStream(this.underlyingInput);
+
+      return buf;
+    }
+
     @Override
     /** {@inheritDoc} */
     public java.io.Reader readClobRecord() throws IOException {
@@ -1742,6 +2304,11 @@ public final class LobFile {
         underlyingInput = null;
       }
 
+      if (null != localChannel) {
+        localChannel.close();
+        localChannel = null;
+      }
+
       this.isAligned = false;
     }
 
@@ -1752,6 +2319,23 @@ public final class LobFile {
     }
   }
 
+  /**
+   * Reports the number of bytes an uncompressed record occupies in a
+   * LobFile, including its RecordStartMark and length header. Records
+   * are laid out contiguously after the file header, so a writer that
+   * knows the exact length of the data it will write can use this to
+   * compute the offsets of records before they are written.
+   * @param entryId the entryId of the record.
+   * @param len the exact number of data bytes in the record.
+   * @return the length of the record on disk.
+   */
+  public static long getUncompressedRecordLength(long entryId, long len) {
+    return RecordStartMark.START_MARK_LENGTH
+        + WritableUtils.getVIntSize(entryId)
+        + WritableUtils.getVIntSize(len)
+        + len;
+  }
+
   /**
    * Creates a LobFile Reader configured to read from the specified file.
    */
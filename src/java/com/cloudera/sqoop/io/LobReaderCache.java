@@ -19,8 +19,14 @@
 package com.cloudera.sqoop.io;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,21 +36,93 @@ import org.apache.hadoop.conf.Configuration;
 
 /**
  * A cache of open LobFile.Reader objects.
- * This maps from filenames to the open Reader, if any.  This uses the
- * Singleton pattern. While nothing prevents multiple LobReaderCache
- * instances, it is most useful to have a single global cache. This cache is
- * internally synchronized; only one thread can insert or retrieve a reader
- * from the cache at a time. 
+ * This maps from filenames to a pool of idle Readers for that file. This
+ * uses the Singleton pattern. While nothing prevents multiple
+ * LobReaderCache instances, it is most useful to have a single global
+ * cache.
+ *
+ * Several readers may be pooled for the same path so that concurrent
+ * consumers of one file do not close each other's readers. Each path's
+ * pool is locked independently. The cache holds a bounded number of idle
+ * readers in total; when it is full, the least recently returned reader
+ * is closed. Readers which sit idle longer than a configurable time are
+ * also closed.
  */
 public final class LobReaderCache {
 
   public static final Log LOG = LogFactory.getLog(
       LobReaderCache.class.getName());
 
-  private Map<Path, LobFile.Reader> readerMap;
+  /** conf key: maximum number of idle readers held by the cache. */
+  public static final String MAX_CACHED_READERS_KEY =
+      "sqoop.lob.reader.cache.size";
+
+  public static final int DEFAULT_MAX_CACHED_READERS = 64;
+
+  /** conf key: maximum number of idle readers held for a single path. */
+  public static final String MAX_READERS_PER_PATH_KEY =
+      "sqoop.lob.reader.cache.per.path";
+
+  public static final int DEFAULT_MAX_READERS_PER_PATH = 4;
+
+  /**
+   * conf key: number of milliseconds a reader may sit idle in the cache
+   * before it is closed.
+   */
+  public static final String MAX_IDLE_MILLIS_KEY =
+      "sqoop.lob.reader.cache.idle.ms";
+
+  public static final long DEFAULT_MAX_IDLE_MILLIS = 60000;
+
+  /**
+   * An idle reader and the time it was returned to the cache.
+   */
+  private static class CachedReader {
+    private final LobFile.Reader reader;
+    private final long recycleTime;
 
-  private LobReaderCache() {
-    this.readerMap = new TreeMap<Path, LobFile.Reader>();
+    CachedReader(LobFile.Reader r, long time) {
+      this.reader = r;
+      this.recycleTime = time;
+    }
+  }
+
+  /**
+   * The idle readers for one path, most recently returned first. Callers
+   * must synchronize on the pool. Once a pool is removed from the map it
+   * is marked as such and must not accept further readers.
+   */
+  private static class ReaderPool extends ArrayDeque<CachedReader> {
+    private static final long serialVersionUID = 1L;
+    private boolean removed;
+  }
+
+  private ConcurrentMap<Path, ReaderPool> readerMap;
+
+  // Number of idle readers held across all pools.
+  private final AtomicInteger numCached;
+
+  private final AtomicLong hits;
+  private final AtomicLong misses;
+  private final AtomicLong evictions;
+
+  private volatile int maxCachedReaders;
+  private volatile int maxReadersPerPath;
+  private volatile long maxIdleMillis;
+
+  // The last time idle readers were looked for.
+  private volatile long lastIdleSweep;
+
+  LobReaderCache() {
+    this.readerMap = new ConcurrentHashMap<Path, ReaderPool>();
+    this.numCached = new AtomicInteger();
+    this.hits = new AtomicLong();
+    this.misses = new AtomicLong();
+    this.evictions = new AtomicLong();
+    this.maxCachedReaders = DEFAULT_MAX_CACHED_READERS;
+    this.maxReadersPerPath = DEFAULT_MAX_READERS_PER_PATH;
+    this.maxIdleMillis = DEFAULT_MAX_IDLE_MILLIS;
+    this.lastIdleSweep = System.currentTimeMillis();
   }
 
   private static final LobReaderCache CACHE;
@@ -78,7 +156,19 @@ public final class LobReaderCache {
     }
     return path.makeQualified(fs);
   }
-  
+
+  /**
+   * Update the cache limits from the configuration.
+   */
+  private void configure(Configuration conf) {
+    maxCachedReaders = conf.getInt(MAX_CACHED_READERS_KEY,
+        DEFAULT_MAX_CACHED_READERS);
+    maxReadersPerPath = conf.getInt(MAX_READERS_PER_PATH_KEY,
+        DEFAULT_MAX_READERS_PER_PATH);
+    maxIdleMillis = conf.getLong(MAX_IDLE_MILLIS_KEY,
+        DEFAULT_MAX_IDLE_MILLIS);
+  }
+
   /**
    * Open a LobFile for read access, returning a cached reader if one is
    * available, or a new reader otherwise.
@@ -89,58 +179,212 @@ public final class LobReaderCache {
   public LobFile.Reader get(Path path, Configuration conf)
       throws IOException {
 
-    LobFile.Reader reader = null;
+    configure(conf);
     Path canonicalPath = qualify(path, conf);
+
     // Look up an entry in the cache.
-    synchronized(this) {
-      reader = readerMap.remove(canonicalPath);
-    }
+    ReaderPool pool = readerMap.get(canonicalPath);
+    if (null != pool) {
+      while (true) {
+        CachedReader entry;
+        synchronized (pool) {
+          entry = pool.pollFirst();
+        }
+
+        if (null == entry) {
+          break;
+        }
 
-    if (null != reader && !reader.isClosed()) {
-      // Cache hit. return it.
-      LOG.debug("Using cached reader for " + canonicalPath);
-      return reader;
+        numCached.decrementAndGet();
+        if (!entry.reader.isClosed()) {
+          // Cache hit. return it.
+          LOG.debug("Using cached reader for " + canonicalPath);
+          hits.incrementAndGet();
+          return entry.reader;
+        }
+      }
     }
 
     // Cache miss; open the file.
     LOG.debug("No cached reader available for " + canonicalPath);
+    misses.incrementAndGet();
     return LobFile.open(path, conf);
   }
 
   /**
-   * Return a reader back to the cache. If there's already a reader for
-   * this path, then the current reader is closed.
+   * Return a reader back to the cache. If there are already as many
+   * readers for this path as the cache allows, then the current reader
+   * is closed. Returning a reader may cause the least recently used or
+   * long-idle readers to be closed.
    * @param reader the opened reader. Any record-specific subreaders should be
    * closed.
    * @throws IOException if there's an error accessing the path's filesystem.
    */
   public void recycle(LobFile.Reader reader) throws IOException {
+    if (reader.isClosed()) {
+      return;
+    }
+
     Path canonicalPath = reader.getPath();
+    CachedReader entry = new CachedReader(reader,
+        System.currentTimeMillis());
 
-    // Check if the cache has a reader for this path already. If not, add this.
+    // Add this to the path's pool if it has room.
     boolean cached = false;
-    synchronized(this) {
-      if (readerMap.get(canonicalPath) == null) {
-        LOG.debug("Caching reader for path: " + canonicalPath);
-        readerMap.put(canonicalPath, reader);
-        cached = true;
+    while (true) {
+      ReaderPool pool = readerMap.get(canonicalPath);
+      if (null == pool) {
+        ReaderPool newPool = new ReaderPool();
+        pool = readerMap.putIfAbsent(canonicalPath, newPool);
+        if (null == pool) {
+          pool = newPool;
+        }
+      }
+
+      synchronized (pool) {
+        if (pool.removed) {
+          continue; // Raced with removal of an empty pool; try again.
+        }
+
+        if (pool.size() < maxReadersPerPath) {
+          LOG.debug("Caching reader for path: " + canonicalPath);
+          pool.addFirst(entry);
+          cached = true;
+        }
       }
+      break;
     }
 
     if (!cached) {
-      LOG.debug("Reader already present for path: " + canonicalPath
+      LOG.debug("Reader pool full for path: " + canonicalPath
           + "; closing.");
       reader.close();
+      return;
     }
+
+    numCached.incrementAndGet();
+    evictReaders();
   }
 
-  @Override
-  protected synchronized void finalize() throws Throwable {
-    for (LobFile.Reader r : readerMap.values()) {
+  /**
+   * Close readers that have been idle too long, and then the least
+   * recently returned readers until the cache is within its bounds.
+   */
+  private void evictReaders() throws IOException {
+    long now = System.currentTimeMillis();
+    boolean sweepIdle = maxIdleMillis > 0
+        && now - lastIdleSweep >= maxIdleMillis / 2;
+    if (!sweepIdle && numCached.get() <= maxCachedReaders) {
+      return;
+    }
+
+    if (sweepIdle) {
+      lastIdleSweep = now;
+    }
+
+    List<LobFile.Reader> toClose = new ArrayList<LobFile.Reader>();
+    while (true) {
+      // Find the oldest reader, dropping any that have idled too long.
+      ReaderPool oldestPool = null;
+      CachedReader oldest = null;
+      for (Map.Entry<Path, ReaderPool> e : readerMap.entrySet()) {
+        ReaderPool pool = e.getValue();
+        synchronized (pool) {
+          while (sweepIdle && !pool.isEmpty()
+              && now - pool.peekLast().recycleTime > maxIdleMillis) {
+            toClose.add(pool.pollLast().reader);
+            numCached.decrementAndGet();
+          }
+
+          if (pool.isEmpty()) {
+            pool.removed = true;
+            readerMap.remove(e.getKey(), pool);
+          } else if (null == oldest
+              || pool.peekLast().recycleTime < oldest.recycleTime) {
+            oldest = pool.peekLast();
+            oldestPool = pool;
+          }
+        }
+      }
+      sweepIdle = false;
+
+      if (null == oldest || numCached.get() <= maxCachedReaders) {
+        break;
+      }
+
+      synchronized (oldestPool) {
+        // Only evict it if nobody has taken it in the meantime.
+        if (oldestPool.peekLast() == oldest) {
+          oldestPool.pollLast();
+          toClose.add(oldest.reader);
+          numCached.decrementAndGet();
+        }
+      }
+    }
+
+    for (LobFile.Reader r : toClose) {
+      LOG.debug("Evicting cached reader for " + r.getPath());
+      evictions.incrementAndGet();
+      r.close();
+    }
+  }
+
+  /**
+   * Close all readers held by the cache.
+   * @throws IOException if there's an error closing a reader.
+   */
+  public void clear() throws IOException {
+    List<LobFile.Reader> toClose = new ArrayList<LobFile.Reader>();
+    for (Map.Entry<Path, ReaderPool> e : readerMap.entrySet()) {
+      ReaderPool pool = e.getValue();
+      synchronized (pool) {
+        for (CachedReader entry : pool) {
+          toClose.add(entry.reader);
+          numCached.decrementAndGet();
+        }
+        pool.clear();
+        pool.removed = true;
+        readerMap.remove(e.getKey(), pool);
+      }
+    }
+
+    for (LobFile.Reader r : toClose) {
       r.close();
     }
+  }
+
+  /**
+   * @return the number of idle readers currently held by the cache.
+   */
+  public int size() {
+    return numCached.get();
+  }
+
+  /**
+   * @return the number of calls to get() satisfied by a cached reader.
+   */
+  public long getHits() {
+    return hits.get();
+  }
 
+  /**
+   * @return the number of calls to get() that had to open a new reader.
+   */
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of cached readers closed to keep the cache within
+   * its size and idle-time bounds.
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+  @Override
+  protected void finalize() throws Throwable {
+    clear();
     super.finalize();
   }
 }
-
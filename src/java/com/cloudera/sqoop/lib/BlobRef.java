@@ -23,10 +23,14 @@ import java.io.DataInput;
 import java.io.DataOutput;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import java.util.regex.Matcher;
 
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.mapreduce.Mapper;
 import com.cloudera.sqoop.io.LobFile;
 
 import org.apache.commons.logging.Log;
@@ -66,7 +70,45 @@ public class BlobRef extends LobRef<byte[], BytesWritable, InputStream> {
 
   @Override
   protected InputStream getInternalSource(BytesWritable data) {
-    return new ByteArrayInputStream(data.getBytes());
+    return new ByteArrayInputStream(data.getBytes(), 0, data.getLength());
+  }
+
+  /**
+   * Convenience method to access #getDataBuffer(Configuration, Path)
+   * from within a map task that read this BlobRef from a file-based
+   * InputSplit.
+   * @param mapContext the Mapper.Context instance that encapsulates
+   * the current map task.
+   * @return a ByteBuffer holding the BLOB data.
+   * @throws IOException if it could not read the BLOB from external storage.
+   */
+  public ByteBuffer getDataBuffer(Mapper.Context mapContext)
+      throws IOException {
+    return getDataBuffer(mapContext.getConfiguration(),
+        getBasePath(mapContext));
+  }
+
+  /**
+   * Get the BLOB data as a ByteBuffer without copying it where possible.
+   * Inline data is wrapped in a read-only buffer. External data is read
+   * with LobFile.Reader.readBlobRecordBuffer(), which maps or directly
+   * reads uncompressed LobFiles on the local filesystem. The contents of
+   * the returned buffer must not be modified.
+   * @param conf the Configuration used to access the filesystem
+   * @param basePath the base directory where the table records are
+   * stored.
+   * @return a ByteBuffer holding the BLOB data.
+   * @throws IOException if it could not read the BLOB from external storage.
+   */
+  public ByteBuffer getDataBuffer(Configuration conf, Path basePath)
+      throws IOException {
+    if (isExternal()) {
+      return getExternalReader(conf, basePath).readBlobRecordBuffer();
+    } else {
+      BytesWritable data = getDataObj();
+      return ByteBuffer.wrap(data.getBytes(), 0,
+          data.getLength()).asReadOnlyBuffer();
+    }
   }
 
   @Override
@@ -84,7 +126,7 @@ public class BlobRef extends LobRef<byte[], BytesWritable, InputStream> {
     // For internally-stored BLOBs, the data is a BytesWritable
     // containing the actual data.
 
-    BytesWritable data = getDataObj();
+    BytesWritable data = getReusableDataObj();
 
     if (null == data) {
       data = new BytesWritable();
@@ -29,11 +29,18 @@ import java.sql.Blob;
 import java.sql.Clob;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import com.cloudera.sqoop.io.CodecMap;
 import com.cloudera.sqoop.io.LobFile;
+import com.cloudera.sqoop.util.ErrorableThread;
 import com.cloudera.sqoop.util.TaskId;
 
 /**
@@ -48,12 +55,64 @@ import com.cloudera.sqoop.util.TaskId;
  */
 public class LargeObjectLoader implements Closeable {
 
+  public static final Log LOG = LogFactory.getLog(
+      LargeObjectLoader.class.getName());
+
   // Spill to external storage for BLOB/CLOB objects > 16 MB.
   public static final long DEFAULT_MAX_LOB_LENGTH = 16 * 1024 * 1024;
 
   public static final String MAX_INLINE_LOB_LEN_KEY =
       "sqoop.inline.lob.length.max";
 
+  /**
+   * conf key: number of background threads that copy external BLOBs into
+   * LobFiles. Each thread writes its own LobFile. If zero, BLOBs are
+   * copied synchronously by the thread reading the ResultSet. The JDBC
+   * driver must keep Blob objects readable after the cursor has moved
+   * on to later rows for this to be enabled.
+   */
+  public static final String LOB_WRITER_THREADS_KEY =
+      "sqoop.lob.writer.threads";
+
+  public static final int DEFAULT_LOB_WRITER_THREADS = 0;
+
+  /**
+   * conf key: number of BLOBs that may be waiting to be copied by each
+   * background writer thread before readBlobRef() blocks.
+   */
+  public static final String LOB_WRITER_QUEUE_LEN_KEY =
+      "sqoop.lob.writer.queue.length";
+
+  public static final int DEFAULT_LOB_WRITER_QUEUE_LEN = 4;
+
+  /** conf key: size of the buffer used to copy external LOB data. */
+  public static final String LOB_COPY_BUFFER_SIZE_KEY =
+      "sqoop.lob.copy.buffer.size";
+
+  public static final int DEFAULT_LOB_COPY_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * conf key: name of the CodecMap codec used to compress external LOBs.
+   * Background BLOB writer threads are not used with compression, as
+   * record offsets cannot be reserved before the data is compressed.
+   */
+  public static final String LOB_COMPRESSION_CODEC_KEY =
+      "sqoop.lob.compression.codec";
+
+  /**
+   * conf key: once a LobFile holds at least this many bytes, further
+   * LOBs are written to a new LobFile. Zero means no limit.
+   */
+  public static final String LOB_FILE_MAX_BYTES_KEY =
+      "sqoop.lob.file.max.bytes";
+
+  /**
+   * conf key: maximum number of LOBs written to a single LobFile before
+   * a new one is started. Zero means no limit.
+   */
+  public static final String LOB_FILE_MAX_RECORDS_KEY =
+      "sqoop.lob.file.max.records";
+
   private Configuration conf;
   private Path workPath;
   private FileSystem fs;
@@ -62,6 +121,13 @@ public class LargeObjectLoader implements Closeable {
   private LobFile.Writer curBlobWriter;
   private LobFile.Writer curClobWriter;
 
+  // Number of records written to curBlobWriter / curClobWriter.
+  private long curBlobRecords;
+  private long curClobRecords;
+
+  // Background threads that copy external BLOBs; created on first use.
+  private BlobWriterThread [] blobWriterThreads;
+
   // Counter that is used with the current task attempt id to
   // generate unique LOB file names.
   private long nextLobFileId = 0;
@@ -88,6 +154,12 @@ public class LargeObjectLoader implements Closeable {
 
   @Override
   public void close() throws IOException {
+    if (null != blobWriterThreads) {
+      BlobWriterThread [] threads = blobWriterThreads;
+      blobWriterThreads = null;
+      closeBlobWriterThreads(threads);
+    }
+
     if (null != curBlobWriter) {
       curBlobWriter.close();
       curBlobWriter = null;
@@ -126,22 +198,58 @@ public class LargeObjectLoader implements Closeable {
   }
 
   /**
-   * @return the current LobFile writer for BLOBs, creating one if necessary.
+   * Determines whether a LobFile has reached the configured size or
+   * record count limit, and further LOBs should go to a new file.
+   * @param bytes the current length of the LobFile.
+   * @param records the number of records in the LobFile.
+   * @return true if a new LobFile should be started.
+   */
+  private boolean isLobFileFull(long bytes, long records) {
+    if (records == 0) {
+      return false; // Every LobFile holds at least one record.
+    }
+
+    long maxBytes = conf.getLong(LOB_FILE_MAX_BYTES_KEY, 0);
+    long maxRecords = conf.getLong(LOB_FILE_MAX_RECORDS_KEY, 0);
+    return (maxBytes > 0 && bytes >= maxBytes)
+        || (maxRecords > 0 && records >= maxRecords);
+  }
+
+  /**
+   * @return the current LobFile writer for BLOBs, creating one if necessary
+   * or if the current file is full.
    */
   private LobFile.Writer getBlobWriter() throws IOException {
+    if (null != this.curBlobWriter
+        && isLobFileFull(this.curBlobWriter.tell(), this.curBlobRecords)) {
+      this.curBlobWriter.close();
+      this.curBlobWriter = null;
+    }
+
     if (null == this.curBlobWriter) {
-      this.curBlobWriter = LobFile.create(getNextLobFilePath(), conf, false);
+      this.curBlobWriter = LobFile.create(getNextLobFilePath(), conf, false,
+          getCompressionCodec());
+      this.curBlobRecords = 0;
     }
 
     return this.curBlobWriter;
   }
 
   /**
-   * @return the current LobFile writer for CLOBs, creating one if necessary.
+   * @return the current LobFile writer for CLOBs, creating one if necessary
+   * or if the current file is full.
    */
   private LobFile.Writer getClobWriter() throws IOException {
+    if (null != this.curClobWriter
+        && isLobFileFull(this.curClobWriter.tell(), this.curClobRecords)) {
+      this.curClobWriter.close();
+      this.curClobWriter = null;
+    }
+
     if (null == this.curClobWriter) {
-      this.curClobWriter = LobFile.create(getNextLobFilePath(), conf, true);
+      this.curClobWriter = LobFile.create(getNextLobFilePath(), conf, true,
+          getCompressionCodec());
+      this.curClobRecords = 0;
     }
 
     return this.curClobWriter;
@@ -178,9 +286,7 @@ public class LargeObjectLoader implements Closeable {
    * @throws IOException if an I/O error occurs either reading or writing.
    */
   private void copyAll(Reader reader, Writer writer) throws IOException {
-    int bufferSize = conf.getInt("io.file.buffer.size",
-        4096);
-    char [] buf = new char[bufferSize];
+    char [] buf = new char[getCopyBufferSize()];
 
     while (true) {
       int charsRead = reader.read(buf);
@@ -196,21 +302,333 @@ public class LargeObjectLoader implements Closeable {
    * OutputStream. Does not close handles when it's done.
    * @param input data source
    * @param output data sink
+   * @param buf the buffer to copy through.
+   * @return the number of bytes copied.
    * @throws IOException if an I/O error occurs either reading or writing.
    */
-  private void copyAll(InputStream input, OutputStream output)
-      throws IOException {
-    int bufferSize = conf.getInt("io.file.buffer.size",
-        4096);
-    byte [] buf = new byte[bufferSize];
-
+  private static long copyAll(InputStream input, OutputStream output,
+      byte [] buf) throws IOException {
+    long totalBytes = 0;
     while (true) {
-      int bytesRead = input.read(buf, 0, bufferSize);
+      int bytesRead = input.read(buf, 0, buf.length);
       if (-1 == bytesRead) {
         break; // no more stream to read.
       }
       output.write(buf, 0, bytesRead);
+      totalBytes += bytesRead;
+    }
+
+    return totalBytes;
+  }
+
+  /**
+   * @return the size of the buffer to use when copying LOB data.
+   */
+  private int getCopyBufferSize() {
+    return Math.max(conf.getInt(LOB_COPY_BUFFER_SIZE_KEY,
+        DEFAULT_LOB_COPY_BUFFER_SIZE), 1);
+  }
+
+  /**
+   * A BLOB which has been assigned a position in a LobFile but whose
+   * data has not yet been copied there.
+   */
+  private static class PendingBlob {
+    private final Blob blob;
+    private final long len;
+    private final LobFile.Writer writer;
+    private final long offset;
+
+    PendingBlob(Blob b, long length, LobFile.Writer w, long recordOffset) {
+      this.blob = b;
+      this.len = length;
+      this.writer = w;
+      this.offset = recordOffset;
+    }
+  }
+
+  // Marker placed in a BlobWriterThread's queue to tell it to exit.
+  private static final PendingBlob END_OF_BLOBS =
+      new PendingBlob(null, 0, null, 0);
+
+  /**
+   * Copies BLOBs into its own LobFile in the background.
+   *
+   * Records in an uncompressed LobFile are contiguous and their lengths
+   * are known from Blob.length(), so the offset of each record is
+   * reserved when it is enqueued; the caller gets its BlobRef back
+   * without waiting for the data to be copied. The thread checks that
+   * each record really lands at its reserved offset. When a LobFile is
+   * full, the enqueuing thread creates the next one and the writer
+   * thread switches to it when it reaches the first BLOB bound there.
+   */
+  private class BlobWriterThread extends ErrorableThread {
+    private final BlockingQueue<PendingBlob> queue;
+    private final byte [] buf;
+
+    // The LobFile currently being written by this thread.
+    private LobFile.Writer writer;
+
+    // Number of bytes enqueued but not yet copied.
+    private final AtomicLong pendingBytes;
+
+    // The LobFile that new records are reserved in, and the offset and
+    // entryId of the next record to be reserved there. These are only
+    // used by the thread calling readBlobRef().
+    private LobFile.Writer reservedWriter;
+    private String reservedPath;
+    private long nextOffset;
+    private long nextEntryId;
+
+    private volatile Exception exception;
+
+    BlobWriterThread(int threadId, int queueLen) throws IOException {
+      setName("LobWriter-" + threadId);
+      setDaemon(true);
+      this.queue = new ArrayBlockingQueue<PendingBlob>(queueLen + 1);
+      this.buf = new byte[getCopyBufferSize()];
+      this.pendingBytes = new AtomicLong();
+      startReservedWriter();
+      this.writer = this.reservedWriter;
+    }
+
+    /**
+     * Create a new LobFile in which to reserve records.
+     */
+    private void startReservedWriter() throws IOException {
+      this.reservedWriter = LobFile.create(getNextLobFilePath(), conf, false);
+      this.reservedPath = getRelativePath(reservedWriter);
+      this.nextOffset = reservedWriter.tell();
+      this.nextEntryId = 0;
+    }
+
+    /**
+     * Reserve space for a BLOB in this thread's LobFile and queue it
+     * to be copied there. Blocks if the queue is full.
+     * @return a BlobRef pointing to the reserved record.
+     */
+    BlobRef enqueue(Blob b, long len)
+        throws IOException, InterruptedException {
+      if (isLobFileFull(nextOffset, nextEntryId)) {
+        startReservedWriter();
+      }
+
+      long offset = nextOffset;
+      nextOffset += LobFile.getUncompressedRecordLength(nextEntryId, len);
+      nextEntryId++;
+      pendingBytes.addAndGet(len);
+      queue.put(new PendingBlob(b, len, reservedWriter, offset));
+      return new BlobRef(reservedPath, offset, len);
+    }
+
+    long getPendingBytes() {
+      return pendingBytes.get();
+    }
+
+    Exception getException() {
+      return exception;
+    }
+
+    void finish() throws InterruptedException {
+      queue.put(END_OF_BLOBS);
+    }
+
+    public void run() {
+      try {
+        while (true) {
+          PendingBlob pending = queue.take();
+          if (pending == END_OF_BLOBS) {
+            break;
+          }
+
+          try {
+            if (pending.writer != writer) {
+              // Move on to the next LobFile.
+              LobFile.Writer prevWriter = writer;
+              writer = pending.writer;
+              prevWriter.close();
+            }
+
+            if (!isErrored()) {
+              copyBlob(pending);
+            }
+          } catch (IOException ioe) {
+            LOG.error("Error writing BLOB to " + writer.getPath() + ": "
+                + ioe);
+            exception = ioe;
+            setError();
+          } catch (SQLException sqlE) {
+            LOG.error("Error reading BLOB for " + writer.getPath() + ": "
+                + sqlE);
+            exception = sqlE;
+            setError();
+          } finally {
+            pendingBytes.addAndGet(-pending.len);
+          }
+        }
+      } catch (InterruptedException ie) {
+        LOG.error("Interrupted while writing BLOBs to " + writer.getPath());
+        exception = ie;
+        setError();
+      }
+    }
+
+    private void copyBlob(PendingBlob pending)
+        throws IOException, SQLException {
+      long recordOffset = writer.tell();
+      if (recordOffset != pending.offset) {
+        throw new IOException("BLOB record starts at offset " + recordOffset
+            + "; expected " + pending.offset);
+      }
+
+      InputStream is = null;
+      OutputStream os = writer.writeBlobRecord(pending.len);
+      try {
+        is = pending.blob.getBinaryStream();
+        long bytesCopied = copyAll(is, os, buf);
+        if (bytesCopied != pending.len) {
+          throw new IOException("BLOB claimed length " + pending.len
+              + " but contained " + bytesCopied + " bytes");
+        }
+      } finally {
+        if (null != os) {
+          os.close();
+        }
+
+        if (null != is) {
+          is.close();
+        }
+
+        // Mark the record as finished.
+        writer.finishRecord();
+      }
+    }
+  }
+
+  /**
+   * @return the number of background BLOB writer threads to use.
+   */
+  private int getNumBlobWriterThreads() {
+    if (null != getCompressionCodec()) {
+      return 0;
+    }
+    return conf.getInt(LOB_WRITER_THREADS_KEY, DEFAULT_LOB_WRITER_THREADS);
+  }
+
+  /**
+   * @return the codec name to compress LobFiles with, or null for none.
+   */
+  private String getCompressionCodec() {
+    String codec = conf.get(LOB_COMPRESSION_CODEC_KEY);
+    if (CodecMap.NONE.equals(codec)) {
+      return null;
     }
+    return codec;
+  }
+
+  /**
+   * Throws an IOException if any background BLOB writer has failed.
+   */
+  private void checkBlobWriterThreads(BlobWriterThread [] threads)
+      throws IOException {
+    for (BlobWriterThread thread : threads) {
+      if (thread.isErrored()) {
+        throw new IOException("Error writing BLOB in " + thread.getName(),
+            thread.getException());
+      }
+    }
+  }
+
+  /**
+   * Hands a BLOB to the background writer thread with the least amount
+   * of outstanding work, starting the threads if necessary.
+   * @return a BlobRef for the record that the BLOB will be written to.
+   */
+  private BlobRef enqueueBlob(Blob b, long len)
+      throws IOException, InterruptedException {
+    if (null == blobWriterThreads) {
+      int numThreads = getNumBlobWriterThreads();
+      int queueLen = Math.max(conf.getInt(LOB_WRITER_QUEUE_LEN_KEY,
+          DEFAULT_LOB_WRITER_QUEUE_LEN), 1);
+      LOG.debug("Starting " + numThreads + " BLOB writer threads");
+      BlobWriterThread [] threads = new BlobWriterThread[numThreads];
+      for (int i = 0; i < numThreads; i++) {
+        threads[i] = new BlobWriterThread(i, queueLen);
+      }
+      for (BlobWriterThread thread : threads) {
+        thread.start();
+      }
+      blobWriterThreads = threads;
+    }
+
+    checkBlobWriterThreads(blobWriterThreads);
+
+    BlobWriterThread target = blobWriterThreads[0];
+    for (BlobWriterThread thread : blobWriterThreads) {
+      if (thread.getPendingBytes() < target.getPendingBytes()) {
+        target = thread;
+      }
+    }
+
+    return target.enqueue(b, len);
+  }
+
+  /**
+   * Waits for the background BLOB writers to copy all outstanding
+   * BLOBs, then closes their LobFiles.
+   */
+  private void closeBlobWriterThreads(BlobWriterThread [] threads)
+      throws IOException {
+    IOException firstErr = null;
+    try {
+      for (BlobWriterThread thread : threads) {
+        thread.finish();
+      }
+      for (BlobWriterThread thread : threads) {
+        thread.join();
+      }
+    } catch (InterruptedException ie) {
+      // Leave the interrupt for our caller to see.
+      Thread.currentThread().interrupt();
+      firstErr = new IOException("Interrupted waiting for BLOB writers", ie);
+    }
+
+    for (BlobWriterThread thread : threads) {
+      if (thread.isAlive()) {
+        // The thread may still be writing to its LobFiles.
+        LOG.warn("Not closing LobFiles of running " + thread.getName());
+        continue;
+      }
+
+      firstErr = closeLobWriter(thread.writer, firstErr);
+      if (thread.reservedWriter != thread.writer) {
+        firstErr = closeLobWriter(thread.reservedWriter, firstErr);
+      }
+    }
+
+    if (null != firstErr) {
+      throw firstErr;
+    }
+
+    checkBlobWriterThreads(threads);
+  }
+
+  /**
+   * Close a LobFile writer, keeping the first of several errors.
+   * @return 'firstErr' if it is non-null, otherwise the error raised
+   * closing the writer, if any.
+   */
+  private static IOException closeLobWriter(LobFile.Writer w,
+      IOException firstErr) {
+    try {
+      w.close();
+    } catch (IOException ioe) {
+      LOG.error("Error closing LobFile " + w.getPath() + ": " + ioe);
+      if (null == firstErr) {
+        return ioe;
+      }
+    }
+    return firstErr;
   }
 
   /**
@@ -236,14 +654,19 @@ public class LargeObjectLoader implements Closeable {
     } else if (b.length() > maxInlineLobLen) {
       // Deserialize very large BLOBs into separate files.
       long len = b.length();
+      if (getNumBlobWriterThreads() > 0) {
+        return enqueueBlob(b, len);
+      }
+
       LobFile.Writer lobWriter = getBlobWriter();
+      curBlobRecords++;
 
       long recordOffset = lobWriter.tell();
       InputStream is = null;
       OutputStream os = lobWriter.writeBlobRecord(len);
       try {
         is = b.getBinaryStream();
-        copyAll(is, os);
+        copyAll(is, os, new byte[getCopyBufferSize()]);
       } finally {
         if (null != os) {
           os.close();
@@ -257,7 +680,7 @@ public class LargeObjectLoader implements Closeable {
         lobWriter.finishRecord();
       }
 
-      return new BlobRef(getRelativePath(curBlobWriter), recordOffset, len);
+      return new BlobRef(getRelativePath(lobWriter), recordOffset, len);
     } else {
       // This is a 1-based array.
       return new BlobRef(b.getBytes(1, (int) b.length()));
@@ -289,6 +712,7 @@ public class LargeObjectLoader implements Closeable {
       // Deserialize large CLOB into separate file.
       long len = c.length();
       LobFile.Writer lobWriter = getClobWriter();
+      curClobRecords++;
 
       long recordOffset = lobWriter.tell();
       Reader reader = null;
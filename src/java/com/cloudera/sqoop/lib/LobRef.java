@@ -77,14 +77,29 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
   // If the data is 'small', it's held directly, here.
   private CONTAINERTYPE realData;
 
-  /** Internal API to retrieve the data object. */
+  // True if realData may be shared with a clone of this object. Shared
+  // data is copied before a mutable reference to it is handed out.
+  private boolean dataShared;
+
+  /** Internal API to retrieve the data object. Callers must not modify it. */
   protected CONTAINERTYPE getDataObj() {
     return realData;
   }
 
+  /**
+   * Internal API to retrieve the data object so that it can be reused
+   * to hold new data.
+   * @return the data object, or null if it is shared with a clone and
+   * must not be modified.
+   */
+  protected CONTAINERTYPE getReusableDataObj() {
+    return dataShared ? null : realData;
+  }
+
   /** Internal API to set the data object. */
   protected void setDataObj(CONTAINERTYPE data) {
     this.realData = data;
+    this.dataShared = false;
   }
 
   // If there data is too large to materialize fully, it's written into a file
@@ -100,11 +115,35 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
   // If we've opened a LobFile object, track our reference to it here.
   private LobFile.Reader lobReader;
 
+  /**
+   * @return the path of the LobFile holding an external LOB, relative to
+   * the rest of the dataset, or null if the LOB is held inline.
+   */
+  public String getFileName() {
+    return fileName;
+  }
+
+  /**
+   * @return the offset of an external LOB's record in its LobFile.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the claimed length of an external LOB.
+   */
+  public long getLength() {
+    return length;
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   /**
-   * Clone the current reference object. data is deep-copied; any open
-   * file handle remains with the original only.
+   * Clone the current reference object. data is shared copy-on-write: it
+   * is only copied if either object later hands out a mutable reference
+   * to it through getData(). Any open file handle remains with the
+   * original only.
    */
   public Object clone() throws CloneNotSupportedException {
     LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE> r =
@@ -112,7 +151,8 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
 
     r.lobReader = null; // Reference to opened reader is not duplicated.
     if (null != realData) {
-      r.realData = deepCopyData(realData);
+      this.dataShared = true;
+      r.dataShared = true;
     }
 
     return r;
@@ -152,11 +192,23 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
    */
   public ACCESSORTYPE getDataStream(Mapper.Context mapContext)
       throws IOException {
+    return getDataStream(mapContext.getConfiguration(),
+        getBasePath(mapContext));
+  }
+
+  /**
+   * Determines the directory holding the dataset that a map task is
+   * reading, to which external LOB paths are relative.
+   * @param mapContext the Mapper.Context instance that encapsulates
+   * the current map task.
+   * @return the directory containing the current map task's input file.
+   * @throws IllegalArgumentException if the map task is not reading from
+   * a file-based InputSplit.
+   */
+  protected static Path getBasePath(Mapper.Context mapContext) {
     InputSplit split = mapContext.getInputSplit();
     if (split instanceof FileSplit) {
-      Path basePath = ((FileSplit) split).getPath().getParent();
-      return getDataStream(mapContext.getConfiguration(),
-        basePath);
+      return ((FileSplit) split).getPath().getParent();
     } else {
       throw new IllegalArgumentException(
           "Could not ascertain LOB base path from MapContext.");
@@ -176,40 +228,54 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
   public ACCESSORTYPE getDataStream(Configuration conf, Path basePath)
       throws IOException {
     if (isExternal()) {
-      // Read from external storage.
-      Path pathToRead = LobReaderCache.qualify(
-          new Path(basePath, fileName), conf);
-      LOG.debug("Retreving data stream from external path: " + pathToRead);
-      if (lobReader != null) {
-        // We already have a reader open to a LobFile. Is it the correct file?
-        if (!pathToRead.equals(lobReader.getPath())) {
-          // No. Close this.lobReader and get the correct one.
-          LOG.debug("Releasing previous external reader for "
-              + lobReader.getPath());
-          LobReaderCache.getCache().recycle(lobReader);
-          lobReader = LobReaderCache.getCache().get(pathToRead, conf);
-        }
-      } else {
-        lobReader = LobReaderCache.getCache().get(pathToRead, conf);
-      }
+      return getExternalSource(getExternalReader(conf, basePath));
+    } else {
+      // This data is already materialized in memory; wrap it and return.
+      return getInternalSource(realData);
+    }
+  }
 
-      // We now have a LobFile.Reader associated with the correct file. Get to
-      // the correct offset and return an InputStream/Reader to the user.
-      if (lobReader.tell() != offset) {
-        LOG.debug("Seeking to record start offset " + offset);
-        lobReader.seek(offset);
+  /**
+   * Get a LobFile.Reader aligned on the record holding this external LOB.
+   * The reader remains owned by this LobRef.
+   * @param conf the Configuration used to access the filesystem
+   * @param basePath the base directory where the table records are
+   * stored.
+   * @return a reader whose next record is this LOB.
+   * @throws IOException if it could not find the record.
+   */
+  protected LobFile.Reader getExternalReader(Configuration conf,
+      Path basePath) throws IOException {
+    // Read from external storage.
+    Path pathToRead = LobReaderCache.qualify(
+        new Path(basePath, fileName), conf);
+    LOG.debug("Retreving data stream from external path: " + pathToRead);
+    if (lobReader != null) {
+      // We already have a reader open to a LobFile. Is it the correct file?
+      if (!pathToRead.equals(lobReader.getPath())) {
+        // No. Close this.lobReader and get the correct one.
+        LOG.debug("Releasing previous external reader for "
+            + lobReader.getPath());
+        LobReaderCache.getCache().recycle(lobReader);
+        lobReader = LobReaderCache.getCache().get(pathToRead, conf);
       }
+    } else {
+      lobReader = LobReaderCache.getCache().get(pathToRead, conf);
+    }
 
-      if (!lobReader.next()) {
-        throw new IOException("Could not locate record at " + pathToRead
-            + ":" + offset);
-      }
+    // We now have a LobFile.Reader associated with the correct file. Get to
+    // the correct offset.
+    if (lobReader.tell() != offset) {
+      LOG.debug("Seeking to record start offset " + offset);
+      lobReader.seek(offset);
+    }
 
-      return getExternalSource(lobReader);
-    } else {
-      // This data is already materialized in memory; wrap it and return.
-      return getInternalSource(realData);
+    if (!lobReader.next()) {
+      throw new IOException("Could not locate record at " + pathToRead
+          + ":" + offset);
     }
+
+    return lobReader;
   }
 
   /**
@@ -240,6 +306,12 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
           "External LOBs must be read via getDataStream()");
     }
 
+    if (dataShared) {
+      // The caller may modify what we return; take a private copy first.
+      realData = deepCopyData(realData);
+      dataShared = false;
+    }
+
     return getInternalData(realData);
   }
 
@@ -270,6 +342,7 @@ public abstract class LobRef<DATATYPE, CONTAINERTYPE, ACCESSORTYPE>
     boolean isExternal = in.readBoolean();
     if (isExternal) {
       this.realData = null;
+      this.dataShared = false;
 
       String storageType = Text.readString(in);
       if (!storageType.equals("lf")) {
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.util.List;
 
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
@@ -33,6 +34,12 @@ import org.apache.hadoop.mapreduce.lib.db.DBWritable;
  */
 public abstract class SqoopRecord implements Cloneable, DBWritable, Writable {
 
+  /**
+   * The earliest class format version whose generated classes implement
+   * loadFromFields().
+   */
+  public static final int LOAD_FROM_FIELDS_VERSION = 4;
+
   public SqoopRecord() {
   }
 
@@ -45,6 +52,19 @@ public abstract class SqoopRecord implements Cloneable, DBWritable, Writable {
   public abstract void loadLargeObjects(LargeObjectLoader objLoader)
       throws SQLException, IOException, InterruptedException;
 
+  /**
+   * Sets the fields of this record from their string representations, in
+   * column order, as split from a line of text by a RecordParser. The
+   * string "null" is read as a null value.
+   * Classes generated before LOAD_FROM_FIELDS_VERSION do not support this;
+   * callers should check getClassFormatVersion() before relying on it.
+   */
+  public void loadFromFields(List<String> fields) {
+    throw new UnsupportedOperationException(getClass().getName()
+        + " cannot be loaded from parsed fields; regenerate it with "
+        + "this version of Sqoop.");
+  }
+
   /**
    * Inserts the data in this object into the PreparedStatement, starting
    * at parameter 'offset'. 
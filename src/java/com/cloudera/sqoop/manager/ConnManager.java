@@ -133,6 +133,14 @@ public abstract class ConnManager {
     return tableName;
   }
 
+  /**
+   * @return the JDBC fetch size to use when reading the rows of a query,
+   * or null to leave the driver's default in place.
+   */
+  public Integer getFetchSize() {
+    return null;
+  }
+
   /**
    * Perform any shutdown operations on the connection.
    */
@@ -22,9 +22,11 @@ import java.io.IOException;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.mapreduce.MySQLDumpImportJob;
 import com.cloudera.sqoop.mapreduce.MySQLExportJob;
+import com.cloudera.sqoop.mapreduce.MySQLStreamingImportJob;
 import com.cloudera.sqoop.util.ImportException;
 import com.cloudera.sqoop.util.ExportException;
 import com.cloudera.sqoop.manager.ImportJobContext;
@@ -50,6 +52,12 @@ public class DirectMySQLManager extends MySQLManager {
   public void importTable(ImportJobContext context)
       throws IOException, ImportException {
 
+    Configuration conf = context.getOptions().getConf();
+    if (conf.getBoolean(MySQLUtils.STREAMING_IMPORT_KEY, false)) {
+      streamingImportTable(context);
+      return;
+    }
+
     if (context.getOptions().getColumns() != null) {
       LOG.warn("Direct-mode import from MySQL does not support column");
       LOG.warn("selection. Falling back to JDBC-based import.");
@@ -81,13 +89,48 @@ public class DirectMySQLManager extends MySQLManager {
 
     LOG.info("Beginning mysqldump fast path import");
 
-    if (options.getFileLayout() != SqoopOptions.FileLayout.TextFile) {
-      // TODO(aaron): Support SequenceFile-based load-in.
-      LOG.warn("File import layout " + options.getFileLayout()
-          + " is not supported by");
-      LOG.warn("MySQL direct import; import will proceed as text files.");
+    if (options.getFileLayout() == SqoopOptions.FileLayout.SequenceFile) {
+      LOG.info("Parsing mysqldump output into SequenceFile records.");
+    }
+
+    importer.runImport(tableName, jarFile, splitCol, options.getConf());
+  }
+
+  /**
+   * Import the table into HDFS by streaming the rows of each split through
+   * a JDBC result set in the mapper. This needs no MySQL client programs,
+   * and supports column selection and SequenceFile output.
+   */
+  private void streamingImportTable(ImportJobContext context)
+      throws IOException, ImportException {
+    String tableName = context.getTableName();
+    String jarFile = context.getJarFile();
+    SqoopOptions options = context.getOptions();
+
+    MySQLStreamingImportJob importer = null;
+    try {
+      importer = new MySQLStreamingImportJob(options, context);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException("Could not load required classes", cnfe);
+    }
+
+    String splitCol = getSplitColumn(options, tableName);
+    if (null == splitCol && options.getNumMappers() > 1) {
+      // Can't infer a primary key.
+      throw new ImportException("No primary key could be found for table "
+          + tableName + ". Please specify one with --split-by or perform "
+          + "a sequential import with '-m 1'.");
+    }
+
+    Integer fetchSize = options.getFetchSize();
+    if (null != fetchSize && fetchSize.intValue() != Integer.MIN_VALUE) {
+      // Connector/J only streams rows with a fetch size of MIN_VALUE.
+      LOG.warn("--fetch-size " + fetchSize + " turns off row-at-a-time "
+          + "streaming. Unless the connect string sets useCursorFetch=true,");
+      LOG.warn("each map task will buffer all the rows of its split.");
     }
 
+    LOG.info("Beginning streaming JDBC fast path import");
     importer.runImport(tableName, jarFile, splitCol, options.getConf());
   }
 
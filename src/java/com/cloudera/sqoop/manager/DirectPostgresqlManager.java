@@ -26,15 +26,25 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.util.ReflectionUtils;
+
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.io.SplittableBufferedWriter;
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.orm.TableClassName;
 import com.cloudera.sqoop.util.AsyncSink;
+import com.cloudera.sqoop.util.ClassLoaderStack;
 import com.cloudera.sqoop.util.DirectImportUtils;
 import com.cloudera.sqoop.util.ErrorableAsyncSink;
 import com.cloudera.sqoop.util.ErrorableThread;
@@ -145,6 +155,149 @@ public class DirectPostgresqlManager extends PostgresqlManager {
     }
   }
 
+  /** Parses each record of COPY output into an instance of the generated
+      class, and appends the records to a SequenceFile.
+    */
+  static class PostgresqlRecordSink extends ErrorableAsyncSink {
+    private final SequenceFile.Writer writer;
+    private final SqoopRecord record;
+    private final DelimiterSet delimiters;
+    private final PerfCounters counters;
+
+    PostgresqlRecordSink(final SequenceFile.Writer w, final SqoopRecord rec,
+        final DelimiterSet delims, final PerfCounters ctrs) {
+      this.writer = w;
+      this.record = rec;
+      this.delimiters = delims;
+      this.counters = ctrs;
+    }
+
+    public void processStream(InputStream is) {
+      child = new PostgresqlRecordThread(is, writer, record, delimiters,
+          counters);
+      child.start();
+    }
+
+    /**
+     * Read one record of CSV output from COPY. Record delimiters that
+     * occur inside an enclosed field are part of the field's value, so a
+     * record may span several lines.
+     * @param r the reader to consume characters from.
+     * @param delims the delimiters COPY was told to use.
+     * @return the text of the record without its trailing record
+     * delimiter, or null at EOF.
+     */
+    static String readRecord(Reader r, DelimiterSet delims)
+        throws IOException {
+      char enclose = delims.getEnclosedBy();
+      char escape = delims.getEscapedBy();
+      char recordDelim = delims.getLinesTerminatedBy();
+
+      StringBuilder sb = new StringBuilder();
+      boolean enclosed = false;
+      boolean escaped = false;
+      while (true) {
+        int c = r.read();
+        if (-1 == c) {
+          if (enclosed) {
+            throw new IOException("Unterminated enclosed field at EOF: "
+                + sb.toString());
+          }
+
+          return sb.length() == 0 ? null : sb.toString();
+        }
+
+        char ch = (char) c;
+        if (!enclosed && ch == recordDelim) {
+          return sb.toString();
+        }
+
+        sb.append(ch);
+        if (escaped) {
+          escaped = false;
+        } else if (enclosed && ch == escape && escape != enclose) {
+          // Only enclosed fields contain escapes in CSV output. When the
+          // escape is the encloser itself, doubled enclosers just toggle
+          // the state twice.
+          escaped = true;
+        } else if (ch == enclose) {
+          enclosed = !enclosed;
+        }
+      }
+    }
+
+    private static class PostgresqlRecordThread extends ErrorableThread {
+      public static final Log LOG = LogFactory.getLog(
+          PostgresqlRecordThread.class.getName());
+
+      private final SequenceFile.Writer writer;
+      private final InputStream stream;
+      private final SqoopRecord record;
+      private final DelimiterSet delimiters;
+      private final RecordParser parser;
+      private final PerfCounters counters;
+
+      PostgresqlRecordThread(final InputStream is,
+          final SequenceFile.Writer w, final SqoopRecord rec,
+          final DelimiterSet delims, final PerfCounters ctrs) {
+        this.stream = is;
+        this.writer = w;
+        this.record = rec;
+        this.delimiters = delims;
+        this.parser = new RecordParser(delims);
+        this.counters = ctrs;
+      }
+
+      public void run() {
+        BufferedReader r = null;
+        LongWritable rowNum = new LongWritable();
+
+        try {
+          r = new BufferedReader(new InputStreamReader(this.stream));
+
+          // read/parse/append loop here.
+          while (true) {
+            String inRecord = readRecord(r, delimiters);
+            if (null == inRecord) {
+              break; // EOF
+            }
+
+            record.loadFromFields(parser.parseRecord(inRecord));
+            rowNum.set(rowNum.get() + 1);
+            writer.append(rowNum, record);
+            counters.addBytes(1 + inRecord.length());
+          }
+        } catch (IOException ioe) {
+          LOG.error("IOException reading from psql: " + ioe.toString());
+          // set the error bit so our caller can see that something went wrong.
+          setError();
+        } catch (RecordParser.ParseError pe) {
+          LOG.error("ParseError reading from psql: " + pe.toString());
+          setError();
+        } catch (RuntimeException re) {
+          // A value could not be converted to its column's type, or the
+          // record had the wrong number of fields.
+          LOG.error("Could not load record from psql: " + re.toString());
+          setError();
+        } finally {
+          if (null != r) {
+            try {
+              r.close();
+            } catch (IOException ioe) {
+              LOG.info("Error closing FIFO stream: " + ioe.toString());
+            }
+          }
+
+          try {
+            writer.close();
+          } catch (IOException ioe) {
+            LOG.info("Error closing HDFS stream: " + ioe.toString());
+          }
+        }
+      }
+    }
+  }
+
   /**
    * Takes a list of columns and turns them into a string like
    * "col1, col2, col3...".
@@ -172,6 +325,44 @@ public class DirectPostgresqlManager extends PostgresqlManager {
    * table ("COPY .... TO STDOUT").
    */
   private String getCopyCommand(String tableName) {
+    DelimiterSet delims = options.getOutputDelimiters();
+    return getCopyCommand(tableName, delims, null,
+        delims.isEncloseRequired());
+  }
+
+  /**
+   * @return the delimiters COPY is told to use when its output is parsed
+   * into records. Quote and escape characters are always set, so that the
+   * output can be split unambiguously. Enclosing is not required of the
+   * parser, because null values are still written unquoted; the COPY
+   * command itself quotes every other value.
+   */
+  private DelimiterSet getRecordCopyDelimiters() {
+    char enclose = options.getOutputEnclosedBy();
+    if (enclose == DelimiterSet.NULL_CHAR) {
+      enclose = '"';
+    }
+
+    char escape = options.getOutputEscapedBy();
+    if (escape == DelimiterSet.NULL_CHAR) {
+      escape = '\\';
+    }
+
+    return new DelimiterSet(options.getOutputFieldDelim(), '\n', enclose,
+        escape, false);
+  }
+
+  /**
+   * @return the Postgresql-specific SQL command to copy the
+   * table ("COPY .... TO STDOUT").
+   * @param tableName the table to copy.
+   * @param delims the delimiters to format the output with.
+   * @param nullString if non-null, the string that null values are
+   * written as.
+   * @param forceQuote if true, every non-null value is enclosed.
+   */
+  private String getCopyCommand(String tableName, DelimiterSet delims,
+      String nullString, boolean forceQuote) {
 
     // Format of this command is:
     //
@@ -216,21 +407,27 @@ public class DirectPostgresqlManager extends PostgresqlManager {
 
     // Translate delimiter characters to '\ooo' octal representation.
     sb.append(" TO STDOUT WITH DELIMITER E'\\");
-    sb.append(Integer.toString((int) this.options.getOutputFieldDelim(), 8));
-    sb.append("' CSV ");
-    if (this.options.getOutputEnclosedBy() != '\0') {
+    sb.append(Integer.toString((int) delims.getFieldsTerminatedBy(), 8));
+    sb.append("' ");
+    if (null != nullString) {
+      sb.append("NULL '");
+      sb.append(nullString);
+      sb.append("' ");
+    }
+    sb.append("CSV ");
+    if (delims.getEnclosedBy() != '\0') {
       sb.append("QUOTE E'\\");
-      sb.append(Integer.toString((int) this.options.getOutputEnclosedBy(), 8));
+      sb.append(Integer.toString((int) delims.getEnclosedBy(), 8));
       sb.append("' ");
     }
-    if (this.options.getOutputEscapedBy() != '\0') {
+    if (delims.getEscapedBy() != '\0') {
       sb.append("ESCAPE E'\\");
-      sb.append(Integer.toString((int) this.options.getOutputEscapedBy(), 8));
+      sb.append(Integer.toString((int) delims.getEscapedBy(), 8));
       sb.append("' ");
     }
 
     // add the "FORCE QUOTE col, col, col..." clause if quotes are required.
-    if (null != cols && this.options.isOutputEncloseRequired()) {
+    if (null != cols && forceQuote) {
       sb.append("FORCE QUOTE ");
       sb.append(getColumnListStr(cols));
     }
@@ -289,25 +486,77 @@ public class DirectPostgresqlManager extends PostgresqlManager {
 
     LOG.info("Beginning psql fast path import");
 
-    if (options.getFileLayout() != SqoopOptions.FileLayout.TextFile) {
-      // TODO(aaron): Support SequenceFile-based load-in
-      LOG.warn("File import layout" + options.getFileLayout()
-          + " is not supported by");
-      LOG.warn("Postgresql direct import; import will proceed as text files.");
+    // For SequenceFile imports, COPY's output is parsed into records of
+    // the generated class.
+    boolean asRecords =
+        options.getFileLayout() == SqoopOptions.FileLayout.SequenceFile;
+    SqoopRecord record = null;
+    ClassLoader prevClassLoader = null;
+    if (asRecords) {
+      String className = new TableClassName(options).getClassForTable(
+          tableName);
+      if (null != context.getJarFile()) {
+        prevClassLoader = ClassLoaderStack.addJarFile(context.getJarFile(),
+            className);
+      }
+      try {
+        record = (SqoopRecord) ReflectionUtils.newInstance(
+            Class.forName(className, true,
+                Thread.currentThread().getContextClassLoader()),
+            options.getConf());
+      } catch (ClassNotFoundException cnfe) {
+        if (null != prevClassLoader) {
+          ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+        }
+        throw new IOException("Could not load record class " + className,
+            cnfe);
+      }
     }
 
+    try {
+      if (null != record) {
+        DirectImportUtils.checkLoadFromFields(record);
+      }
+      copyTable(context, record);
+    } finally {
+      if (null != prevClassLoader) {
+        ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
+      }
+    }
+  }
+
+  /**
+   * Run COPY through psql and write its output to HDFS.
+   * @param record if non-null, each row is parsed into this record and
+   * written to a SequenceFile; otherwise rows are written as text.
+   */
+  private void copyTable(ImportJobContext context, SqoopRecord record)
+      throws IOException, ImportException {
+
+    String tableName = context.getTableName();
+    SqoopOptions options = context.getOptions();
+    boolean asRecords = null != record;
+
     String commandFilename = null;
     String passwordFilename = null;
     Process p = null;
     AsyncSink sink = null;
     AsyncSink errSink = null;
-    PerfCounters counters = new PerfCounters();
+    PerfCounters counters = new PerfCounters("psql");
 
     try {
       // Get the COPY TABLE command to issue, write this to a file, and pass
       // it in to psql with -f filename.  Then make sure we delete this file
       // in our finally block.
-      String copyCmd = getCopyCommand(tableName);
+      String copyCmd;
+      if (asRecords) {
+        // Quote every value so that backslashes and embedded newlines
+        // are escaped the same way in every field.
+        copyCmd = getCopyCommand(tableName, getRecordCopyDelimiters(),
+            "null", true);
+      } else {
+        copyCmd = getCopyCommand(tableName);
+      }
       commandFilename = writeCopyCommand(copyCmd);
 
       // Arguments to pass to psql on the command line.
@@ -370,8 +619,15 @@ public class DirectPostgresqlManager extends PostgresqlManager {
       }
 
       // This writer will be closed by AsyncSink.
-      SplittableBufferedWriter w = DirectImportUtils.createHdfsSink(
-    		options.getConf(), options, context);
+      SplittableBufferedWriter w = null;
+      SequenceFile.Writer seqWriter = null;
+      if (asRecords) {
+        seqWriter = DirectImportUtils.createSequenceFileSink(
+            options.getConf(), options, context, record.getClass());
+      } else {
+        w = DirectImportUtils.createHdfsSink(
+            options.getConf(), options, context);
+      }
 
       // Actually start the psql dump.
       p = Runtime.getRuntime().exec(args.toArray(new String[0]),
@@ -379,7 +635,12 @@ public class DirectPostgresqlManager extends PostgresqlManager {
 
       // read from the stdout pipe into the HDFS writer.
       InputStream is = p.getInputStream();
-      sink = new PostgresqlAsyncSink(w, options, counters);
+      if (asRecords) {
+        sink = new PostgresqlRecordSink(seqWriter, record,
+            getRecordCopyDelimiters(), counters);
+      } else {
+        sink = new PostgresqlAsyncSink(w, options, counters);
+      }
 
       LOG.debug("Starting stream sink");
       counters.startClock();
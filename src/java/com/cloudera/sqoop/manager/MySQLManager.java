@@ -22,9 +22,7 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.sql.PreparedStatement;
 import java.sql.ResultSet;
-import java.sql.Statement;
 import java.sql.SQLException;
 import java.util.ArrayList;
 
@@ -48,8 +46,6 @@ public class MySQLManager extends GenericJdbcManager {
   // set to true after we warn the user that we can use direct fastpath.
   private static boolean warningPrinted = false;
 
-  private Statement lastStatement;
-
   public MySQLManager(final SqoopOptions opts) {
     super(DRIVER_CLASS, opts);
   }
@@ -183,33 +179,15 @@ public class MySQLManager extends GenericJdbcManager {
   }
 
   /**
-   * Executes an arbitrary SQL statement. Sets mysql-specific parameter
-   * to ensure the entire table is not buffered in RAM before reading
-   * any rows. A consequence of this is that every ResultSet returned
-   * by this method *MUST* be close()'d, or read to exhaustion before
-   * another query can be executed from this ConnManager instance.
-   *
-   * @param stmt The SQL statement to execute
-   * @return A ResultSet encapsulating the results or null on error
+   * MySQL buffers the entire result set in RAM unless the fetch size is
+   * Integer.MIN_VALUE, in which case rows are read one at a time. A
+   * consequence of this is that every ResultSet returned by execute()
+   * *MUST* be close()'d, or read to exhaustion before another query can
+   * be executed from this ConnManager instance.
    */
-  protected ResultSet execute(String stmt, Object... args)
-      throws SQLException {
-    // Free any previous resources.
-    release();
-
-    PreparedStatement statement = null;
-    statement = this.getConnection().prepareStatement(stmt,
-        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
-    this.lastStatement = statement;
-    statement.setFetchSize(Integer.MIN_VALUE); // MySQL: read row-at-a-time.
-    if (null != args) {
-      for (int i = 0; i < args.length; i++) {
-        statement.setObject(i + 1, args[i]);
-      }
-    }
-
-    LOG.info("Executing SQL statement: " + stmt);
-    return statement.executeQuery();
+  @Override
+  protected Integer getDefaultFetchSize() {
+    return Integer.MIN_VALUE;
   }
 
   @Override
@@ -221,9 +199,8 @@ public class MySQLManager extends GenericJdbcManager {
 
     ResultSet results = null;
     try {
-      // Use default execute() statement which does not issue the
-      // MySQL-specific setFetchSize() command.
-      results = super.execute(s);
+      // Do not issue the MySQL-specific setFetchSize() command.
+      results = executeWithFetchSize(s, null);
     } catch (SQLException sqlE) {
       LOG.error("Error executing statement: "
           + StringUtils.stringifyException(sqlE));
@@ -239,18 +216,6 @@ public class MySQLManager extends GenericJdbcManager {
     }
   }
 
-  public void release() {
-    if (null != this.lastStatement) {
-      try {
-        this.lastStatement.close();
-      } catch (SQLException e) {
-        LOG.warn("Exception closing executed Statement: " + e);
-      }
-
-      this.lastStatement = null;
-    }
-  }
-
   /**
    * When using a column name in a generated SQL query, how (if at all)
    * should we escape that column name? e.g., a column named "table"
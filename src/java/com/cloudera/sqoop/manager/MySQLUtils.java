@@ -67,6 +67,12 @@ public final class MySQLUtils {
   public static final String EXTRA_ARGS_KEY =
       "sqoop.mysql.extra.args";
 
+  /** If true, direct-mode imports read each split through a streaming JDBC
+   * result set instead of running mysqldump.
+   */
+  public static final String STREAMING_IMPORT_KEY =
+      "sqoop.mysql.import.streaming";
+
   public static final String MYSQL_DEFAULT_CHARSET = "ISO_8859_1";
 
   /**
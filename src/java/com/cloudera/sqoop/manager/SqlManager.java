@@ -318,11 +318,51 @@ public abstract class SqlManager extends ConnManager {
   }
 
   /**
-   * Executes an arbitrary SQL statement.
+   * @return the JDBC fetch size this manager uses when streaming the rows
+   * of a query, or null to leave the driver's default in place. Subclasses
+   * declare their streaming strategy by overriding this method; the user
+   * may override it with --fetch-size.
+   */
+  protected Integer getDefaultFetchSize() {
+    return null;
+  }
+
+  /**
+   * @return the JDBC fetch size to apply to queries issued through this
+   * manager and to the split queries of an import, or null if none.
+   */
+  @Override
+  public Integer getFetchSize() {
+    Integer userFetchSize = options.getFetchSize();
+    if (null != userFetchSize) {
+      return userFetchSize;
+    }
+
+    return getDefaultFetchSize();
+  }
+
+  /**
+   * Executes an arbitrary SQL statement using the fetch size returned by
+   * getFetchSize().
    * @param stmt The SQL statement to execute
    * @return A ResultSet encapsulating the results or null on error
    */
   protected ResultSet execute(String stmt, Object... args) throws SQLException {
+    return executeWithFetchSize(stmt, getFetchSize(), args);
+  }
+
+  /**
+   * Executes an arbitrary SQL statement. If a fetch size is given, the
+   * driver may stream the results; every ResultSet returned in that case
+   * *MUST* be close()'d, or read to exhaustion before another query can
+   * be executed from this ConnManager instance.
+   *
+   * @param stmt The SQL statement to execute
+   * @param fetchSize the JDBC fetch size to use, or null for the default.
+   * @return A ResultSet encapsulating the results or null on error
+   */
+  protected ResultSet executeWithFetchSize(String stmt, Integer fetchSize,
+      Object... args) throws SQLException {
     // Release any previously-open statement.
     release();
 
@@ -330,6 +370,9 @@ public abstract class SqlManager extends ConnManager {
     statement = this.getConnection().prepareStatement(stmt,
         ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
     this.lastStatement = statement;
+    if (null != fetchSize) {
+      statement.setFetchSize(fetchSize);
+    }
     if (null != args) {
       for (int i = 0; i < args.length; i++) {
         statement.setObject(i + 1, args[i]);
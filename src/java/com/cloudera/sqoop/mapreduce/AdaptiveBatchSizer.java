@@ -0,0 +1,274 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * Chooses the number of rows per INSERT statement and statements per
+ * transaction used by an export writer, based on the throughput observed
+ * so far.
+ *
+ * Statements are grouped into windows. At the end of each window, the
+ * rows/sec achieved (counting both executeUpdate() and commit() time) is
+ * compared to that of the previous window. Rows per statement continue to
+ * move in the same direction (growing or shrinking) while throughput
+ * improves, and reverse direction when it gets worse. Statements per
+ * transaction grow when commits are a large fraction of the time spent in
+ * the database, and shrink when they are cheap, to keep transactions
+ * small. All values are kept within the configured bounds.
+ *
+ * If the database reports a lock timeout, deadlock, or a statement that
+ * is too large, the caller should invoke backoff(), which halves both
+ * values.
+ *
+ * Instances are shared between an export writer and its update thread,
+ * so all methods are synchronized.
+ */
+public class AdaptiveBatchSizer {
+
+  public static final Log LOG = LogFactory.getLog(
+      AdaptiveBatchSizer.class.getName());
+
+  /** Number of statements measured before reconsidering sizes. */
+  static final int WINDOW_STATEMENTS = 8;
+
+  /** Multiplicative step applied to rows per statement. */
+  static final double ROWS_STEP = 1.25;
+
+  /** Throughput drops smaller than this fraction are treated as noise. */
+  static final double TOLERANCE = 0.05;
+
+  /** Grow statements per tx when commits take more than this fraction. */
+  static final double HIGH_COMMIT_FRACTION = 0.20;
+
+  /** Shrink statements per tx when commits take less than this fraction. */
+  static final double LOW_COMMIT_FRACTION = 0.02;
+
+  /** Passed as a statements-per-tx value to disable intermediate commits. */
+  public static final int UNLIMITED = -1;
+
+  private final int minRows;
+  private final int maxRows;
+  private final int minStmts;
+  private final int maxStmts;
+
+  private int rowsPerStmt;
+  private int stmtsPerTx;
+
+  // +1 if rows per statement are currently growing, -1 if shrinking.
+  private int direction;
+  private double lastThroughput;
+
+  // Measurements for the current window.
+  private int windowStatements;
+  private long windowRows;
+  private long windowExecNanos;
+  private long windowCommitNanos;
+
+  /**
+   * Create a batch sizer.
+   * @param rowsPerStmt initial number of rows per statement.
+   * @param minRows lower bound on rows per statement.
+   * @param maxRows upper bound on rows per statement.
+   * @param stmtsPerTx initial statements per transaction, or UNLIMITED
+   * if a single transaction is used for the whole task; in this case
+   * the transaction size is not adjusted.
+   * @param minStmts lower bound on statements per transaction.
+   * @param maxStmts upper bound on statements per transaction.
+   */
+  public AdaptiveBatchSizer(int rowsPerStmt, int minRows, int maxRows,
+      int stmtsPerTx, int minStmts, int maxStmts) {
+    if (minRows < 1 || maxRows < minRows) {
+      throw new IllegalArgumentException("Invalid rows per statement bounds: "
+          + minRows + " - " + maxRows);
+    }
+    if (minStmts < 1 || maxStmts < minStmts) {
+      throw new IllegalArgumentException(
+          "Invalid statements per transaction bounds: "
+          + minStmts + " - " + maxStmts);
+    }
+
+    this.minRows = minRows;
+    this.maxRows = maxRows;
+    this.minStmts = minStmts;
+    this.maxStmts = maxStmts;
+    this.rowsPerStmt = clamp(rowsPerStmt, minRows, maxRows);
+    if (stmtsPerTx == UNLIMITED) {
+      this.stmtsPerTx = UNLIMITED;
+    } else {
+      this.stmtsPerTx = clamp(stmtsPerTx, minStmts, maxStmts);
+    }
+    this.direction = 1;
+  }
+
+  private static int clamp(int val, int min, int max) {
+    return Math.max(min, Math.min(max, val));
+  }
+
+  /** @return the number of rows to put in the next INSERT statement. */
+  public synchronized int getRecordsPerStatement() {
+    return rowsPerStmt;
+  }
+
+  /**
+   * @return the number of statements to execute before committing, or
+   * UNLIMITED.
+   */
+  public synchronized int getStatementsPerTransaction() {
+    return stmtsPerTx;
+  }
+
+  /**
+   * Record the execution of a statement.
+   * @param numRows the number of rows inserted by the statement.
+   * @param nanos the time spent in executeUpdate().
+   */
+  public synchronized void statementExecuted(int numRows, long nanos) {
+    windowStatements++;
+    windowRows += numRows;
+    windowExecNanos += nanos;
+
+    if (windowStatements >= WINDOW_STATEMENTS) {
+      adjust();
+    }
+  }
+
+  /**
+   * Record a transaction commit.
+   * @param nanos the time spent in commit().
+   */
+  public synchronized void committed(long nanos) {
+    windowCommitNanos += nanos;
+  }
+
+  /**
+   * Shrink both rows per statement and statements per transaction in
+   * response to an error which suggests the database is overloaded, or
+   * that statements are too large.
+   */
+  public synchronized void backoff() {
+    rowsPerStmt = Math.max(minRows, rowsPerStmt / 2);
+    if (stmtsPerTx != UNLIMITED) {
+      stmtsPerTx = Math.max(minStmts, stmtsPerTx / 2);
+    }
+
+    // Start measuring afresh, and only grow again once we see improvement.
+    direction = -1;
+    lastThroughput = 0;
+    resetWindow();
+
+    LOG.info("Backing off to " + rowsPerStmt + " rows per statement, "
+        + stmtsPerTx + " statements per transaction");
+  }
+
+  private void resetWindow() {
+    windowStatements = 0;
+    windowRows = 0;
+    windowExecNanos = 0;
+    windowCommitNanos = 0;
+  }
+
+  /**
+   * Reconsider the current sizes, given the measurements in this window.
+   */
+  private void adjust() {
+    long totalNanos = Math.max(1, windowExecNanos + windowCommitNanos);
+    double throughput = (double) windowRows / (double) totalNanos;
+
+    if (lastThroughput > 0 && throughput < lastThroughput * (1 - TOLERANCE)) {
+      // Our last move made things worse; head the other way.
+      direction = -direction;
+    }
+    lastThroughput = throughput;
+
+    if (direction > 0) {
+      rowsPerStmt = clamp((int) Math.ceil(rowsPerStmt * ROWS_STEP),
+          minRows, maxRows);
+    } else {
+      rowsPerStmt = clamp((int) Math.floor(rowsPerStmt / ROWS_STEP),
+          minRows, maxRows);
+    }
+
+    if (stmtsPerTx != UNLIMITED) {
+      double commitFraction = (double) windowCommitNanos / (double) totalNanos;
+      if (commitFraction > HIGH_COMMIT_FRACTION) {
+        stmtsPerTx = clamp(stmtsPerTx * 2, minStmts, maxStmts);
+      } else if (commitFraction < LOW_COMMIT_FRACTION) {
+        stmtsPerTx = clamp(stmtsPerTx / 2, minStmts, maxStmts);
+      }
+    }
+
+    LOG.debug("Adjusted export batch size to " + rowsPerStmt
+        + " rows per statement, " + stmtsPerTx
+        + " statements per transaction");
+    resetWindow();
+  }
+
+  /**
+   * @return true if 'e' indicates an oversize statement or a lock timeout
+   * after which the database has rolled back only the failed statement;
+   * i.e., the statement may succeed if retried with fewer rows, and the
+   * rest of the transaction is intact.
+   */
+  public static boolean isBackoffError(SQLException e) {
+    switch (e.getErrorCode()) {
+    case 1153: // MySQL: packet larger than max_allowed_packet.
+    case 51:   // Oracle: timeout occurred while waiting for a resource.
+    case 60:   // Oracle: deadlock detected; only the statement is undone.
+    case 30006: // Oracle: resource busy; WAIT timeout expired.
+      return true;
+    default:
+      break;
+    }
+
+    String msg = e.getMessage();
+    return null != msg && msg.startsWith("Packet for query is too large");
+  }
+
+  /**
+   * @return true if 'e' indicates a deadlock, serialization failure or lock
+   * timeout after which the database may have rolled back (or aborted) the
+   * entire transaction. Retrying is only safe if that transaction held no
+   * earlier statements.
+   */
+  public static boolean isRollbackError(SQLException e) {
+    String state = e.getSQLState();
+    if (null != state) {
+      if (state.startsWith("40")) {
+        // Transaction rollback class: serialization failure, deadlock.
+        return true;
+      } else if ("55P03".equals(state)) {
+        // PostgreSQL: lock not available; the transaction is aborted.
+        return true;
+      }
+    }
+
+    switch (e.getErrorCode()) {
+    case 1205: // MySQL: lock wait timeout; see innodb_rollback_on_timeout.
+    case 1213: // MySQL: deadlock found.
+      return true;
+    default:
+      return false;
+    }
+  }
+}
@@ -28,6 +28,8 @@ import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Mapper.Context;
 
+import com.cloudera.sqoop.util.MetricsRegistry;
+
 /**
  * Identity mapper that continuously reports progress via a background thread.
  */
@@ -179,13 +181,21 @@ public class AutoProgressMapper<KEYIN, VALIN, KEYOUT, VALOUT>
     configureAutoProgress(context.getConfiguration());
     ProgressThread thread = this.new ProgressThread(context);
 
+    // Let the task's RecordWriter publish counters through our context.
+    TaskCounters.register(context);
     try {
       thread.setDaemon(true);
       thread.start();
 
       // use default run() method to actually drive the mapping.
       super.run(context);
+
+      // The export RecordWriter is closed after this returns; it publishes
+      // the metrics it records while closing itself.
+      MetricsRegistry.get().publishCounters(context);
     } finally {
+      TaskCounters.unregister(context.getConfiguration());
+
       // Tell the progress thread to exit..
       LOG.debug("Instructing auto-progress thread to quit.");
       thread.signalShutdown();
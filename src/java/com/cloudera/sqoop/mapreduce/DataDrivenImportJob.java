@@ -52,6 +52,9 @@ public class DataDrivenImportJob extends ImportJobBase {
   public static final Log LOG = LogFactory.getLog(
       DataDrivenImportJob.class.getName());
 
+  /** JDBC fetch size applied to the query issued for each split. */
+  public static final String FETCH_SIZE_KEY = "sqoop.import.fetch.size";
+
   @SuppressWarnings("unchecked")
   public DataDrivenImportJob(final SqoopOptions opts) {
     super(opts, null, DataDrivenDBInputFormat.class, null, null);
@@ -99,9 +102,24 @@ public class DataDrivenImportJob extends ImportJobBase {
     return null;
   }
 
+  @Override
+  protected Class<? extends InputFormat> getInputFormatClass()
+      throws ClassNotFoundException {
+    Class<? extends InputFormat> configuredIF = super.getInputFormatClass();
+    if (DataDrivenDBInputFormat.class.equals(configuredIF)) {
+      // Hadoop's generic record reader does not set a fetch size on the
+      // split query; use one that honors the ConnManager's choice.
+      return (Class<? extends InputFormat>) ShimLoader.getShimClass(
+          "com.cloudera.sqoop.mapreduce.FetchSizeDataDrivenDBInputFormat");
+    } else {
+      return configuredIF;
+    }
+  }
+
   @Override
   protected void configureInputFormat(Job job, String tableName,
-      String tableClassName, String splitByCol) throws IOException {
+      String tableClassName, String splitByCol)
+      throws ClassNotFoundException, IOException {
     ConnManager mgr = new ConnFactory(options.getConf()).getManager(options);
     try {
       String username = options.getUsername();
@@ -144,8 +162,14 @@ public class DataDrivenImportJob extends ImportJobBase {
       job.getConfiguration().setLong(LargeObjectLoader.MAX_INLINE_LOB_LEN_KEY,
           options.getInlineLobLimit());
 
-      LOG.debug("Using InputFormat: " + inputFormatClass);
-      job.setInputFormatClass(inputFormatClass);
+      Integer fetchSize = mgr.getFetchSize();
+      if (null != fetchSize) {
+        job.getConfiguration().setInt(FETCH_SIZE_KEY, fetchSize);
+      }
+
+      Class<? extends InputFormat> ifClass = getInputFormatClass();
+      LOG.debug("Using InputFormat: " + ifClass);
+      job.setInputFormatClass(ifClass);
     } finally {
       try {
         mgr.close();
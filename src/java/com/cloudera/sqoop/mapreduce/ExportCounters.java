@@ -0,0 +1,48 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+/**
+ * Hadoop counters published by the export RecordWriters in
+ * ExportOutputFormat. Times are reported in milliseconds.
+ *
+ * These let a user determine whether an export is bound by the database
+ * (time spent in executeUpdate() or commit()), or by the mapper feeding
+ * records to the writer (the writer is rarely blocked handing statements
+ * to the update thread).
+ */
+public enum ExportCounters {
+  /** Rows handed to the RecordWriter. */
+  ROWS_WRITTEN,
+
+  /** INSERT statements executed against the database. */
+  STATEMENTS_EXECUTED,
+
+  /** Transactions committed. */
+  COMMITS,
+
+  /** Time the RecordWriter spent blocked waiting on the update thread. */
+  PUT_BLOCKED_MILLIS,
+
+  /** Time the update thread spent in PreparedStatement.executeUpdate(). */
+  EXECUTE_UPDATE_MILLIS,
+
+  /** Time the update thread spent in Connection.commit(). */
+  COMMIT_MILLIS
+}
@@ -20,6 +20,9 @@ package com.cloudera.sqoop.mapreduce;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -30,11 +33,13 @@ import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Counters;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.util.StringUtils;
 
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.lib.SqoopRecord;
@@ -43,6 +48,7 @@ import com.cloudera.sqoop.orm.TableClassName;
 import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.shims.ShimLoader;
 import com.cloudera.sqoop.util.ExportException;
+import com.cloudera.sqoop.util.MetricsRegistry;
 import com.cloudera.sqoop.util.PerfCounters;
 
 /**
@@ -61,8 +67,32 @@ public class ExportJobBase extends JobBase {
   public static final String EXPORT_MAP_TASKS_KEY =
       "sqoop.mapreduce.export.map.tasks";
 
+  /** Number of connections each export task writes through. */
+  public static final String WRITER_CONNECTIONS_KEY =
+      "sqoop.export.writer.connections";
+
+  /** Columns whose values route a record to one of a task's connections. */
+  public static final String PARTITION_COLUMNS_KEY =
+      "sqoop.export.writer.partition.columns";
+
+  /**
+   * The input files found to be SequenceFiles when the job was configured.
+   * ExportInputFormat uses this and TEXT_FILES_KEY rather than reading
+   * each file's header again.
+   */
+  public static final String SEQUENCE_FILES_KEY =
+      "sqoop.export.input.sequence.files";
+
+  /** The input files found to be text when the job was configured. */
+  public static final String TEXT_FILES_KEY = "sqoop.export.input.text.files";
+
   protected ExportJobContext context;
 
+  // The format of each input file (true for SequenceFiles); found once per
+  // job by getInputFileFormats(), as the mapper is chosen more than once
+  // and the splits need the same information.
+  private Map<Path, Boolean> inputFileFormats;
+
   public ExportJobBase(final ExportJobContext ctxt) {
     this(ctxt, null, null, null);
   }
@@ -76,8 +106,9 @@ public class ExportJobBase extends JobBase {
   }
 
   /**
-   * @return true if p is a SequenceFile, or a directory containing
-   * SequenceFiles.
+   * @return true if p is a SequenceFile, or a directory containing any
+   * SequenceFiles. Text files in a directory that also holds SequenceFiles
+   * are parsed into records as they are read (see ExportInputFormat).
    */
   public static boolean isSequenceFiles(Configuration conf, Path p)
       throws IOException {
@@ -92,31 +123,126 @@ public class ExportJobBase extends JobBase {
         return false;
       }
 
-      if (stat.isDir()) {
+      if (!stat.isDir()) {
+        return isSequenceFile(conf, stat);
+      }
+
+      FileStatus [] subitems = fs.listStatus(p);
+      if (subitems == null || subitems.length == 0) {
+        LOG.warn("Input path " + p + " contains no files");
+        return false; // empty dir.
+      }
+
+      for (FileStatus item : subitems) {
+        if (null != item && !item.isDir() && !isHidden(item.getPath())
+            && isSequenceFile(conf, item)) {
+          return true;
+        }
+      }
+      return false;
+    } catch (FileNotFoundException fnfe) {
+      LOG.warn("Input path " + p + " does not exist");
+      return false; // doesn't exist!
+    }
+  }
+
+  /**
+   * Read the header of every file that an export of p would read.
+   * @return a map from each file to true if it is a SequenceFile.
+   */
+  public static Map<Path, Boolean> getFileFormats(Configuration conf,
+      Path p) throws IOException {
+    Map<Path, Boolean> formats = new HashMap<Path, Boolean>();
+    FileSystem fs = p.getFileSystem(conf);
+
+    try {
+      FileStatus stat = fs.getFileStatus(p);
+
+      if (null == stat) {
+        // Couldn't get the item.
+        LOG.warn("Input path " + p + " does not exist");
+      } else if (!stat.isDir()) {
+        formats.put(stat.getPath(),
+            Boolean.valueOf(isSequenceFile(conf, stat)));
+      } else {
         FileStatus [] subitems = fs.listStatus(p);
         if (subitems == null || subitems.length == 0) {
           LOG.warn("Input path " + p + " contains no files");
-          return false; // empty dir.
+        } else {
+          for (FileStatus item : subitems) {
+            if (null != item && !item.isDir()
+                && !isHidden(item.getPath())) {
+              formats.put(item.getPath(),
+                  Boolean.valueOf(isSequenceFile(conf, item)));
+            }
+          }
         }
-
-        // Pick a random child entry to examine instead.
-        stat = subitems[0];
       }
+    } catch (FileNotFoundException fnfe) {
+      LOG.warn("Input path " + p + " does not exist");
+    }
 
-      if (null == stat) {
-        LOG.warn("null FileStatus object in isSequenceFiles(); "
-            + "assuming false.");
-        return false;
+    return formats;
+  }
+
+  /**
+   * Record the format of each input file in the job's configuration.
+   */
+  public static void setFileFormats(Configuration conf,
+      Map<Path, Boolean> formats) {
+    StringBuilder seqFiles = new StringBuilder();
+    StringBuilder textFiles = new StringBuilder();
+    for (Map.Entry<Path, Boolean> entry : formats.entrySet()) {
+      StringBuilder sb = entry.getValue().booleanValue()
+          ? seqFiles : textFiles;
+      if (sb.length() > 0) {
+        sb.append(StringUtils.COMMA_STR);
       }
+      sb.append(StringUtils.escapeString(entry.getKey().toString()));
+    }
 
-      Path target = stat.getPath();
-      return hasSequenceFileHeader(target, conf);
-    } catch (FileNotFoundException fnfe) {
-      LOG.warn("Input path " + p + " does not exist");
-      return false; // doesn't exist!
+    conf.set(SEQUENCE_FILES_KEY, seqFiles.toString());
+    conf.set(TEXT_FILES_KEY, textFiles.toString());
+  }
+
+  /**
+   * @return the input file formats recorded by setFileFormats(), or an
+   * empty map if there are none.
+   */
+  public static Map<Path, Boolean> getFileFormats(Configuration conf) {
+    Map<Path, Boolean> formats = new HashMap<Path, Boolean>();
+    addFileFormats(formats, conf.get(SEQUENCE_FILES_KEY), Boolean.TRUE);
+    addFileFormats(formats, conf.get(TEXT_FILES_KEY), Boolean.FALSE);
+    return formats;
+  }
+
+  private static void addFileFormats(Map<Path, Boolean> formats,
+      String paths, Boolean isSeq) {
+    if (null == paths || paths.length() == 0) {
+      return;
+    }
+
+    for (String path : StringUtils.split(paths)) {
+      formats.put(new Path(StringUtils.unEscapeString(path)), isSeq);
     }
   }
 
+  /**
+   * @return true if the file is a SequenceFile.
+   */
+  public static boolean isSequenceFile(Configuration conf, FileStatus file) {
+    return hasSequenceFileHeader(file.getPath(), conf);
+  }
+
+  /**
+   * @return true if FileInputFormat ignores the file, as it does those
+   * whose names start with '_' or '.'.
+   */
+  private static boolean isHidden(Path p) {
+    String name = p.getName();
+    return name.startsWith("_") || name.startsWith(".");
+  }
+
   /**
    * @param file a file to test. 
    * @return true if 'file' refers to a SequenceFile.
@@ -198,6 +324,14 @@ public class ExportJobBase extends JobBase {
 
     job.setMapperClass(getMapperClass());
 
+    // Let the InputFormat reuse the file formats found above.
+    setFileFormats(job.getConfiguration(), getInputFileFormats());
+
+    // Only SequenceFileExportMapper returns every record it reads to the
+    // pool, so only it may be given pooled records by the RecordReader.
+    job.getConfiguration().setBoolean(ExportRecordPool.POOL_INPUT_KEY,
+        SequenceFileExportMapper.class.isAssignableFrom(getMapperClass()));
+
     // Concurrent writes of the same records would be problematic.
     HadoopShim.get().setJobMapSpeculativeExecution(job, false);
 
@@ -216,20 +350,63 @@ public class ExportJobBase extends JobBase {
   protected boolean runJob(Job job) throws ClassNotFoundException, IOException,
       InterruptedException {
 
-    PerfCounters counters = new PerfCounters();
+    MetricsRegistry metrics = MetricsRegistry.get();
+    PerfCounters counters = new PerfCounters("export");
+    MetricsRegistry.Timer.Context phase = metrics.startPhase("job");
     counters.startClock();
 
-    boolean success = job.waitForCompletion(true);
-    counters.stopClock();
+    boolean success;
+    try {
+      success = job.waitForCompletion(true);
+    } finally {
+      counters.stopClock();
+      phase.stop();
+    }
     counters.addBytes(job.getCounters().getGroup("FileSystemCounters")
       .findCounter("HDFS_BYTES_READ").getValue());
     LOG.info("Transferred " + counters.toString());
     long numRecords = HadoopShim.get().getNumMapInputRecords(job);
     LOG.info("Exported " + numRecords + " records.");
+    metrics.counter("export.records").add(numRecords);
+    if (!isLocalJobRunner(job.getConfiguration())) {
+      // Local tasks have already updated this JVM's registry directly.
+      metrics.mergeCounters(job.getCounters().getGroup(
+          MetricsRegistry.COUNTER_GROUP));
+    }
+    logExportCounters(job);
 
     return success;
   }
-      
+
+  /**
+   * Log the statement, commit and latency counters published by the
+   * export RecordWriters, if any.
+   */
+  protected void logExportCounters(Job job)
+      throws IOException, InterruptedException {
+    Counters jobCounters = job.getCounters();
+    long statements = jobCounters.findCounter(
+        ExportCounters.STATEMENTS_EXECUTED).getValue();
+    if (statements == 0) {
+      // The OutputFormat did not report statistics.
+      return;
+    }
+
+    LOG.info("Executed " + statements + " statements and "
+        + jobCounters.findCounter(ExportCounters.COMMITS).getValue()
+        + " commits for "
+        + jobCounters.findCounter(ExportCounters.ROWS_WRITTEN).getValue()
+        + " rows.");
+    LOG.info("Writer time (ms, summed over tasks): executeUpdate="
+        + jobCounters.findCounter(
+            ExportCounters.EXECUTE_UPDATE_MILLIS).getValue()
+        + ", commit="
+        + jobCounters.findCounter(ExportCounters.COMMIT_MILLIS).getValue()
+        + ", blocked in put="
+        + jobCounters.findCounter(
+            ExportCounters.PUT_BLOCKED_MILLIS).getValue());
+  }
+
 
   /**
    * Run an export job to dump a table from HDFS to a database.
@@ -272,16 +449,26 @@ public class ExportJobBase extends JobBase {
     }
   }
 
+  /**
+   * @return the format of each input file; true for SequenceFiles.
+   */
+  protected Map<Path, Boolean> getInputFileFormats() {
+    if (null == inputFileFormats) {
+      try {
+        inputFileFormats = getFileFormats(context.getOptions().getConf(),
+            getInputPath());
+      } catch (IOException ioe) {
+        LOG.warn("Could not check file format for export; assuming text");
+        inputFileFormats = Collections.emptyMap();
+      }
+    }
+    return inputFileFormats;
+  }
+
   /**
    * @return true if the input directory contains SequenceFiles.
    */
   protected boolean inputIsSequenceFiles() {
-    try {
-      return isSequenceFiles(
-          context.getOptions().getConf(), getInputPath());
-    } catch (IOException ioe) {
-      LOG.warn("Could not check file format for export; assuming text");
-      return false;
-    }
+    return getInputFileFormats().containsValue(Boolean.TRUE);
   }
 }
@@ -0,0 +1,230 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.shims.HadoopShim;
+
+/**
+ * A pool of reusable record instances, which lets export mappers hand
+ * records to the ExportRecordWriter without the writer cloning each one.
+ *
+ * A mapper borrows an instance, fills it in (by parsing a line or reading
+ * a SequenceFile value into it) and emits it. If the writer then claims
+ * the instance, the writer owns it and gives it back once its fields are
+ * bound into a statement; otherwise the mapper returns it to the pool
+ * after emitting it. Records must be filled in by assigning new field
+ * values, as the generated parse() and readFields() methods do, since a
+ * statement may still refer to the previous values of a recycled record.
+ *
+ * Only code that returns every record it borrows should use a pool;
+ * a record that is never returned leaves the pool empty, and the next
+ * borrow() creates a new instance. Each map task has its own pools, one
+ * per record class, shared by the task's mapper, RecordReader and
+ * RecordWriter. The mapper discards them with release() when it ends.
+ */
+public final class ExportRecordPool {
+
+  /** conf key: the most free records kept in each pool. */
+  public static final String POOL_SIZE_KEY = "sqoop.export.record.pool.size";
+
+  public static final int DEFAULT_POOL_SIZE = 1000;
+
+  /** conf key: if true, the export's RecordReader reads records into
+   * instances borrowed from the task's pool. This is set by the export
+   * job when its mapper returns every record it is given.
+   */
+  public static final String POOL_INPUT_KEY =
+      "sqoop.export.record.pool.input";
+
+  // The pools of each running task, by task attempt id.
+  private static final Map<String, Map<Class<?>, ExportRecordPool>> POOLS =
+      new HashMap<String, Map<Class<?>, ExportRecordPool>>();
+
+  private final Class<? extends SqoopRecord> recordClass;
+  private final Configuration conf;
+  private final int maxFree;
+  private final List<SqoopRecord> free;
+
+  // The instance most recently borrowed, if not yet claimed or returned.
+  private SqoopRecord lent;
+
+  private ExportRecordPool(Class<? extends SqoopRecord> recordClass,
+      Configuration conf) {
+    this.recordClass = recordClass;
+    this.conf = conf;
+    this.maxFree = Math.max(0, conf.getInt(POOL_SIZE_KEY, DEFAULT_POOL_SIZE));
+    this.free = new ArrayList<SqoopRecord>(Math.min(maxFree, 128));
+  }
+
+  /**
+   * @return the id of the task running with the given configuration, or
+   * the empty string outside of a task.
+   */
+  private static String getTaskId(Configuration conf) {
+    return conf.get(HadoopShim.get().getTaskIdProperty(), "");
+  }
+
+  /**
+   * @return the current task's pool of instances of the given record
+   * class.
+   */
+  public static ExportRecordPool get(Configuration conf,
+      Class<? extends SqoopRecord> recordClass) {
+    String taskId = getTaskId(conf);
+    synchronized (POOLS) {
+      Map<Class<?>, ExportRecordPool> taskPools = POOLS.get(taskId);
+      if (null == taskPools) {
+        taskPools = new HashMap<Class<?>, ExportRecordPool>();
+        POOLS.put(taskId, taskPools);
+      }
+
+      ExportRecordPool pool = taskPools.get(recordClass);
+      if (null == pool) {
+        pool = new ExportRecordPool(recordClass, conf);
+        taskPools.put(recordClass, pool);
+      }
+      return pool;
+    }
+  }
+
+  /**
+   * @return the current task's pool of instances of the export's record
+   * class, named by ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY.
+   */
+  public static ExportRecordPool get(Configuration conf) throws IOException {
+    return get(conf, getRecordClass(conf));
+  }
+
+  /**
+   * @return the export's record class, named by
+   * ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY.
+   */
+  @SuppressWarnings("unchecked")
+  public static Class<? extends SqoopRecord> getRecordClass(
+      Configuration conf) throws IOException {
+    String recordClassName = conf.get(
+        ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY);
+    if (null == recordClassName) {
+      throw new IOException("Export table class name ("
+          + ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY
+          + ") is not set!");
+    }
+
+    try {
+      Class<?> cls = Class.forName(recordClassName, true,
+          Thread.currentThread().getContextClassLoader());
+      return (Class<? extends SqoopRecord>) cls;
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException(cnfe);
+    }
+  }
+
+  /**
+   * Discard the current task's pools. Records borrowed from them may
+   * still be given back, but are not reused.
+   */
+  public static void release(Configuration conf) {
+    synchronized (POOLS) {
+      POOLS.remove(getTaskId(conf));
+    }
+  }
+
+  /**
+   * Claim a record emitted by a mapper, if it is the instance most
+   * recently borrowed from the current task's pool for its class.
+   * @return true if the caller now owns the record, and may keep it
+   * without copying it.
+   */
+  public static boolean claim(Configuration conf, SqoopRecord record) {
+    ExportRecordPool pool = null;
+    synchronized (POOLS) {
+      Map<Class<?>, ExportRecordPool> taskPools = POOLS.get(getTaskId(conf));
+      if (null != taskPools) {
+        pool = taskPools.get(record.getClass());
+      }
+    }
+    return null != pool && pool.claimLent(record);
+  }
+  /**
+   * @return a record instance to fill in; either a free one or a new one.
+   */
+  public synchronized SqoopRecord borrow() {
+    SqoopRecord record;
+    if (free.isEmpty()) {
+      record = ReflectionUtils.newInstance(recordClass, conf);
+    } else {
+      record = free.remove(free.size() - 1);
+    }
+    lent = record;
+    return record;
+  }
+
+  private synchronized boolean claimLent(SqoopRecord record) {
+    if (null != lent && record == lent) {
+      lent = null;
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Called by a mapper after emitting a borrowed record. If the record was
+   * not claimed, it is returned to the pool for the next borrow().
+   */
+  public synchronized void returnUnclaimed(SqoopRecord record) {
+    if (null != lent && record == lent) {
+      lent = null;
+      if (free.size() < maxFree) {
+        free.add(record);
+      }
+    }
+  }
+
+  /**
+   * Return claimed records of this pool's class that are no longer needed.
+   */
+  public synchronized void giveBack(Collection<SqoopRecord> records) {
+    for (SqoopRecord record : records) {
+      if (free.size() >= maxFree) {
+        break;
+      }
+      if (record != lent && record.getClass() == recordClass) {
+        free.add(record);
+      }
+    }
+  }
+
+  /**
+   * @return the number of free records in the pool.
+   */
+  public synchronized int getNumFree() {
+    return free.size();
+  }
+}
@@ -39,6 +39,7 @@ import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.orm.TableClassName;
 import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.util.ImportException;
+import com.cloudera.sqoop.util.MetricsRegistry;
 import com.cloudera.sqoop.util.PerfCounters;
 import com.cloudera.sqoop.manager.ImportJobContext;
 
@@ -101,16 +102,29 @@ public class ImportJobBase extends JobBase {
   protected boolean runJob(Job job) throws ClassNotFoundException, IOException,
       InterruptedException {
 
-    PerfCounters counters = new PerfCounters();
+    MetricsRegistry metrics = MetricsRegistry.get();
+    PerfCounters counters = new PerfCounters("import");
+    MetricsRegistry.Timer.Context phase = metrics.startPhase("job");
     counters.startClock();
 
-    boolean success = job.waitForCompletion(true);
-    counters.stopClock();
+    boolean success;
+    try {
+      success = job.waitForCompletion(true);
+    } finally {
+      counters.stopClock();
+      phase.stop();
+    }
     counters.addBytes(job.getCounters().getGroup("FileSystemCounters")
       .findCounter("HDFS_BYTES_WRITTEN").getValue());
     LOG.info("Transferred " + counters.toString());
     long numRecords = HadoopShim.get().getNumMapOutputRecords(job);
     LOG.info("Retrieved " + numRecords + " records.");
+    metrics.counter("import.records").add(numRecords);
+    if (!isLocalJobRunner(job.getConfiguration())) {
+      // Local tasks have already updated this JVM's registry directly.
+      metrics.mergeCounters(job.getCounters().getGroup(
+          MetricsRegistry.COUNTER_GROUP));
+    }
     return success;
   }
 
@@ -89,6 +89,17 @@ public class JdbcExportJob extends ExportJobBase {
       }
       DBOutputFormat.setOutput(job, tableName, colNames);
 
+      // Route rows among a task's connections by primary key, unless the
+      // user chose the partition columns.
+      Configuration jobConf = job.getConfiguration();
+      if (jobConf.getInt(WRITER_CONNECTIONS_KEY, 1) > 1
+          && null == jobConf.get(PARTITION_COLUMNS_KEY)) {
+        String pkey = mgr.getPrimaryKey(tableName);
+        if (null != pkey) {
+          jobConf.set(PARTITION_COLUMNS_KEY, pkey);
+        }
+      }
+
       job.setOutputFormatClass(getOutputFormatClass());
       job.getConfiguration().set(SQOOP_EXPORT_TABLE_CLASS_KEY, tableClassName);
     } catch (ClassNotFoundException cnfe) {
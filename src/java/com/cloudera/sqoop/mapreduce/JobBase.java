@@ -32,6 +32,7 @@ import org.apache.hadoop.mapreduce.OutputFormat;
 import com.cloudera.sqoop.SqoopOptions;
 import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.util.ClassLoaderStack;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Base class for configuring and running a MapReduce job.
@@ -113,14 +114,21 @@ public class JobBase {
     this.options = opts;
   }
 
+  /**
+   * @return true if jobs run with this configuration use the
+   * LocalJobRunner, which runs their tasks inside this JVM.
+   */
+  protected static boolean isLocalJobRunner(Configuration conf) {
+    return "local".equals(conf.get("mapreduce.jobtracker.address"))
+        || "local".equals(conf.get("mapred.job.tracker"));
+  }
+
   /**
    * If jars must be loaded into the local environment, do so here.
    */
   protected void loadJars(Configuration conf, String ormJarFile,
       String tableClassName) throws IOException {
-    boolean isLocal = "local".equals(conf.get("mapreduce.jobtracker.address"))
-        || "local".equals(conf.get("mapred.job.tracker"));
-    if (isLocal) {
+    if (isLocalJobRunner(conf)) {
       // If we're using the LocalJobRunner, then instead of using the compiled
       // jar file as the job source, we're running in the current thread. Push
       // on another classloader that loads from that jar in addition to
@@ -182,6 +190,7 @@ public class JobBase {
     }
 
     HadoopShim.get().setJobNumMaps(job, numMapTasks);
+    job.getConfiguration().setInt(Throttle.NUM_TASKS_KEY, numMapTasks);
     job.setNumReduceTasks(0);
     return numMapTasks;
   }
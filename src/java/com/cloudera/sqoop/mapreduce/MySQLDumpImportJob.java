@@ -25,6 +25,7 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.InputFormat;
 import org.apache.hadoop.mapreduce.Job;
@@ -32,13 +33,18 @@ import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
 import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
 import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
 
 import com.cloudera.sqoop.ConnFactory;
 import com.cloudera.sqoop.SqoopOptions;
+import com.cloudera.sqoop.lib.SqoopRecord;
 import com.cloudera.sqoop.manager.ConnManager;
 import com.cloudera.sqoop.manager.MySQLUtils;
+import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.shims.ShimLoader;
 import com.cloudera.sqoop.manager.ImportJobContext;
+import com.cloudera.sqoop.util.DirectImportUtils;
 
 /**
  * Class that runs an import job using mysqldump in the mapper.
@@ -103,6 +109,8 @@ public class MySQLDumpImportJob extends ImportJobBase {
           mgr.escapeColName(splitByCol), sqlColNames);
 
       Configuration conf = job.getConfiguration();
+      // SequenceFile imports load each row into the table class.
+      conf.set(HadoopShim.get().getDbInputClassProperty(), tableClassName);
       conf.setInt(MySQLUtils.OUTPUT_FIELD_DELIM_KEY,
           options.getOutputFieldDelim());
       conf.setInt(MySQLUtils.OUTPUT_RECORD_DELIM_KEY,
@@ -136,8 +144,30 @@ public class MySQLDumpImportJob extends ImportJobBase {
   protected void configureMapper(Job job, String tableName,
       String tableClassName) throws ClassNotFoundException, IOException {
     job.setMapperClass(getMapperClass());
-    job.setOutputKeyClass(String.class);
-    job.setOutputValueClass(NullWritable.class);
+    if (options.getFileLayout() == SqoopOptions.FileLayout.SequenceFile) {
+      // The value class is the table class; see configureOutputFormat().
+      job.setOutputKeyClass(LongWritable.class);
+
+      // Rows are parsed with loadFromFields(), which older generated
+      // classes do not implement. Fail now rather than in every task.
+      Class<?> tableClass = Class.forName(tableClassName, true,
+          Thread.currentThread().getContextClassLoader());
+      DirectImportUtils.checkLoadFromFields((SqoopRecord)
+          ReflectionUtils.newInstance(tableClass, job.getConfiguration()));
+    } else {
+      job.setOutputKeyClass(String.class);
+      job.setOutputValueClass(NullWritable.class);
+    }
+  }
+
+  @Override
+  protected Class<? extends OutputFormat> getOutputFormatClass()
+      throws ClassNotFoundException {
+    if (options.getFileLayout() == SqoopOptions.FileLayout.SequenceFile) {
+      return SequenceFileOutputFormat.class;
+    }
+
+    return super.getOutputFormatClass();
   }
 
 }
@@ -30,18 +30,24 @@ import java.util.List;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.mapreduce.Mapper;
+import org.apache.hadoop.util.ReflectionUtils;
 import com.cloudera.sqoop.lib.DelimiterSet;
 import com.cloudera.sqoop.lib.FieldFormatter;
 import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
 import com.cloudera.sqoop.manager.MySQLUtils;
+import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.util.AsyncSink;
 import com.cloudera.sqoop.util.ErrorableAsyncSink;
 import com.cloudera.sqoop.util.ErrorableThread;
 import com.cloudera.sqoop.util.JdbcUrl;
 import com.cloudera.sqoop.util.LoggingAsyncSink;
+import com.cloudera.sqoop.util.MetricsRegistry;
 import com.cloudera.sqoop.util.PerfCounters;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Mapper that opens up a pipe to mysqldump and pulls data directly.
@@ -54,6 +60,9 @@ public class MySQLDumpMapper
 
   private Configuration conf;
 
+  // The record each row is loaded into, for SequenceFile imports.
+  private SqoopRecord record;
+
   // AsyncSinks used to import data from mysqldump directly into HDFS.
 
   /**
@@ -63,15 +72,17 @@ public class MySQLDumpMapper
   static class CopyingAsyncSink extends ErrorableAsyncSink {
     private final MySQLDumpMapper.Context context;
     private final PerfCounters counters;
+    private final Throttle throttle;
 
     CopyingAsyncSink(final MySQLDumpMapper.Context context,
-        final PerfCounters ctrs) {
+        final PerfCounters ctrs, final Throttle throttle) {
       this.context = context;
       this.counters = ctrs;
+      this.throttle = throttle;
     }
 
     public void processStream(InputStream is) {
-      child = new CopyingStreamThread(is, context, counters);
+      child = new CopyingStreamThread(is, context, counters, throttle);
       child.start();
     }
 
@@ -82,12 +93,14 @@ public class MySQLDumpMapper
       private final MySQLDumpMapper.Context context;
       private final InputStream stream;
       private final PerfCounters counters;
+      private final Throttle throttle;
 
       CopyingStreamThread(final InputStream is,
-          final Context c, final PerfCounters ctrs) {
+          final Context c, final PerfCounters ctrs, final Throttle thr) {
         this.context = c;
         this.stream = is;
         this.counters = ctrs;
+        this.throttle = thr;
       }
 
       public void run() {
@@ -118,6 +131,9 @@ public class MySQLDumpMapper
             // chop off the leading and trailing text as we write the
             // output to HDFS.
             int len = inLine.length() - 2 - preambleLen;
+            if (null != throttle) {
+              throttle.acquire(1, 1 + len);
+            }
             context.write(inLine.substring(preambleLen, inLine.length() - 2),
                 null);
             context.write("\n", null);
@@ -149,21 +165,35 @@ public class MySQLDumpMapper
   /**
    * The ReparsingAsyncSink will instantiate a RecordParser to read mysqldump's
    * output, and re-emit the text in the user's specified output format.
+   * If given a record, it instead loads each row into the record and emits
+   * that, for SequenceFile imports.
    */
   static class ReparsingAsyncSink extends ErrorableAsyncSink {
     private final MySQLDumpMapper.Context context;
     private final Configuration conf;
     private final PerfCounters counters;
+    private final Throttle throttle;
+    private final SqoopRecord record;
 
     ReparsingAsyncSink(final MySQLDumpMapper.Context c,
-        final Configuration conf, final PerfCounters ctrs) {
+        final Configuration conf, final PerfCounters ctrs,
+        final Throttle throttle) {
+      this(c, conf, ctrs, throttle, null);
+    }
+
+    ReparsingAsyncSink(final MySQLDumpMapper.Context c,
+        final Configuration conf, final PerfCounters ctrs,
+        final Throttle throttle, final SqoopRecord record) {
       this.context = c;
       this.conf = conf;
       this.counters = ctrs;
+      this.throttle = throttle;
+      this.record = record;
     }
 
     public void processStream(InputStream is) {
-      child = new ReparsingStreamThread(is, context, conf, counters);
+      child = new ReparsingStreamThread(is, context, conf, counters,
+          throttle, record);
       child.start();
     }
 
@@ -175,14 +205,73 @@ public class MySQLDumpMapper
       private final Configuration conf;
       private final InputStream stream;
       private final PerfCounters counters;
+      private final Throttle throttle;
+      private final SqoopRecord record;
+      private final LongWritable rowNum;
 
       ReparsingStreamThread(final InputStream is,
           final MySQLDumpMapper.Context c, Configuration conf,
-          final PerfCounters ctrs) {
+          final PerfCounters ctrs, final Throttle thr,
+          final SqoopRecord rec) {
         this.context = c;
         this.conf = conf;
         this.stream = is;
         this.counters = ctrs;
+        this.throttle = thr;
+        this.record = rec;
+        this.rowNum = new LongWritable();
+      }
+
+      /**
+       * mysqldump writes nulls as an unquoted NULL, which the generated
+       * class reads as "null". The parser has already stripped the quotes
+       * from string values, so find the NULL tokens in the raw row text.
+       * @param row the text of one row, without its parentheses.
+       * @param fields the fields parsed from 'row'; updated in place.
+       */
+      static void markNulls(CharSequence row, List<String> fields) {
+        int field = 0;
+        int start = 0;
+        boolean quoted = false;
+        int len = row.length();
+        for (int i = 0; i <= len; i++) {
+          if (i < len) {
+            char c = row.charAt(i);
+            if (quoted) {
+              if (c == MYSQL_ESCAPE_CHAR) {
+                i++; // skip the escaped character.
+              } else if (c == MYSQL_ENCLOSE_CHAR) {
+                quoted = false;
+              }
+              continue;
+            } else if (c == MYSQL_ENCLOSE_CHAR) {
+              quoted = true;
+              continue;
+            } else if (c != MYSQL_FIELD_DELIM) {
+              continue;
+            }
+          }
+
+          // End of a field.
+          if (field < fields.size() && i - start == MYSQL_NULL.length()
+              && MYSQL_NULL.equals(row.subSequence(start, i).toString())) {
+            fields.set(field, "null");
+          }
+          field++;
+          start = i + 1;
+        }
+      }
+
+      /**
+       * Load the fields parsed from one row into the record and emit it.
+       */
+      @SuppressWarnings("unchecked")
+      private void writeRecord(CharSequence row, List<String> fields)
+          throws IOException, InterruptedException {
+        markNulls(row, fields);
+        record.loadFromFields(fields);
+        rowNum.set(rowNum.get() + 1);
+        ((Mapper.Context) context).write(rowNum, record);
       }
 
       private static final char MYSQL_FIELD_DELIM = ',';
@@ -190,6 +279,7 @@ public class MySQLDumpMapper
       private static final char MYSQL_ENCLOSE_CHAR = '\'';
       private static final char MYSQL_ESCAPE_CHAR = '\\';
       private static final boolean MYSQL_ENCLOSE_REQUIRED = false;
+      private static final String MYSQL_NULL = "NULL";
 
       private static final RecordParser MYSQLDUMP_PARSER;
 
@@ -252,6 +342,7 @@ public class MySQLDumpMapper
             // and trailing text.
             CharBuffer charbuf = CharBuffer.wrap(inLine, preambleLen,
                 inLine.length() - 2);
+            CharSequence row = charbuf.duplicate();
 
             // Pass this along to the parser
             List<String> fields = null;
@@ -263,6 +354,17 @@ public class MySQLDumpMapper
               continue; // Skip emitting this row.
             }
 
+            if (null != throttle) {
+              // Use the length of the input record as an estimate.
+              throttle.acquire(1, inLine.length() - 2 - preambleLen + 1);
+            }
+
+            if (null != record) {
+              writeRecord(row, fields);
+              counters.addBytes(inLine.length() - 2 - preambleLen + 1);
+              continue;
+            }
+
             // For all of the output fields, emit them using the delimiters
             // the user chooses.
             boolean first = true;
@@ -292,6 +394,11 @@ public class MySQLDumpMapper
               + ie.toString());
           // flag this error so we get an error status back in the caller.
           setError();
+        } catch (IllegalArgumentException iae) {
+          // A value could not be converted to its column's type.
+          LOG.error("Could not load record from mysqldump: "
+              + iae.toString());
+          setError();
         } finally {
           if (null != r) {
             try {
@@ -342,7 +449,8 @@ public class MySQLDumpMapper
     Process p = null;
     AsyncSink sink = null;
     AsyncSink errSink = null;
-    PerfCounters counters = new PerfCounters();
+    PerfCounters counters = new PerfCounters("mysqldump");
+    Throttle throttle = Throttle.getTaskThrottle(conf);
     try {
       // --defaults-file must be the first argument.
       if (null != password && password.length() > 0) {
@@ -396,17 +504,22 @@ public class MySQLDumpMapper
       // read from the stdout pipe into the HDFS writer.
       InputStream is = p.getInputStream();
 
-      if (MySQLUtils.outputDelimsAreMySQL(conf)) {
+      if (LongWritable.class.equals(context.getOutputKeyClass())) {
+        LOG.debug("Parsing rows into " + record.getClass().getName()
+            + " for SequenceFile import");
+        sink = new ReparsingAsyncSink(context, conf, counters, throttle,
+            record);
+      } else if (MySQLUtils.outputDelimsAreMySQL(conf)) {
         LOG.debug("Output delimiters conform to mysqldump; "
             + "using straight copy");
-        sink = new CopyingAsyncSink(context, counters);
+        sink = new CopyingAsyncSink(context, counters, throttle);
       } else {
         LOG.debug("User-specified delimiters; using reparsing import");
         LOG.info("Converting data to use specified delimiters.");
         LOG.info("(For the fastest possible import, use");
         LOG.info("--mysql-delimiters to specify the same field");
         LOG.info("delimiters as are used by mysqldump.)");
-        sink = new ReparsingAsyncSink(context, conf, counters);
+        sink = new ReparsingAsyncSink(context, conf, counters, throttle);
       }
 
       // Start an async thread to read and upload the whole stream.
@@ -470,6 +583,11 @@ public class MySQLDumpMapper
 
       LOG.info("Transfer loop complete.");
 
+      if (null != throttle) {
+        context.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS).increment(
+            throttle.getWaitMillis());
+      }
+
       if (0 != result) {
         throw new IOException("mysqldump terminated with status "
             + Integer.toString(result));
@@ -481,12 +599,26 @@ public class MySQLDumpMapper
 
       counters.stopClock();
       LOG.info("Transferred " + counters.toString());
+      MetricsRegistry.get().publishCounters(context);
     }
   }
 
   @Override
-  protected void setup(Context context) {
+  protected void setup(Context context) throws IOException {
     this.conf = context.getConfiguration();
+
+    if (LongWritable.class.equals(context.getOutputKeyClass())) {
+      // SequenceFile import; rows are loaded into the generated class.
+      String className = conf.get(
+          HadoopShim.get().getDbInputClassProperty());
+      try {
+        this.record = (SqoopRecord) ReflectionUtils.newInstance(
+            conf.getClassByName(className), conf);
+      } catch (ClassNotFoundException cnfe) {
+        throw new IOException("Could not load record class " + className,
+            cnfe);
+      }
+    }
   }
 }
 
@@ -22,7 +22,15 @@ import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
 
 import org.apache.commons.logging.Log;
@@ -37,8 +45,10 @@ import com.cloudera.sqoop.shims.HadoopShim;
 import com.cloudera.sqoop.util.AsyncSink;
 import com.cloudera.sqoop.util.JdbcUrl;
 import com.cloudera.sqoop.util.LoggingAsyncSink;
+import com.cloudera.sqoop.util.MetricsRegistry;
 import com.cloudera.sqoop.util.NullAsyncSink;
 import com.cloudera.sqoop.util.TaskId;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Mapper that starts a 'mysqlimport' process and uses that to export rows from
@@ -48,6 +58,10 @@ import com.cloudera.sqoop.util.TaskId;
  * SequenceFiles (containing existing SqoopRecords) or text files
  * (containing delimited lines) and deliver these results to the fifo
  * used to interface with mysqlimport.
+ *
+ * If MYSQL_EXPORT_LOAD_DATA_KEY is set, the same text is instead streamed
+ * into a LOAD DATA LOCAL INFILE statement run over JDBC within this task,
+ * so that neither mysqlimport nor a FIFO is needed.
  */
 public class MySQLExportMapper<KEYIN, VALIN>
     extends Mapper<KEYIN, VALIN, NullWritable, NullWritable> {
@@ -64,6 +78,17 @@ public class MySQLExportMapper<KEYIN, VALIN>
 
   public static final long DEFAULT_CHECKPOINT_BYTES = 32 * 1024 * 1024;
 
+  /** Configuration key that, if true, exports through a LOAD DATA LOCAL
+   * INFILE statement on a JDBC connection rather than through mysqlimport.
+   * This requires MySQL Connector/J, which supplies the file's contents
+   * from an InputStream set on the statement.
+   */
+  public static final String MYSQL_EXPORT_LOAD_DATA_KEY =
+      "sqoop.mysql.export.load.data";
+
+  /** Size of the buffer between the mapper and the LOAD DATA statement. */
+  private static final int LOAD_DATA_BUFFER_SIZE = 64 * 1024;
+
   // Configured value for MSYQL_CHECKPOINT_BYTES_KEY.
   protected long checkpointDistInBytes;
 
@@ -88,6 +113,18 @@ public class MySQLExportMapper<KEYIN, VALIN>
   /** Character set used to write to mysqlimport. */
   protected String mysqlCharSet;
 
+  /** If non-null, limits the rate at which records are written. */
+  protected Throttle throttle;
+
+  /** If true, export through LOAD DATA LOCAL INFILE over JDBC. */
+  protected boolean useLoadData;
+
+  /** The connection the LOAD DATA statements are run on. */
+  protected Connection loadDataConn;
+
+  /** The thread running the current LOAD DATA statement. */
+  private LoadDataThread loadDataThread;
+
   /**
    * Tally of bytes written to current mysqlimport instance.
    * We commit an interim tx and open a new mysqlimport after this
@@ -232,23 +269,283 @@ public class MySQLExportMapper<KEYIN, VALIN>
     this.bytesWritten = 0;
   }
 
+  /**
+   * Thread that runs a LOAD DATA LOCAL INFILE statement, which reads the
+   * file's contents from the stream the mapper writes to.
+   */
+  private static class LoadDataThread extends Thread {
+    private final Statement stmt;
+    private final String sql;
+    private final InputStream in;
+    private volatile SQLException err;
+
+    LoadDataThread(Statement stmt, String sql, InputStream in) {
+      this.stmt = stmt;
+      this.sql = sql;
+      this.in = in;
+      setDaemon(true);
+    }
+
+    public void run() {
+      try {
+        stmt.execute(sql);
+      } catch (SQLException sqlE) {
+        this.err = sqlE;
+      } finally {
+        // If the statement stopped reading early, make the mapper's
+        // writes fail rather than block.
+        try {
+          in.close();
+        } catch (IOException ioe) {
+          LOG.warn("Error closing LOAD DATA stream: " + ioe);
+        }
+
+        try {
+          stmt.close();
+        } catch (SQLException sqlE) {
+          LOG.warn("Error closing LOAD DATA statement: " + sqlE);
+        }
+      }
+    }
+
+    /**
+     * @return the exception raised by the statement, if any.
+     */
+    public SQLException getError() {
+      return err;
+    }
+  }
+
+  /**
+   * Return a character as a MySQL string literal.
+   */
+  private static String toSqlLiteral(int c) {
+    String s;
+    if (c == '\\') {
+      s = "\\\\";
+    } else if (c == '\'') {
+      s = "\\'";
+    } else if (c == '\n') {
+      s = "\\n";
+    } else if (c == '\r') {
+      s = "\\r";
+    } else if (c == '\t') {
+      s = "\\t";
+    } else if (c == 0) {
+      s = "\\0";
+    } else {
+      s = String.valueOf((char) c);
+    }
+    return "'" + s + "'";
+  }
+
+  /**
+   * @return the LOAD DATA LOCAL INFILE statement matching the arguments
+   * that would be passed to mysqlimport.
+   */
+  private String getLoadDataStatement() {
+    String tableName = conf.get(MySQLUtils.TABLE_NAME_KEY);
+    StringBuilder sb = new StringBuilder();
+    sb.append("LOAD DATA LOCAL INFILE '");
+    sb.append(tableName);
+    sb.append(".txt' INTO TABLE `");
+    sb.append(tableName);
+    sb.append("` CHARACTER SET latin1");
+
+    int outputFieldDelim = conf.getInt(MySQLUtils.OUTPUT_FIELD_DELIM_KEY,
+        (int) ',');
+    int outputRecordDelim = conf.getInt(MySQLUtils.OUTPUT_RECORD_DELIM_KEY,
+        (int) '\n');
+    int enclosedBy = conf.getInt(MySQLUtils.OUTPUT_ENCLOSED_BY_KEY, 0);
+    int escapedBy = conf.getInt(MySQLUtils.OUTPUT_ESCAPED_BY_KEY, 0);
+    boolean encloseRequired = conf.getBoolean(
+        MySQLUtils.OUTPUT_ENCLOSE_REQUIRED_KEY, false);
+
+    sb.append(" FIELDS TERMINATED BY ");
+    sb.append(toSqlLiteral(outputFieldDelim));
+    if (0 != enclosedBy) {
+      if (!encloseRequired) {
+        sb.append(" OPTIONALLY");
+      }
+      sb.append(" ENCLOSED BY ");
+      sb.append(toSqlLiteral(enclosedBy));
+    }
+
+    if (0 != escapedBy) {
+      sb.append(" ESCAPED BY ");
+      sb.append(toSqlLiteral(escapedBy));
+    }
+
+    sb.append(" LINES TERMINATED BY ");
+    sb.append(toSqlLiteral(outputRecordDelim));
+
+    // Specify the subset of columns we're importing.
+    DBConfiguration dbConf = new DBConfiguration(conf);
+    String [] cols = dbConf.getInputFieldNames();
+    if (null != cols) {
+      sb.append(" (");
+      boolean first = true;
+      for (String col : cols) {
+        if (!first) {
+          sb.append(", ");
+        }
+        sb.append(col);
+        first = false;
+      }
+      sb.append(")");
+    }
+
+    return sb.toString();
+  }
+
+  /**
+   * Start a LOAD DATA LOCAL INFILE statement in a background thread, which
+   * reads the rows written to 'importStream'.
+   */
+  private void initLoadData() throws IOException {
+    try {
+      if (null == loadDataConn) {
+        DBConfiguration dbConf = new DBConfiguration(conf);
+        loadDataConn = dbConf.getConnection();
+        loadDataConn.setAutoCommit(false);
+      }
+
+      Statement stmt = loadDataConn.createStatement();
+      PipedInputStream in = new PipedInputStream(LOAD_DATA_BUFFER_SIZE);
+      PipedOutputStream out = new PipedOutputStream(in);
+      try {
+        // Connector/J reads the "local file" from this stream instead.
+        Method setStream = stmt.getClass().getMethod(
+            "setLocalInfileInputStream", InputStream.class);
+        setStream.invoke(stmt, in);
+      } catch (NoSuchMethodException nsme) {
+        stmt.close();
+        throw new IOException("JDBC driver " + stmt.getClass().getName()
+            + " cannot stream LOAD DATA LOCAL INFILE; unset "
+            + MYSQL_EXPORT_LOAD_DATA_KEY + " to use mysqlimport");
+      } catch (IllegalAccessException iae) {
+        stmt.close();
+        throw new IOException("Could not set LOAD DATA stream", iae);
+      } catch (InvocationTargetException ite) {
+        stmt.close();
+        throw new IOException("Could not set LOAD DATA stream", ite);
+      }
+
+      String sql = getLoadDataStatement();
+      LOG.debug("Starting export with statement: " + sql);
+      this.loadDataThread = new LoadDataThread(stmt, sql, in);
+      this.loadDataThread.start();
+      this.importStream = new BufferedOutputStream(out);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException("Could not load JDBC driver", cnfe);
+    } catch (SQLException sqlE) {
+      throw new IOException(sqlE);
+    }
+
+    this.bytesWritten = 0;
+  }
+
+  /**
+   * End the stream that the current LOAD DATA statement reads from, and
+   * wait for the statement to finish.
+   * @param writeErr an error already raised writing to the stream, or
+   * null.
+   * @throws IOException if the statement failed, or if writing to or
+   * closing the stream failed.
+   */
+  private void finishLoadData(IOException writeErr)
+      throws IOException, InterruptedException {
+    IOException err = writeErr;
+    try {
+      if (null != this.importStream) {
+        // Closing the stream ends the "file" that LOAD DATA is reading.
+        this.importStream.close();
+      }
+    } catch (IOException ioe) {
+      if (null == err) {
+        err = ioe;
+      }
+    }
+    this.importStream = null;
+
+    this.loadDataThread.join();
+    SQLException sqlE = this.loadDataThread.getError();
+    this.loadDataThread = null;
+    if (null != sqlE) {
+      // A failed statement stops reading, so writes to the stream fail
+      // with "Pipe closed"; the statement's error is the real cause.
+      throw new IOException("LOAD DATA failed", sqlE);
+    } else if (null != err) {
+      throw err;
+    }
+  }
+
+  /**
+   * Finish the current LOAD DATA statement and commit its rows.
+   */
+  private void closeLoadData() throws IOException, InterruptedException {
+    if (null == this.loadDataThread) {
+      return;
+    }
+
+    finishLoadData(null);
+    try {
+      loadDataConn.commit();
+    } catch (SQLException sqlE) {
+      throw new IOException("LOAD DATA failed", sqlE);
+    }
+  }
+
+  /**
+   * Open the stream that records are written to.
+   */
+  private void openExportHandles() throws IOException {
+    if (useLoadData) {
+      initLoadData();
+    } else {
+      initMySQLImportProcess();
+    }
+  }
+
   @Override
   public void run(Context context) throws IOException, InterruptedException {
     this.conf = context.getConfiguration();
     setup(context);
-    initMySQLImportProcess();
+    openExportHandles();
     try {
       while (context.nextKeyValue()) {
         map(context.getCurrentKey(), context.getCurrentValue(), context);
       }
       cleanup(context);
+
+      if (null != throttle) {
+        context.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS).increment(
+            throttle.getWaitMillis());
+      }
+      MetricsRegistry.get().publishCounters(context);
     } finally {
       // Shut down the mysqlimport process.
-      closeExportHandles();
+      try {
+        closeExportHandles();
+      } finally {
+        if (null != loadDataConn) {
+          try {
+            loadDataConn.close();
+          } catch (SQLException sqlE) {
+            LOG.warn("Error closing connection: " + sqlE);
+          }
+          loadDataConn = null;
+        }
+      }
     }
   }
 
   private void closeExportHandles() throws IOException, InterruptedException {
+    if (useLoadData) {
+      closeLoadData();
+      return;
+    }
+
     int ret = 0;
     if (null != this.importStream) {
       // Close the stream that writes to mysqlimport's stdin first.
@@ -324,6 +621,9 @@ public class MySQLExportMapper<KEYIN, VALIN>
       LOG.warn("Invalid value for " + MYSQL_CHECKPOINT_BYTES_KEY);
       this.checkpointDistInBytes = DEFAULT_CHECKPOINT_BYTES;
     }
+
+    this.throttle = Throttle.getTaskThrottle(conf);
+    this.useLoadData = conf.getBoolean(MYSQL_EXPORT_LOAD_DATA_KEY, false);
   }
 
   /**
@@ -343,22 +643,33 @@ public class MySQLExportMapper<KEYIN, VALIN>
     // TODO: Support user-configurable encodings.
 
     byte [] mysqlBytes = record.getBytes(this.mysqlCharSet);
-    this.importStream.write(mysqlBytes, 0, mysqlBytes.length);
-    this.bytesWritten += mysqlBytes.length;
+    if (null != throttle) {
+      throttle.acquire(1, mysqlBytes.length);
+    }
+    try {
+      this.importStream.write(mysqlBytes, 0, mysqlBytes.length);
+      this.bytesWritten += mysqlBytes.length;
 
-    if (null != terminator) {
-      byte [] termBytes = terminator.getBytes(this.mysqlCharSet);
-      this.importStream.write(termBytes, 0, termBytes.length);
-      this.bytesWritten += termBytes.length;
+      if (null != terminator) {
+        byte [] termBytes = terminator.getBytes(this.mysqlCharSet);
+        this.importStream.write(termBytes, 0, termBytes.length);
+        this.bytesWritten += termBytes.length;
+      }
+    } catch (IOException ioe) {
+      if (null != this.loadDataThread) {
+        finishLoadData(ioe);
+      }
+      throw ioe;
     }
 
     // If bytesWritten is too big, then we should start a new tx by closing
-    // mysqlimport and opening a new instance of the process.
+    // mysqlimport and opening a new instance of the process (or finishing
+    // and committing the current LOAD DATA statement).
     if (this.checkpointDistInBytes != 0
         && this.bytesWritten > this.checkpointDistInBytes) {
       LOG.info("Checkpointing current export.");
       closeExportHandles();
-      initMySQLImportProcess();
+      openExportHandles();
       this.bytesWritten = 0;
     }
   }
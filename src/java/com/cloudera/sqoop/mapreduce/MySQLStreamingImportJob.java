@@ -0,0 +1,50 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.hadoop.mapreduce.InputFormat;
+import org.apache.hadoop.mapreduce.Mapper;
+
+import com.cloudera.sqoop.SqoopOptions;
+import com.cloudera.sqoop.manager.ImportJobContext;
+import com.cloudera.sqoop.shims.ShimLoader;
+
+/**
+ * Class that runs a direct MySQL import by streaming each split's rows
+ * through JDBC in the mapper, rather than by running mysqldump.
+ */
+public class MySQLStreamingImportJob extends DataDrivenImportJob {
+
+  public static final Log LOG =
+      LogFactory.getLog(MySQLStreamingImportJob.class.getName());
+
+  public MySQLStreamingImportJob(final SqoopOptions opts,
+      ImportJobContext context) throws ClassNotFoundException {
+    super(opts, (Class<? extends InputFormat>) ShimLoader.getShimClass(
+        "com.cloudera.sqoop.mapreduce.MySQLDumpInputFormat"), context);
+  }
+
+  @Override
+  protected Class<? extends Mapper> getMapperClass() {
+    return MySQLStreamingImportMapper.class;
+  }
+}
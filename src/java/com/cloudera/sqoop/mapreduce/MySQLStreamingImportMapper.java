@@ -0,0 +1,210 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
+import org.apache.hadoop.util.ReflectionUtils;
+
+import com.cloudera.sqoop.lib.LargeObjectLoader;
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.util.PerfCounters;
+import com.cloudera.sqoop.util.Throttle;
+
+/**
+ * Mapper that imports a split of a MySQL table by reading it through a
+ * streaming JDBC result set, without running mysqldump.
+ *
+ * The key delivered to the mapper is the WHERE clause bounding the split.
+ * MySQL Connector/J sends the rows of a query with a fetch size of
+ * Integer.MIN_VALUE one at a time in its binary row format, rather than
+ * buffering the whole result set. Each row is read into the generated
+ * record class and written either as delimited text or, for SequenceFile
+ * imports, as the record itself.
+ */
+public class MySQLStreamingImportMapper
+    extends AutoProgressMapper<String, NullWritable, Object, Object> {
+
+  public static final Log LOG = LogFactory.getLog(
+      MySQLStreamingImportMapper.class.getName());
+
+  private Configuration conf;
+  private SqoopRecord record;
+  private LargeObjectLoader lobLoader;
+  private Throttle throttle;
+  private boolean asText;
+  private Text outkey;
+  private LongWritable rowNum;
+
+  @Override
+  protected void setup(Context context)
+      throws IOException, InterruptedException {
+    this.conf = context.getConfiguration();
+    this.lobLoader = new LargeObjectLoader(conf,
+        FileOutputFormat.getWorkOutputPath(context));
+    this.throttle = Throttle.getTaskThrottle(conf);
+    this.asText = Text.class.equals(context.getOutputKeyClass());
+    this.outkey = new Text();
+    this.rowNum = new LongWritable();
+
+    String className = conf.get(
+        HadoopShim.get().getDbInputClassProperty());
+    try {
+      this.record = (SqoopRecord) ReflectionUtils.newInstance(
+          conf.getClassByName(className), conf);
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException("Could not load record class " + className,
+          cnfe);
+    }
+  }
+
+  /**
+   * @return the SELECT statement that reads the rows of a split.
+   */
+  private String getSelectQuery(DBConfiguration dbConf,
+      String splitConditions) {
+    StringBuilder sb = new StringBuilder();
+    sb.append("SELECT ");
+    String [] fields = dbConf.getInputFieldNames();
+    if (null == fields || fields.length == 0) {
+      sb.append("*");
+    } else {
+      boolean first = true;
+      for (String field : fields) {
+        if (!first) {
+          sb.append(", ");
+        }
+        sb.append(field);
+        first = false;
+      }
+    }
+
+    sb.append(" FROM ");
+    sb.append(dbConf.getInputTableName());
+    sb.append(" WHERE ");
+    String conditions = dbConf.getInputConditions();
+    if (null != conditions && conditions.length() > 0) {
+      sb.append("(");
+      sb.append(conditions);
+      sb.append(") AND ");
+    }
+    sb.append(splitConditions);
+    return sb.toString();
+  }
+
+  /**
+   * Import the rows of the split bounded by 'splitConditions'.
+   */
+  @Override
+  public void map(String splitConditions, NullWritable val, Context context)
+      throws IOException, InterruptedException {
+
+    DBConfiguration dbConf = new DBConfiguration(conf);
+    String query = getSelectQuery(dbConf, splitConditions);
+    LOG.info("Beginning streaming JDBC import: " + query);
+
+    PerfCounters counters = new PerfCounters("mysql");
+    Connection conn = null;
+    PreparedStatement stmt = null;
+    ResultSet results = null;
+    try {
+      conn = dbConf.getConnection();
+      stmt = conn.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY);
+      // MySQL: read row-at-a-time unless told otherwise.
+      stmt.setFetchSize(conf.getInt(DataDrivenImportJob.FETCH_SIZE_KEY,
+          Integer.MIN_VALUE));
+
+      counters.startClock();
+      results = stmt.executeQuery();
+      long rows = 0;
+      while (results.next()) {
+        record.readFields(results);
+        // Loading of LOBs must happen while the row is current.
+        record.loadLargeObjects(lobLoader);
+        rows++;
+
+        if (asText) {
+          outkey.set(record.toString());
+          counters.addBytes(outkey.getLength());
+          if (null != throttle) {
+            throttle.acquire(1, outkey.getLength());
+          }
+          context.write(outkey, NullWritable.get());
+        } else {
+          if (null != throttle) {
+            // The serialized size of the record is not known here.
+            throttle.acquire(1, 0);
+          }
+          rowNum.set(rows);
+          context.write(rowNum, record);
+        }
+      }
+
+      counters.stopClock();
+      LOG.info("Imported " + rows + " rows; transferred "
+          + counters.toString());
+    } catch (ClassNotFoundException cnfe) {
+      throw new IOException("Could not load JDBC driver", cnfe);
+    } catch (SQLException sqlE) {
+      throw new IOException(sqlE);
+    } finally {
+      // A streaming result set must be closed before the connection
+      // can be used for anything else.
+      try {
+        if (null != results) {
+          results.close();
+        }
+        if (null != stmt) {
+          stmt.close();
+        }
+        if (null != conn) {
+          conn.close();
+        }
+      } catch (SQLException sqlE) {
+        LOG.warn("Error closing connection: " + sqlE);
+      }
+    }
+  }
+
+  @Override
+  protected void cleanup(Context context) throws IOException {
+    if (null != lobLoader) {
+      lobLoader.close();
+    }
+
+    if (null != throttle) {
+      context.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS).increment(
+          throttle.getWaitMillis());
+    }
+  }
+}
@@ -34,11 +34,36 @@ public class SequenceFileExportMapper
     extends AutoProgressMapper<LongWritable, SqoopRecord, SqoopRecord,
     NullWritable> {
 
+  private ExportRecordPool recordPool;
+
   public SequenceFileExportMapper() {
   }
 
+  /**
+   * Emit the record. Records read through ExportInputFormat are borrowed
+   * from an ExportRecordPool, and are returned to it if the writer did
+   * not keep them.
+   */
   public void map(LongWritable key, SqoopRecord val, Context context)
       throws IOException, InterruptedException {
-    context.write(val, NullWritable.get());
+    if (null == recordPool) {
+      recordPool = ExportRecordPool.get(context.getConfiguration(),
+          val.getClass());
+    }
+
+    try {
+      context.write(val, NullWritable.get());
+    } finally {
+      recordPool.returnUnclaimed(val);
+    }
+  }
+
+  @Override
+  public void run(Context context) throws IOException, InterruptedException {
+    try {
+      super.run(context);
+    } finally {
+      ExportRecordPool.release(context.getConfiguration());
+    }
   }
 }
@@ -26,6 +26,8 @@ import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import com.cloudera.sqoop.lib.LargeObjectLoader;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.util.MetricsRegistry;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Imports records by writing them to a SequenceFile.
@@ -35,25 +37,43 @@ public class SequenceFileImportMapper
     SqoopRecord> {
 
   private LargeObjectLoader lobLoader;
+  private Throttle throttle;
+
+  // Metrics recorded in the task's MetricsRegistry, which AutoProgressMapper
+  // publishes as counters when the task ends.
+  private MetricsRegistry.Counter recordsMetric;
+  private MetricsRegistry.Timer lobLoadMetric;
 
   @Override
   protected void setup(Context context)
       throws IOException, InterruptedException {
     this.lobLoader = new LargeObjectLoader(context.getConfiguration(),
         FileOutputFormat.getWorkOutputPath(context));
+    this.throttle = Throttle.getTaskThrottle(context.getConfiguration());
+
+    MetricsRegistry metrics = MetricsRegistry.get();
+    this.recordsMetric = metrics.counter("import.mapper.records");
+    this.lobLoadMetric = metrics.timer("import.mapper.lobLoad");
   }
 
   @Override
   public void map(LongWritable key, SqoopRecord val, Context context)
       throws IOException, InterruptedException {
 
+    long lobStart = System.nanoTime();
     try {
       // Loading of LOBs was delayed until we have a Context.
       val.loadLargeObjects(lobLoader);
     } catch (SQLException sqlE) {
       throw new IOException(sqlE);
     }
+    lobLoadMetric.update(System.nanoTime() - lobStart);
+    recordsMetric.increment();
 
+    if (null != throttle) {
+      // The serialized size of the record is not known here.
+      throttle.acquire(1, 0);
+    }
     context.write(key, val);
   }
 
@@ -62,6 +82,11 @@ public class SequenceFileImportMapper
     if (null != lobLoader) {
       lobLoader.close();
     }
+
+    if (null != throttle) {
+      context.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS).increment(
+          throttle.getWaitMillis());
+    }
   }
 }
 
@@ -0,0 +1,81 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+import com.cloudera.sqoop.shims.HadoopShim;
+
+/**
+ * Lets code running in a map task reach the task's counters when it is not
+ * handed the mapper's context. The RecordWriter of a map-only job is
+ * created with a TaskAttemptContext that has no counters, so the mapper
+ * registers its own context here while it runs, and the writer looks it
+ * up by task attempt id.
+ */
+public final class TaskCounters {
+
+  // The mapper context of each running task, by task attempt id.
+  private static final Map<String, TaskInputOutputContext> CONTEXTS =
+      new HashMap<String, TaskInputOutputContext>();
+
+  private TaskCounters() {
+  }
+
+  /**
+   * @return the id of the task running with the given configuration, or
+   * the empty string outside of a task.
+   */
+  private static String getTaskId(Configuration conf) {
+    return conf.get(HadoopShim.get().getTaskIdProperty(), "");
+  }
+
+  /**
+   * Make a mapper's context available to the rest of its task.
+   */
+  public static void register(TaskInputOutputContext context) {
+    synchronized (CONTEXTS) {
+      CONTEXTS.put(getTaskId(context.getConfiguration()), context);
+    }
+  }
+
+  /**
+   * Forget the context registered for the current task.
+   */
+  public static void unregister(Configuration conf) {
+    synchronized (CONTEXTS) {
+      CONTEXTS.remove(getTaskId(conf));
+    }
+  }
+
+  /**
+   * @return the context registered by the current task's mapper, or null
+   * if there is none.
+   */
+  public static TaskInputOutputContext get(Configuration conf) {
+    synchronized (CONTEXTS) {
+      return CONTEXTS.get(getTaskId(conf));
+    }
+  }
+}
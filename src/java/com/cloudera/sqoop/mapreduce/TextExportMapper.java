@@ -25,7 +25,6 @@ import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.NullWritable;
 import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper.Context;
-import org.apache.hadoop.util.ReflectionUtils;
 
 import com.cloudera.sqoop.lib.RecordParser;
 import com.cloudera.sqoop.lib.SqoopRecord;
@@ -38,7 +37,9 @@ import com.cloudera.sqoop.lib.SqoopRecord;
 public class TextExportMapper
     extends AutoProgressMapper<LongWritable, Text, SqoopRecord, NullWritable> {
 
-  private SqoopRecord recordImpl;
+  // Supplies the instances of the user's class that records are parsed
+  // into.
+  private ExportRecordPool recordPool;
 
   public TextExportMapper() {
   }
@@ -48,38 +49,30 @@ public class TextExportMapper
     super.setup(context);
 
     Configuration conf = context.getConfiguration();
-
-    // Instantiate a copy of the user's class to hold and parse the record.
-    String recordClassName = conf.get(
-        ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY);
-    if (null == recordClassName) {
-      throw new IOException("Export table class name ("
-          + ExportJobBase.SQOOP_EXPORT_TABLE_CLASS_KEY
-          + ") is not set!");
-    }
-
-    try {
-      Class cls = Class.forName(recordClassName, true,
-          Thread.currentThread().getContextClassLoader());
-      recordImpl = (SqoopRecord) ReflectionUtils.newInstance(cls, conf);
-    } catch (ClassNotFoundException cnfe) {
-      throw new IOException(cnfe);
-    }
-
-    if (null == recordImpl) {
-      throw new IOException("Could not instantiate object of type "
-          + recordClassName);
-    }
+    recordPool = ExportRecordPool.get(conf);
   }
 
 
   public void map(LongWritable key, Text val, Context context)
       throws IOException, InterruptedException {
+    SqoopRecord record = recordPool.borrow();
     try {
-      recordImpl.parse(val);
-      context.write(recordImpl, NullWritable.get());
+      record.parse(val);
+      context.write(record, NullWritable.get());
     } catch (RecordParser.ParseError pe) {
       throw new IOException("Could not parse record: " + val, pe);
+    } finally {
+      // If the writer did not keep the record, parse the next one into it.
+      recordPool.returnUnclaimed(record);
+    }
+  }
+
+  @Override
+  public void run(Context context) throws IOException, InterruptedException {
+    try {
+      super.run(context);
+    } finally {
+      ExportRecordPool.release(context.getConfiguration());
     }
   }
 }
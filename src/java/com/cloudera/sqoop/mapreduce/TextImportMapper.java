@@ -28,6 +28,8 @@ import org.apache.hadoop.mapreduce.Mapper.Context;
 import org.apache.hadoop.mapreduce.lib.output.FileOutputFormat;
 import com.cloudera.sqoop.lib.LargeObjectLoader;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.util.MetricsRegistry;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Imports records by transforming them to strings for a plain-text flat file.
@@ -37,6 +39,13 @@ public class TextImportMapper
 
   private Text outkey;
   private LargeObjectLoader lobLoader;
+  private Throttle throttle;
+
+  // Metrics recorded in the task's MetricsRegistry, which AutoProgressMapper
+  // publishes as counters when the task ends.
+  private MetricsRegistry.Counter recordsMetric;
+  private MetricsRegistry.Counter bytesMetric;
+  private MetricsRegistry.Timer lobLoadMetric;
 
   public TextImportMapper() {
     outkey = new Text();
@@ -47,20 +56,33 @@ public class TextImportMapper
       throws IOException, InterruptedException {
     this.lobLoader = new LargeObjectLoader(context.getConfiguration(),
         FileOutputFormat.getWorkOutputPath(context));
+    this.throttle = Throttle.getTaskThrottle(context.getConfiguration());
+
+    MetricsRegistry metrics = MetricsRegistry.get();
+    this.recordsMetric = metrics.counter("import.mapper.records");
+    this.bytesMetric = metrics.counter("import.mapper.bytes");
+    this.lobLoadMetric = metrics.timer("import.mapper.lobLoad");
   }
 
   @Override
   public void map(LongWritable key, SqoopRecord val, Context context)
       throws IOException, InterruptedException {
 
+    long lobStart = System.nanoTime();
     try {
       // Loading of LOBs was delayed until we have a Context.
       val.loadLargeObjects(lobLoader);
     } catch (SQLException sqlE) {
       throw new IOException(sqlE);
     }
+    lobLoadMetric.update(System.nanoTime() - lobStart);
+    recordsMetric.increment();
 
     outkey.set(val.toString());
+    bytesMetric.add(outkey.getLength());
+    if (null != throttle) {
+      throttle.acquire(1, outkey.getLength());
+    }
     context.write(outkey, NullWritable.get());
   }
 
@@ -69,6 +91,11 @@ public class TextImportMapper
     if (null != lobLoader) {
       lobLoader.close();
     }
+
+    if (null != throttle) {
+      context.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS).increment(
+          throttle.getWaitMillis());
+    }
   }
 }
 
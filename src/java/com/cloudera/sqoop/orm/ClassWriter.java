@@ -31,6 +31,7 @@ import com.cloudera.sqoop.lib.RecordParser;
 import com.cloudera.sqoop.lib.BlobRef;
 import com.cloudera.sqoop.lib.ClobRef;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.util.MetricsRegistry;
 
 import java.io.File;
 import java.io.FileOutputStream;
@@ -38,6 +39,7 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 
@@ -106,13 +108,17 @@ public class ClassWriter {
    * This number is retrieved by the SqoopRecord.getClassFormatVersion()
    * method.
    */
-  public static final int CLASS_WRITER_VERSION = 3;
+  public static final int CLASS_WRITER_VERSION = 4;
 
   private SqoopOptions options;
   private ConnManager connManager;
   private String tableName;
   private CompilationManager compileManager;
 
+  // When --primitive-fields is set, maps each column held in a primitive
+  // field to its bit in the generated __nulls bitmap.
+  private Map<String, Integer> nullBits = new HashMap<String, Integer>();
+
   /**
    * Creates a new ClassWriter to generate an ORM class for a table.
    * @param opts program-wide options
@@ -266,8 +272,79 @@ public class ClassWriter {
     }
   }
 
+  /**
+   * @param javaType the boxed java type of a column
+   * @return the primitive type that holds the column when --primitive-fields
+   * is set, or null if the column keeps its object type.
+   */
+  private static String primitiveForType(String javaType) {
+    if (javaType.equals("Integer")) {
+      return "int";
+    } else if (javaType.equals("Long")) {
+      return "long";
+    } else if (javaType.equals("Float")) {
+      return "float";
+    } else if (javaType.equals("Double")) {
+      return "double";
+    } else if (javaType.equals("Boolean")) {
+      return "boolean";
+    } else {
+      return null;
+    }
+  }
+
+  /**
+   * @param primitiveType a type returned by primitiveForType().
+   * @return the suffix of the ResultSet, PreparedStatement, DataInput,
+   * DataOutput and parse methods that handle the type (e.g., "Int" for
+   * getInt() and Integer.parseInt()).
+   */
+  private static String accessorSuffix(String primitiveType) {
+    return Character.toUpperCase(primitiveType.charAt(0))
+        + primitiveType.substring(1);
+  }
+
+  /**
+   * @return true if the named column is held in a primitive field.
+   */
+  private boolean isPrimitiveCol(String colName) {
+    return nullBits.containsKey(colName);
+  }
+
+  /**
+   * @return an expression that is true if the primitive column is null.
+   */
+  private String isNullExpr(String colName) {
+    return "__nulls.get(" + nullBits.get(colName) + ")";
+  }
+
+  /**
+   * Assign a bit of the null bitmap to each column that will be held in a
+   * primitive field.
+   * @param columnTypes - mapping from column names to sql types
+   * @param colNames - ordered list of column names for table.
+   */
+  private void assignNullBits(Map<String, Integer> columnTypes,
+      String [] colNames) {
+    nullBits.clear();
+    if (!options.usePrimitiveFields()) {
+      return;
+    }
+
+    for (String col : colNames) {
+      String javaType = connManager.toJavaType(columnTypes.get(col));
+      if (null != javaType && null != primitiveForType(javaType)) {
+        nullBits.put(col, nullBits.size());
+      }
+    }
+  }
+
   private String stringifierForType(String javaType, String colName) {
-    if (javaType.equals("String")) {
+    if (isPrimitiveCol(colName)) {
+      // Format the primitive directly rather than boxing it.
+      return isNullExpr(colName) + " ? \"null\" : String.valueOf("
+          + colName + ")";
+    } else if (javaType.equals("String")) {
       return colName;
     } else {
       // This is an object type -- just call its toString() in a null-safe way.
@@ -341,6 +418,17 @@ public class ClassWriter {
    */
   private String rpcGetterForMaybeNull(String javaType, String inputObj,
       String colName) {
+    if (isPrimitiveCol(colName)) {
+      int bit = nullBits.get(colName);
+      return "    if (" + inputObj + ".readBoolean()) { \n"
+          + "        __nulls.set(" + bit + ");\n"
+          + "    } else {\n"
+          + "        __nulls.clear(" + bit + ");\n"
+          + "        this." + colName + " = " + inputObj + ".read"
+          + accessorSuffix(primitiveForType(javaType)) + "();\n"
+          + "    }\n";
+    }
+
     return "    if (" + inputObj + ".readBoolean()) { \n"
         + "        this." + colName + " = null;\n"
         + "    } else {\n"
@@ -406,6 +494,17 @@ public class ClassWriter {
    */
   private String rpcSetterForMaybeNull(String javaType, String outputObj,
       String colName) {
+    if (isPrimitiveCol(colName)) {
+      return "    if (" + isNullExpr(colName) + ") { \n"
+          + "        " + outputObj + ".writeBoolean(true);\n"
+          + "    } else {\n"
+          + "        " + outputObj + ".writeBoolean(false);\n"
+          + "        " + outputObj + ".write"
+          + accessorSuffix(primitiveForType(javaType)) + "(this." + colName
+          + ");\n"
+          + "    }\n";
+    }
+
     return "    if (null == this." + colName + ") { \n"
         + "        " + outputObj + ".writeBoolean(true);\n"
         + "    } else {\n"
@@ -423,6 +522,15 @@ public class ClassWriter {
   private void generateFields(Map<String, Integer> columnTypes,
       String [] colNames, StringBuilder sb) {
 
+    if (nullBits.size() > 0) {
+      // One bit per primitive field; all columns start out null.
+      sb.append("  private java.util.BitSet __nulls = new java.util.BitSet("
+          + nullBits.size() + ");\n");
+      sb.append("  {\n");
+      sb.append("    __nulls.set(0, " + nullBits.size() + ");\n");
+      sb.append("  }\n");
+    }
+
     for (String col : colNames) {
       int sqlType = columnTypes.get(col);
       String javaType = connManager.toJavaType(sqlType);
@@ -431,6 +539,17 @@ public class ClassWriter {
         continue;
       }
 
+      if (isPrimitiveCol(col)) {
+        // The getter boxes on demand so callers see the usual object type.
+        sb.append("  private " + primitiveForType(javaType) + " " + col
+            + ";\n");
+        sb.append("  public " + javaType + " get_" + col + "() {\n");
+        sb.append("    return " + isNullExpr(col) + " ? null : "
+            + javaType + ".valueOf(" + col + ");\n");
+        sb.append("  }\n");
+        continue;
+      }
+
       sb.append("  private " + javaType + " " + col + ";\n");
       sb.append("  public " + javaType + " get_" + col + "() {\n");
       sb.append("    return " + col + ";\n");
@@ -466,6 +585,16 @@ public class ClassWriter {
         continue;
       }
 
+      if (isPrimitiveCol(col)) {
+        // Read the primitive directly instead of boxing it.
+        sb.append("    this." + col + " = __dbResults.get"
+            + accessorSuffix(primitiveForType(javaType)) + "(" + fieldNum
+            + ");\n");
+        sb.append("    __nulls.set(" + nullBits.get(col)
+            + ", __dbResults.wasNull());\n");
+        continue;
+      }
+
       String getterMethod = dbGetterForType(javaType);
       if (null == getterMethod) {
         LOG.error("No db getter method for Java type " + javaType);
@@ -548,6 +677,18 @@ public class ClassWriter {
         continue;
       }
 
+      if (isPrimitiveCol(col)) {
+        sb.append("    if (" + isNullExpr(col) + ") {\n");
+        sb.append("      __dbStmt.setNull(" + fieldNum + " + __off, "
+            + sqlType + ");\n");
+        sb.append("    } else {\n");
+        sb.append("      __dbStmt.set"
+            + accessorSuffix(primitiveForType(javaType)) + "(" + fieldNum
+            + " + __off, " + col + ");\n");
+        sb.append("    }\n");
+        continue;
+      }
+
       String setterMethod = dbSetterForType(javaType);
       if (null == setterMethod) {
         LOG.error("No db setter method for Java type " + javaType);
@@ -609,6 +750,9 @@ public class ClassWriter {
 
     sb.append("  public Object clone() throws CloneNotSupportedException {\n");
     sb.append("    " + className + " o = (" + className + ") super.clone();\n");
+    if (nullBits.size() > 0) {
+      sb.append("    o.__nulls = (java.util.BitSet) o.__nulls.clone();\n");
+    }
 
     // For each field that is mutable, we need to perform the deep copy.
     for (String colName : colNames) {
@@ -714,6 +858,13 @@ public class ClassWriter {
    * for a particular column.
    */
   private void parseNullVal(String colName, StringBuilder sb) {
+    if (isPrimitiveCol(colName)) {
+      sb.append("    if (__cur_str.equals(\"null\")) { __nulls.set(");
+      sb.append(nullBits.get(colName));
+      sb.append("); } else {\n");
+      return;
+    }
+
     sb.append("    if (__cur_str.equals(\"null\")) { this.");
     sb.append(colName);
     sb.append(" = null; } else {\n");
@@ -731,7 +882,12 @@ public class ClassWriter {
     String javaType = connManager.toJavaType(colType);
 
     parseNullVal(colName, sb);
-    if (javaType.equals("String")) {
+    if (isPrimitiveCol(colName)) {
+      // e.g., Integer.parseInt(), which does not box the value.
+      sb.append("      this." + colName + " = " + javaType + ".parse"
+          + accessorSuffix(primitiveForType(javaType)) + "(__cur_str);\n");
+      sb.append("      __nulls.clear(" + nullBits.get(colName) + ");\n");
+    } else if (javaType.equals("String")) {
       // TODO(aaron): Distinguish between 'null' and null. Currently they both
       // set the actual object to null.
       sb.append("      this." + colName + " = __cur_str;\n");
@@ -795,6 +951,11 @@ public class ClassWriter {
     generateParseMethod("ByteBuffer", sb);
     generateParseMethod("CharBuffer", sb);
 
+    // Allow fields already split by another parser to be loaded.
+    sb.append("  public void loadFromFields(List<String> __fields) {\n");
+    sb.append("    __loadFromFields(__fields);\n");
+    sb.append("  }\n\n");
+
     // The wrapper methods call __loadFromFields() to actually interpret the
     // raw field data as string, int, boolean, etc. The generation of this
     // method is type-dependent for the fields.
@@ -839,17 +1000,40 @@ public class ClassWriter {
 
     sb.append("  }\n");
   }
+
   /**
    * Generate the ORM code for the class.
    */
   public void generate() throws IOException {
-    Map<String, Integer> columnTypes = connManager.getColumnTypes(tableName);
+    MetricsRegistry metrics = MetricsRegistry.get();
+    Map<String, Integer> columnTypes;
+    String [] colNames;
+    MetricsRegistry.Timer.Context phase = metrics.startPhase("metadata");
+    try {
+      columnTypes = connManager.getColumnTypes(tableName);
+
+      colNames = options.getColumns();
+      if (null == colNames) {
+        colNames = connManager.getColumnNames(tableName);
+      }
+    } finally {
+      phase.stop();
+    }
 
-    String [] colNames = options.getColumns();
-    if (null == colNames) {
-      colNames = connManager.getColumnNames(tableName);
+    phase = metrics.startPhase("codegen");
+    try {
+      generateSource(columnTypes, colNames);
+    } finally {
+      phase.stop();
     }
+  }
 
+  /**
+   * Generate and write out the source file for a table with the given
+   * columns.
+   */
+  private void generateSource(Map<String, Integer> columnTypes,
+      String [] colNames) throws IOException {
     // Translate all the column names into names that are safe to
     // use as identifiers.
     String [] cleanedColNames = new String[colNames.length];
@@ -976,6 +1160,8 @@ public class ClassWriter {
     sb.append("import java.util.List;\n");
     sb.append("\n");
 
+    assignNullBits(columnTypes, colNames);
+
     String className = tableNameInfo.getShortClassForTable(tableName);
     sb.append("public class " + className + " extends SqoopRecord "
         + " implements DBWritable, Writable {\n");
@@ -39,6 +39,7 @@ import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.lib.DelimiterSet;
 import com.cloudera.sqoop.manager.ConnManager;
 import com.cloudera.sqoop.shims.ShimLoader;
+import com.cloudera.sqoop.util.MetricsRegistry;
 
 /**
  * Layer on top of SqoopTool that provides some basic common code
@@ -85,6 +86,7 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String COMPRESS_SHORT_ARG = "z";
   public static final String DIRECT_SPLIT_SIZE_ARG = "direct-split-size";
   public static final String INLINE_LOB_LIMIT_ARG = "inline-lob-limit";
+  public static final String FETCH_SIZE_ARG = "fetch-size";
   public static final String EXPORT_PATH_ARG = "export-dir";
   public static final String FIELDS_TERMINATED_BY_ARG = "fields-terminated-by";
   public static final String LINES_TERMINATED_BY_ARG = "lines-terminated-by";
@@ -105,10 +107,12 @@ public abstract class BaseSqoopTool extends SqoopTool {
   public static final String BIN_OUT_DIR_ARG = "bindir";
   public static final String PACKAGE_NAME_ARG = "package-name";
   public static final String CLASS_NAME_ARG = "class-name";
+  public static final String PRIMITIVE_FIELDS_ARG = "primitive-fields";
   public static final String JAR_FILE_NAME_ARG = "jar-file";
   public static final String DEBUG_SQL_ARG = "query";
   public static final String DEBUG_SQL_SHORT_ARG = "e";
   public static final String VERBOSE_ARG = "verbose";
+  public static final String PROFILE_ARG = "profile";
   public static final String HELP_ARG = "help";
 
 
@@ -137,6 +141,9 @@ public abstract class BaseSqoopTool extends SqoopTool {
    */
   protected boolean init(SqoopOptions sqoopOpts) {
 
+    MetricsRegistry.Timer.Context phase =
+        MetricsRegistry.get().startPhase("init");
+
     // Make sure shim jar is classloaded early.
     ShimLoader.getHadoopShim(sqoopOpts.getConf());
 
@@ -150,6 +157,8 @@ public abstract class BaseSqoopTool extends SqoopTool {
       if (System.getProperty(Sqoop.SQOOP_RETHROW_PROPERTY) != null) {
         throw new RuntimeException(e);
       }
+    } finally {
+      phase.stop();
     }
 
     return false;
@@ -263,6 +272,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
         .withDescription("Print more information while working")
         .withLongOpt(VERBOSE_ARG)
         .create());
+    commonOpts.addOption(OptionBuilder
+        .withDescription("Report the time and resources used by each phase")
+        .withLongOpt(PROFILE_ARG)
+        .create());
     commonOpts.addOption(OptionBuilder
         .withDescription("Print usage instructions")
         .withLongOpt(HELP_ARG)
@@ -400,6 +413,11 @@ public abstract class BaseSqoopTool extends SqoopTool {
         .withDescription("Put auto-generated classes in this package")
         .withLongOpt(PACKAGE_NAME_ARG)
         .create());
+    codeGenOpts.addOption(OptionBuilder
+        .withDescription("Store numeric and boolean columns in primitive "
+        + "fields")
+        .withLongOpt(PRIMITIVE_FIELDS_ARG)
+        .create());
     if (!multiTable) {
       codeGenOpts.addOption(OptionBuilder.withArgName("name")
           .hasArg()
@@ -428,6 +446,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
       LOG.debug("Enabled debug logging.");
     }
 
+    if (in.hasOption(PROFILE_ARG)) {
+      out.setProfile(true);
+    }
+
     if (in.hasOption(HELP_ARG)) {
       ToolOptions toolOpts = new ToolOptions();
       configureOptions(toolOpts);
@@ -576,6 +598,10 @@ public abstract class BaseSqoopTool extends SqoopTool {
       out.setPackageName(in.getOptionValue(PACKAGE_NAME_ARG));
     }
 
+    if (in.hasOption(PRIMITIVE_FIELDS_ARG)) {
+      out.setUsePrimitiveFields(true);
+    }
+
     if (!multiTable && in.hasOption(CLASS_NAME_ARG)) {
       out.setClassName(in.getOptionValue(CLASS_NAME_ARG));
     }
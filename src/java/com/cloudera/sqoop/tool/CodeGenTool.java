@@ -36,6 +36,7 @@ import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.hive.HiveImport;
 import com.cloudera.sqoop.orm.ClassWriter;
 import com.cloudera.sqoop.orm.CompilationManager;
+import com.cloudera.sqoop.util.MetricsRegistry;
 
 /**
  * Tool that generates code from a database schema.
@@ -80,8 +81,21 @@ public class CodeGenTool extends BaseSqoopTool {
     ClassWriter classWriter = new ClassWriter(options, manager, tableName,
         compileMgr);
     classWriter.generate();
-    compileMgr.compile();
-    compileMgr.jar();
+
+    MetricsRegistry metrics = MetricsRegistry.get();
+    MetricsRegistry.Timer.Context phase = metrics.startPhase("compile");
+    try {
+      compileMgr.compile();
+    } finally {
+      phase.stop();
+    }
+
+    phase = metrics.startPhase("jar");
+    try {
+      compileMgr.jar();
+    } finally {
+      phase.stop();
+    }
     String jarFile = compileMgr.getJarFilename();
     this.generatedJarFiles.add(jarFile);
     return jarFile;
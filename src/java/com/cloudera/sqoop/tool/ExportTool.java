@@ -33,6 +33,7 @@ import com.cloudera.sqoop.cli.RelatedOptions;
 import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.manager.ExportJobContext;
 import com.cloudera.sqoop.util.ExportException;
+import com.cloudera.sqoop.util.MetricsRegistry;
 
 /**
  * Tool that performs HDFS exports to databases.
@@ -64,7 +65,13 @@ public class ExportTool extends BaseSqoopTool {
 
     ExportJobContext context = new ExportJobContext(tableName, jarFile,
         options);
-    manager.exportTable(context);
+    MetricsRegistry.Timer.Context phase =
+        MetricsRegistry.get().startPhase("export");
+    try {
+      manager.exportTable(context);
+    } finally {
+      phase.stop();
+    }
   }
 
   @Override
@@ -32,9 +32,13 @@ import com.cloudera.sqoop.SqoopOptions.InvalidOptionsException;
 import com.cloudera.sqoop.cli.RelatedOptions;
 import com.cloudera.sqoop.cli.ToolOptions;
 import com.cloudera.sqoop.hive.HiveImport;
+import com.cloudera.sqoop.io.CodecMap;
+import com.cloudera.sqoop.io.UnsupportedCodecException;
+import com.cloudera.sqoop.lib.LargeObjectLoader;
 import com.cloudera.sqoop.manager.ImportJobContext;
 import com.cloudera.sqoop.util.AppendUtils;
 import com.cloudera.sqoop.util.ImportException;
+import com.cloudera.sqoop.util.MetricsRegistry;
 import org.apache.hadoop.fs.Path;
 
 /**
@@ -86,16 +90,32 @@ public class ImportTool extends BaseSqoopTool {
     ImportJobContext context = new ImportJobContext(tableName, jarFile,
     	options, getOutputPath(options, tableName));
     
-    manager.importTable(context);
-    
+    MetricsRegistry metrics = MetricsRegistry.get();
+    MetricsRegistry.Timer.Context importPhase = metrics.startPhase("import");
+    try {
+      manager.importTable(context);
+    } finally {
+      importPhase.stop();
+    }
+
     if (options.isAppendMode()) {
-    	AppendUtils app=new AppendUtils(context);
-    	app.append();
+      MetricsRegistry.Timer.Context phase = metrics.startPhase("append");
+      try {
+        AppendUtils app = new AppendUtils(context);
+        app.append();
+      } finally {
+        phase.stop();
+      }
     }
 
     // If the user wants this table to be in Hive, perform that post-load.
     if (options.doHiveImport()) {
-      hiveImport.importTable(tableName, options.getHiveTableName(), false);
+      MetricsRegistry.Timer.Context phase = metrics.startPhase("hive-load");
+      try {
+        hiveImport.importTable(tableName, options.getHiveTableName(), false);
+      } finally {
+        phase.stop();
+      }
     }
   }
 
@@ -247,6 +267,12 @@ public class ImportTool extends BaseSqoopTool {
         .withDescription("Set the maximum size for an inline LOB")
         .withLongOpt(INLINE_LOB_LIMIT_ARG)
         .create());
+    importOpts.addOption(OptionBuilder.withArgName("n")
+        .hasArg()
+        .withDescription("Fetch 'n' rows at a time from the database "
+            + "(0 for the driver's default)")
+        .withLongOpt(FETCH_SIZE_ARG)
+        .create());
 
     return importOpts;
   }
@@ -359,6 +385,15 @@ public class ImportTool extends BaseSqoopTool {
             INLINE_LOB_LIMIT_ARG)));
       }
 
+      if (in.hasOption(FETCH_SIZE_ARG)) {
+        Integer fetchSize = Integer.valueOf(in.getOptionValue(FETCH_SIZE_ARG));
+        if (fetchSize.intValue() < 0) {
+          throw new InvalidOptionsException("--" + FETCH_SIZE_ARG
+              + " must be 0 (the driver's default) or greater." + HELP_STR);
+        }
+        out.setFetchSize(fetchSize);
+      }
+
       if (in.hasOption(JAR_FILE_NAME_ARG)) {
         out.setExistingJarName(in.getOptionValue(JAR_FILE_NAME_ARG));
       }
@@ -393,6 +428,19 @@ public class ImportTool extends BaseSqoopTool {
       throw new InvalidOptionsException("--target-dir is incompatible when importing all tables");
     }
 
+    // Check the LobFile codec now rather than in each map task.
+    String lobCodec = options.getConf().get(
+        LargeObjectLoader.LOB_COMPRESSION_CODEC_KEY);
+    if (null != lobCodec) {
+      try {
+        CodecMap.getCodec(lobCodec, options.getConf());
+      } catch (UnsupportedCodecException uce) {
+        throw new InvalidOptionsException("Invalid "
+            + LargeObjectLoader.LOB_COMPRESSION_CODEC_KEY + ": "
+            + uce.getMessage());
+      }
+    }
+
   }
 
   @Override
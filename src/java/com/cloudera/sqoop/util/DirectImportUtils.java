@@ -29,7 +29,11 @@ import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.SequenceFile.CompressionType;
 import com.cloudera.sqoop.SqoopOptions;
+import com.cloudera.sqoop.lib.SqoopRecord;
 import com.cloudera.sqoop.io.SplittingOutputStream;
 import com.cloudera.sqoop.io.SplittableBufferedWriter;
 import org.apache.hadoop.util.Shell;
@@ -64,6 +68,24 @@ public final class DirectImportUtils {
     }
   }
 
+  /**
+   * Ensure that a record class can be loaded from the fields parsed out of
+   * a direct-mode dump.
+   * @throws IOException if the class was generated by an older version of
+   * Sqoop which did not support this.
+   */
+  public static void checkLoadFromFields(SqoopRecord record)
+      throws IOException {
+    int version = record.getClassFormatVersion();
+    if (version < SqoopRecord.LOAD_FROM_FIELDS_VERSION) {
+      throw new IOException("Class " + record.getClass().getName()
+          + " was generated by an older version of Sqoop (class format "
+          + "version " + version + ") and cannot hold rows of a direct-mode "
+          + "SequenceFile import. Regenerate it with 'sqoop codegen', or "
+          + "import without --jar-file.");
+    }
+  }
+
   /**
    * Open a file in HDFS for write to hold the data associated with a table.
    * Creates any necessary directories, and returns the OutputStream to write
@@ -86,6 +108,34 @@ public final class DirectImportUtils {
         options.getDirectSplitSize(), options.shouldUseCompression()));
   }
 
+  /**
+   * Open a SequenceFile in HDFS to hold the records of a table, keyed by
+   * row number. The caller is responsible for closing the writer.
+   */
+  public static SequenceFile.Writer createSequenceFileSink(
+      Configuration conf, SqoopOptions options, ImportJobContext context,
+      Class<?> recordClass) throws IOException {
+
+    FileSystem fs = FileSystem.get(conf);
+    Path destDir = context.getDestination();
+
+    LOG.debug("Creating destination directory " + destDir);
+    fs.mkdirs(destDir);
+
+    if (options.getDirectSplitSize() > 0) {
+      LOG.warn("Direct split size is not supported for SequenceFile "
+          + "imports; writing a single file.");
+    }
+
+    CompressionType compression = CompressionType.NONE;
+    if (options.shouldUseCompression()) {
+      compression = CompressionType.BLOCK;
+    }
+
+    return SequenceFile.createWriter(fs, conf, new Path(destDir, "data-00000"),
+        LongWritable.class, recordClass, compression);
+  }
+
   /** @return true if someHost refers to localhost.
    */
   public static boolean isLocalhost(String someHost) {
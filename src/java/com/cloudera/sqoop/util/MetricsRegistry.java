@@ -0,0 +1,619 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.mapreduce.CounterGroup;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
+
+/**
+ * A registry of named counters, timers and histograms that Sqoop tools,
+ * map tasks and direct-mode sinks publish into.
+ *
+ * Metrics are created on first use by name, and are safe to update from
+ * multiple threads. Each JVM has a single registry, returned by get().
+ * Within a map task, publishCounters() copies the task's metrics into
+ * Hadoop counters in the COUNTER_GROUP group; the client merges them back
+ * with mergeCounters() when the job completes. Tasks run by the
+ * LocalJobRunner share the client's registry, so their metrics are not
+ * merged again. The client's registry can also be written as a JSON
+ * report, or exposed through JMX.
+ */
+public final class MetricsRegistry {
+
+  public static final Log LOG = LogFactory.getLog(
+      MetricsRegistry.class.getName());
+
+  /** conf key: if set, the JSON metrics report is written to this path. */
+  public static final String REPORT_FILE_KEY = "sqoop.metrics.report.file";
+
+  /** conf key: if true, expose the registry through JMX. */
+  public static final String JMX_ENABLED_KEY = "sqoop.metrics.jmx.enabled";
+
+  /** Name of the Hadoop counter group that task metrics are copied into. */
+  public static final String COUNTER_GROUP = "Sqoop Metrics";
+
+  /** Prefix of the timers that record the phases of a tool run. */
+  public static final String PHASE_PREFIX = "phase.";
+
+  /** Prefix of the metrics merged back from a job's task counters. */
+  public static final String TASK_PREFIX = "task.";
+
+  /** JMX name of the registry's MBean. */
+  public static final String MBEAN_NAME = "com.cloudera.sqoop:type=Metrics";
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private static final double NANOS_PER_MILLI = 1000.0 * 1000.0;
+
+  /**
+   * A monotonically increasing count.
+   */
+  public static class Counter {
+    private final AtomicLong value = new AtomicLong();
+
+    public void increment() {
+      value.incrementAndGet();
+    }
+
+    public void add(long delta) {
+      value.addAndGet(delta);
+    }
+
+    public long getValue() {
+      return value.get();
+    }
+  }
+
+  /**
+   * Records the number and total and maximum duration of timed events.
+   */
+  public static class Timer {
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Begin timing an event.
+     * @return a Context whose stop() method records the event.
+     */
+    public Context start() {
+      return new Context(this);
+    }
+
+    /**
+     * Record an event that took the given time.
+     */
+    public void update(long nanos) {
+      count.incrementAndGet();
+      totalNanos.addAndGet(nanos);
+      long max = maxNanos.get();
+      while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+        max = maxNanos.get();
+      }
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public long getTotalNanos() {
+      return totalNanos.get();
+    }
+
+    public long getMaxNanos() {
+      return maxNanos.get();
+    }
+
+    /**
+     * A single timed event, begun by Timer.start().
+     */
+    public static class Context {
+      private final Timer timer;
+      private final long startNanos;
+      private boolean stopped;
+
+      protected Context(Timer timer) {
+        this.timer = timer;
+        this.startNanos = System.nanoTime();
+      }
+
+      /**
+       * Record the event in the Timer. Calls after the first have no
+       * effect, so stop() may safely be called in a finally block.
+       * @return the duration of the event in nanoseconds.
+       */
+      public long stop() {
+        long elapsed = System.nanoTime() - startNanos;
+        if (!stopped) {
+          stopped = true;
+          timer.update(elapsed);
+        }
+        return elapsed;
+      }
+    }
+  }
+
+  /**
+   * Records the distribution of a series of non-negative values in
+   * power-of-two buckets, along with their count, sum, minimum and maximum.
+   */
+  public static class Histogram {
+    private static final int NUM_BUCKETS = 64;
+
+    // Bucket i holds values v with 2^(i-1) <= v < 2^i; bucket 0 holds 0.
+    private final AtomicLongArray buckets = new AtomicLongArray(NUM_BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    public void update(long value) {
+      long v = Math.max(0, value);
+      buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+      count.incrementAndGet();
+      sum.addAndGet(v);
+
+      long cur = min.get();
+      while (v < cur && !min.compareAndSet(cur, v)) {
+        cur = min.get();
+      }
+      cur = max.get();
+      while (v > cur && !max.compareAndSet(cur, v)) {
+        cur = max.get();
+      }
+    }
+
+    public long getCount() {
+      return count.get();
+    }
+
+    public long getSum() {
+      return sum.get();
+    }
+
+    public long getMin() {
+      return getCount() == 0 ? 0 : min.get();
+    }
+
+    public long getMax() {
+      return getCount() == 0 ? 0 : max.get();
+    }
+
+    /**
+     * Estimate a percentile of the recorded values. The estimate is the
+     * upper bound of the bucket holding the percentile, capped at the
+     * maximum recorded value, so it is within a factor of two.
+     * @param fraction the percentile to estimate, between 0 and 1.
+     */
+    public long getPercentile(double fraction) {
+      long total = getCount();
+      if (total == 0) {
+        return 0;
+      }
+
+      long rank = (long) Math.ceil(fraction * total);
+      long seen = 0;
+      for (int i = 0; i < NUM_BUCKETS; i++) {
+        seen += buckets.get(i);
+        if (seen >= rank && seen > 0) {
+          long upper = (i == NUM_BUCKETS - 1) ? Long.MAX_VALUE : (1L << i) - 1;
+          return Math.min(upper, getMax());
+        }
+      }
+      return getMax();
+    }
+  }
+
+  private final ConcurrentMap<String, Counter> counters =
+      new ConcurrentSkipListMap<String, Counter>();
+  private final ConcurrentMap<String, Timer> timers =
+      new ConcurrentSkipListMap<String, Timer>();
+  private final ConcurrentMap<String, Histogram> histograms =
+      new ConcurrentSkipListMap<String, Histogram>();
+
+  // Additive values most recently copied into Hadoop counters, so that
+  // each call to publishCounters() adds only what changed since the last.
+  private final Map<String, Long> published = new HashMap<String, Long>();
+
+  private boolean mbeanRegistered;
+
+  // If set, phases also record CPU time, allocation and trace events.
+  private volatile Profiler profiler;
+
+  MetricsRegistry() {
+  }
+
+  /**
+   * @return the registry for this JVM.
+   */
+  public static MetricsRegistry get() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the Counter with the given name, creating it if necessary.
+   */
+  public Counter counter(String name) {
+    Counter c = counters.get(name);
+    if (null == c) {
+      Counter newCounter = new Counter();
+      c = counters.putIfAbsent(name, newCounter);
+      if (null == c) {
+        c = newCounter;
+      }
+    }
+    return c;
+  }
+
+  /**
+   * @return the Timer with the given name, creating it if necessary.
+   */
+  public Timer timer(String name) {
+    Timer t = timers.get(name);
+    if (null == t) {
+      Timer newTimer = new Timer();
+      t = timers.putIfAbsent(name, newTimer);
+      if (null == t) {
+        t = newTimer;
+      }
+    }
+    return t;
+  }
+
+  /**
+   * @return the Histogram with the given name, creating it if necessary.
+   */
+  public Histogram histogram(String name) {
+    Histogram h = histograms.get(name);
+    if (null == h) {
+      Histogram newHistogram = new Histogram();
+      h = histograms.putIfAbsent(name, newHistogram);
+      if (null == h) {
+        h = newHistogram;
+      }
+    }
+    return h;
+  }
+
+  /**
+   * Begin timing one phase of a tool run (e.g., "codegen" or "job").
+   * @return a Timer.Context to stop when the phase is complete.
+   */
+  public Timer.Context startPhase(String phase) {
+    Timer t = timer(PHASE_PREFIX + phase);
+    Profiler p = profiler;
+    if (null == p) {
+      return t.start();
+    }
+    return new ProfiledContext(t, p, phase);
+  }
+
+  /**
+   * Set the Profiler that phases started after this call report to, or
+   * null to stop profiling.
+   */
+  public void setProfiler(Profiler p) {
+    this.profiler = p;
+  }
+
+  /**
+   * @return the current Profiler, or null if phases are not profiled.
+   */
+  public Profiler getProfiler() {
+    return profiler;
+  }
+
+  /**
+   * A phase timed while profiling. Besides the phase's wall-clock Timer,
+   * it records the thread's CPU time in the "phase.name.cpu" Timer and its
+   * allocation in the "phase.name.allocatedBytes" Counter.
+   */
+  private class ProfiledContext extends Timer.Context {
+    private final Profiler phaseProfiler;
+    private final String phase;
+    private final Profiler.Sample start;
+    private boolean recorded;
+
+    ProfiledContext(Timer timer, Profiler p, String phaseName) {
+      super(timer);
+      this.phaseProfiler = p;
+      this.phase = phaseName;
+      this.start = p.sample();
+    }
+
+    @Override
+    public long stop() {
+      long elapsed = super.stop();
+      if (!recorded) {
+        recorded = true;
+        Profiler.Sample end = phaseProfiler.record(phase, start);
+        if (end.getCpuNanos() >= 0 && start.getCpuNanos() >= 0) {
+          timer(PHASE_PREFIX + phase + ".cpu").update(
+              end.getCpuNanos() - start.getCpuNanos());
+        }
+        if (end.getAllocatedBytes() >= 0 && start.getAllocatedBytes() >= 0) {
+          counter(PHASE_PREFIX + phase + ".allocatedBytes").add(
+              end.getAllocatedBytes() - start.getAllocatedBytes());
+        }
+      }
+      return elapsed;
+    }
+  }
+
+  /**
+   * Flatten the registry into a set of named values. Counters keep their
+   * names; timers contribute "name.count", "name.millis" and
+   * "name.maxMillis"; histograms contribute "name.count", "name.sum",
+   * "name.min", "name.max", "name.p50" and "name.p99".
+   * @param additiveOnly if true, include only the values that may be
+   * summed across tasks (counters, counts, and totals).
+   */
+  public SortedMap<String, Long> snapshot(boolean additiveOnly) {
+    SortedMap<String, Long> values = new TreeMap<String, Long>();
+    for (Map.Entry<String, Counter> e : counters.entrySet()) {
+      values.put(e.getKey(), e.getValue().getValue());
+    }
+
+    for (Map.Entry<String, Timer> e : timers.entrySet()) {
+      Timer t = e.getValue();
+      values.put(e.getKey() + ".count", t.getCount());
+      values.put(e.getKey() + ".millis",
+          Math.round(t.getTotalNanos() / NANOS_PER_MILLI));
+      if (!additiveOnly) {
+        values.put(e.getKey() + ".maxMillis",
+            Math.round(t.getMaxNanos() / NANOS_PER_MILLI));
+      }
+    }
+
+    for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+      Histogram h = e.getValue();
+      values.put(e.getKey() + ".count", h.getCount());
+      values.put(e.getKey() + ".sum", h.getSum());
+      if (!additiveOnly) {
+        values.put(e.getKey() + ".min", h.getMin());
+        values.put(e.getKey() + ".max", h.getMax());
+        values.put(e.getKey() + ".p50", h.getPercentile(0.5));
+        values.put(e.getKey() + ".p99", h.getPercentile(0.99));
+      }
+    }
+
+    return values;
+  }
+
+  /**
+   * Add the change in this registry's additive values since the last call
+   * into the Hadoop counters of a task. Call this at the end of a task.
+   */
+  public void publishCounters(TaskInputOutputContext<?, ?, ?, ?> context) {
+    synchronized (published) {
+      for (Map.Entry<String, Long> e : snapshot(true).entrySet()) {
+        Long prev = published.get(e.getKey());
+        long delta = e.getValue() - (null == prev ? 0 : prev.longValue());
+        if (delta != 0) {
+          context.getCounter(COUNTER_GROUP, e.getKey()).increment(delta);
+        }
+        published.put(e.getKey(), e.getValue());
+      }
+    }
+  }
+
+  /**
+   * Add the task metrics published to a completed job's counters into
+   * this registry, as counters prefixed with TASK_PREFIX. Do not call this
+   * for jobs whose tasks ran in this JVM; their metrics are already here.
+   * @param group the COUNTER_GROUP group of the job's counters, or null.
+   */
+  public void mergeCounters(CounterGroup group) {
+    if (null == group) {
+      return;
+    }
+
+    for (org.apache.hadoop.mapreduce.Counter c : group) {
+      counter(TASK_PREFIX + c.getName()).add(c.getValue());
+    }
+  }
+
+  /**
+   * Write the registry as a JSON object with "counters", "timers" and
+   * "histograms" members.
+   */
+  public void writeJson(OutputStream out) throws IOException {
+    PrintWriter w = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+    w.println("{");
+    w.println("  \"counters\": {");
+    String sep = "";
+    for (Map.Entry<String, Counter> e : counters.entrySet()) {
+      w.print(sep + "    " + quote(e.getKey()) + ": "
+          + e.getValue().getValue());
+      sep = ",\n";
+    }
+    w.println();
+    w.println("  },");
+
+    w.println("  \"timers\": {");
+    sep = "";
+    for (Map.Entry<String, Timer> e : timers.entrySet()) {
+      Timer t = e.getValue();
+      w.print(sep + "    " + quote(e.getKey()) + ": { \"count\": "
+          + t.getCount() + ", \"totalMillis\": "
+          + t.getTotalNanos() / NANOS_PER_MILLI + ", \"maxMillis\": "
+          + t.getMaxNanos() / NANOS_PER_MILLI + " }");
+      sep = ",\n";
+    }
+    w.println();
+    w.println("  },");
+
+    w.println("  \"histograms\": {");
+    sep = "";
+    for (Map.Entry<String, Histogram> e : histograms.entrySet()) {
+      Histogram h = e.getValue();
+      w.print(sep + "    " + quote(e.getKey()) + ": { \"count\": "
+          + h.getCount() + ", \"sum\": " + h.getSum()
+          + ", \"min\": " + h.getMin() + ", \"max\": " + h.getMax()
+          + ", \"p50\": " + h.getPercentile(0.5)
+          + ", \"p99\": " + h.getPercentile(0.99) + " }");
+      sep = ",\n";
+    }
+    w.println();
+    w.println("  }");
+    w.println("}");
+    w.flush();
+  }
+
+  /** Quote a metric name as a JSON string. */
+  private static String quote(String s) {
+    StringBuilder sb = new StringBuilder("\"");
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append(String.format("\\u%04x", (int) c));
+      } else {
+        sb.append(c);
+      }
+    }
+    return sb.append('"').toString();
+  }
+
+  /**
+   * If the configuration names a report file, write the JSON report there.
+   */
+  public void writeReport(Configuration conf) {
+    String reportFile = conf.get(REPORT_FILE_KEY);
+    if (null == reportFile) {
+      return;
+    }
+
+    try {
+      Path p = new Path(reportFile);
+      OutputStream out = p.getFileSystem(conf).create(p, true);
+      try {
+        writeJson(out);
+      } finally {
+        out.close();
+      }
+      LOG.info("Wrote metrics report to " + p);
+    } catch (IOException ioe) {
+      LOG.warn("Could not write metrics report to " + reportFile + ": "
+          + ioe.toString());
+    }
+  }
+
+  /**
+   * If the configuration enables it, register the registry with the
+   * platform MBeanServer under MBEAN_NAME.
+   */
+  public synchronized void registerMBean(Configuration conf) {
+    if (mbeanRegistered || !conf.getBoolean(JMX_ENABLED_KEY, false)) {
+      return;
+    }
+
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      server.registerMBean(new MetricsMBean(), new ObjectName(MBEAN_NAME));
+      mbeanRegistered = true;
+    } catch (InstanceAlreadyExistsException iaee) {
+      mbeanRegistered = true;
+    } catch (JMException jme) {
+      LOG.warn("Could not register metrics MBean: " + jme.toString());
+    }
+  }
+
+  /**
+   * Read-only MBean exposing each value of snapshot(false) as a Long
+   * attribute.
+   */
+  private class MetricsMBean implements DynamicMBean {
+    public Object getAttribute(String name)
+        throws AttributeNotFoundException {
+      Long value = snapshot(false).get(name);
+      if (null == value) {
+        throw new AttributeNotFoundException(name);
+      }
+      return value;
+    }
+
+    public AttributeList getAttributes(String [] names) {
+      SortedMap<String, Long> values = snapshot(false);
+      AttributeList list = new AttributeList();
+      for (String name : names) {
+        Long value = values.get(name);
+        if (null != value) {
+          list.add(new Attribute(name, value));
+        }
+      }
+      return list;
+    }
+
+    public MBeanInfo getMBeanInfo() {
+      SortedMap<String, Long> values = snapshot(false);
+      MBeanAttributeInfo [] attrs = new MBeanAttributeInfo[values.size()];
+      int i = 0;
+      for (String name : values.keySet()) {
+        attrs[i++] = new MBeanAttributeInfo(name, Long.class.getName(),
+            name, true, false, false);
+      }
+      return new MBeanInfo(MetricsRegistry.class.getName(),
+          "Sqoop metrics", attrs, null, null, null);
+    }
+
+    public void setAttribute(Attribute attribute) {
+      throw new UnsupportedOperationException("Metrics are read-only");
+    }
+
+    public AttributeList setAttributes(AttributeList attributes) {
+      return new AttributeList();
+    }
+
+    public Object invoke(String action, Object [] params,
+        String [] signature) {
+      throw new UnsupportedOperationException("No operations");
+    }
+  }
+}
@@ -22,6 +22,8 @@ import java.text.NumberFormat;
 
 /**
  * A quick set of performance counters for reporting import speed.
+ * Named PerfCounters also publish into the MetricsRegistry, as a
+ * "name.bytes" counter and a "name.time" timer.
  */
 public class PerfCounters {
 
@@ -30,11 +32,27 @@ public class PerfCounters {
 
   private long startTime;
 
+  private MetricsRegistry.Counter bytesCounter;
+  private MetricsRegistry.Timer timer;
+
   public PerfCounters() {
   }
 
+  /**
+   * Create a set of counters that also publishes into the MetricsRegistry.
+   * @param name the prefix of the registry metrics, e.g., "mysqldump".
+   */
+  public PerfCounters(String name) {
+    MetricsRegistry registry = MetricsRegistry.get();
+    this.bytesCounter = registry.counter(name + ".bytes");
+    this.timer = registry.timer(name + ".time");
+  }
+
   public void addBytes(long more) {
     bytes += more;
+    if (null != bytesCounter) {
+      bytesCounter.add(more);
+    }
   }
 
   public void startClock() {
@@ -43,6 +61,9 @@ public class PerfCounters {
 
   public void stopClock() {
     nanoseconds = System.nanoTime() - startTime;
+    if (null != timer) {
+      timer.update(nanoseconds);
+    }
   }
 
   private static final double ONE_BILLION = 1000.0 * 1000.0 * 1000.0;
@@ -0,0 +1,311 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.util;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Records the wall time, CPU time and allocated bytes of each phase of
+ * a tool run, for the --profile option.
+ *
+ * CPU time and allocation are measured for the thread that runs the
+ * phase; phases that wait on a MapReduce job therefore report only the
+ * client's share of the work. Allocation is measured only on JVMs whose
+ * ThreadMXBean supports getThreadAllocatedBytes(); elsewhere it is -1.
+ *
+ * Each phase is also kept as an event in the Trace Event Format, which
+ * writeTrace() emits for loading into chrome://tracing or a similar
+ * viewer. The trace begins when the JVM started, so the time spent
+ * before profiling was enabled appears as a "startup" event.
+ */
+public final class Profiler {
+
+  public static final Log LOG = LogFactory.getLog(Profiler.class.getName());
+
+  /** conf key: local file the trace events are written to. */
+  public static final String TRACE_FILE_KEY = "sqoop.profile.trace.file";
+
+  /** Default value for TRACE_FILE_KEY. */
+  public static final String DEFAULT_TRACE_FILE = "sqoop-profile.json";
+
+  private static final ThreadMXBean THREADS =
+      ManagementFactory.getThreadMXBean();
+
+  // com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long), if
+  // this JVM provides it.
+  private static final Method ALLOCATED_BYTES = findAllocatedBytes();
+
+  /**
+   * Resource usage of the current thread at one instant.
+   */
+  public static class Sample {
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    Sample(long wall, long cpu, long allocated) {
+      this.wallNanos = wall;
+      this.cpuNanos = cpu;
+      this.allocatedBytes = allocated;
+    }
+
+    public long getWallNanos() {
+      return wallNanos;
+    }
+
+    /** @return the thread's CPU time, or -1 if it is not available. */
+    public long getCpuNanos() {
+      return cpuNanos;
+    }
+
+    /** @return bytes allocated by the thread, or -1 if not available. */
+    public long getAllocatedBytes() {
+      return allocatedBytes;
+    }
+  }
+
+  /**
+   * A completed phase.
+   */
+  private static class Event {
+    private final String name;
+    private final long threadId;
+    private final long startNanos;
+    private final long wallNanos;
+    private final long cpuNanos;
+    private final long allocatedBytes;
+
+    Event(String name, long threadId, long startNanos, long wallNanos,
+        long cpuNanos, long allocatedBytes) {
+      this.name = name;
+      this.threadId = threadId;
+      this.startNanos = startNanos;
+      this.wallNanos = wallNanos;
+      this.cpuNanos = cpuNanos;
+      this.allocatedBytes = allocatedBytes;
+    }
+  }
+
+  private final List<Event> events = new ArrayList<Event>();
+
+  // System.nanoTime() at the instant the JVM started.
+  private final long jvmStartNanos;
+
+  public Profiler() {
+    if (THREADS.isThreadCpuTimeSupported()
+        && !THREADS.isThreadCpuTimeEnabled()) {
+      try {
+        THREADS.setThreadCpuTimeEnabled(true);
+      } catch (UnsupportedOperationException uoe) {
+        LOG.debug("Could not enable thread CPU time: " + uoe);
+      }
+    }
+
+    long uptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    long now = System.nanoTime();
+    this.jvmStartNanos = now - uptimeMillis * 1000L * 1000L;
+    events.add(new Event("startup", Thread.currentThread().getId(),
+        jvmStartNanos, now - jvmStartNanos, -1, -1));
+  }
+
+  private static Method findAllocatedBytes() {
+    try {
+      Class<?> iface = Class.forName("com.sun.management.ThreadMXBean");
+      if (!iface.isInstance(THREADS)) {
+        return null;
+      }
+      Method m = iface.getMethod("getThreadAllocatedBytes", long.class);
+      m.invoke(THREADS, Thread.currentThread().getId());
+      return m;
+    } catch (Exception e) {
+      // Not a HotSpot JVM, or too old to track allocation.
+      return null;
+    }
+  }
+
+  /**
+   * @return the resource usage of the current thread so far.
+   */
+  public Sample sample() {
+    long wall = System.nanoTime();
+    long cpu = -1;
+    if (THREADS.isCurrentThreadCpuTimeSupported()) {
+      cpu = THREADS.getCurrentThreadCpuTime();
+    }
+
+    long allocated = -1;
+    if (null != ALLOCATED_BYTES) {
+      try {
+        allocated = ((Long) ALLOCATED_BYTES.invoke(THREADS,
+            Thread.currentThread().getId())).longValue();
+      } catch (Exception e) {
+        allocated = -1;
+      }
+    }
+
+    return new Sample(wall, cpu, allocated);
+  }
+
+  /**
+   * Record a phase of the current thread that began at the given sample
+   * and ends now.
+   * @return the sample taken at the end of the phase.
+   */
+  public Sample record(String phase, Sample start) {
+    Sample end = sample();
+    long cpu = -1;
+    if (start.getCpuNanos() >= 0 && end.getCpuNanos() >= 0) {
+      cpu = end.getCpuNanos() - start.getCpuNanos();
+    }
+    long allocated = -1;
+    if (start.getAllocatedBytes() >= 0 && end.getAllocatedBytes() >= 0) {
+      allocated = end.getAllocatedBytes() - start.getAllocatedBytes();
+    }
+
+    synchronized (events) {
+      events.add(new Event(phase, Thread.currentThread().getId(),
+          start.getWallNanos(), end.getWallNanos() - start.getWallNanos(),
+          cpu, allocated));
+    }
+    return end;
+  }
+
+  /**
+   * Write a table of the total wall time, CPU time and allocation of
+   * each phase, in the order the phases first completed.
+   */
+  public void writeSummary(PrintWriter w) {
+    Map<String, long []> totals = new LinkedHashMap<String, long []>();
+    synchronized (events) {
+      for (Event e : events) {
+        long [] t = totals.get(e.name);
+        if (null == t) {
+          t = new long[4];
+          totals.put(e.name, t);
+        }
+        t[0]++;
+        t[1] += e.wallNanos;
+        t[2] = addKnown(t[2], e.cpuNanos, t[0] == 1);
+        t[3] = addKnown(t[3], e.allocatedBytes, t[0] == 1);
+      }
+    }
+
+    w.println(String.format("%-16s %5s %12s %12s %14s",
+        "Phase", "Count", "Wall (ms)", "CPU (ms)", "Allocated (KB)"));
+    for (Map.Entry<String, long []> e : totals.entrySet()) {
+      long [] t = e.getValue();
+      w.println(String.format("%-16s %5d %12s %12s %14s",
+          e.getKey(), t[0], millis(t[1]), millis(t[2]),
+          t[3] < 0 ? "-" : Long.toString(t[3] / 1024)));
+    }
+    w.flush();
+  }
+
+  /** Add a value that may be -1 (unknown) to a running total. */
+  private static long addKnown(long total, long value, boolean first) {
+    if (first) {
+      return value;
+    } else if (total < 0 || value < 0) {
+      return -1;
+    } else {
+      return total + value;
+    }
+  }
+
+  private static String millis(long nanos) {
+    if (nanos < 0) {
+      return "-";
+    }
+    return String.format("%.1f", nanos / 1000000.0);
+  }
+
+  /**
+   * Write the phases as a JSON object in the Trace Event Format, with one
+   * complete ("X") event per phase. Timestamps are microseconds since
+   * the JVM started.
+   */
+  public void writeTrace(OutputStream out) throws IOException {
+    PrintWriter w = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+    w.println("{");
+    w.println("  \"displayTimeUnit\": \"ms\",");
+    w.println("  \"traceEvents\": [");
+    String sep = "";
+    synchronized (events) {
+      for (Event e : events) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("    { \"name\": \"").append(e.name);
+        sb.append("\", \"cat\": \"sqoop\", \"ph\": \"X\", \"pid\": 1");
+        sb.append(", \"tid\": ").append(e.threadId);
+        sb.append(", \"ts\": ").append((e.startNanos - jvmStartNanos) / 1000);
+        sb.append(", \"dur\": ").append(e.wallNanos / 1000);
+        sb.append(", \"args\": { \"cpuMicros\": ");
+        sb.append(e.cpuNanos < 0 ? -1 : e.cpuNanos / 1000);
+        sb.append(", \"allocatedBytes\": ").append(e.allocatedBytes);
+        sb.append(" } }");
+        w.print(sep + sb.toString());
+        sep = ",\n";
+      }
+    }
+    w.println();
+    w.println("  ]");
+    w.println("}");
+    w.flush();
+  }
+
+  /**
+   * Log the summary, and write the trace to the local file named by
+   * TRACE_FILE_KEY.
+   */
+  public void report(Configuration conf) {
+    StringWriter sw = new StringWriter();
+    writeSummary(new PrintWriter(sw));
+    LOG.info("Profile of this run:\n" + sw.toString());
+
+    File traceFile = new File(conf.get(TRACE_FILE_KEY, DEFAULT_TRACE_FILE));
+    try {
+      OutputStream out = new FileOutputStream(traceFile);
+      try {
+        writeTrace(out);
+      } finally {
+        out.close();
+      }
+      LOG.info("Wrote profile trace to " + traceFile.getAbsolutePath());
+    } catch (IOException ioe) {
+      LOG.warn("Could not write profile trace to " + traceFile + ": "
+          + ioe.toString());
+    }
+  }
+}
@@ -0,0 +1,198 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Token-bucket rate limiter which caps the rows/sec and bytes/sec that a
+ * single task moves to or from the database.
+ *
+ * Limits may be set per task, or for the job as a whole; a job-wide limit
+ * is divided evenly among the job's map tasks. If both are set, the lower
+ * of the two applies. Each bucket holds at most one second's worth of
+ * tokens, so a task may burst briefly after being idle. A request larger
+ * than the bucket is admitted, and the caller then waits until the
+ * resulting debt is repaid.
+ */
+public class Throttle {
+
+  public static final Log LOG = LogFactory.getLog(Throttle.class.getName());
+
+  /** Maximum rows per second moved by each task. */
+  public static final String TASK_ROWS_PER_SEC_KEY =
+      "sqoop.throttle.task.rows.per.sec";
+
+  /** Maximum bytes per second moved by each task. */
+  public static final String TASK_BYTES_PER_SEC_KEY =
+      "sqoop.throttle.task.bytes.per.sec";
+
+  /** Maximum rows per second moved by the job as a whole. */
+  public static final String JOB_ROWS_PER_SEC_KEY =
+      "sqoop.throttle.job.rows.per.sec";
+
+  /** Maximum bytes per second moved by the job as a whole. */
+  public static final String JOB_BYTES_PER_SEC_KEY =
+      "sqoop.throttle.job.bytes.per.sec";
+
+  /**
+   * Number of tasks sharing the job-wide limits. This is set by JobBase
+   * when it configures the job; users should not need to set it.
+   */
+  public static final String NUM_TASKS_KEY = "sqoop.throttle.num.tasks";
+
+  private static final double NANOS_PER_SEC = 1000.0 * 1000.0 * 1000.0;
+
+  private final double rowsPerSec; // <= 0 means unlimited.
+  private final double bytesPerSec; // <= 0 means unlimited.
+
+  private double rowTokens;
+  private double byteTokens;
+  private long lastRefillNanos;
+
+  private long waitNanos;
+
+  /**
+   * Create a throttle with the specified limits.
+   * @param rowsPerSec the maximum rows per second, or 0 for no limit.
+   * @param bytesPerSec the maximum bytes per second, or 0 for no limit.
+   */
+  public Throttle(double rowsPerSec, double bytesPerSec) {
+    this.rowsPerSec = rowsPerSec;
+    this.bytesPerSec = bytesPerSec;
+    this.rowTokens = Math.max(0, rowsPerSec);
+    this.byteTokens = Math.max(0, bytesPerSec);
+    this.lastRefillNanos = now();
+  }
+
+  /**
+   * @return the per-task limit implied by the given task and job-wide
+   * limits, or 0 if neither is set.
+   */
+  private static double getTaskLimit(Configuration conf, String taskKey,
+      String jobKey) {
+    double taskLimit = conf.getFloat(taskKey, 0);
+    double jobLimit = conf.getFloat(jobKey, 0);
+    if (jobLimit > 0) {
+      int numTasks = Math.max(1, conf.getInt(NUM_TASKS_KEY, 1));
+      jobLimit = jobLimit / numTasks;
+      if (taskLimit <= 0 || jobLimit < taskLimit) {
+        taskLimit = jobLimit;
+      }
+    }
+
+    return Math.max(0, taskLimit);
+  }
+
+  /**
+   * @return a Throttle enforcing the limits in the configuration for the
+   * current task, or null if no limits are set.
+   */
+  public static Throttle getTaskThrottle(Configuration conf) {
+    double rows = getTaskLimit(conf, TASK_ROWS_PER_SEC_KEY,
+        JOB_ROWS_PER_SEC_KEY);
+    double bytes = getTaskLimit(conf, TASK_BYTES_PER_SEC_KEY,
+        JOB_BYTES_PER_SEC_KEY);
+    if (rows <= 0 && bytes <= 0) {
+      return null;
+    }
+
+    LOG.info("Throttling task to " + (rows > 0 ? rows + " rows/sec" : "")
+        + (rows > 0 && bytes > 0 ? ", " : "")
+        + (bytes > 0 ? bytes + " bytes/sec" : ""));
+    return new Throttle(rows, bytes);
+  }
+
+  /**
+   * Take tokens for some rows and bytes, blocking as long as is needed to
+   * keep within the configured rates.
+   * @param rows the number of rows about to be transferred.
+   * @param bytes the number of bytes about to be transferred; may be 0
+   * if this is not known.
+   * @return the time this caller was asked to wait, in nanoseconds.
+   */
+  public long acquire(long rows, long bytes) throws InterruptedException {
+    long sleepNanos;
+    synchronized (this) {
+      refill();
+      double wait = 0;
+      if (rowsPerSec > 0) {
+        rowTokens -= rows;
+        if (rowTokens < 0) {
+          wait = -rowTokens / rowsPerSec;
+        }
+      }
+
+      if (bytesPerSec > 0) {
+        byteTokens -= bytes;
+        if (byteTokens < 0) {
+          wait = Math.max(wait, -byteTokens / bytesPerSec);
+        }
+      }
+
+      sleepNanos = (long) (wait * NANOS_PER_SEC);
+      waitNanos += sleepNanos;
+    }
+
+    if (sleepNanos > 0) {
+      sleep(sleepNanos);
+    }
+
+    return sleepNanos;
+  }
+
+  /**
+   * Add the tokens accumulated since the last refill to each bucket.
+   */
+  private void refill() {
+    long curTime = now();
+    double elapsedSec = (curTime - lastRefillNanos) / NANOS_PER_SEC;
+    lastRefillNanos = curTime;
+
+    if (rowsPerSec > 0) {
+      rowTokens = Math.min(rowsPerSec, rowTokens + elapsedSec * rowsPerSec);
+    }
+
+    if (bytesPerSec > 0) {
+      byteTokens = Math.min(bytesPerSec,
+          byteTokens + elapsedSec * bytesPerSec);
+    }
+  }
+
+  /**
+   * @return the total time callers have been asked to wait, in
+   * milliseconds.
+   */
+  public synchronized long getWaitMillis() {
+    return waitNanos / (1000 * 1000);
+  }
+
+  /** @return the current time in nanoseconds. */
+  protected long now() {
+    return System.nanoTime();
+  }
+
+  /** Block the calling thread for the specified time. */
+  protected void sleep(long nanos) throws InterruptedException {
+    Thread.sleep(nanos / (1000 * 1000), (int) (nanos % (1000 * 1000)));
+  }
+}
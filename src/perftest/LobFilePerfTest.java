@@ -17,6 +17,7 @@
  */
 
 import java.io.*;
+import java.util.Random;
 import org.apache.hadoop.fs.*;
 import org.apache.hadoop.conf.*;
 import com.cloudera.sqoop.io.*;
@@ -24,6 +25,8 @@ import com.cloudera.sqoop.io.*;
 /**
  * A simple benchmark to performance test LobFile reader/writer speed.
  * Writes out 10 GB of data to the local disk and then reads it back.
+ * Then writes a file of many small records and measures the latency of
+ * seeking to and reading records in a random order.
  * Run with:
  * HADOOP_OPTS=-agentlib:hprof=cpu=samples \
  *     src/scripts/run-perftest.sh LobFilePerfTest
@@ -37,10 +40,17 @@ public class LobFilePerfTest {
   private long startTime;
   private byte [] record;
 
+  // Parameters for the random-access test.
+  private int numSmallRecords = 500000;
+  private int smallRecordLen = 100;
+  private int numSeeks = 100000;
+  private Path smallPath;
+
   public LobFilePerfTest() {
     conf = new Configuration();
     conf.set("fs.default.name", "file:///");
     p = new Path("foo.lob");
+    smallPath = new Path("small.lob");
   }
 
 
@@ -100,10 +110,60 @@ public class LobFilePerfTest {
     System.out.println("Read " + recordSize + " bytes");
   }
 
+  private long [] writeSmallRecordFile() throws Exception {
+    startTiming("Writing " + numSmallRecords + " small records to lob file");
+    long [] offsets = new long[numSmallRecords];
+    byte [] smallRecord = new byte[smallRecordLen];
+    LobFile.Writer w = LobFile.create(smallPath, conf);
+    for (int i = 0; i < numSmallRecords; i++) {
+      offsets[i] = w.tell();
+      OutputStream out = w.writeBlobRecord(smallRecordLen);
+      out.write(smallRecord);
+      out.close();
+      w.finishRecord();
+    }
+    w.close();
+    stopTiming();
+    return offsets;
+  }
+
+  private void readRandomRecords(long [] offsets) throws Exception {
+    LobFile.Reader r = LobFile.open(smallPath, conf);
+    Random rand = new Random(0);
+    byte [] inputBuffer = new byte[smallRecordLen];
+
+    // Touch every index segment once so that the timed loop measures
+    // steady-state lookups.
+    for (int i = 0; i < offsets.length; i += 1024) {
+      r.seek(offsets[i]);
+      r.next();
+    }
+
+    startTiming("Reading " + numSeeks + " records in random order");
+    long startNanos = System.nanoTime();
+    for (int i = 0; i < numSeeks; i++) {
+      long offset = offsets[rand.nextInt(offsets.length)];
+      r.seek(offset);
+      if (!r.next() || r.getRecordOffset() != offset) {
+        throw new IOException("Did not find record at offset " + offset);
+      }
+      InputStream in = r.readBlobRecord();
+      while (in.read(inputBuffer) != -1) {
+        // Consume the record.
+      }
+    }
+    long elapsedNanos = System.nanoTime() - startNanos;
+    r.close();
+    stopTiming();
+    System.out.println("Mean seek+read latency: "
+        + (elapsedNanos / numSeeks / 1000.0) + " us");
+  }
+
   public void run() throws Exception {
     makeRecordBody();
     writeFile();
     readFile();
+    readRandomRecords(writeSmallRecordFile());
   }
 
   public static void main(String [] args) throws Exception {
@@ -0,0 +1,462 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.util.StringUtils;
+import org.apache.hadoop.util.Tool;
+import org.apache.hadoop.util.ToolRunner;
+
+import com.cloudera.sqoop.Sqoop;
+import com.cloudera.sqoop.tool.ExportTool;
+import com.cloudera.sqoop.tool.ImportTool;
+import com.cloudera.sqoop.tool.SqoopTool;
+
+/**
+ * End-to-end throughput benchmark of Sqoop's import and export paths,
+ * run in local mode against an in-process HSQLDB database so that it needs
+ * no external database or cluster.
+ *
+ * A synthetic source table is generated and then moved through a series
+ * of phases: text import, text export, SequenceFile import, SequenceFile
+ * export, and an append-mode import. For each phase the benchmark reports
+ * wall time, rows/sec, bytes/sec (bytes of HDFS data written by imports or
+ * read by exports), and the time the JVM spent in garbage collection.
+ * The report is written as JSON so that runs of different builds or
+ * tuning flags can be compared mechanically.
+ *
+ * Configure with -D options:
+ *   bench.rows           rows in the source table (default 100000)
+ *   bench.text.columns   number of VARCHAR columns (default 4)
+ *   bench.text.width     characters per VARCHAR value (default 32)
+ *   bench.lob.fraction   fraction of rows with a LONGVARBINARY value
+ *                        (default 0; if set, export phases are skipped)
+ *   bench.lob.size       bytes per LOB value (default 4096)
+ *   bench.mappers        map tasks per job (default 1)
+ *   bench.dir            working directory (default ThroughputBenchmark)
+ *   bench.report         JSON report file (default: stdout only)
+ * Other -D options (e.g., sqoop.* tuning keys) are passed to every job.
+ *
+ * Run with: ant bench-throughput, or
+ * src/scripts/run-perftest.sh LocalThroughputBenchmark -Dbench.rows=...
+ */
+public class LocalThroughputBenchmark extends Configured implements Tool {
+
+  public static final String ROWS_KEY = "bench.rows";
+  public static final String TEXT_COLUMNS_KEY = "bench.text.columns";
+  public static final String TEXT_WIDTH_KEY = "bench.text.width";
+  public static final String LOB_FRACTION_KEY = "bench.lob.fraction";
+  public static final String LOB_SIZE_KEY = "bench.lob.size";
+  public static final String MAPPERS_KEY = "bench.mappers";
+  public static final String DIR_KEY = "bench.dir";
+  public static final String REPORT_KEY = "bench.report";
+
+  private static final String CONNECT_STR = "jdbc:hsqldb:mem:sqoopbench";
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String SRC_TABLE = "BENCH_SRC";
+  private static final String DEST_TABLE = "BENCH_DEST";
+  private static final String CLASS_NAME = "BenchRecord";
+
+  private static final String ALPHABET =
+      "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+  /** Measurements for one phase of the benchmark. */
+  private static class PhaseResult {
+    private final String name;
+    private String status = "ok";
+    private long wallMillis;
+    private long rows;
+    private long bytes;
+    private long gcMillis;
+    private long gcCount;
+
+    PhaseResult(String name) {
+      this.name = name;
+    }
+
+    void toJson(PrintWriter w) {
+      double secs = Math.max(wallMillis, 1) / 1000.0;
+      w.print("    { \"name\": \"" + name + "\", \"status\": \"" + status
+          + "\"");
+      if ("ok".equals(status)) {
+        w.print(", \"wallMillis\": " + wallMillis
+            + ", \"rows\": " + rows
+            + ", \"bytes\": " + bytes
+            + ", \"rowsPerSec\": " + Math.round(rows / secs)
+            + ", \"bytesPerSec\": " + Math.round(bytes / secs)
+            + ", \"gcMillis\": " + gcMillis
+            + ", \"gcCount\": " + gcCount);
+      }
+      w.print(" }");
+    }
+  }
+
+  private long numRows;
+  private int textColumns;
+  private int textWidth;
+  private double lobFraction;
+  private int lobSize;
+  private int numMappers;
+  private Path workDir;
+  private List<PhaseResult> results = new ArrayList<PhaseResult>();
+
+  // GC totals at the start of the current phase.
+  private long startGcMillis;
+  private long startGcCount;
+  private long startTime;
+
+  public LocalThroughputBenchmark() {
+  }
+
+  private Connection getConnection() throws SQLException {
+    Connection conn = DriverManager.getConnection(CONNECT_STR);
+    conn.setAutoCommit(false);
+    return conn;
+  }
+
+  /** @return the DDL for the columns of the source and dest tables. */
+  private String getColumnDefs() {
+    StringBuilder sb = new StringBuilder();
+    sb.append("ID INT NOT NULL PRIMARY KEY, AMOUNT DOUBLE, CREATED TIMESTAMP");
+    for (int i = 0; i < textColumns; i++) {
+      sb.append(", TEXT" + i + " VARCHAR(" + textWidth + ")");
+    }
+    if (lobFraction > 0) {
+      sb.append(", DATA LONGVARBINARY");
+    }
+    return sb.toString();
+  }
+
+  /** Create the source table and fill it with synthetic rows. */
+  private void createTables() throws Exception {
+    Class.forName(DRIVER_CLASS);
+    Connection conn = getConnection();
+    try {
+      Statement st = conn.createStatement();
+      for (String table : new String [] { SRC_TABLE, DEST_TABLE }) {
+        st.executeUpdate("DROP TABLE " + table + " IF EXISTS");
+        st.executeUpdate("CREATE TABLE " + table + " (" + getColumnDefs()
+            + ")");
+      }
+      st.close();
+
+      StringBuilder sb = new StringBuilder();
+      sb.append("INSERT INTO " + SRC_TABLE + " VALUES (?, ?, ?");
+      for (int i = 0; i < textColumns; i++) {
+        sb.append(", ?");
+      }
+      if (lobFraction > 0) {
+        sb.append(", ?");
+      }
+      sb.append(")");
+
+      PreparedStatement ps = conn.prepareStatement(sb.toString());
+      Random r = new Random(42);
+      char [] text = new char[textWidth];
+      byte [] lob = new byte[lobSize];
+      long baseTime = Timestamp.valueOf("2010-01-01 00:00:00").getTime();
+      for (long row = 0; row < numRows; row++) {
+        int col = 1;
+        ps.setInt(col++, (int) row);
+        ps.setDouble(col++, r.nextInt(1000000) / 100.0);
+        ps.setTimestamp(col++, new Timestamp(baseTime + row * 1000));
+        for (int i = 0; i < textColumns; i++) {
+          for (int j = 0; j < textWidth; j++) {
+            text[j] = ALPHABET.charAt(r.nextInt(ALPHABET.length()));
+          }
+          ps.setString(col++, new String(text));
+        }
+        if (lobFraction > 0) {
+          if (r.nextDouble() < lobFraction) {
+            r.nextBytes(lob);
+            ps.setBytes(col++, lob);
+          } else {
+            ps.setNull(col++, java.sql.Types.LONGVARBINARY);
+          }
+        }
+        ps.addBatch();
+        if (row % 1000 == 999) {
+          ps.executeBatch();
+        }
+      }
+      ps.executeBatch();
+      ps.close();
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+  }
+
+  private long countRows(String table) throws SQLException {
+    Connection conn = getConnection();
+    try {
+      Statement st = conn.createStatement();
+      ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM " + table);
+      rs.next();
+      long count = rs.getLong(1);
+      rs.close();
+      st.close();
+      return count;
+    } finally {
+      conn.close();
+    }
+  }
+
+  private void clearDestTable() throws SQLException {
+    Connection conn = getConnection();
+    try {
+      Statement st = conn.createStatement();
+      st.executeUpdate("DELETE FROM " + DEST_TABLE);
+      st.close();
+      conn.commit();
+    } finally {
+      conn.close();
+    }
+  }
+
+  private long getGcMillis() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionTime());
+    }
+    return total;
+  }
+
+  private long getGcCount() {
+    long total = 0;
+    for (GarbageCollectorMXBean gc
+        : ManagementFactory.getGarbageCollectorMXBeans()) {
+      total += Math.max(0, gc.getCollectionCount());
+    }
+    return total;
+  }
+
+  private long getDirBytes(Path dir) throws IOException {
+    FileSystem fs = dir.getFileSystem(getConf());
+    if (!fs.exists(dir)) {
+      return 0;
+    }
+    return fs.getContentSummary(dir).getLength();
+  }
+
+  private void startPhase(String name) {
+    System.out.println("Starting phase: " + name);
+    System.gc();
+    this.startGcMillis = getGcMillis();
+    this.startGcCount = getGcCount();
+    this.startTime = System.currentTimeMillis();
+  }
+
+  private PhaseResult endPhase(String name, long rows, long bytes) {
+    PhaseResult result = new PhaseResult(name);
+    result.wallMillis = System.currentTimeMillis() - startTime;
+    result.gcMillis = getGcMillis() - startGcMillis;
+    result.gcCount = getGcCount() - startGcCount;
+    result.rows = rows;
+    result.bytes = bytes;
+    results.add(result);
+    System.out.println("Finished phase: " + name + " in "
+        + result.wallMillis + " ms");
+    return result;
+  }
+
+  private void skipPhase(String name, String reason) {
+    System.out.println("Skipping phase: " + name + " (" + reason + ")");
+    PhaseResult result = new PhaseResult(name);
+    result.status = "skipped: " + reason;
+    results.add(result);
+  }
+
+  private void runTool(SqoopTool tool, List<String> args) throws Exception {
+    Sqoop sqoop = new Sqoop(tool, new Configuration(getConf()));
+    int ret = Sqoop.runSqoop(sqoop, args.toArray(new String[0]));
+    if (0 != ret) {
+      throw new Exception("Sqoop " + tool.getToolName()
+          + " failed; ret=" + ret);
+    }
+  }
+
+  /** @return the arguments common to every import or export. */
+  private List<String> getCommonArgs(String table, String phase) {
+    List<String> args = new ArrayList<String>();
+    args.add("--connect");
+    args.add(CONNECT_STR);
+    args.add("--table");
+    args.add(table);
+    args.add("--num-mappers");
+    args.add(Integer.toString(numMappers));
+    args.add("--outdir");
+    args.add(new Path(workDir, phase + "-src").toString());
+    args.add("--bindir");
+    args.add(new Path(workDir, phase + "-classes").toString());
+    return args;
+  }
+
+  private void runImport(String phase, Path targetDir, boolean seqFile,
+      boolean append) throws Exception {
+    List<String> args = getCommonArgs(SRC_TABLE, phase);
+    args.add("--target-dir");
+    args.add(targetDir.toString());
+    args.add("--split-by");
+    args.add("ID");
+    args.add("--class-name");
+    args.add(CLASS_NAME);
+    if (seqFile) {
+      args.add("--as-sequencefile");
+    }
+    if (append) {
+      args.add("--append");
+    }
+
+    long bytesBefore = getDirBytes(targetDir);
+    startPhase(phase);
+    runTool(new ImportTool(), args);
+    endPhase(phase, numRows, getDirBytes(targetDir) - bytesBefore);
+  }
+
+  private void runExport(String phase, Path exportDir, String importPhase)
+      throws Exception {
+    List<String> args = getCommonArgs(DEST_TABLE, phase);
+    args.add("--export-dir");
+    args.add(exportDir.toString());
+    if (null != importPhase) {
+      // Reuse the record class that wrote the SequenceFiles.
+      args.add("--class-name");
+      args.add(CLASS_NAME);
+      args.add("--jar-file");
+      args.add(new Path(new Path(workDir, importPhase + "-classes"),
+          SRC_TABLE + ".jar").toUri().getPath());
+    }
+
+    clearDestTable();
+    startPhase(phase);
+    runTool(new ExportTool(), args);
+    PhaseResult result = endPhase(phase, countRows(DEST_TABLE),
+        getDirBytes(exportDir));
+    if (result.rows != numRows) {
+      throw new Exception("Export " + phase + " wrote " + result.rows
+          + " rows; expected " + numRows);
+    }
+  }
+
+  private void writeReport(OutputStream out) throws IOException {
+    PrintWriter w = new PrintWriter(new OutputStreamWriter(out, "UTF-8"));
+    w.println("{");
+    w.println("  \"rows\": " + numRows + ",");
+    w.println("  \"textColumns\": " + textColumns + ",");
+    w.println("  \"textWidth\": " + textWidth + ",");
+    w.println("  \"lobFraction\": " + lobFraction + ",");
+    w.println("  \"lobSize\": " + lobSize + ",");
+    w.println("  \"mappers\": " + numMappers + ",");
+    w.println("  \"phases\": [");
+    for (int i = 0; i < results.size(); i++) {
+      results.get(i).toJson(w);
+      w.println(i < results.size() - 1 ? "," : "");
+    }
+    w.println("  ]");
+    w.println("}");
+    w.flush();
+  }
+
+  @Override
+  public int run(String [] args) {
+    Configuration conf = getConf();
+    this.numRows = conf.getLong(ROWS_KEY, 100000);
+    this.textColumns = conf.getInt(TEXT_COLUMNS_KEY, 4);
+    this.textWidth = conf.getInt(TEXT_WIDTH_KEY, 32);
+    this.lobFraction = Double.parseDouble(conf.get(LOB_FRACTION_KEY, "0"));
+    this.lobSize = conf.getInt(LOB_SIZE_KEY, 4096);
+    this.numMappers = conf.getInt(MAPPERS_KEY, 1);
+    String reportFile = conf.get(REPORT_KEY);
+
+    try {
+      FileSystem fs = FileSystem.getLocal(conf);
+      this.workDir = fs.makeQualified(new Path(
+          conf.get(DIR_KEY, "ThroughputBenchmark")));
+      fs.delete(workDir, true);
+      fs.mkdirs(workDir);
+
+      System.out.println("Generating " + numRows + " rows");
+      createTables();
+
+      boolean canExport = lobFraction == 0;
+      String noExportReason = "LOB columns cannot be exported";
+      Path textDir = new Path(workDir, "text");
+      Path seqDir = new Path(workDir, "seq");
+
+      runImport("import-text", textDir, false, false);
+      if (canExport) {
+        runExport("export-text", textDir, null);
+      } else {
+        skipPhase("export-text", noExportReason);
+      }
+
+      runImport("import-sequencefile", seqDir, true, false);
+      if (canExport) {
+        runExport("export-sequencefile", seqDir, "import-sequencefile");
+      } else {
+        skipPhase("export-sequencefile", noExportReason);
+      }
+
+      runImport("import-append", textDir, false, true);
+
+      writeReport(System.out);
+      if (null != reportFile) {
+        Path reportPath = new Path(reportFile);
+        OutputStream out = reportPath.getFileSystem(conf).create(reportPath);
+        try {
+          writeReport(out);
+        } finally {
+          out.close();
+        }
+        System.out.println("Wrote report to " + reportPath);
+      }
+    } catch (Exception e) {
+      System.err.println("Error: " + StringUtils.stringifyException(e));
+      return 1;
+    }
+
+    return 0;
+  }
+
+  public static void main(String [] args) throws Exception {
+    LocalThroughputBenchmark bench = new LocalThroughputBenchmark();
+    int ret = ToolRunner.run(bench, args);
+    System.exit(ret);
+  }
+}
@@ -24,16 +24,22 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.RecordReader;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 import org.apache.hadoop.mapreduce.lib.input.FileSplit;
 import org.apache.hadoop.mapreduce.lib.input.LineRecordReader;
-import org.apache.hadoop.mapreduce.lib.input.SequenceFileRecordReader;
 import org.apache.hadoop.util.ReflectionUtils;
 
+import com.cloudera.sqoop.lib.RecordParser;
+import com.cloudera.sqoop.lib.SqoopRecord;
+
 /**
  * RecordReader that CombineFileRecordReader can instantiate, which itself
  * translates a CombineFileSplit into a FileSplit.
@@ -118,16 +124,188 @@ public class CombineShimRecordReader
 
     Configuration conf = context.getConfiguration();
 
-    // Determine the file format we're reading.
-    Class rrClass;
-    if (ExportJobBase.isSequenceFiles(conf, split.getPath(index))) {
-      rrClass = SequenceFileRecordReader.class;
+    // Determine the file format we're reading. ExportInputFormat records
+    // this in the split; otherwise, read the file's header.
+    boolean isSeqFile;
+    boolean parseText = false;
+    if (split instanceof ExportInputFormat.ExportSplit) {
+      ExportInputFormat.ExportSplit exportSplit =
+          (ExportInputFormat.ExportSplit) split;
+      isSeqFile = exportSplit.isSequenceFile(index);
+      parseText = exportSplit.isParseText();
     } else {
-      rrClass = LineRecordReader.class;
+      isSeqFile = ExportJobBase.isSequenceFiles(conf, split.getPath(index));
     }
 
     // Create the appropriate record reader.
-    this.rr = (RecordReader<LongWritable, Object>)
-        ReflectionUtils.newInstance(rrClass, conf);
+    if (isSeqFile) {
+      this.rr = new PooledSequenceFileRecordReader();
+    } else if (parseText) {
+      this.rr = new ParsingRecordReader(conf);
+    } else {
+      this.rr = (RecordReader<LongWritable, Object>)
+          ReflectionUtils.newInstance(LineRecordReader.class, conf);
+    }
+  }
+
+  /**
+   * Reads lines of a text file and parses each into an instance of the
+   * export's SqoopRecord class, for text files exported alongside
+   * SequenceFiles by a mapper that expects records. Instances are
+   * borrowed from the ExportRecordPool if the job allows it; otherwise a
+   * single instance is reused.
+   */
+  private static class ParsingRecordReader
+      extends RecordReader<LongWritable, Object> {
+    private final LineRecordReader lineReader = new LineRecordReader();
+    private ExportRecordPool pool;
+    private SqoopRecord record;
+
+    ParsingRecordReader(Configuration conf) throws IOException {
+      if (conf.getBoolean(ExportRecordPool.POOL_INPUT_KEY, false)) {
+        this.pool = ExportRecordPool.get(conf);
+      } else {
+        this.record = ReflectionUtils.newInstance(
+            ExportRecordPool.getRecordClass(conf), conf);
+      }
+    }
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      lineReader.initialize(split, context);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      if (!lineReader.nextKeyValue()) {
+        return false;
+      }
+
+      Text line = lineReader.getCurrentValue();
+      if (null != pool) {
+        record = pool.borrow();
+      }
+      try {
+        record.parse(line);
+      } catch (RecordParser.ParseError pe) {
+        throw new IOException("Could not parse record: " + line, pe);
+      }
+      return true;
+    }
+
+    @Override
+    public LongWritable getCurrentKey() {
+      return lineReader.getCurrentKey();
+    }
+
+    @Override
+    public Object getCurrentValue() {
+      return record;
+    }
+
+    @Override
+    public float getProgress() {
+      return lineReader.getProgress();
+    }
+
+    @Override
+    public void close() throws IOException {
+      lineReader.close();
+    }
+  }
+
+  /**
+   * Reads a range of a SequenceFile, like SequenceFileRecordReader. If the
+   * job allows it, each SqoopRecord value is deserialized into an instance
+   * borrowed from the ExportRecordPool rather than into a single reused
+   * instance, so that the ExportRecordWriter can keep it without cloning
+   * it.
+   */
+  private static class PooledSequenceFileRecordReader
+      extends RecordReader<LongWritable, Object> {
+    private SequenceFile.Reader in;
+    private long start;
+    private long end;
+    private boolean more = true;
+    private Object key;
+    private Object value;
+    private ExportRecordPool pool;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      FileSplit fileSplit = (FileSplit) split;
+      Configuration conf = context.getConfiguration();
+      Path path = fileSplit.getPath();
+      FileSystem fs = path.getFileSystem(conf);
+      this.in = new SequenceFile.Reader(fs, path, conf);
+      this.end = fileSplit.getStart() + fileSplit.getLength();
+
+      if (fileSplit.getStart() > in.getPosition()) {
+        in.sync(fileSplit.getStart()); // sync to start
+      }
+
+      this.start = in.getPosition();
+      this.more = start < end;
+
+      this.key = ReflectionUtils.newInstance(in.getKeyClass(), conf);
+      Class<?> valueClass = in.getValueClass();
+      if (SqoopRecord.class.isAssignableFrom(valueClass)
+          && conf.getBoolean(ExportRecordPool.POOL_INPUT_KEY, false)) {
+        this.pool = ExportRecordPool.get(conf,
+            valueClass.asSubclass(SqoopRecord.class));
+      } else {
+        this.value = ReflectionUtils.newInstance(valueClass, conf);
+      }
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException, InterruptedException {
+      if (!more) {
+        return false;
+      }
+
+      long pos = in.getPosition();
+      key = in.next(key);
+      if (null == key || (pos >= end && in.syncSeen())) {
+        more = false;
+        key = null;
+        value = null;
+        return false;
+      }
+
+      if (null != pool) {
+        value = pool.borrow();
+      }
+      value = in.getCurrentValue(value);
+      return true;
+    }
+
+    @Override
+    public LongWritable getCurrentKey() {
+      return (LongWritable) key;
+    }
+
+    @Override
+    public Object getCurrentValue() {
+      return value;
+    }
+
+    @Override
+    public float getProgress() throws IOException {
+      if (end == start) {
+        return 0.0f;
+      }
+      return Math.min(1.0f, (in.getPosition() - start)
+          / (float) (end - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != in) {
+        in.close();
+      }
+    }
   }
 }
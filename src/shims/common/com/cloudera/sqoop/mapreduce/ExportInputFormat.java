@@ -18,13 +18,20 @@
 
 package com.cloudera.sqoop.mapreduce;
 
+import java.io.DataInput;
+import java.io.DataOutput;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.mapreduce.InputSplit;
 import org.apache.hadoop.mapreduce.JobContext;
@@ -34,6 +41,8 @@ import org.apache.hadoop.mapreduce.lib.input.CombineFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileRecordReader;
 import org.apache.hadoop.mapreduce.lib.input.CombineFileSplit;
 
+import com.cloudera.sqoop.util.MetricsRegistry;
+
 /**
  * InputFormat that generates a user-defined number of splits to inject data
  * into the database.
@@ -46,36 +55,127 @@ public class ExportInputFormat
 
   public static final int DEFAULT_NUM_MAP_TASKS = 4;
 
-  public ExportInputFormat() {
-  }
-
   /**
-   * @return the number of bytes across all files in the job.
+   * A CombineFileSplit that also records whether each of its files is a
+   * SequenceFile, so that tasks need not read the files' headers to choose
+   * a RecordReader.
    */
-  private long getJobSize(JobContext job) throws IOException {
-    List<FileStatus> stats = listStatus(job);
-    long count = 0;
-    for (FileStatus stat : stats) {
-      count += stat.getLen();
+  public static class ExportSplit extends CombineFileSplit {
+    private boolean [] sequenceFiles;
+    private boolean parseText;
+
+    public ExportSplit() {
     }
 
-    return count;
+    /**
+     * @param seqFiles for each file in the split, true if it is a
+     * SequenceFile.
+     * @param parseTextFiles true if text files should be read as records,
+     * because the job's mapper expects SqoopRecords.
+     */
+    public ExportSplit(Path [] files, long [] starts, long [] lengths,
+        String [] locations, boolean [] seqFiles, boolean parseTextFiles) {
+      super(files, starts, lengths, locations);
+      this.sequenceFiles = seqFiles;
+      this.parseText = parseTextFiles;
+    }
+
+    /**
+     * @return true if the file at the given index is a SequenceFile.
+     */
+    public boolean isSequenceFile(int idx) {
+      return sequenceFiles[idx];
+    }
+
+    /**
+     * @return true if text files are to be parsed into SqoopRecords.
+     */
+    public boolean isParseText() {
+      return parseText;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+      super.write(out);
+      out.writeBoolean(parseText);
+      for (boolean isSeq : sequenceFiles) {
+        out.writeBoolean(isSeq);
+      }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+      super.readFields(in);
+      parseText = in.readBoolean();
+      sequenceFiles = new boolean[getNumPaths()];
+      for (int i = 0; i < sequenceFiles.length; i++) {
+        sequenceFiles[i] = in.readBoolean();
+      }
+    }
+  }
+
+  public ExportInputFormat() {
   }
 
   @Override
   public List<InputSplit> getSplits(JobContext job) throws IOException {
-    // Set the max split size based on the number of map tasks we want.
-    long numTasks = getNumMapTasks(job);
-    long numFileBytes = getJobSize(job);
-    long maxSplitSize = numFileBytes / numTasks;
+    Configuration conf = job.getConfiguration();
+    int numTasks = getNumMapTasks(job);
+    List<FileStatus> stats = listStatus(job);
+    LOG.debug("Target numMapTasks=" + numTasks);
 
-    setMaxSplitSize(maxSplitSize);
+    // Determine the format of each input file. The export job has usually
+    // read every header already; only files it did not see are read here.
+    // If the input holds any SequenceFiles, the job's mapper expects
+    // SqoopRecords, and so any text files among them are marked to be
+    // parsed into records.
+    Map<Path, Boolean> knownFormats = ExportJobBase.getFileFormats(conf);
+    Map<Path, Boolean> formats = new HashMap<Path, Boolean>();
+    int numSeqFiles = 0;
+    for (FileStatus stat : stats) {
+      Boolean isSeq = knownFormats.get(stat.getPath());
+      if (null == isSeq) {
+        isSeq = Boolean.valueOf(ExportJobBase.isSequenceFile(conf, stat));
+      }
+      formats.put(stat.getPath(), isSeq);
+      if (isSeq.booleanValue()) {
+        numSeqFiles++;
+      }
+    }
 
-    LOG.debug("Target numMapTasks=" + numTasks);
-    LOG.debug("Total input bytes=" + numFileBytes);
-    LOG.debug("maxSplitSize=" + maxSplitSize);
+    boolean parseText = numSeqFiles > 0;
+    if (parseText && numSeqFiles < stats.size()) {
+      LOG.info("Input contains " + numSeqFiles + " SequenceFiles and "
+          + (stats.size() - numSeqFiles) + " text files; text files will "
+          + "be parsed into records.");
+    }
 
-    List<InputSplit> splits =  super.getSplits(job);
+    ExportSplitPlanner planner = new ExportSplitPlanner(conf);
+    List<ExportSplitPlanner.Bin> bins = planner.plan(stats, formats,
+        numTasks);
+    LOG.info(ExportSplitPlanner.report(bins));
+
+    MetricsRegistry.Histogram sizes =
+        MetricsRegistry.get().histogram("export.split.estimatedBytes");
+    List<InputSplit> splits = new ArrayList<InputSplit>(bins.size());
+    for (ExportSplitPlanner.Bin bin : bins) {
+      List<ExportSplitPlanner.Chunk> chunks = bin.getChunks();
+      int numChunks = chunks.size();
+      Path [] paths = new Path[numChunks];
+      long [] starts = new long[numChunks];
+      long [] lengths = new long[numChunks];
+      boolean [] seqFiles = new boolean[numChunks];
+      for (int i = 0; i < numChunks; i++) {
+        ExportSplitPlanner.Chunk chunk = chunks.get(i);
+        paths[i] = chunk.getPath();
+        starts[i] = chunk.getStart();
+        lengths[i] = chunk.getLength();
+        seqFiles[i] = chunk.isSequenceFile();
+      }
+      splits.add(new ExportSplit(paths, starts, lengths, bin.getHosts(),
+          seqFiles, parseText));
+      sizes.update(bin.getEstimatedBytes());
+    }
 
     if (LOG.isDebugEnabled()) {
       LOG.debug("Generated splits:");
@@ -86,6 +186,22 @@ public class ExportInputFormat
     return splits;
   }
 
+  /**
+   * Compressed text files are read from their beginning, and so are never
+   * split.
+   */
+  @Override
+  protected boolean isSplitable(JobContext context, Path file) {
+    try {
+      return !new ExportSplitPlanner(context.getConfiguration())
+          .isCompressedText(file, ExportJobBase.isSequenceFiles(
+          context.getConfiguration(), file));
+    } catch (IOException ioe) {
+      LOG.warn("Could not determine format of " + file + ": " + ioe);
+      return false;
+    }
+  }
+
   @Override
   @SuppressWarnings("unchecked")
   public RecordReader createRecordReader(
@@ -19,6 +19,8 @@
 package com.cloudera.sqoop.mapreduce;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
@@ -34,10 +36,14 @@ import org.apache.hadoop.mapreduce.OutputCommitter;
 import org.apache.hadoop.mapreduce.OutputFormat;
 import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.TaskInputOutputContext;
 import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
 import org.apache.hadoop.util.StringUtils;
 
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.orm.ClassWriter;
+import com.cloudera.sqoop.util.MetricsRegistry;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Insert the emitted keys as records into a database table.
@@ -46,7 +52,8 @@ import com.cloudera.sqoop.lib.SqoopRecord;
  *
  * Record objects are buffered before actually performing the INSERT
  * statements; this requires that the key implement the
- * SqoopRecord interface.
+ * SqoopRecord interface. Records borrowed from an ExportRecordPool are
+ * buffered as they are; others are cloned.
  *
  * Uses DBOutputFormat/DBConfiguration for configuring the output.
  */
@@ -65,9 +72,78 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
   public static final String STATEMENTS_PER_TRANSACTION_KEY =
       "sqoop.export.statements.per.transaction";
 
+  /** conf key: if true, each writer adjusts the number of records per
+   * statement and statements per transaction based on the throughput it
+   * observes, within the bounds set by the following keys. The values of
+   * sqoop.export.records.per.statement and
+   * sqoop.export.statements.per.transaction are used as starting points.
+   */
+  public static final String ADAPTIVE_BATCH_KEY =
+      "sqoop.export.adaptive";
+
+  /** conf key: minimum records per statement in adaptive mode. */
+  public static final String MIN_RECORDS_PER_STATEMENT_KEY =
+      "sqoop.export.records.per.statement.min";
+
+  /** conf key: maximum records per statement in adaptive mode. */
+  public static final String MAX_RECORDS_PER_STATEMENT_KEY =
+      "sqoop.export.records.per.statement.max";
+
+  /** conf key: minimum statements per transaction in adaptive mode. */
+  public static final String MIN_STATEMENTS_PER_TRANSACTION_KEY =
+      "sqoop.export.statements.per.transaction.min";
+
+  /** conf key: maximum statements per transaction in adaptive mode. */
+  public static final String MAX_STATEMENTS_PER_TRANSACTION_KEY =
+      "sqoop.export.statements.per.transaction.max";
+
+  /** conf key: in adaptive mode, the number of times a statement that
+   * failed due to a lock timeout, deadlock or excessive size is retried
+   * with fewer rows before the task fails.
+   */
+  public static final String ADAPTIVE_MAX_RETRIES_KEY =
+      "sqoop.export.adaptive.max.retries";
+
+  /** conf key: if true, each record's fields are bound into a batch of
+   * single-row INSERT statements as the record arrives, rather than
+   * buffering records until a multi-row statement can be prepared.
+   */
+  public static final String BIND_IMMEDIATELY_KEY =
+      "sqoop.export.bind.immediately";
+
+  /** conf key: number of connections, each with its own update thread,
+   * that a single task writes through. Records are routed among them by
+   * the values of the partition columns.
+   */
+  public static final String WRITER_CONNECTIONS_KEY =
+      ExportJobBase.WRITER_CONNECTIONS_KEY;
+
+  /** conf key: comma-separated columns whose values choose the connection
+   * a record is written through, so that rows with the same key are always
+   * inserted by the same transaction. If unset, records are distributed
+   * round-robin.
+   */
+  public static final String PARTITION_COLUMNS_KEY =
+      ExportJobBase.PARTITION_COLUMNS_KEY;
+
+  /** conf key: if greater than zero, each writer logs its throughput
+   * and latency statistics every this many milliseconds.
+   */
+  public static final String STATS_LOG_INTERVAL_KEY =
+      "sqoop.export.stats.log.interval";
+
   private static final int DEFAULT_RECORDS_PER_STATEMENT = 100;
   private static final int DEFAULT_STATEMENTS_PER_TRANSACTION = 100;
   private static final int UNLIMITED_STATEMENTS_PER_TRANSACTION = -1;
+  private static final int DEFAULT_STATS_LOG_INTERVAL = 0;
+  private static final int DEFAULT_MIN_RECORDS_PER_STATEMENT = 1;
+  private static final int DEFAULT_MAX_RECORDS_PER_STATEMENT = 1000;
+  private static final int DEFAULT_MIN_STATEMENTS_PER_TRANSACTION = 1;
+  private static final int DEFAULT_MAX_STATEMENTS_PER_TRANSACTION = 1000;
+  private static final int DEFAULT_ADAPTIVE_MAX_RETRIES = 3;
+  private static final int DEFAULT_WRITER_CONNECTIONS = 1;
+
+  private static final long NANOS_PER_MILLI = 1000L * 1000L;
 
   private static final Log LOG = LogFactory.getLog(ExportOutputFormat.class);
 
@@ -110,11 +186,40 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
   /** {@inheritDoc} */
   public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context) 
       throws IOException {
+    int numConnections = context.getConfiguration().getInt(
+        WRITER_CONNECTIONS_KEY, DEFAULT_WRITER_CONNECTIONS);
+
+    // The throttle's limits apply to the task as a whole, so all of the
+    // task's writers share a single instance.
+    Throttle throttle = Throttle.getTaskThrottle(context.getConfiguration());
+    List<ExportRecordWriter> writers = new ArrayList<ExportRecordWriter>();
     try {
-      return new ExportRecordWriter(context);
+      for (int i = 0; i < Math.max(1, numConnections); i++) {
+        writers.add(newRecordWriter(context, throttle));
+      }
     } catch (Exception e) {
+      for (ExportRecordWriter writer : writers) {
+        writer.abort();
+      }
       throw new IOException(e);
     }
+
+    if (writers.size() == 1) {
+      return writers.get(0);
+    } else {
+      return new PartitionedRecordWriter(context, writers);
+    }
+  }
+
+  /**
+   * Create one RecordWriter with its own connection to the database.
+   * Subclasses that customize the INSERT statement override this.
+   * @param throttle the task's throttle, shared by all of its writers;
+   * null if the task is not throttled.
+   */
+  protected ExportRecordWriter newRecordWriter(TaskAttemptContext context,
+      Throttle throttle) throws ClassNotFoundException, SQLException {
+    return new ExportRecordWriter(context, throttle);
   }
 
   /**
@@ -128,8 +233,11 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
    * executor of this operation should commit the current
    * transaction, even if stmt is null.
    */
-  private static class AsyncDBOperation {
+  static class AsyncDBOperation {
     private final PreparedStatement stmt;
+    private final List<SqoopRecord> records;
+    private final int numRows;
+    private final boolean batch;
     private final boolean forceCommit;
     private final boolean close;
 
@@ -142,7 +250,41 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
      */
     public AsyncDBOperation(PreparedStatement s, boolean forceCommit,
         boolean close) {
+      this(s, null, forceCommit, close);
+    }
+
+    /**
+     * Create an asynchronous database operation which retains the records
+     * bound into its statement, so that they can be re-sent in smaller
+     * statements if required.
+     * @param s the statement, if any, to execute.
+     * @param records the records bound into 's'.
+     * @param forceCommit if true, the current transaction should be committed.
+     * @param close if true, the executor thread should stop after processing
+     * this operation.
+     */
+    public AsyncDBOperation(PreparedStatement s, List<SqoopRecord> records,
+        boolean forceCommit, boolean close) {
+      this(s, records, null == records ? 0 : records.size(), false,
+          forceCommit, close);
+    }
+
+    /**
+     * Create an asynchronous database operation.
+     * @param s the statement, if any, to execute.
+     * @param records the records bound into 's', or null if not retained.
+     * @param numRows the number of rows 's' inserts.
+     * @param batch if true, 's' holds a batch to run with executeBatch().
+     * @param forceCommit if true, the current transaction should be committed.
+     * @param close if true, the executor thread should stop after processing
+     * this operation.
+     */
+    public AsyncDBOperation(PreparedStatement s, List<SqoopRecord> records,
+        int numRows, boolean batch, boolean forceCommit, boolean close) {
       this.stmt = s;
+      this.records = records;
+      this.numRows = numRows;
+      this.batch = batch;
       this.forceCommit = forceCommit;
       this.close = close;
     }
@@ -154,6 +296,28 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       return stmt;
     }
 
+    /**
+     * @return the records bound into the statement, or null if they
+     * were not retained.
+     */
+    public List<SqoopRecord> getRecords() {
+      return records;
+    }
+
+    /**
+     * @return the number of rows inserted by the statement.
+     */
+    public int getNumRows() {
+      return numRows;
+    }
+
+    /**
+     * @return true if the statement is a batch to run with executeBatch().
+     */
+    public boolean isBatch() {
+      return batch;
+    }
+
     /**
      * @return true if the executor should commit the current transaction.
      * If getStatement() is non-null, the statement is run first.
@@ -170,11 +334,19 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
     }
   }
 
+  /**
+   * Prepares an INSERT statement with a set of records bound into it.
+   * Used by the update thread to re-send records in smaller statements.
+   */
+  interface InsertPreparer {
+    PreparedStatement prepare(List<SqoopRecord> records) throws SQLException;
+  }
+
   /**
    * A thread that runs the database interactions asynchronously
    * from the OutputCollector.
    */
-  private static class ExportUpdateThread extends Thread {
+  static class ExportUpdateThread extends Thread {
 
     private final Connection conn; // The connection to the database.
     private SQLException err; // Error from a previously-run statement.
@@ -185,6 +357,24 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
     protected int curNumStatements; // statements executed thus far in the tx.
     protected final int stmtsPerTx;  // statements per transaction.
 
+    // If non-null, determines statements per transaction instead of
+    // stmtsPerTx, and is informed of statement and commit latencies.
+    private final AdaptiveBatchSizer sizer;
+    private final InsertPreparer preparer;
+    private final int maxRetries;
+
+    // Running totals for this thread; guarded by 'this'.
+    private long numStatements;
+    private long numCommits;
+    private long executeNanos;
+    private long commitNanos;
+
+    // The same latencies, recorded in the task's MetricsRegistry.
+    private final MetricsRegistry.Timer executeTimer =
+        MetricsRegistry.get().timer("export.writer.executeUpdate");
+    private final MetricsRegistry.Timer commitTimer =
+        MetricsRegistry.get().timer("export.writer.commit");
+
     /**
      * Create a new update thread that interacts with the database.
      * @param conn the connection to use. This must only be used by this
@@ -193,10 +383,116 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
      * the current transaction.
      */
     public ExportUpdateThread(Connection conn, int stmtsPerTx) {
+      this(conn, stmtsPerTx, null, null, 0);
+    }
+
+    /**
+     * Create a new update thread whose transaction size is governed by an
+     * AdaptiveBatchSizer.
+     * @param conn the connection to use. This must only be used by this
+     * thread.
+     * @param sizer determines the statements to execute per transaction.
+     * @param preparer used to re-send the records of a failed statement.
+     * @param maxRetries the number of times a statement may be re-sent
+     * after failing with an error that calls for a back-off.
+     */
+    public ExportUpdateThread(Connection conn, AdaptiveBatchSizer sizer,
+        InsertPreparer preparer, int maxRetries) {
+      this(conn, sizer.getStatementsPerTransaction(), sizer, preparer,
+          maxRetries);
+    }
+
+    private ExportUpdateThread(Connection conn, int stmtsPerTx,
+        AdaptiveBatchSizer sizer, InsertPreparer preparer, int maxRetries) {
       this.conn = conn;
       this.err = null;
       this.opsQueue = new SynchronousQueue<AsyncDBOperation>();
       this.stmtsPerTx = stmtsPerTx;
+      this.sizer = sizer;
+      this.preparer = preparer;
+      this.maxRetries = maxRetries;
+    }
+
+    /**
+     * @return the number of statements to execute before committing.
+     */
+    private int getStatementsPerTransaction() {
+      if (null != sizer) {
+        return sizer.getStatementsPerTransaction();
+      } else {
+        return stmtsPerTx;
+      }
+    }
+
+    /**
+     * Execute a statement and record its latency.
+     * @param batch if true, run the statement's batch with executeBatch().
+     */
+    private void executeUpdate(PreparedStatement stmt, int numRows,
+        boolean batch) throws SQLException {
+      long start = System.nanoTime();
+      if (batch) {
+        stmt.executeBatch();
+      } else {
+        stmt.executeUpdate();
+      }
+      long elapsed = System.nanoTime() - start;
+      addExecuteTime(elapsed);
+      if (null != sizer) {
+        sizer.statementExecuted(numRows, elapsed);
+      }
+      this.curNumStatements++;
+    }
+
+    /**
+     * Determine whether a statement which failed with 'e' may be re-sent.
+     * If the database rolled back the entire transaction, this is only
+     * safe when the statement was the first of its transaction; the
+     * rows of any earlier statements would otherwise be lost. In that
+     * case the transaction is rolled back here before the retry.
+     */
+    private boolean canRetry(SQLException e) throws SQLException {
+      if (AdaptiveBatchSizer.isBackoffError(e)) {
+        return true;
+      } else if (AdaptiveBatchSizer.isRollbackError(e)
+          && curNumStatements == 0) {
+        conn.rollback();
+        return true;
+      }
+
+      return false;
+    }
+
+    /**
+     * Re-send the records of a statement which failed with 'cause' in a
+     * series of smaller statements, backing off further on each failure
+     * that calls for it.
+     */
+    private void retryInChunks(List<SqoopRecord> records, SQLException cause)
+        throws SQLException {
+      int attempts = 1;
+      LOG.warn("Statement failed; retrying with fewer rows: " + cause);
+      sizer.backoff();
+
+      int pos = 0; // Records before this index have been inserted.
+      while (pos < records.size()) {
+        int numRows = Math.min(sizer.getRecordsPerStatement(),
+            records.size() - pos);
+        PreparedStatement stmt = preparer.prepare(
+            records.subList(pos, pos + numRows));
+        try {
+          executeUpdate(stmt, numRows, false);
+          pos += numRows;
+        } catch (SQLException sqlE) {
+          if (attempts++ >= maxRetries || !canRetry(sqlE)) {
+            throw sqlE;
+          }
+          LOG.warn("Statement failed; retrying with fewer rows: " + sqlE);
+          sizer.backoff();
+        } finally {
+          stmt.close();
+        }
+      }
     }
 
     public void run() {
@@ -222,17 +518,36 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
         synchronized (conn) {
           try {
             if (null != stmt) {
-              stmt.executeUpdate();
-              stmt.close();
-              stmt = null;
-              this.curNumStatements++;
+              List<SqoopRecord> records = op.getRecords();
+              try {
+                executeUpdate(stmt, op.getNumRows(), op.isBatch());
+              } catch (SQLException sqlE) {
+                if (null == sizer || null == records || maxRetries < 1
+                    || !canRetry(sqlE)) {
+                  throw sqlE;
+                }
+                stmt.close();
+                stmt = null;
+                retryInChunks(records, sqlE);
+              }
+              if (null != stmt) {
+                stmt.close();
+                stmt = null;
+              }
             }
 
-            if (op.requiresCommit() || (curNumStatements >= stmtsPerTx
-                && stmtsPerTx != UNLIMITED_STATEMENTS_PER_TRANSACTION)) {
+            int txSize = getStatementsPerTransaction();
+            if (op.requiresCommit() || (curNumStatements >= txSize
+                && txSize != UNLIMITED_STATEMENTS_PER_TRANSACTION)) {
               LOG.debug("Committing transaction of " + curNumStatements
                   + " statements");
+              long start = System.nanoTime();
               this.conn.commit();
+              long elapsed = System.nanoTime() - start;
+              addCommitTime(elapsed);
+              if (null != sizer) {
+                sizer.committed(elapsed);
+              }
               this.curNumStatements = 0;
             }
           } catch (SQLException sqlE) {
@@ -274,6 +589,38 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       opsQueue.put(op);
     }
 
+    private synchronized void addExecuteTime(long nanos) {
+      this.numStatements++;
+      this.executeNanos += nanos;
+      executeTimer.update(nanos);
+    }
+
+    private synchronized void addCommitTime(long nanos) {
+      this.numCommits++;
+      this.commitNanos += nanos;
+      commitTimer.update(nanos);
+    }
+
+    /** @return the number of statements executed by this thread. */
+    public synchronized long getNumStatements() {
+      return numStatements;
+    }
+
+    /** @return the number of transactions committed by this thread. */
+    public synchronized long getNumCommits() {
+      return numCommits;
+    }
+
+    /** @return the total time spent in executeUpdate(), in nanoseconds. */
+    public synchronized long getExecuteNanos() {
+      return executeNanos;
+    }
+
+    /** @return the total time spent in commit(), in nanoseconds. */
+    public synchronized long getCommitNanos() {
+      return commitNanos;
+    }
+
     /**
      * If a previously-executed statement resulted in an error, post it here.
      * If the error slot was already filled, then subsequent errors are
@@ -325,9 +672,60 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
     private ExportUpdateThread updateThread;
     private boolean startedUpdateThread;
 
+    // If non-null, chooses rowsPerStmt and statements per transaction.
+    private AdaptiveBatchSizer sizer;
+
+    // If non-null, limits the rate at which rows are written. This may be
+    // shared with the task's other writers.
+    private final Throttle throttle;
+    private long throttleNanos;
+
+    // Pool that claimed records are returned to once they are bound.
+    private ExportRecordPool recordPool;
+
+    // If true, records are bound into pendingStmt as they arrive.
+    private final boolean bindImmediately;
+    private PreparedStatement pendingStmt;
+    private int pendingRows;
+
+    // Statistics gathered by this writer. Counters are published through
+    // the mapper's context, once it can be found; see getCounterContext().
+    private TaskInputOutputContext counterContext;
+    private long rowsWritten;
+    private long putBlockedNanos;
+    private long statsLogInterval;
+    private long startTimeMillis;
+    private long lastStatsLogMillis;
+
+    // Values already published to the counters.
+    private long reportedRows;
+    private long reportedStatements;
+    private long reportedCommits;
+    private long reportedPutMillis;
+    private long reportedExecuteMillis;
+    private long reportedCommitMillis;
+    private long reportedThrottleMillis;
+
+    // Metrics recorded in the task's MetricsRegistry.
+    private final MetricsRegistry.Counter rowsMetric =
+        MetricsRegistry.get().counter("export.writer.rows");
+    private final MetricsRegistry.Timer putBlockedMetric =
+        MetricsRegistry.get().timer("export.writer.putBlocked");
+
     public ExportRecordWriter(TaskAttemptContext context)
         throws ClassNotFoundException, SQLException {
+      this(context, Throttle.getTaskThrottle(context.getConfiguration()));
+    }
+
+    public ExportRecordWriter(TaskAttemptContext context, Throttle throttle)
+        throws ClassNotFoundException, SQLException {
       this.conf = context.getConfiguration();
+      this.throttle = throttle;
+
+      this.statsLogInterval = conf.getInt(STATS_LOG_INTERVAL_KEY,
+          DEFAULT_STATS_LOG_INTERVAL);
+      this.startTimeMillis = System.currentTimeMillis();
+      this.lastStatsLogMillis = this.startTimeMillis;
 
       this.rowsPerStmt = conf.getInt(RECORDS_PER_STATEMENT_KEY,
           DEFAULT_RECORDS_PER_STATEMENT);
@@ -343,8 +741,31 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       this.connection.setAutoCommit(false);
 
       this.records = new ArrayList<SqoopRecord>(this.rowsPerStmt);
-
-      this.updateThread = new ExportUpdateThread(connection, stmtsPerTx);
+      this.bindImmediately = conf.getBoolean(BIND_IMMEDIATELY_KEY, false);
+
+      if (conf.getBoolean(ADAPTIVE_BATCH_KEY, false)) {
+        this.sizer = new AdaptiveBatchSizer(this.rowsPerStmt,
+            conf.getInt(MIN_RECORDS_PER_STATEMENT_KEY,
+                DEFAULT_MIN_RECORDS_PER_STATEMENT),
+            conf.getInt(MAX_RECORDS_PER_STATEMENT_KEY,
+                DEFAULT_MAX_RECORDS_PER_STATEMENT),
+            stmtsPerTx,
+            conf.getInt(MIN_STATEMENTS_PER_TRANSACTION_KEY,
+                DEFAULT_MIN_STATEMENTS_PER_TRANSACTION),
+            conf.getInt(MAX_STATEMENTS_PER_TRANSACTION_KEY,
+                DEFAULT_MAX_STATEMENTS_PER_TRANSACTION));
+        InsertPreparer preparer = new InsertPreparer() {
+          public PreparedStatement prepare(List<SqoopRecord> recs)
+              throws SQLException {
+            return prepareInsert(recs);
+          }
+        };
+        this.updateThread = new ExportUpdateThread(connection, sizer,
+            preparer, conf.getInt(ADAPTIVE_MAX_RETRIES_KEY,
+                DEFAULT_ADAPTIVE_MAX_RETRIES));
+      } else {
+        this.updateThread = new ExportUpdateThread(connection, stmtsPerTx);
+      }
       this.updateThread.setDaemon(true);
       this.startedUpdateThread = false;
     }
@@ -403,6 +824,44 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       return sb.toString();
     }
 
+    /**
+     * @return the number of records to buffer before executing an INSERT.
+     */
+    protected int getRecordsPerStatement() {
+      if (null != sizer) {
+        return sizer.getRecordsPerStatement();
+      } else {
+        return rowsPerStmt;
+      }
+    }
+
+    /**
+     * Prepare an INSERT statement for the given records, and bind their
+     * fields into it.
+     */
+    protected PreparedStatement prepareInsert(List<SqoopRecord> recs)
+        throws SQLException {
+      PreparedStatement stmt;
+      // Synchronize on connection to ensure this does not conflict
+      // with the operations in the update thread.
+      synchronized (connection) {
+        stmt = connection.prepareStatement(getInsertStatement(recs.size()));
+      }
+
+      try {
+        // Inject the record parameters into the VALUES clauses.
+        int position = 0;
+        for (SqoopRecord record : recs) {
+          position += record.write(stmt, position);
+        }
+      } catch (SQLException sqlE) {
+        stmt.close();
+        throw sqlE;
+      }
+
+      return stmt;
+    }
+
     /**
      * Takes the current contents of 'records' and formats and executes the
      * INSERT statement.
@@ -418,29 +877,45 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       }
 
       PreparedStatement stmt = null;
+      List<SqoopRecord> sentRecords = null;
+      int numRows = 0;
+      boolean batch = false;
       boolean successfulPut = false;
       try {
-        if (records.size() > 0) {
-          // Synchronize on connection to ensure this does not conflict
-          // with the operations in the update thread.
-          synchronized (connection) {
-            stmt = connection.prepareStatement(
-              getInsertStatement(records.size()));
-          }
-
-          // Inject the record parameters into the VALUES clauses.
-          int position = 0;
-          for (SqoopRecord record : records) {
-            position += record.write(stmt, position);
+        if (null != pendingStmt) {
+          // Rows were bound into a batch as they arrived.
+          stmt = pendingStmt;
+          numRows = pendingRows;
+          batch = true;
+          pendingStmt = null;
+          pendingRows = 0;
+        } else if (records.size() > 0) {
+          numRows = records.size();
+          stmt = prepareInsert(records);
+
+          if (null != sizer) {
+            // Hand these records to the update thread in case they need
+            // to be re-sent in smaller statements.
+            sentRecords = this.records;
+            this.records = new ArrayList<SqoopRecord>(getRecordsPerStatement());
+          } else {
+            // The records' values are bound; recycle the instances.
+            if (null != recordPool) {
+              recordPool.giveBack(this.records);
+            }
+            this.records.clear();
           }
-
-          this.records.clear();
         }
 
         // Pass this operation off to the update thread. This will block if
         // the update thread is already performing an update.
-        AsyncDBOperation op = new AsyncDBOperation(stmt, closeConn, closeConn);
+        AsyncDBOperation op = new AsyncDBOperation(stmt, sentRecords,
+            numRows, batch, closeConn, closeConn);
+        long putStart = System.nanoTime();
         updateThread.put(op);
+        long putNanos = System.nanoTime() - putStart;
+        this.putBlockedNanos += putNanos;
+        putBlockedMetric.update(putNanos);
         successfulPut = true; // op has been posted to the other thread.
       } finally {
         if (!successfulPut && null != stmt) {
@@ -456,6 +931,82 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       }
     }
 
+    /**
+     * Publish the statistics gathered since the last call as Hadoop counters,
+     * and log a summary if the configured log interval has elapsed.
+     * @param isFinal if true, always log the summary.
+     */
+    protected void updateStatistics(boolean isFinal) {
+      long statements = updateThread.getNumStatements();
+      long commits = updateThread.getNumCommits();
+      long putMillis = putBlockedNanos / NANOS_PER_MILLI;
+      long executeMillis = updateThread.getExecuteNanos() / NANOS_PER_MILLI;
+      long commitMillis = updateThread.getCommitNanos() / NANOS_PER_MILLI;
+
+      if (null != getCounterContext()) {
+        incrCounter(ExportCounters.ROWS_WRITTEN, rowsWritten - reportedRows);
+        incrCounter(ExportCounters.STATEMENTS_EXECUTED,
+            statements - reportedStatements);
+        incrCounter(ExportCounters.COMMITS, commits - reportedCommits);
+        incrCounter(ExportCounters.PUT_BLOCKED_MILLIS,
+            putMillis - reportedPutMillis);
+        incrCounter(ExportCounters.EXECUTE_UPDATE_MILLIS,
+            executeMillis - reportedExecuteMillis);
+        incrCounter(ExportCounters.COMMIT_MILLIS,
+            commitMillis - reportedCommitMillis);
+      }
+
+      rowsMetric.add(rowsWritten - reportedRows);
+      this.reportedRows = rowsWritten;
+      this.reportedStatements = statements;
+      this.reportedCommits = commits;
+      this.reportedPutMillis = putMillis;
+      this.reportedExecuteMillis = executeMillis;
+      this.reportedCommitMillis = commitMillis;
+
+      if (null != throttle) {
+        long throttleMillis = throttleNanos / NANOS_PER_MILLI;
+        TaskInputOutputContext ctx = getCounterContext();
+        if (null != ctx && throttleMillis != reportedThrottleMillis) {
+          ctx.getCounter(ThrottleCounters.THROTTLE_WAIT_MILLIS)
+              .increment(throttleMillis - reportedThrottleMillis);
+        }
+        this.reportedThrottleMillis = throttleMillis;
+      }
+
+      long now = System.currentTimeMillis();
+      if (isFinal || (statsLogInterval > 0
+          && now - lastStatsLogMillis >= statsLogInterval)) {
+        this.lastStatsLogMillis = now;
+        long elapsed = Math.max(1, now - startTimeMillis);
+        LOG.info("Export writer: " + rowsWritten + " rows ("
+            + (rowsWritten * 1000 / elapsed) + " rows/sec), "
+            + statements + " statements, " + commits + " commits in "
+            + elapsed + " ms; blocked in put: " + putMillis
+            + " ms, executeUpdate: " + executeMillis
+            + " ms, commit: " + commitMillis + " ms");
+      }
+    }
+
+    /**
+     * @return the context to publish counters through, or null if the
+     * task's counters cannot be reached. MapTask creates this writer with
+     * a context that has no counters, so the context registered by the
+     * running mapper is used.
+     */
+    private TaskInputOutputContext getCounterContext() {
+      if (null == counterContext) {
+        counterContext = TaskCounters.get(conf);
+      }
+      return counterContext;
+    }
+
+    private void incrCounter(ExportCounters counter, long delta) {
+      if (delta != 0) {
+        counterContext.getCounter(counter).increment(delta);
+      }
+    }
+
     @Override
     /** {@inheritDoc} */
     public void close(TaskAttemptContext context)
@@ -466,6 +1017,18 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
         throw new IOException(sqle);
       } finally {
         updateThread.join();
+        if (null == getCounterContext()
+            && context instanceof TaskInputOutputContext) {
+          // The mapper has finished, but MapTask closes us with its context.
+          counterContext = (TaskInputOutputContext) context;
+        }
+        updateStatistics(true);
+
+        // The mapper published the task's metrics before MapTask closed
+        // this writer; add what the writer recorded since.
+        if (null != counterContext) {
+          MetricsRegistry.get().publishCounters(counterContext);
+        }
       }
 
       // If we're not leaving on an error return path already,
@@ -477,14 +1040,73 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       }
     }
 
+    /**
+     * Release this writer's connection without writing anything; used
+     * when a task cannot open all of its writers.
+     */
+    void abort() {
+      try {
+        connection.close();
+      } catch (SQLException sqlE) {
+        LOG.warn("Error closing connection: " + sqlE);
+      }
+    }
+
+    /**
+     * Bind a record's fields into the pending batch, preparing a
+     * single-row INSERT statement for it if necessary.
+     */
+    private void bindRecord(SqoopRecord record) throws SQLException {
+      if (null == pendingStmt) {
+        // Synchronize on connection to ensure this does not conflict
+        // with the operations in the update thread.
+        synchronized (connection) {
+          pendingStmt = connection.prepareStatement(getInsertStatement(1));
+        }
+      }
+
+      record.write(pendingStmt, 0);
+      pendingStmt.addBatch();
+      pendingRows++;
+    }
+
     @Override
     /** {@inheritDoc} */
     public void write(K key, V value)
         throws InterruptedException, IOException {
       try {
-        records.add((SqoopRecord) key.clone());
-        if (records.size() >= this.rowsPerStmt) {
+        if (null != throttle) {
+          // The size of the row in the database is not known here.
+          throttleNanos += throttle.acquire(1, 0);
+        }
+
+        if (bindImmediately) {
+          bindRecord((SqoopRecord) key);
+          this.rowsWritten++;
+          if (pendingRows >= getRecordsPerStatement()) {
+            insertRows(false);
+            updateStatistics(false);
+          }
+          return;
+        }
+
+        // Keep the record itself if it was borrowed from a pool for us;
+        // otherwise its producer may reuse it, so keep a copy. In adaptive
+        // mode, records are kept for retries and never given back, so they
+        // are not claimed.
+        SqoopRecord record = (SqoopRecord) key;
+        if (null == sizer && ExportRecordPool.claim(conf, record)) {
+          if (null == recordPool) {
+            recordPool = ExportRecordPool.get(conf, record.getClass());
+          }
+        } else {
+          record = (SqoopRecord) record.clone();
+        }
+        records.add(record);
+        this.rowsWritten++;
+        if (records.size() >= getRecordsPerStatement()) {
           insertRows(false);
+          updateStatistics(false);
         }
       } catch (CloneNotSupportedException cnse) {
         throw new IOException("Could not buffer record", cnse);
@@ -493,4 +1115,118 @@ public class ExportOutputFormat<K extends SqoopRecord, V>
       }
     }
   }
+
+  /**
+   * RecordWriter that fans records out to several ExportRecordWriters,
+   * each with its own connection and update thread. A record is routed by
+   * the hash of its partition column values, so that rows sharing a key
+   * are inserted in order by a single transaction and the connections do
+   * not contend for the same row locks. Without partition columns, records
+   * are distributed round-robin.
+   */
+  public class PartitionedRecordWriter extends RecordWriter<K, V> {
+
+    private final List<ExportRecordWriter> writers;
+    private final String [] partitionColumns;
+
+    // Accessors for the partition columns of the record class, resolved
+    // from the first record written. Null if records are sent round-robin.
+    private Method [] getters;
+    private boolean resolvedGetters;
+    private int nextWriter;
+
+    public PartitionedRecordWriter(TaskAttemptContext context,
+        List<ExportRecordWriter> writers) {
+      this.writers = writers;
+      this.partitionColumns = context.getConfiguration().getStrings(
+          PARTITION_COLUMNS_KEY);
+      LOG.info("Writing through " + writers.size() + " connections");
+    }
+
+    /**
+     * Find the generated get_<col>() method for each partition column.
+     * @return the getters, or null if any column cannot be found.
+     */
+    private Method [] resolveGetters(Class<?> recordClass) {
+      if (null == partitionColumns || partitionColumns.length == 0) {
+        return null;
+      }
+
+      Method [] methods = new Method[partitionColumns.length];
+      for (int i = 0; i < partitionColumns.length; i++) {
+        String col = partitionColumns[i].trim();
+        try {
+          methods[i] = recordClass.getMethod("get_"
+              + ClassWriter.toIdentifier(col));
+        } catch (NoSuchMethodException nsme) {
+          LOG.warn("No accessor for partition column " + col + " in "
+              + recordClass.getName() + "; distributing rows round-robin");
+          return null;
+        }
+      }
+
+      return methods;
+    }
+
+    /**
+     * @return the index of the writer that should receive 'record'.
+     */
+    private int getPartition(SqoopRecord record) throws IOException {
+      if (!resolvedGetters) {
+        this.getters = resolveGetters(record.getClass());
+        this.resolvedGetters = true;
+      }
+
+      if (null == getters) {
+        int partition = nextWriter;
+        nextWriter = (nextWriter + 1) % writers.size();
+        return partition;
+      }
+
+      int hash = 0;
+      try {
+        for (Method getter : getters) {
+          Object val = getter.invoke(record);
+          hash = 31 * hash + (null == val ? 0 : val.hashCode());
+        }
+      } catch (IllegalAccessException iae) {
+        throw new IOException("Could not read partition column", iae);
+      } catch (InvocationTargetException ite) {
+        throw new IOException("Could not read partition column", ite);
+      }
+
+      return (hash & Integer.MAX_VALUE) % writers.size();
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void write(K key, V value)
+        throws InterruptedException, IOException {
+      writers.get(getPartition(key)).write(key, value);
+    }
+
+    @Override
+    /** {@inheritDoc} */
+    public void close(TaskAttemptContext context)
+        throws IOException, InterruptedException {
+      // Close every writer, even if an earlier one fails, so that no
+      // update thread or connection is left behind.
+      IOException firstErr = null;
+      for (ExportRecordWriter writer : writers) {
+        try {
+          writer.close(context);
+        } catch (IOException ioe) {
+          LOG.error("Error closing export writer: "
+              + StringUtils.stringifyException(ioe));
+          if (null == firstErr) {
+            firstErr = ioe;
+          }
+        }
+      }
+
+      if (null != firstErr) {
+        throw firstErr;
+      }
+    }
+  }
 }
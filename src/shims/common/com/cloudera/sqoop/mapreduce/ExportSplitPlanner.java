@@ -0,0 +1,431 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.compress.CompressionCodecFactory;
+
+/**
+ * Plans the splits of an export job. Input files are cut into chunks,
+ * which are packed into a fixed number of splits so that each split holds
+ * about the same number of bytes to export, preferring to group chunks
+ * stored on the same nodes or racks.
+ *
+ * Sizes are estimated in decompressed bytes: compressed text files count
+ * as their length times COMPRESSION_RATIO_KEY. Compressed text files
+ * cannot be split, and form a single chunk; other files are cut at block
+ * boundaries into chunks of at most the target split size.
+ */
+public class ExportSplitPlanner {
+
+  public static final Log LOG =
+      LogFactory.getLog(ExportSplitPlanner.class.getName());
+
+  /**
+   * conf key: the estimated ratio of decompressed to compressed size of
+   * compressed text files.
+   */
+  public static final String COMPRESSION_RATIO_KEY =
+      "sqoop.export.split.compression.ratio";
+
+  public static final float DEFAULT_COMPRESSION_RATIO = 4.0f;
+
+  /** Number of hosts named in the locations of each split. */
+  private static final int MAX_SPLIT_HOSTS = 3;
+
+  /**
+   * A contiguous range of one file, assigned to a single split.
+   */
+  public static class Chunk {
+    private final Path path;
+    private final long start;
+    private final long length;
+    private final long estimatedBytes;
+    private final boolean sequenceFile;
+    private final Map<String, Long> hostBytes;
+    private final Map<String, Long> rackBytes;
+
+    /**
+     * @param hosts bytes of the chunk stored on each host.
+     * @param racks bytes of the chunk stored on each rack.
+     */
+    public Chunk(Path path, long start, long length, long estimatedBytes,
+        boolean sequenceFile, Map<String, Long> hosts,
+        Map<String, Long> racks) {
+      this.path = path;
+      this.start = start;
+      this.length = length;
+      this.estimatedBytes = estimatedBytes;
+      this.sequenceFile = sequenceFile;
+      this.hostBytes = hosts;
+      this.rackBytes = racks;
+    }
+
+    public Path getPath() {
+      return path;
+    }
+
+    public long getStart() {
+      return start;
+    }
+
+    public long getLength() {
+      return length;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    public boolean isSequenceFile() {
+      return sequenceFile;
+    }
+  }
+
+  /**
+   * The chunks assigned to one split.
+   */
+  public static class Bin {
+    private final List<Chunk> chunks = new ArrayList<Chunk>();
+    private final Map<String, Long> hostBytes = new HashMap<String, Long>();
+    private final Map<String, Long> rackBytes = new HashMap<String, Long>();
+    private long estimatedBytes;
+    private long length;
+
+    void add(Chunk chunk) {
+      chunks.add(chunk);
+      estimatedBytes += chunk.estimatedBytes;
+      length += chunk.length;
+      addAll(hostBytes, chunk.hostBytes);
+      addAll(rackBytes, chunk.rackBytes);
+    }
+
+    /**
+     * @return 2 if the chunk is stored on a host that already holds part
+     * of this bin, 1 if only on such a rack, and 0 otherwise.
+     */
+    int locality(Chunk chunk) {
+      for (String host : chunk.hostBytes.keySet()) {
+        if (hostBytes.containsKey(host)) {
+          return 2;
+        }
+      }
+      for (String rack : chunk.rackBytes.keySet()) {
+        if (rackBytes.containsKey(rack)) {
+          return 1;
+        }
+      }
+      return 0;
+    }
+
+    public List<Chunk> getChunks() {
+      return chunks;
+    }
+
+    public long getEstimatedBytes() {
+      return estimatedBytes;
+    }
+
+    /** @return the number of bytes of the files read by this bin. */
+    public long getLength() {
+      return length;
+    }
+
+    /**
+     * @return the hosts storing the most bytes of this bin, most first.
+     */
+    public String [] getHosts() {
+      List<Map.Entry<String, Long>> entries =
+          new ArrayList<Map.Entry<String, Long>>(hostBytes.entrySet());
+      Collections.sort(entries, new Comparator<Map.Entry<String, Long>>() {
+        public int compare(Map.Entry<String, Long> a,
+            Map.Entry<String, Long> b) {
+          return b.getValue().compareTo(a.getValue());
+        }
+      });
+
+      int numHosts = Math.min(MAX_SPLIT_HOSTS, entries.size());
+      String [] hosts = new String[numHosts];
+      for (int i = 0; i < numHosts; i++) {
+        hosts[i] = entries.get(i).getKey();
+      }
+      return hosts;
+    }
+  }
+
+  private final Configuration conf;
+  private final CompressionCodecFactory codecs;
+  private final float compressionRatio;
+
+  public ExportSplitPlanner(Configuration conf) {
+    this.conf = conf;
+    this.codecs = new CompressionCodecFactory(conf);
+    this.compressionRatio = conf.getFloat(COMPRESSION_RATIO_KEY,
+        DEFAULT_COMPRESSION_RATIO);
+  }
+
+  /**
+   * @return true if the file must be read by a single task.
+   */
+  public boolean isCompressedText(Path path, boolean isSequenceFile) {
+    return !isSequenceFile && null != codecs.getCodec(path);
+  }
+
+  /**
+   * @return the estimated number of bytes to be exported from the file.
+   */
+  public long estimateBytes(FileStatus file, boolean isSequenceFile) {
+    if (isCompressedText(file.getPath(), isSequenceFile)) {
+      return (long) (file.getLen() * (double) compressionRatio);
+    }
+    return file.getLen();
+  }
+
+  /**
+   * Cut the input files into chunks and pack them into splits.
+   * @param files the input files.
+   * @param sequenceFiles for each input file, true if it is a SequenceFile.
+   * @param numSplits the number of splits to aim for.
+   * @return the non-empty bins, one per split.
+   */
+  public List<Bin> plan(List<FileStatus> files,
+      Map<Path, Boolean> sequenceFiles, int numSplits) throws IOException {
+    long totalBytes = 0;
+    for (FileStatus file : files) {
+      totalBytes += estimateBytes(file, isSequenceFile(sequenceFiles, file));
+    }
+
+    int splits = Math.max(1, numSplits);
+    long targetBytes = Math.max(1, (totalBytes + splits - 1) / splits);
+    LOG.debug("Total estimated input bytes=" + totalBytes
+        + "; target bytes per split=" + targetBytes);
+
+    List<Chunk> chunks = new ArrayList<Chunk>();
+    for (FileStatus file : files) {
+      chunks.addAll(getChunks(file, isSequenceFile(sequenceFiles, file),
+          targetBytes));
+    }
+
+    return pack(chunks, splits, targetBytes);
+  }
+
+  private static boolean isSequenceFile(Map<Path, Boolean> sequenceFiles,
+      FileStatus file) {
+    Boolean isSeq = sequenceFiles.get(file.getPath());
+    return null != isSeq && isSeq.booleanValue();
+  }
+
+  /**
+   * Cut a file into chunks along block boundaries, each of at most
+   * maxBytes estimated bytes (or one block, if a block is larger). A
+   * compressed text file is returned as a single chunk.
+   */
+  List<Chunk> getChunks(FileStatus file, boolean isSequenceFile,
+      long maxBytes) throws IOException {
+    Path path = file.getPath();
+    List<Chunk> chunks = new ArrayList<Chunk>();
+    FileSystem fs = path.getFileSystem(conf);
+    BlockLocation [] blocks = fs.getFileBlockLocations(file, 0,
+        file.getLen());
+    if (null == blocks) {
+      blocks = new BlockLocation[0];
+    }
+
+    if (isCompressedText(path, isSequenceFile) || blocks.length <= 1) {
+      Map<String, Long> hosts = new HashMap<String, Long>();
+      Map<String, Long> racks = new HashMap<String, Long>();
+      for (BlockLocation block : blocks) {
+        addLocations(block, hosts, racks);
+      }
+      chunks.add(new Chunk(path, 0, file.getLen(),
+          estimateBytes(file, isSequenceFile), isSequenceFile, hosts, racks));
+      return chunks;
+    }
+
+    long chunkStart = 0;
+    long chunkLen = 0;
+    Map<String, Long> hosts = new HashMap<String, Long>();
+    Map<String, Long> racks = new HashMap<String, Long>();
+    for (BlockLocation block : blocks) {
+      if (chunkLen > 0 && chunkLen + block.getLength() > maxBytes) {
+        chunks.add(new Chunk(path, chunkStart, chunkLen, chunkLen,
+            isSequenceFile, hosts, racks));
+        chunkStart += chunkLen;
+        chunkLen = 0;
+        hosts = new HashMap<String, Long>();
+        racks = new HashMap<String, Long>();
+      }
+      chunkLen += block.getLength();
+      addLocations(block, hosts, racks);
+    }
+    if (chunkLen > 0) {
+      chunks.add(new Chunk(path, chunkStart, chunkLen, chunkLen,
+          isSequenceFile, hosts, racks));
+    }
+    return chunks;
+  }
+
+  /**
+   * Credit the block's length to each host and rack storing it.
+   */
+  private static void addLocations(BlockLocation block,
+      Map<String, Long> hosts, Map<String, Long> racks) throws IOException {
+    for (String host : block.getHosts()) {
+      add(hosts, host, block.getLength());
+    }
+
+    String [] topology = block.getTopologyPaths();
+    if (null != topology) {
+      for (String node : topology) {
+        int slash = node.lastIndexOf('/');
+        if (slash > 0) {
+          add(racks, node.substring(0, slash), block.getLength());
+        }
+      }
+    }
+  }
+
+  private static void add(Map<String, Long> map, String key, long value) {
+    Long prev = map.get(key);
+    map.put(key, Long.valueOf(null == prev ? value : prev + value));
+  }
+
+  private static void addAll(Map<String, Long> map, Map<String, Long> more) {
+    for (Map.Entry<String, Long> e : more.entrySet()) {
+      add(map, e.getKey(), e.getValue());
+    }
+  }
+
+  /**
+   * Pack chunks into at most numBins bins. Chunks are placed largest first.
+   * Each goes to a bin it fits in without exceeding targetBytes,
+   * preferring node-local, then rack-local bins, then the least loaded;
+   * if it fits in none, it goes to the least-loaded bin.
+   * @return the non-empty bins.
+   */
+  public List<Bin> pack(List<Chunk> chunks, int numBins, long targetBytes) {
+    List<Chunk> sorted = new ArrayList<Chunk>(chunks);
+    Collections.sort(sorted, new Comparator<Chunk>() {
+      public int compare(Chunk a, Chunk b) {
+        if (a.estimatedBytes != b.estimatedBytes) {
+          return a.estimatedBytes > b.estimatedBytes ? -1 : 1;
+        }
+        return 0;
+      }
+    });
+
+    List<Bin> bins = new ArrayList<Bin>();
+    for (int i = 0; i < Math.max(1, numBins); i++) {
+      bins.add(new Bin());
+    }
+
+    for (Chunk chunk : sorted) {
+      Bin best = null;
+      int bestLocality = -1;
+      for (Bin bin : bins) {
+        if (bin.estimatedBytes + chunk.estimatedBytes > targetBytes
+            && !bin.chunks.isEmpty()) {
+          continue; // Doesn't fit.
+        }
+
+        int locality = bin.chunks.isEmpty() ? 0 : bin.locality(chunk);
+        if (null == best || locality > bestLocality
+            || (locality == bestLocality
+            && bin.estimatedBytes < best.estimatedBytes)) {
+          best = bin;
+          bestLocality = locality;
+        }
+      }
+
+      if (null == best) {
+        // Fits nowhere; balance by load.
+        for (Bin bin : bins) {
+          if (null == best || bin.estimatedBytes < best.estimatedBytes) {
+            best = bin;
+          }
+        }
+      }
+
+      best.add(chunk);
+    }
+
+    List<Bin> nonEmpty = new ArrayList<Bin>();
+    for (Bin bin : bins) {
+      if (!bin.chunks.isEmpty()) {
+        nonEmpty.add(bin);
+      }
+    }
+    return nonEmpty;
+  }
+
+  /**
+   * @return a description of each planned split's size and locations.
+   */
+  public static String report(List<Bin> bins) {
+    StringBuilder sb = new StringBuilder();
+    long min = Long.MAX_VALUE;
+    long max = 0;
+    long total = 0;
+    for (int i = 0; i < bins.size(); i++) {
+      Bin bin = bins.get(i);
+      sb.append("\n  split ").append(i).append(": ");
+      sb.append(bin.chunks.size()).append(" chunk(s), ");
+      sb.append(bin.estimatedBytes).append(" estimated bytes, ");
+      sb.append(bin.length).append(" file bytes, hosts=");
+      String [] hosts = bin.getHosts();
+      sb.append(hosts.length == 0 ? "[]" : "[" + join(hosts) + "]");
+      min = Math.min(min, bin.estimatedBytes);
+      max = Math.max(max, bin.estimatedBytes);
+      total += bin.estimatedBytes;
+    }
+
+    if (bins.isEmpty()) {
+      return "Planned 0 export splits";
+    }
+    return "Planned " + bins.size() + " export splits; estimated bytes min="
+        + min + " max=" + max + " mean=" + (total / bins.size())
+        + sb.toString();
+  }
+
+  private static String join(String [] strs) {
+    StringBuilder sb = new StringBuilder();
+    for (String s : strs) {
+      if (sb.length() > 0) {
+        sb.append(", ");
+      }
+      sb.append(s);
+    }
+    return sb.toString();
+  }
+}
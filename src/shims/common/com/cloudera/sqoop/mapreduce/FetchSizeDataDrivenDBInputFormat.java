@@ -0,0 +1,103 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.db.DBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.DBWritable;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBInputFormat;
+import org.apache.hadoop.mapreduce.lib.db.DataDrivenDBRecordReader;
+
+/**
+ * DataDrivenDBInputFormat that applies the JDBC fetch size chosen by the
+ * ConnManager (or by the user with --fetch-size) to the query each map
+ * task issues for its split. Hadoop's generic record reader leaves the
+ * driver default in place, which for some databases (e.g., PostgreSQL)
+ * means the entire split is buffered in RAM before the first row is read.
+ */
+public class FetchSizeDataDrivenDBInputFormat<T extends DBWritable>
+    extends DataDrivenDBInputFormat<T> {
+
+  public static final Log LOG = LogFactory.getLog(
+      FetchSizeDataDrivenDBInputFormat.class.getName());
+
+  /**
+   * DataDrivenDBRecordReader that sets a fetch size on its statement.
+   */
+  public static class FetchSizeRecordReader<T extends DBWritable>
+      extends DataDrivenDBRecordReader<T> {
+
+    private final int fetchSize;
+
+    public FetchSizeRecordReader(DBInputFormat.DBInputSplit split,
+        Class<T> inputClass, Configuration conf, Connection conn,
+        DBConfiguration dbConfig, String cond, String [] fields,
+        String table, String dbProduct) throws SQLException {
+      super(split, inputClass, conf, conn, dbConfig, cond, fields, table,
+          dbProduct);
+      this.fetchSize = conf.getInt(DataDrivenImportJob.FETCH_SIZE_KEY, 0);
+    }
+
+    @Override
+    protected ResultSet executeQuery(String query) throws SQLException {
+      statement = getConnection().prepareStatement(query,
+          ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+      statement.setFetchSize(fetchSize);
+      return statement.executeQuery();
+    }
+  }
+
+  @Override
+  protected RecordReader<LongWritable, T> createDBRecordReader(
+      DBInputSplit split, Configuration conf) throws IOException {
+
+    String dbProductName = getDBProductName();
+    if (null == conf.get(DataDrivenImportJob.FETCH_SIZE_KEY)
+        || dbProductName.startsWith("ORACLE")) {
+      // Oracle rewrites the split query; leave it to the stock reader.
+      return super.createDBRecordReader(split, conf);
+    }
+
+    LOG.debug("Using fetch size "
+        + conf.get(DataDrivenImportJob.FETCH_SIZE_KEY) + " for split query");
+
+    DBConfiguration dbConf = getDBConf();
+    @SuppressWarnings("unchecked")
+    Class<T> inputClass = (Class<T>) (dbConf.getInputClass());
+    try {
+      return new FetchSizeRecordReader<T>(split, inputClass, conf,
+          getConnection(), dbConf, dbConf.getInputConditions(),
+          dbConf.getInputFieldNames(), dbConf.getInputTableName(),
+          dbProductName);
+    } catch (SQLException sqlE) {
+      throw new IOException(sqlE);
+    }
+  }
+}
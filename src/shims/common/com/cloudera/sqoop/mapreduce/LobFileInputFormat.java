@@ -0,0 +1,185 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.BlockLocation;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.JobContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.TaskAttemptContext;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+import org.apache.hadoop.mapreduce.lib.input.FileSplit;
+
+import com.cloudera.sqoop.io.LobFile;
+import com.cloudera.sqoop.lib.BlobRef;
+import com.cloudera.sqoop.lib.ClobRef;
+import com.cloudera.sqoop.lib.LobRef;
+
+/**
+ * InputFormat that reads the records of LobFiles, splitting each file
+ * along the boundaries of its IndexSegments so that several map tasks can
+ * each read a disjoint set of records from the same file.
+ *
+ * The key emitted is the entryId of the record. The value is a BlobRef or
+ * ClobRef (depending on the file's encoding) that refers to the record in
+ * the file; the mapper can stream the record data with
+ * value.getDataStream(context).
+ */
+public class LobFileInputFormat
+    extends FileInputFormat<LongWritable, LobRef<?, ?, ?>> {
+
+  public static final Log LOG = LogFactory.getLog(
+      LobFileInputFormat.class.getName());
+
+  @Override
+  public List<InputSplit> getSplits(JobContext job) throws IOException {
+    Configuration conf = job.getConfiguration();
+    long minSize = Math.max(getFormatMinSplitSize(), getMinSplitSize(job));
+    long maxSize = getMaxSplitSize(job);
+
+    List<InputSplit> splits = new ArrayList<InputSplit>();
+    for (FileStatus file : listStatus(job)) {
+      Path path = file.getPath();
+      FileSystem fs = path.getFileSystem(conf);
+      long splitSize = computeSplitSize(file.getBlockSize(), minSize,
+          maxSize);
+      int maxRanges = (int) Math.max(1,
+          Math.min(Integer.MAX_VALUE, file.getLen() / splitSize));
+
+      List<LobFile.RecordRange> ranges;
+      LobFile.Reader reader = LobFile.open(path, conf);
+      try {
+        ranges = reader.getRecordRanges(maxRanges);
+      } finally {
+        reader.close();
+      }
+
+      BlockLocation [] blocks = fs.getFileBlockLocations(file, 0,
+          file.getLen());
+      for (LobFile.RecordRange range : ranges) {
+        long start = range.getStartOffset();
+        long len = range.getEndOffset() - start;
+        int blockIdx = getBlockIndex(blocks, start);
+        splits.add(new FileSplit(path, start, len,
+            blocks[blockIdx].getHosts()));
+      }
+
+      LOG.debug("Divided " + path + " into " + ranges.size() + " splits");
+    }
+
+    return splits;
+  }
+
+  @Override
+  public RecordReader<LongWritable, LobRef<?, ?, ?>> createRecordReader(
+      InputSplit split, TaskAttemptContext context) {
+    return new LobFileRecordReader();
+  }
+
+  /**
+   * RecordReader that walks the records of a LobFile that start within
+   * the byte range of a FileSplit.
+   */
+  public static class LobFileRecordReader
+      extends RecordReader<LongWritable, LobRef<?, ?, ?>> {
+
+    private LobFile.Reader reader;
+    private boolean isCharData;
+    private String fileName;
+    private long start;
+    private long end;
+    private long pos;
+    private LongWritable key;
+    private LobRef<?, ?, ?> value;
+
+    @Override
+    public void initialize(InputSplit split, TaskAttemptContext context)
+        throws IOException {
+      FileSplit fileSplit = (FileSplit) split;
+      Path path = fileSplit.getPath();
+
+      this.fileName = path.getName();
+      this.start = fileSplit.getStart();
+      this.end = start + fileSplit.getLength();
+      this.pos = start;
+      this.reader = LobFile.open(path, context.getConfiguration());
+      this.isCharData = reader.isCharData();
+      this.reader.seek(start);
+    }
+
+    @Override
+    public boolean nextKeyValue() throws IOException {
+      if (!reader.next() || reader.getRecordOffset() >= end) {
+        pos = end;
+        key = null;
+        value = null;
+        return false;
+      }
+
+      pos = reader.getRecordOffset();
+      if (null == key) {
+        key = new LongWritable();
+      }
+      key.set(reader.getRecordId());
+      if (isCharData) {
+        value = new ClobRef(fileName, pos, reader.getRecordLen());
+      } else {
+        value = new BlobRef(fileName, pos, reader.getRecordLen());
+      }
+      return true;
+    }
+
+    @Override
+    public LongWritable getCurrentKey() {
+      return key;
+    }
+
+    @Override
+    public LobRef<?, ?, ?> getCurrentValue() {
+      return value;
+    }
+
+    @Override
+    public float getProgress() {
+      if (end == start) {
+        return 0.0f;
+      }
+      return Math.min(1.0f, (pos - start) / (float) (end - start));
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (null != reader) {
+        reader.close();
+        reader = null;
+      }
+    }
+  }
+}
@@ -18,13 +18,12 @@
 
 package com.cloudera.sqoop.mapreduce;
 
-import java.io.IOException;
 import java.sql.SQLException;
 
-import org.apache.hadoop.mapreduce.RecordWriter;
 import org.apache.hadoop.mapreduce.TaskAttemptContext;
 
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.util.Throttle;
 
 /**
  * Oracle-specific SQL formatting overrides default ExportOutputFormat's.
@@ -34,13 +33,9 @@ public class OracleExportOutputFormat<K extends SqoopRecord, V>
 
   @Override
   /** {@inheritDoc} */
-  public RecordWriter<K, V> getRecordWriter(TaskAttemptContext context) 
-      throws IOException {
-    try {
-      return new OracleExportRecordWriter(context);
-    } catch (Exception e) {
-      throw new IOException(e);
-    }
+  protected ExportRecordWriter newRecordWriter(TaskAttemptContext context,
+      Throttle throttle) throws ClassNotFoundException, SQLException {
+    return new OracleExportRecordWriter(context, throttle);
   }
 
   /**
@@ -54,6 +49,11 @@ public class OracleExportOutputFormat<K extends SqoopRecord, V>
       super(context);
     }
 
+    public OracleExportRecordWriter(TaskAttemptContext context,
+        Throttle throttle) throws ClassNotFoundException, SQLException {
+      super(context, throttle);
+    }
+
     @Override
     /**
      * @return an INSERT statement suitable for inserting 'numRows' rows.
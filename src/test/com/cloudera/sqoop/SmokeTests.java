@@ -21,18 +21,23 @@ package com.cloudera.sqoop;
 import com.cloudera.sqoop.hive.TestHiveImport;
 import com.cloudera.sqoop.hive.TestTableDefWriter;
 import com.cloudera.sqoop.io.TestLobFile;
+import com.cloudera.sqoop.io.TestLobFileInputFormat;
+import com.cloudera.sqoop.io.TestLobReaderCache;
 import com.cloudera.sqoop.io.TestSplittableBufferedWriter;
 import com.cloudera.sqoop.lib.TestFieldFormatter;
 import com.cloudera.sqoop.lib.TestRecordParser;
 import com.cloudera.sqoop.lib.TestBlobRef;
 import com.cloudera.sqoop.lib.TestClobRef;
 import com.cloudera.sqoop.lib.TestLargeObjectLoader;
+import com.cloudera.sqoop.manager.TestDirectPostgresqlManager;
 import com.cloudera.sqoop.manager.TestHsqldbManager;
 import com.cloudera.sqoop.manager.TestSqlManager;
 import com.cloudera.sqoop.mapreduce.MapreduceTests;
 import com.cloudera.sqoop.orm.TestClassWriter;
 import com.cloudera.sqoop.orm.TestParseMethods;
 import com.cloudera.sqoop.util.TestDirectImportUtils;
+import com.cloudera.sqoop.util.TestMetricsRegistry;
+import com.cloudera.sqoop.util.TestThrottle;
 
 import junit.framework.Test;
 import junit.framework.TestSuite;
@@ -48,6 +53,7 @@ public final class SmokeTests {
     TestSuite suite = new TestSuite("Smoke tests for com.cloudera.sqoop");
 
     suite.addTestSuite(TestAllTables.class);
+    suite.addTestSuite(TestDirectPostgresqlManager.class);
     suite.addTestSuite(TestHsqldbManager.class);
     suite.addTestSuite(TestSqlManager.class);
     suite.addTestSuite(TestClassWriter.class);
@@ -71,7 +77,11 @@ public final class SmokeTests {
     suite.addTestSuite(TestClobRef.class);
     suite.addTestSuite(TestLargeObjectLoader.class);
     suite.addTestSuite(TestDirectImportUtils.class);
+    suite.addTestSuite(TestThrottle.class);
+    suite.addTestSuite(TestMetricsRegistry.class);
     suite.addTestSuite(TestLobFile.class);
+    suite.addTestSuite(TestLobFileInputFormat.class);
+    suite.addTestSuite(TestLobReaderCache.class);
     suite.addTest(MapreduceTests.suite());
 
     return suite;
@@ -45,6 +45,7 @@ import org.apache.hadoop.util.ReflectionUtils;
 
 import com.cloudera.sqoop.lib.RecordParser;
 import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.mapreduce.ExportOutputFormat;
 import com.cloudera.sqoop.testutil.ExportJobTestCase;
 import com.cloudera.sqoop.tool.CodeGenTool;
 import com.cloudera.sqoop.util.ClassLoaderStack;
@@ -484,6 +485,32 @@ public class TestExport extends ExportJobTestCase {
     verifyExport(TOTAL_RECORDS);
   }
 
+  /**
+   * Bind each record into a batch as it arrives, with a final partial
+   * batch and several transactions.
+   */
+  public void testBindImmediately() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 25;
+    createTextFile(0, TOTAL_RECORDS, false);
+    createTable();
+    runExport(getArgv(true, 10, 2, "-D",
+        ExportOutputFormat.BIND_IMMEDIATELY_KEY + "=true"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
+  /**
+   * Write through several connections from one task, partitioning the
+   * rows by primary key.
+   */
+  public void testMultiConnectionExport() throws IOException, SQLException {
+    final int TOTAL_RECORDS = 50;
+    createTextFile(0, TOTAL_RECORDS, false);
+    createTable();
+    runExport(getArgv(true, 10, 10, "-D",
+        ExportOutputFormat.WRITER_CONNECTIONS_KEY + "=3"));
+    verifyExport(TOTAL_RECORDS);
+  }
+
   /** Run 2 mappers, make sure all records load in correctly. */
   public void testMultiMapTextExport() throws IOException, SQLException {
 
@@ -501,6 +528,23 @@ public class TestExport extends ExportJobTestCase {
 
   /** Export some rows from a SequenceFile, make sure they import correctly. */
   public void testSequenceFileExport() throws Exception {
+    sequenceFileTest(false);
+  }
+
+  /**
+   * Export rows from a directory holding both a SequenceFile and a text
+   * file; the text file's lines are parsed into records.
+   */
+  public void testMixedFormatExport() throws Exception {
+    sequenceFileTest(true);
+  }
+
+  /**
+   * Export 10 rows from a SequenceFile.
+   * @param withTextFile if true, also export 10 rows from a text file in
+   * the same directory.
+   */
+  private void sequenceFileTest(boolean withTextFile) throws Exception {
 
     final int TOTAL_RECORDS = 10;
 
@@ -551,12 +595,17 @@ public class TestExport extends ExportJobTestCase {
       // Now use this class and jar name to create a sequence file.
       LOG.info("Writing data to SequenceFiles");
       createSequenceFile(0, TOTAL_RECORDS, className);
+      int expectedRecords = TOTAL_RECORDS;
+      if (withTextFile) {
+        createTextFile(1, TOTAL_RECORDS, false);
+        expectedRecords += TOTAL_RECORDS;
+      }
 
       // Now run and verify the export.
       LOG.info("Exporting SequenceFile-based data");
       runExport(getArgv(true, 10, 10, "--class-name", className,
           "--jar-file", jarFileName));
-      verifyExport(TOTAL_RECORDS);
+      verifyExport(expectedRecords);
     } finally {
       if (null != prevClassLoader) {
         ClassLoaderStack.setCurrentClassLoader(prevClassLoader);
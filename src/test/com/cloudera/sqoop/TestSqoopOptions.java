@@ -234,4 +234,50 @@ public class TestSqoopOptions extends TestCase {
     SqoopOptions opts = parse(args);
     assertEquals(4, opts.getNumMappers());
   }
+
+  public void testFetchSize() throws Exception {
+    SqoopOptions opts = parse(new String[0]);
+    assertNull(opts.getFetchSize());
+
+    String [] args = {
+      "--fetch-size",
+      "1000",
+    };
+
+    opts = parse(args);
+    assertEquals(Integer.valueOf(1000), opts.getFetchSize());
+
+    // 0 leaves the fetch size to the driver.
+    args[1] = "0";
+    opts = parse(args);
+    assertEquals(Integer.valueOf(0), opts.getFetchSize());
+  }
+
+  public void testNegativeFetchSize() throws Exception {
+    String [] args = {
+      "--fetch-size",
+      "-1",
+    };
+
+    try {
+      parse(args);
+      fail("Expected InvalidOptionsException");
+    } catch (SqoopOptions.InvalidOptionsException ioe) {
+      // expected.
+    }
+  }
+
+  public void testBadFetchSize() throws Exception {
+    String [] args = {
+      "--fetch-size",
+      "x",
+    };
+
+    try {
+      parse(args);
+      fail("Expected InvalidOptionsException");
+    } catch (SqoopOptions.InvalidOptionsException ioe) {
+      // expected.
+    }
+  }
 }
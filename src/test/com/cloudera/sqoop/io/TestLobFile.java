@@ -22,18 +22,29 @@ import java.io.BufferedReader;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
 
 import junit.framework.TestCase;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.hadoop.io.compress.CompressionCodec;
+import org.apache.hadoop.io.compress.DecompressorStream;
+import org.apache.hadoop.io.compress.DefaultCodec;
+import org.apache.hadoop.util.ReflectionUtils;
 
 /**
  * Test the LobFile reader/writer implementation.
@@ -432,6 +443,84 @@ public class TestLobFile extends TestCase {
     reader.close();
   }
 
+  public void testRandomSeeks() throws Exception {
+    // Seek around a file with many IndexSegments in a random order.
+    Path p = new Path(TEMP_BASE_DIR, "randomseeks.lob");
+
+    String [] records = new String[101];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = "record number " + i;
+    }
+
+    long [] offsets = writeClobFile(p, null, records);
+    LobFile.Reader reader = LobFile.open(p, conf);
+
+    Random rand = new Random(42);
+    for (int i = 0; i < 500; i++) {
+      int recNum = rand.nextInt(records.length);
+      if (rand.nextBoolean()) {
+        reader.seek(offsets[recNum]);
+      } else {
+        // Seeking into the previous record finds the next record start.
+        reader.seek(offsets[recNum] - 1);
+      }
+      assertTrue(reader.next());
+      assertEquals(offsets[recNum], reader.getRecordOffset());
+      verifyNextRecordBody(reader, records[recNum]);
+    }
+
+    reader.close();
+  }
+
+  public void testRecordRanges() throws Exception {
+    // Every record should be read from exactly one range.
+    Path p = new Path(TEMP_BASE_DIR, "ranges.lob");
+
+    String [] records = new String[37];
+    for (int i = 0; i < records.length; i++) {
+      records[i] = "range record " + i;
+    }
+
+    writeClobFile(p, null, records);
+    LobFile.Reader reader = LobFile.open(p, conf);
+    assertTrue(reader.isCharData());
+
+    for (int maxRanges : new int [] { 1, 3, 10, 100 }) {
+      List<LobFile.RecordRange> ranges = reader.getRecordRanges(maxRanges);
+      assertTrue(ranges.size() <= maxRanges);
+      assertTrue(ranges.size() > 0);
+
+      int recNum = 0;
+      for (LobFile.RecordRange range : ranges) {
+        assertEquals(recNum, range.getFirstEntryId());
+        reader.seek(range.getStartOffset());
+        while (reader.next() && range.contains(reader.getRecordOffset())) {
+          assertEquals(recNum, reader.getRecordId());
+          verifyNextRecordBody(reader, records[recNum++]);
+        }
+      }
+      assertEquals(records.length, recNum);
+    }
+
+    reader.close();
+
+    // An empty file has no ranges.
+    p = new Path(TEMP_BASE_DIR, "emptyranges.lob");
+    writeClobFile(p, null);
+    reader = LobFile.open(p, conf);
+    assertEquals(0, reader.getRecordRanges(4).size());
+    reader.close();
+  }
+
+  /** Verifies the body of the record the reader is aligned on. */
+  private void verifyNextRecordBody(LobFile.Reader reader,
+      String expectedRecord) throws Exception {
+    Reader r = reader.readClobRecord();
+    BufferedReader br = new BufferedReader(r);
+    assertEquals(expectedRecord, br.readLine());
+    br.close();
+  }
+
   /**
    * Verifies that a record to be read from a lob file has
    * as many bytes as we expect, and that the bytes are what we
@@ -544,6 +633,53 @@ public class TestLobFile extends TestCase {
     verifyBlobRecords(p, NUM_RECORDS, DECLARED_RECORD_LEN, ACTUAL_RECORD_LEN);
   }
 
+  /**
+   * Write NUM_RECORDS binary records of the given length and read them
+   * back through readBlobRecordBuffer().
+   */
+  private void runBlobBufferTest(String codec, long mmapThreshold)
+      throws Exception {
+    final long RECORD_LEN = 100;
+    final int NUM_RECORDS = 5;
+    conf.setLong(LobFile.MMAP_THRESHOLD_KEY, mmapThreshold);
+    Path p = new Path(TEMP_BASE_DIR, "buffer.lob");
+    LobFile.Writer writer = LobFile.create(p, conf, false, codec);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      writeBlobRecord(writer, RECORD_LEN, RECORD_LEN, i);
+    }
+    writer.close();
+
+    LobFile.Reader reader = LobFile.open(p, conf);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      assertTrue(reader.next());
+      ByteBuffer buf = reader.readBlobRecordBuffer();
+      assertEquals(RECORD_LEN, buf.remaining());
+      for (int j = 0; j < RECORD_LEN; j++) {
+        assertEquals(j + i, (int) buf.get());
+      }
+    }
+    assertFalse(reader.next());
+
+    // Seek back and read a record without calling next() first.
+    reader.seek(0);
+    ByteBuffer buf = reader.readBlobRecordBuffer();
+    assertEquals(RECORD_LEN, buf.remaining());
+    assertEquals(0, (int) buf.get(0));
+    reader.close();
+  }
+
+  public void testMappedBlobBuffer() throws Exception {
+    runBlobBufferTest(null, 0);
+  }
+
+  public void testPositionalBlobBuffer() throws Exception {
+    runBlobBufferTest(null, -1);
+  }
+
+  public void testCompressedBlobBuffer() throws Exception {
+    runBlobBufferTest(CodecMap.DEFLATE, 0);
+  }
+
   private void runCompressedTest(String codec) throws Exception {
     LOG.info("Testing with codec: " + codec);
     Path p = new Path(TEMP_BASE_DIR, "compressed-" + codec + ".lob");
@@ -556,6 +692,113 @@ public class TestLobFile extends TestCase {
     runClobFileTest(p, codec, records);
   }
 
+  public void testCompressionLevel() throws Exception {
+    conf.setInt(LobFile.COMPRESSION_LEVEL_KEY, 1);
+    runCompressedTest(CodecMap.DEFLATE);
+  }
+
+  public void testDeflateRecordFraming() throws Exception {
+    // Deflate records must stay plain CompressorStream output, which is
+    // how existing LobFiles were written. Decode each record by hand the
+    // way older readers did.
+    Path p = new Path(TEMP_BASE_DIR, "framing.lob");
+    String [] records = {
+      "the first record, the first record, the first record",
+      "and the second and the second and the second",
+    };
+    long [] offsets = writeClobFile(p, CodecMap.DEFLATE, records);
+
+    CompressionCodec codec = ReflectionUtils.newInstance(DefaultCodec.class,
+        conf);
+    FSDataInputStream in = fs.open(p);
+    try {
+      for (int i = 0; i < records.length; i++) {
+        // Skip the 16-byte RecordStartMark, entryId and claimed length.
+        in.seek(offsets[i] + 16);
+        assertEquals(i, WritableUtils.readVLong(in));
+        assertEquals(records[i].length(), WritableUtils.readVLong(in));
+
+        InputStream is = new DecompressorStream(in,
+            codec.createDecompressor());
+        BufferedReader r = new BufferedReader(new InputStreamReader(is));
+        assertEquals(records[i], r.readLine());
+      }
+    } finally {
+      in.close();
+    }
+
+    fs.delete(p, false);
+  }
+
+  public void testCodecClassName() throws Exception {
+    runCompressedTest("org.apache.hadoop.io.compress.DefaultCodec");
+  }
+
+  public void testAdaptiveCompression() throws Exception {
+    // Write compressible and incompressible records, both larger and
+    // smaller than the sample used to choose whether to compress.
+    conf.setBoolean(LobFile.ADAPTIVE_COMPRESSION_KEY, true);
+    Random rand = new Random(7);
+    byte [][] records = new byte[4][];
+    records[0] = new byte[200 * 1024]; // all zeros.
+    records[1] = new byte[100 * 1024];
+    rand.nextBytes(records[1]);
+    records[2] = new byte[1000];
+    records[3] = new byte[1000];
+    rand.nextBytes(records[3]);
+
+    Path p = new Path(TEMP_BASE_DIR, "adaptive.lob");
+    LobFile.Writer writer = LobFile.create(p, conf, false, CodecMap.DEFLATE);
+    long [] offsets = new long[records.length + 1];
+    for (int i = 0; i < records.length; i++) {
+      offsets[i] = writer.tell();
+      OutputStream os = writer.writeBlobRecord(records[i].length);
+      os.write(records[i]);
+      os.close();
+      writer.finishRecord();
+    }
+    offsets[records.length] = writer.tell();
+    writer.close();
+
+    // Compressible records shrink; random ones are stored as-is.
+    for (int i = 0; i < records.length; i++) {
+      long storedLen = offsets[i + 1] - offsets[i];
+      if (i % 2 == 0) {
+        assertTrue("Record " + i + " not compressed",
+            storedLen < records[i].length / 2);
+      } else {
+        assertTrue("Record " + i + " grew to " + storedLen,
+            storedLen < records[i].length + 32);
+      }
+    }
+
+    // Read it back both as streams and as buffers.
+    LobFile.Reader reader = LobFile.open(p, conf);
+    for (int i = 0; i < records.length; i++) {
+      assertTrue(reader.next());
+      InputStream is = reader.readBlobRecord();
+      byte [] buf = new byte[records[i].length];
+      int pos = 0;
+      while (pos < buf.length) {
+        int bytesRead = is.read(buf, pos, buf.length - pos);
+        assertTrue(bytesRead > 0);
+        pos += bytesRead;
+      }
+      assertEquals(-1, is.read());
+      assertTrue(Arrays.equals(records[i], buf));
+    }
+    assertFalse(reader.next());
+
+    reader.seek(0);
+    for (int i = 0; i < records.length; i++) {
+      ByteBuffer buf = reader.readBlobRecordBuffer();
+      byte [] bytes = new byte[buf.remaining()];
+      buf.get(bytes);
+      assertTrue(Arrays.equals(records[i], bytes));
+    }
+    reader.close();
+  }
+
   public void testCompressedFile() throws Exception {
     // Test all the various compression codecs.
 
@@ -574,5 +817,25 @@ public class TestLobFile extends TestCase {
       LOG.info("Got unsupported codec exception for lzo; expected -- good.");
     }
   }
+
+  public void testCodecClassNames() throws Exception {
+    // A CompressionCodec may be named by its class.
+    assertNotNull(CodecMap.getCodec(
+        "org.apache.hadoop.io.compress.DefaultCodec", conf));
+
+    try {
+      CodecMap.getCodec("java.lang.String", conf);
+      fail("Expected unsupported codec exception for a non-codec class");
+    } catch (UnsupportedCodecException uce) {
+      // Expected.
+    }
+
+    try {
+      CodecMap.getCodec("com.example.NoSuchCodec", conf);
+      fail("Expected unsupported codec exception for a missing class");
+    } catch (UnsupportedCodecException uce) {
+      // Expected.
+    }
+  }
 }
 
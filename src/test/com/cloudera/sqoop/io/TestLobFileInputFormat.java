@@ -0,0 +1,155 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.io;
+
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.mapreduce.InputSplit;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.RecordReader;
+import org.apache.hadoop.mapreduce.lib.input.FileInputFormat;
+
+import com.cloudera.sqoop.lib.BlobRef;
+import com.cloudera.sqoop.lib.ClobRef;
+import com.cloudera.sqoop.lib.LobRef;
+import com.cloudera.sqoop.mapreduce.LobFileInputFormat;
+import com.cloudera.sqoop.shims.HadoopShim;
+
+/**
+ * Test that LobFileInputFormat divides a LobFile into splits which
+ * together yield each record exactly once.
+ */
+public class TestLobFileInputFormat extends TestCase {
+
+  private static final int NUM_RECORDS = 30;
+
+  private Configuration conf;
+  private FileSystem fs;
+  private Path lobFile;
+
+  // The offset and length of each record written.
+  private long [] offsets;
+  private long [] lengths;
+
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+    fs = FileSystem.getLocal(conf);
+    fs.mkdirs(TestLobFile.TEMP_BASE_DIR);
+    lobFile = new Path(TestLobFile.TEMP_BASE_DIR, "inputformat.lob");
+    if (fs.exists(lobFile)) {
+      fs.delete(lobFile, false);
+    }
+  }
+
+  private void writeFile(boolean isCharData) throws Exception {
+    offsets = new long[NUM_RECORDS];
+    lengths = new long[NUM_RECORDS];
+
+    // Four entries per index segment, so the file can be split between
+    // any two segments.
+    LobFile.Writer writer = LobFile.create(lobFile, conf, isCharData, null,
+        4);
+    for (int i = 0; i < NUM_RECORDS; i++) {
+      String record = "record " + i + " of the test file";
+      offsets[i] = writer.tell();
+      lengths[i] = record.length();
+      if (isCharData) {
+        Writer w = writer.writeClobRecord(record.length());
+        w.write(record);
+        w.close();
+      } else {
+        OutputStream os = writer.writeBlobRecord(record.length());
+        os.write(record.getBytes("UTF-8"));
+        os.close();
+      }
+    }
+    writer.close();
+  }
+
+  /**
+   * Read every split of the file, checking that the records come back in
+   * order with the right offsets and lengths.
+   * @return the number of splits.
+   */
+  private int readSplits(Class<? extends LobRef> expectedClass)
+      throws Exception {
+    Job job = new Job(conf);
+    FileInputFormat.addInputPath(job, lobFile);
+    // Ask for splits of about a fifth of the file.
+    FileInputFormat.setMaxInputSplitSize(job,
+        fs.getFileStatus(lobFile).getLen() / 5);
+
+    LobFileInputFormat inputFormat = new LobFileInputFormat();
+    List<InputSplit> splits = inputFormat.getSplits(job);
+    MapContext context = HadoopShim.get().getMapContextForIOPath(
+        job.getConfiguration(), TestLobFile.TEMP_BASE_DIR);
+
+    int nextRecord = 0;
+    for (InputSplit split : splits) {
+      RecordReader<LongWritable, LobRef<?, ?, ?>> reader =
+          inputFormat.createRecordReader(split, context);
+      reader.initialize(split, context);
+      try {
+        while (reader.nextKeyValue()) {
+          assertTrue("Too many records", nextRecord < NUM_RECORDS);
+          assertEquals(nextRecord, reader.getCurrentKey().get());
+          LobRef<?, ?, ?> ref = reader.getCurrentValue();
+          assertTrue(expectedClass.isInstance(ref));
+          assertEquals(lobFile.getName(), ref.getFileName());
+          assertEquals(offsets[nextRecord], ref.getOffset());
+          assertEquals(lengths[nextRecord], ref.getLength());
+          nextRecord++;
+        }
+      } finally {
+        reader.close();
+      }
+    }
+
+    assertEquals(NUM_RECORDS, nextRecord);
+    return splits.size();
+  }
+
+  public void testClobSplits() throws Exception {
+    writeFile(true);
+    assertTrue("Expected more than one split", readSplits(ClobRef.class) > 1);
+  }
+
+  public void testBlobSplits() throws Exception {
+    writeFile(false);
+    assertTrue("Expected more than one split", readSplits(BlobRef.class) > 1);
+  }
+
+  public void testSingleSplit() throws Exception {
+    writeFile(true);
+    Job job = new Job(conf);
+    FileInputFormat.addInputPath(job, lobFile);
+    assertEquals(1, new LobFileInputFormat().getSplits(job).size());
+  }
+}
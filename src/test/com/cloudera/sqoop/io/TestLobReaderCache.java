@@ -0,0 +1,145 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.io;
+
+import java.io.File;
+import java.io.OutputStream;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Test the pooling and eviction behavior of LobReaderCache.
+ */
+public class TestLobReaderCache extends TestCase {
+
+  public static final Path TEMP_BASE_DIR;
+
+  static {
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    if (!tmpDir.endsWith(File.separator)) {
+      tmpDir = tmpDir + File.separator;
+    }
+
+    TEMP_BASE_DIR = new Path(new Path(tmpDir), "lobcachetest");
+  }
+
+  private Configuration conf;
+  private LobReaderCache cache;
+
+  public void setUp() throws Exception {
+    conf = new Configuration();
+    conf.set("fs.default.name", "file:///");
+
+    FileSystem fs = FileSystem.getLocal(conf);
+    fs.mkdirs(TEMP_BASE_DIR);
+    cache = new LobReaderCache();
+  }
+
+  public void tearDown() throws Exception {
+    cache.clear();
+  }
+
+  private Path writeBlobFile(String name) throws Exception {
+    Path p = new Path(TEMP_BASE_DIR, name);
+    LobFile.Writer writer = LobFile.create(p, conf, false);
+    OutputStream os = writer.writeBlobRecord(3);
+    os.write(new byte[] { 1, 2, 3 });
+    os.close();
+    writer.close();
+    return p;
+  }
+
+  public void testConcurrentReadersSamePath() throws Exception {
+    Path p = writeBlobFile("samePath.lob");
+
+    LobFile.Reader r1 = cache.get(p, conf);
+    LobFile.Reader r2 = cache.get(p, conf);
+    assertNotSame(r1, r2);
+    assertEquals(2, cache.getMisses());
+
+    // Both readers should be pooled rather than one being closed.
+    cache.recycle(r1);
+    cache.recycle(r2);
+    assertFalse(r1.isClosed());
+    assertFalse(r2.isClosed());
+    assertEquals(2, cache.size());
+
+    // The most recently returned reader is handed out first.
+    assertSame(r2, cache.get(p, conf));
+    assertSame(r1, cache.get(p, conf));
+    assertEquals(2, cache.getHits());
+    assertEquals(0, cache.size());
+    r1.close();
+    r2.close();
+  }
+
+  public void testPerPathLimit() throws Exception {
+    conf.setInt(LobReaderCache.MAX_READERS_PER_PATH_KEY, 1);
+    Path p = writeBlobFile("perPath.lob");
+
+    LobFile.Reader r1 = cache.get(p, conf);
+    LobFile.Reader r2 = cache.get(p, conf);
+    cache.recycle(r1);
+    cache.recycle(r2);
+    assertFalse(r1.isClosed());
+    assertTrue(r2.isClosed());
+    assertEquals(1, cache.size());
+  }
+
+  public void testLruEviction() throws Exception {
+    conf.setInt(LobReaderCache.MAX_CACHED_READERS_KEY, 2);
+    Path p1 = writeBlobFile("lru1.lob");
+    Path p2 = writeBlobFile("lru2.lob");
+    Path p3 = writeBlobFile("lru3.lob");
+
+    LobFile.Reader r1 = cache.get(p1, conf);
+    LobFile.Reader r2 = cache.get(p2, conf);
+    LobFile.Reader r3 = cache.get(p3, conf);
+    cache.recycle(r1);
+    cache.recycle(r2);
+    cache.recycle(r3);
+
+    // r1 was returned first, so it should have been evicted.
+    assertTrue(r1.isClosed());
+    assertFalse(r2.isClosed());
+    assertFalse(r3.isClosed());
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictions());
+  }
+
+  public void testIdleEviction() throws Exception {
+    conf.setLong(LobReaderCache.MAX_IDLE_MILLIS_KEY, 1);
+    Path p1 = writeBlobFile("idle1.lob");
+    Path p2 = writeBlobFile("idle2.lob");
+
+    LobFile.Reader r1 = cache.get(p1, conf);
+    LobFile.Reader r2 = cache.get(p2, conf);
+    cache.recycle(r1);
+    Thread.sleep(20);
+    cache.recycle(r2);
+
+    assertTrue(r1.isClosed());
+    assertFalse(r2.isClosed());
+    assertEquals(1, cache.size());
+  }
+}
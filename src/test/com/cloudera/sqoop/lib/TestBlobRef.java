@@ -19,6 +19,7 @@
 package com.cloudera.sqoop.lib;
 
 import java.io.*;
+import java.nio.ByteBuffer;
 
 import junit.framework.TestCase;
 
@@ -67,6 +68,37 @@ public class TestBlobRef extends TestCase {
     assertFalse(r.isExternal());
   }
 
+  public void testInlineBuffer() throws IOException {
+    final byte [] DATA = { 1, 2, 3, 4, 5 };
+    BlobRef r = new BlobRef(DATA);
+    ByteBuffer buf = r.getDataBuffer(new Configuration(), null);
+    assertTrue(buf.isReadOnly());
+    assertEquals(DATA.length, buf.remaining());
+    for (int i = 0; i < DATA.length; i++) {
+      assertEquals(DATA[i], buf.get());
+    }
+  }
+
+  public void testCloneCopyOnWrite() throws Exception {
+    final byte [] DATA = { 1, 2, 3, 4, 5 };
+    BlobRef orig = new BlobRef(DATA);
+    BlobRef copy = (BlobRef) orig.clone();
+
+    // Modifying the clone's data must not affect the original.
+    copy.getData()[0] = 42;
+    assertEquals(1, orig.getData()[0]);
+    assertEquals(42, copy.getData()[0]);
+
+    // Neither must deserializing new data into a clone.
+    BlobRef copy2 = (BlobRef) orig.clone();
+    ByteArrayOutputStream baos = new ByteArrayOutputStream();
+    new BlobRef(new byte[] { 9, 9, 9 }).write(new DataOutputStream(baos));
+    copy2.readFields(new DataInputStream(
+        new ByteArrayInputStream(baos.toByteArray())));
+    assertEquals(9, copy2.getData()[0]);
+    assertEquals(1, orig.getData()[0]);
+  }
+
   public void testExternal() throws IOException {
     final byte [] DATA = { 1, 2, 3, 4, 5 };
     final String FILENAME = "blobdata";
@@ -132,6 +164,13 @@ public class TestBlobRef extends TestCase {
       for (int i = 0; i < bytes; i++) {
         assertEquals(data[i], buf[i]);
       }
+
+      ByteBuffer dataBuf = blob.getDataBuffer(conf, tmpPath);
+      assertEquals(data.length, dataBuf.remaining());
+      for (int i = 0; i < data.length; i++) {
+        assertEquals(data[i], dataBuf.get());
+      }
+      blob.close();
     } finally {
       fs.delete(blobFile, false);
     }
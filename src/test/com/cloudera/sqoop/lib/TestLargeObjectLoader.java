@@ -121,5 +121,67 @@ public class TestLargeObjectLoader extends TestCase {
       assertEquals(blobData[i], buf[i]);
     }
   }
-}
 
+  public void testAsyncBlobRefs()
+      throws IOException, InterruptedException, SQLException {
+    conf.setLong(LargeObjectLoader.MAX_INLINE_LOB_LEN_KEY, 4);
+    conf.setInt(LargeObjectLoader.LOB_WRITER_THREADS_KEY, 2);
+    conf.setInt(LargeObjectLoader.LOB_WRITER_QUEUE_LEN_KEY, 1);
+    ResultSet resultSet = new MockResultSet();
+    BlobRef [] blobs = new BlobRef[10];
+    for (int i = 0; i < blobs.length; i++) {
+      blobs[i] = loader.readBlobRef(0, resultSet);
+      assertNotNull(blobs[i]);
+      assertTrue(blobs[i].isExternal());
+    }
+    loader.close();
+    mapContext.getOutputCommitter().commitTask(mapContext);
+
+    for (BlobRef blob : blobs) {
+      verifyBlobRef(blob);
+    }
+  }
+
+  public void testLobFileRotation()
+      throws IOException, InterruptedException, SQLException {
+    conf.setLong(LargeObjectLoader.MAX_INLINE_LOB_LEN_KEY, 4);
+    conf.setLong(LargeObjectLoader.LOB_FILE_MAX_RECORDS_KEY, 2);
+    ResultSet resultSet = new MockResultSet();
+    BlobRef [] blobs = new BlobRef[5];
+    for (int i = 0; i < blobs.length; i++) {
+      blobs[i] = loader.readBlobRef(0, resultSet);
+    }
+
+    // Now the same thing through a background writer.
+    conf.setInt(LargeObjectLoader.LOB_WRITER_THREADS_KEY, 1);
+    BlobRef [] asyncBlobs = new BlobRef[5];
+    for (int i = 0; i < asyncBlobs.length; i++) {
+      asyncBlobs[i] = loader.readBlobRef(0, resultSet);
+    }
+    loader.close();
+    mapContext.getOutputCommitter().commitTask(mapContext);
+
+    for (BlobRef [] refs : new BlobRef[][] { blobs, asyncBlobs }) {
+      assertEquals(refs[0].getFileName(), refs[1].getFileName());
+      assertFalse(refs[1].getFileName().equals(refs[2].getFileName()));
+      assertEquals(refs[2].getFileName(), refs[3].getFileName());
+      assertFalse(refs[3].getFileName().equals(refs[4].getFileName()));
+      for (BlobRef blob : refs) {
+        verifyBlobRef(blob);
+      }
+    }
+  }
+
+  private void verifyBlobRef(BlobRef blob) throws IOException {
+    byte [] blobData = MockResultSet.blobData();
+    InputStream is = blob.getDataStream(conf, outDir);
+    byte [] buf = new byte[4096];
+    int bytes = is.read(buf, 0, 4096);
+    is.close();
+
+    assertEquals(blobData.length, bytes);
+    for (int i = 0; i < bytes; i++) {
+      assertEquals(blobData[i], buf[i]);
+    }
+  }
+}
@@ -145,4 +145,21 @@ public class DirectMySQLExportTest extends TestExport {
     multiFileTest(1, 20, 1,
         "-D", MySQLExportMapper.MYSQL_CHECKPOINT_BYTES_KEY + "=10");
   }
+
+  /**
+   * Test an export through LOAD DATA LOCAL INFILE rather than mysqlimport.
+   */
+  public void testLoadDataExport() throws IOException, SQLException {
+    multiFileTest(2, 10, 2,
+        "-D", MySQLExportMapper.MYSQL_EXPORT_LOAD_DATA_KEY + "=true");
+  }
+
+  /**
+   * Test several LOAD DATA transactions run serially by a single mapper.
+   */
+  public void testLoadDataMultiTxExport() throws IOException, SQLException {
+    multiFileTest(1, 20, 1,
+        "-D", MySQLExportMapper.MYSQL_EXPORT_LOAD_DATA_KEY + "=true",
+        "-D", MySQLExportMapper.MYSQL_CHECKPOINT_BYTES_KEY + "=10");
+  }
 }
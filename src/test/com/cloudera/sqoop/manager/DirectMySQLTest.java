@@ -144,11 +144,18 @@ public class DirectMySQLTest extends ImportJobTestCase {
     }
   }
 
+  // If true, direct imports stream rows through JDBC instead of mysqldump.
+  private boolean streaming;
+
   private String [] getArgv(boolean mysqlOutputDelims, boolean isDirect,
       String tableName, String... extraArgs) {
     ArrayList<String> args = new ArrayList<String>();
 
     CommonArgs.addHadoopFlags(args);
+    if (streaming) {
+      args.add("-D");
+      args.add(MySQLUtils.STREAMING_IMPORT_KEY + "=true");
+    }
 
     args.add("--table");
     args.add(tableName);
@@ -287,6 +294,30 @@ public class DirectMySQLTest extends ImportJobTestCase {
     doImport(false, true, getTableName(), expectedResults, extraArgs);
   }
 
+  @Test
+  public void testStreamingImport() throws IOException {
+    // Values are read through JDBC, so are formatted as by a JDBC import.
+    String [] expectedResults = {
+      "2,Bob,2009-04-20,400.0,sales",
+      "3,Fred,2009-01-23,15.0,marketing",
+    };
+
+    this.streaming = true;
+    doImport(false, true, getTableName(), expectedResults, null);
+  }
+
+  @Test
+  public void testStreamingColumnSubset() throws IOException {
+    String [] expectedResults = {
+      "2,Bob,400.0",
+      "3,Fred,15.0",
+    };
+
+    String [] extraArgs = { "--columns", "id,name,salary" };
+    this.streaming = true;
+    doImport(false, true, getTableName(), expectedResults, extraArgs);
+  }
+
   @Test
   public void testDirectBulkImportWithMySQLQuotes() throws IOException {
     // mysql quotes all string-based output.
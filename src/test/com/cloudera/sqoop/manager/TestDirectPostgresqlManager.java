@@ -0,0 +1,93 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.manager;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.RecordParser;
+
+/**
+ * Test that the CSV output of a Postgresql COPY is split into records and
+ * fields correctly when values contain escapes and record delimiters.
+ */
+public class TestDirectPostgresqlManager extends TestCase {
+
+  private static final DelimiterSet COPY_DELIMS =
+      new DelimiterSet(',', '\n', '\"', '\\', false);
+
+  private List<String> readFields(StringReader r)
+      throws IOException, RecordParser.ParseError {
+    String rec = DirectPostgresqlManager.PostgresqlRecordSink.readRecord(
+        r, COPY_DELIMS);
+    assertNotNull("Unexpected EOF", rec);
+    return new RecordParser(COPY_DELIMS).parseRecord(rec);
+  }
+
+  public void testBackslashes() throws Exception {
+    // With FORCE QUOTE, COPY escapes backslashes in every value.
+    StringReader r = new StringReader("\"a\\\\b\",\"c\\\\\"\n");
+    List<String> fields = readFields(r);
+    assertEquals(2, fields.size());
+    assertEquals("a\\b", fields.get(0));
+    assertEquals("c\\", fields.get(1));
+    assertNull(DirectPostgresqlManager.PostgresqlRecordSink.readRecord(
+        r, COPY_DELIMS));
+  }
+
+  public void testEmbeddedNewlines() throws Exception {
+    StringReader r = new StringReader(
+        "\"1\",\"first\nsecond\"\n\"2\",\"x\\\"\ny\"\n");
+    List<String> fields = readFields(r);
+    assertEquals(2, fields.size());
+    assertEquals("1", fields.get(0));
+    assertEquals("first\nsecond", fields.get(1));
+
+    fields = readFields(r);
+    assertEquals(2, fields.size());
+    assertEquals("2", fields.get(0));
+    assertEquals("x\"\ny", fields.get(1));
+    assertNull(DirectPostgresqlManager.PostgresqlRecordSink.readRecord(
+        r, COPY_DELIMS));
+  }
+
+  public void testUnquotedNull() throws Exception {
+    // Null values are the only ones COPY leaves unquoted.
+    StringReader r = new StringReader("null,\"null\\\\\"\n");
+    List<String> fields = readFields(r);
+    assertEquals(2, fields.size());
+    assertEquals("null", fields.get(0));
+    assertEquals("null\\", fields.get(1));
+  }
+
+  public void testUnterminatedRecord() throws Exception {
+    StringReader r = new StringReader("\"1\",\"open\n");
+    try {
+      DirectPostgresqlManager.PostgresqlRecordSink.readRecord(r, COPY_DELIMS);
+      fail("Expected IOException for an unterminated field");
+    } catch (IOException ioe) {
+      // expected.
+    }
+  }
+}
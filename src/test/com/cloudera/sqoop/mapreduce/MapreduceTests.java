@@ -32,6 +32,12 @@ public final class MapreduceTests {
     TestSuite suite = new TestSuite(
         "Tests for com.cloudera.sqoop.mapreduce");
     suite.addTestSuite(TestImportJob.class);
+    suite.addTestSuite(TestAdaptiveBatchSizer.class);
+    suite.addTestSuite(TestExportUpdateThread.class);
+    suite.addTestSuite(TestExportCounters.class);
+    suite.addTestSuite(TestExportThrottle.class);
+    suite.addTestSuite(TestExportRecordPool.class);
+    suite.addTestSuite(TestExportSplitPlanner.class);
     return suite;
   }
 }
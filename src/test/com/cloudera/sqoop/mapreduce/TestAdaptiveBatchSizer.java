@@ -0,0 +1,126 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.sql.SQLException;
+
+import junit.framework.TestCase;
+
+/**
+ * Test that AdaptiveBatchSizer adjusts batch sizes within its bounds.
+ */
+public class TestAdaptiveBatchSizer extends TestCase {
+
+  /** Report a full window of statements at the given rows/ms rate. */
+  private void runWindow(AdaptiveBatchSizer sizer, double rowsPerMilli) {
+    int rows = sizer.getRecordsPerStatement();
+    long nanos = (long) (rows / rowsPerMilli * 1000000.0);
+    for (int i = 0; i < AdaptiveBatchSizer.WINDOW_STATEMENTS; i++) {
+      sizer.statementExecuted(rows, nanos);
+    }
+  }
+
+  public void testInitialValuesClamped() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(5000, 10, 500,
+        0, 2, 50);
+    assertEquals(500, sizer.getRecordsPerStatement());
+    assertEquals(2, sizer.getStatementsPerTransaction());
+  }
+
+  public void testGrowsWhileImproving() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000,
+        100, 1, 1000);
+    runWindow(sizer, 10.0);
+    int first = sizer.getRecordsPerStatement();
+    assertTrue(first > 100);
+    runWindow(sizer, 20.0);
+    assertTrue(sizer.getRecordsPerStatement() > first);
+  }
+
+  public void testReversesWhenWorse() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000,
+        100, 1, 1000);
+    runWindow(sizer, 20.0);
+    int grown = sizer.getRecordsPerStatement();
+    runWindow(sizer, 5.0);
+    assertTrue(sizer.getRecordsPerStatement() < grown);
+  }
+
+  public void testUpperBound() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 120,
+        100, 1, 1000);
+    for (int i = 0; i < 10; i++) {
+      runWindow(sizer, 10.0 + i);
+    }
+    assertEquals(120, sizer.getRecordsPerStatement());
+  }
+
+  public void testCommitHeavyGrowsTransactions() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000,
+        10, 1, 1000);
+    sizer.committed(1000000000L);
+    runWindow(sizer, 10.0);
+    assertEquals(20, sizer.getStatementsPerTransaction());
+  }
+
+  public void testUnlimitedTransactionsUnchanged() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 1, 1000,
+        AdaptiveBatchSizer.UNLIMITED, 1, 1000);
+    runWindow(sizer, 10.0);
+    sizer.backoff();
+    assertEquals(AdaptiveBatchSizer.UNLIMITED,
+        sizer.getStatementsPerTransaction());
+  }
+
+  public void testBackoff() {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(100, 30, 1000,
+        100, 1, 1000);
+    sizer.backoff();
+    assertEquals(50, sizer.getRecordsPerStatement());
+    assertEquals(50, sizer.getStatementsPerTransaction());
+    sizer.backoff();
+    assertEquals(30, sizer.getRecordsPerStatement());
+    assertEquals(25, sizer.getStatementsPerTransaction());
+  }
+
+  public void testBackoffErrors() {
+    assertTrue(AdaptiveBatchSizer.isBackoffError(
+        new SQLException("Packet for query is too large (2000 > 1024)")));
+    assertTrue(AdaptiveBatchSizer.isBackoffError(
+        new SQLException("Got a packet bigger than max_allowed_packet",
+        "08S01", 1153)));
+    assertFalse(AdaptiveBatchSizer.isBackoffError(
+        new SQLException("deadlock", "40001")));
+    assertFalse(AdaptiveBatchSizer.isBackoffError(
+        new SQLException("Duplicate entry", "23000", 1062)));
+  }
+
+  public void testRollbackErrors() {
+    assertTrue(AdaptiveBatchSizer.isRollbackError(
+        new SQLException("deadlock", "40001")));
+    assertTrue(AdaptiveBatchSizer.isRollbackError(
+        new SQLException("Deadlock found", "40001", 1213)));
+    assertTrue(AdaptiveBatchSizer.isRollbackError(
+        new SQLException("Lock wait timeout exceeded", "HY000", 1205)));
+    assertTrue(AdaptiveBatchSizer.isRollbackError(
+        new SQLException("could not obtain lock", "55P03")));
+    assertFalse(AdaptiveBatchSizer.isRollbackError(
+        new SQLException("Duplicate entry", "23000", 1062)));
+  }
+}
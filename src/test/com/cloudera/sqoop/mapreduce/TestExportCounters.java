@@ -0,0 +1,144 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.db.DBOutputFormat;
+
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.testutil.MockSqoopRecord;
+import com.cloudera.sqoop.util.MetricsRegistry;
+
+/**
+ * Test that the export RecordWriter publishes its counters through the
+ * mapper's context, rather than the context it was created with.
+ */
+public class TestExportCounters extends TestCase {
+
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String DB_URL = "jdbc:hsqldb:mem:exportcounters";
+  private static final String TABLE_NAME = "COUNTED";
+
+  private Connection conn;
+  private Configuration conf;
+
+  public void setUp() throws ClassNotFoundException, IOException,
+      SQLException {
+    Class.forName(DRIVER_CLASS);
+    conn = DriverManager.getConnection(DB_URL);
+    Statement stmt = conn.createStatement();
+    try {
+      stmt.executeUpdate("CREATE TABLE " + TABLE_NAME + " (ID INT)");
+    } finally {
+      stmt.close();
+    }
+
+    Job job = new Job(new Configuration());
+    conf = job.getConfiguration();
+    DBConfiguration.configureDB(conf, DRIVER_CLASS, DB_URL);
+    DBOutputFormat.setOutput(job, TABLE_NAME, "ID");
+    conf.setInt(ExportOutputFormat.RECORDS_PER_STATEMENT_KEY, 2);
+    conf.setInt(ExportOutputFormat.STATEMENTS_PER_TRANSACTION_KEY, 2);
+  }
+
+  public void tearDown() throws SQLException {
+    TaskCounters.unregister(conf);
+    Statement stmt = conn.createStatement();
+    try {
+      stmt.executeUpdate("DROP TABLE " + TABLE_NAME);
+    } finally {
+      stmt.close();
+      conn.close();
+    }
+  }
+
+  private MapContext newContext(String name) {
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    return HadoopShim.get().getMapContextForIOPath(conf,
+        new Path(new Path(tmpDir), name));
+  }
+
+  private long getCounter(MapContext context, Enum<?> key) {
+    return context.getCounter(key).getValue();
+  }
+
+  private void writeRows(MapContext writerContext, MapContext closeContext,
+      int numRows) throws IOException, InterruptedException {
+    RecordWriter<MockSqoopRecord, NullWritable> writer =
+        new ExportOutputFormat<MockSqoopRecord, NullWritable>()
+        .getRecordWriter(writerContext);
+    for (int i = 0; i < numRows; i++) {
+      writer.write(new MockSqoopRecord(i), NullWritable.get());
+    }
+    writer.close(closeContext);
+  }
+
+  public void testCountersUseMapperContext()
+      throws IOException, InterruptedException {
+    MapContext writerContext = newContext("testExportCountersWriter");
+    MapContext mapperContext = newContext("testExportCountersMapper");
+    TaskCounters.register(mapperContext);
+
+    writeRows(writerContext, writerContext, 10);
+
+    assertEquals(10, getCounter(mapperContext, ExportCounters.ROWS_WRITTEN));
+    assertEquals(5,
+        getCounter(mapperContext, ExportCounters.STATEMENTS_EXECUTED));
+    assertTrue(getCounter(mapperContext, ExportCounters.COMMITS) > 0);
+    assertEquals(0, getCounter(writerContext, ExportCounters.ROWS_WRITTEN));
+
+    // The writer's metrics are published when it is closed. Other tests
+    // share the registry, so their unpublished metrics may be included.
+    assertTrue(mapperContext.getCounter(MetricsRegistry.COUNTER_GROUP,
+        "export.writer.rows").getValue() >= 10);
+    assertTrue(mapperContext.getCounter(MetricsRegistry.COUNTER_GROUP,
+        "export.writer.executeUpdate.count").getValue() >= 5);
+  }
+
+  public void testCountersUseCloseContext()
+      throws IOException, InterruptedException {
+    // With no registered mapper, as after the mapper has finished, the
+    // counters are published through the context the writer is closed
+    // with.
+    MapContext writerContext = newContext("testExportCountersWriter");
+    MapContext closeContext = newContext("testExportCountersClose");
+
+    writeRows(writerContext, closeContext, 3);
+
+    assertEquals(3, getCounter(closeContext, ExportCounters.ROWS_WRITTEN));
+    assertEquals(2,
+        getCounter(closeContext, ExportCounters.STATEMENTS_EXECUTED));
+    assertEquals(0, getCounter(writerContext, ExportCounters.ROWS_WRITTEN));
+  }
+}
@@ -0,0 +1,132 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.testutil.MockSqoopRecord;
+
+/**
+ * Test the borrowing and returning of records in an ExportRecordPool.
+ */
+public class TestExportRecordPool extends TestCase {
+
+  private Configuration conf;
+  private ExportRecordPool pool;
+
+  public void setUp() {
+    conf = new Configuration();
+    conf.set(HadoopShim.get().getTaskIdProperty(),
+        "attempt_test_0001_m_000000_0");
+    pool = ExportRecordPool.get(conf, MockSqoopRecord.class);
+  }
+
+  public void tearDown() {
+    ExportRecordPool.release(conf);
+  }
+
+  public void testReturnUnclaimed() {
+    SqoopRecord record = pool.borrow();
+    assertEquals(0, pool.getNumFree());
+    pool.returnUnclaimed(record);
+    assertEquals(1, pool.getNumFree());
+
+    // The returned instance is lent out again.
+    assertSame(record, pool.borrow());
+    assertEquals(0, pool.getNumFree());
+  }
+
+  public void testClaimAndGiveBack() {
+    SqoopRecord record = pool.borrow();
+    assertTrue(ExportRecordPool.claim(conf, record));
+
+    // Once claimed, the mapper may not return it, nor claim it again.
+    pool.returnUnclaimed(record);
+    assertEquals(0, pool.getNumFree());
+    assertFalse(ExportRecordPool.claim(conf, record));
+
+    SqoopRecord other = pool.borrow();
+    assertNotSame(record, other);
+
+    List<SqoopRecord> bound = new ArrayList<SqoopRecord>();
+    bound.add(record);
+    pool.giveBack(bound);
+    assertEquals(1, pool.getNumFree());
+    assertSame(record, pool.borrow());
+  }
+
+  public void testClaimUnpooledRecord() {
+    pool.borrow();
+    assertFalse(ExportRecordPool.claim(conf, new MockSqoopRecord()));
+  }
+
+  public void testGiveBackIgnoresLentRecord() {
+    SqoopRecord record = pool.borrow();
+    List<SqoopRecord> bound = new ArrayList<SqoopRecord>();
+    bound.add(record);
+    pool.giveBack(bound);
+    assertEquals(0, pool.getNumFree());
+  }
+
+  public void testMaxFree() {
+    ExportRecordPool.release(conf);
+    conf.setInt(ExportRecordPool.POOL_SIZE_KEY, 2);
+    pool = ExportRecordPool.get(conf, MockSqoopRecord.class);
+
+    List<SqoopRecord> bound = new ArrayList<SqoopRecord>();
+    for (int i = 0; i < 5; i++) {
+      SqoopRecord record = pool.borrow();
+      assertTrue(ExportRecordPool.claim(conf, record));
+      bound.add(record);
+    }
+    pool.giveBack(bound);
+    assertEquals(2, pool.getNumFree());
+  }
+
+  public void testPoolsAreScopedToTask() {
+    Configuration otherConf = new Configuration();
+    otherConf.set(HadoopShim.get().getTaskIdProperty(),
+        "attempt_test_0001_m_000001_0");
+    ExportRecordPool otherPool = ExportRecordPool.get(otherConf,
+        MockSqoopRecord.class);
+    try {
+      assertNotSame(pool, otherPool);
+      assertSame(pool, ExportRecordPool.get(conf, MockSqoopRecord.class));
+
+      // A record lent by one task's pool is not claimed from another's.
+      SqoopRecord record = pool.borrow();
+      assertFalse(ExportRecordPool.claim(otherConf, record));
+      assertTrue(ExportRecordPool.claim(conf, record));
+    } finally {
+      ExportRecordPool.release(otherConf);
+    }
+
+    // Once released, a task gets a new pool.
+    ExportRecordPool.release(conf);
+    assertNotSame(pool, ExportRecordPool.get(conf, MockSqoopRecord.class));
+  }
+}
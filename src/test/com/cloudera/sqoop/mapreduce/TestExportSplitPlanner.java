@@ -0,0 +1,133 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Test that ExportSplitPlanner balances chunks by estimated size and
+ * groups them by locality.
+ */
+public class TestExportSplitPlanner extends TestCase {
+
+  private ExportSplitPlanner planner;
+
+  @Override
+  public void setUp() {
+    Configuration conf = new Configuration();
+    conf.setFloat(ExportSplitPlanner.COMPRESSION_RATIO_KEY, 5.0f);
+    planner = new ExportSplitPlanner(conf);
+  }
+
+  private ExportSplitPlanner.Chunk chunk(String name, long bytes,
+      String host, String rack) {
+    Map<String, Long> hosts = new HashMap<String, Long>();
+    Map<String, Long> racks = new HashMap<String, Long>();
+    if (null != host) {
+      hosts.put(host, bytes);
+      racks.put(rack, bytes);
+    }
+    return new ExportSplitPlanner.Chunk(new Path(name), 0, bytes, bytes,
+        false, hosts, racks);
+  }
+
+  public void testEstimatedBytes() {
+    FileStatus gz = new FileStatus(100, false, 1, 64, 0,
+        new Path("file:///tmp/part0.gz"));
+    FileStatus txt = new FileStatus(100, false, 1, 64, 0,
+        new Path("file:///tmp/part1"));
+    assertTrue(planner.isCompressedText(gz.getPath(), false));
+    assertFalse(planner.isCompressedText(gz.getPath(), true));
+    assertFalse(planner.isCompressedText(txt.getPath(), false));
+    assertEquals(500, planner.estimateBytes(gz, false));
+    assertEquals(100, planner.estimateBytes(gz, true));
+    assertEquals(100, planner.estimateBytes(txt, false));
+  }
+
+  public void testBalancesLargestFirst() {
+    List<ExportSplitPlanner.Chunk> chunks =
+        new ArrayList<ExportSplitPlanner.Chunk>();
+    chunks.add(chunk("a", 10, null, null));
+    chunks.add(chunk("b", 100, null, null));
+    chunks.add(chunk("c", 40, null, null));
+    chunks.add(chunk("d", 50, null, null));
+
+    List<ExportSplitPlanner.Bin> bins = planner.pack(chunks, 2, 100);
+    assertEquals(2, bins.size());
+    assertEquals(100, bins.get(0).getEstimatedBytes());
+    assertEquals(1, bins.get(0).getChunks().size());
+    assertEquals(100, bins.get(1).getEstimatedBytes());
+    assertEquals(3, bins.get(1).getChunks().size());
+  }
+
+  public void testOversizedChunkStandsAlone() {
+    List<ExportSplitPlanner.Chunk> chunks =
+        new ArrayList<ExportSplitPlanner.Chunk>();
+    chunks.add(chunk("big.gz", 1000, null, null));
+    for (int i = 0; i < 6; i++) {
+      chunks.add(chunk("small" + i, 10, null, null));
+    }
+
+    List<ExportSplitPlanner.Bin> bins = planner.pack(chunks, 3, 354);
+    assertEquals(3, bins.size());
+    assertEquals(1000, bins.get(0).getEstimatedBytes());
+    assertEquals(1, bins.get(0).getChunks().size());
+    assertEquals(30, bins.get(1).getEstimatedBytes());
+    assertEquals(30, bins.get(2).getEstimatedBytes());
+  }
+
+  public void testPrefersLocalBins() {
+    List<ExportSplitPlanner.Chunk> chunks =
+        new ArrayList<ExportSplitPlanner.Chunk>();
+    chunks.add(chunk("a", 40, "h1", "/r1"));
+    chunks.add(chunk("b", 39, "h2", "/r2"));
+    chunks.add(chunk("c", 38, "h1", "/r1"));
+    chunks.add(chunk("d", 37, "h3", "/r2"));
+
+    List<ExportSplitPlanner.Bin> bins = planner.pack(chunks, 2, 80);
+    assertEquals(2, bins.size());
+    ExportSplitPlanner.Bin first = bins.get(0);
+    ExportSplitPlanner.Bin second = bins.get(1);
+
+    // a and c share host h1; b and d share rack /r2.
+    assertEquals(78, first.getEstimatedBytes());
+    assertEquals("h1", first.getHosts()[0]);
+    assertEquals(1, first.getHosts().length);
+    assertEquals(76, second.getEstimatedBytes());
+    assertEquals(2, second.getHosts().length);
+  }
+
+  public void testReport() {
+    List<ExportSplitPlanner.Chunk> chunks =
+        new ArrayList<ExportSplitPlanner.Chunk>();
+    chunks.add(chunk("a", 10, "h1", "/r1"));
+    String report = ExportSplitPlanner.report(planner.pack(chunks, 4, 3));
+    assertTrue(report, report.startsWith("Planned 1 export splits"));
+    assertTrue(report, report.contains("hosts=[h1]"));
+  }
+}
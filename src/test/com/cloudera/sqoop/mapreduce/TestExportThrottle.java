@@ -0,0 +1,132 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.NullWritable;
+import org.apache.hadoop.mapreduce.Job;
+import org.apache.hadoop.mapreduce.MapContext;
+import org.apache.hadoop.mapreduce.RecordWriter;
+import org.apache.hadoop.mapreduce.lib.db.DBConfiguration;
+import org.apache.hadoop.mapreduce.lib.db.DBOutputFormat;
+
+import com.cloudera.sqoop.shims.HadoopShim;
+import com.cloudera.sqoop.testutil.MockSqoopRecord;
+import com.cloudera.sqoop.util.Throttle;
+
+/**
+ * Test that a task's rate limit holds when it writes through several
+ * connections.
+ */
+public class TestExportThrottle extends TestCase {
+
+  private static final String DRIVER_CLASS = "org.hsqldb.jdbcDriver";
+  private static final String DB_URL = "jdbc:hsqldb:mem:exportthrottle";
+  private static final String TABLE_NAME = "THROTTLED";
+
+  private Connection conn;
+
+  public void setUp() throws ClassNotFoundException, SQLException {
+    Class.forName(DRIVER_CLASS);
+    conn = DriverManager.getConnection(DB_URL);
+    Statement stmt = conn.createStatement();
+    try {
+      stmt.executeUpdate("CREATE TABLE " + TABLE_NAME + " (ID INT)");
+    } finally {
+      stmt.close();
+    }
+  }
+
+  public void tearDown() throws SQLException {
+    Statement stmt = conn.createStatement();
+    try {
+      stmt.executeUpdate("DROP TABLE " + TABLE_NAME);
+    } finally {
+      stmt.close();
+      conn.close();
+    }
+  }
+
+  private int countRows() throws SQLException {
+    Statement stmt = conn.createStatement();
+    try {
+      ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM "
+          + TABLE_NAME);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      stmt.close();
+    }
+  }
+
+  public void testWritersShareThrottle()
+      throws IOException, InterruptedException, SQLException {
+    Job job = new Job(new Configuration());
+    Configuration conf = job.getConfiguration();
+    DBConfiguration.configureDB(conf, DRIVER_CLASS, DB_URL);
+    DBOutputFormat.setOutput(job, TABLE_NAME, "ID");
+    conf.setInt(ExportOutputFormat.WRITER_CONNECTIONS_KEY, 3);
+    conf.setInt(ExportOutputFormat.RECORDS_PER_STATEMENT_KEY, 1);
+    conf.set(Throttle.TASK_ROWS_PER_SEC_KEY, "100");
+
+    String tmpDir = System.getProperty("test.build.data", "/tmp/");
+    MapContext context = HadoopShim.get().getMapContextForIOPath(conf,
+        new Path(new Path(tmpDir), "testExportThrottle"));
+    MapContext mapperContext = HadoopShim.get().getMapContextForIOPath(conf,
+        new Path(new Path(tmpDir), "testExportThrottleMapper"));
+    TaskCounters.register(mapperContext);
+    RecordWriter<MockSqoopRecord, NullWritable> writer =
+        new ExportOutputFormat<MockSqoopRecord, NullWritable>()
+        .getRecordWriter(context);
+
+    // The bucket admits the first 100 rows at once; the next 100 take a
+    // second. If each writer had its own throttle, all 200 rows would
+    // fit within their buckets and no writer would wait.
+    long start = System.currentTimeMillis();
+    for (int i = 0; i < 200; i++) {
+      writer.write(new MockSqoopRecord(i), NullWritable.get());
+    }
+    long elapsed = System.currentTimeMillis() - start;
+    try {
+      writer.close(context);
+    } finally {
+      TaskCounters.unregister(conf);
+    }
+
+    assertTrue("Rows written too fast: " + elapsed + " ms", elapsed >= 900);
+    assertEquals(200, countRows());
+
+    // The waits of all the writers are reported through the mapper.
+    long waitMillis = mapperContext.getCounter(
+        ThrottleCounters.THROTTLE_WAIT_MILLIS).getValue();
+    assertTrue("Throttle wait not counted: " + waitMillis + " ms",
+        waitMillis >= 800);
+  }
+}
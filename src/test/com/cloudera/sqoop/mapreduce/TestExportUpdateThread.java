@@ -0,0 +1,153 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.mapreduce;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import com.cloudera.sqoop.lib.SqoopRecord;
+import com.cloudera.sqoop.testutil.MockSqoopRecord;
+
+/**
+ * Test that the export update thread never loses the rows of a
+ * transaction which the database rolls back.
+ */
+public class TestExportUpdateThread extends TestCase {
+
+  /**
+   * Stands in for a database: rows inserted by executed statements are
+   * pending until commit() and discarded by rollback(). The statement
+   * executed at position 'failAt' fails with a deadlock, which rolls
+   * back the whole transaction.
+   */
+  private static class FakeDatabase
+      implements ExportOutputFormat.InsertPreparer {
+    private final List<Integer> committed = new ArrayList<Integer>();
+    private final List<Integer> pending = new ArrayList<Integer>();
+    private final int failAt;
+    private int executions;
+
+    FakeDatabase(int failAt) {
+      this.failAt = failAt;
+    }
+
+    public List<Integer> getCommitted() {
+      return committed;
+    }
+
+    public Connection getConnection() {
+      return (Connection) Proxy.newProxyInstance(
+          getClass().getClassLoader(), new Class [] { Connection.class },
+          new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object [] args) {
+              if (m.getName().equals("commit")) {
+                committed.addAll(pending);
+                pending.clear();
+              } else if (m.getName().equals("rollback")) {
+                pending.clear();
+              }
+              return null;
+            }
+          });
+    }
+
+    public PreparedStatement prepare(List<SqoopRecord> records) {
+      final List<Integer> rows = new ArrayList<Integer>();
+      for (SqoopRecord record : records) {
+        rows.add(((MockSqoopRecord) record).getId());
+      }
+
+      return (PreparedStatement) Proxy.newProxyInstance(
+          getClass().getClassLoader(),
+          new Class [] { PreparedStatement.class },
+          new InvocationHandler() {
+            public Object invoke(Object proxy, Method m, Object [] args)
+                throws SQLException {
+              if (m.getName().equals("executeUpdate")) {
+                if (++executions == failAt) {
+                  pending.clear();
+                  throw new SQLException("Deadlock found", "40001", 1213);
+                }
+                pending.addAll(rows);
+                return Integer.valueOf(rows.size());
+              }
+              return null;
+            }
+          });
+    }
+  }
+
+  private List<SqoopRecord> makeRecords(int first, int count) {
+    List<SqoopRecord> records = new ArrayList<SqoopRecord>();
+    for (int i = first; i < first + count; i++) {
+      records.add(new MockSqoopRecord(i));
+    }
+    return records;
+  }
+
+  /**
+   * Insert two statements of ten rows each in a single transaction, then
+   * commit and stop the thread.
+   * @return the error reported by the thread, if any.
+   */
+  private SQLException runTwoStatements(FakeDatabase db)
+      throws InterruptedException {
+    AdaptiveBatchSizer sizer = new AdaptiveBatchSizer(10, 1, 10,
+        AdaptiveBatchSizer.UNLIMITED, 1, 100);
+    ExportOutputFormat.ExportUpdateThread thread =
+        new ExportOutputFormat.ExportUpdateThread(db.getConnection(), sizer,
+        db, 3);
+    thread.start();
+
+    for (int i = 0; i < 2; i++) {
+      List<SqoopRecord> records = makeRecords(i * 10, 10);
+      thread.put(new ExportOutputFormat.AsyncDBOperation(
+          db.prepare(records), records, false, false));
+    }
+    thread.put(new ExportOutputFormat.AsyncDBOperation(null, true, true));
+    thread.join();
+    return thread.getLastError();
+  }
+
+  public void testRetryFirstStatementOfTransaction() throws Exception {
+    FakeDatabase db = new FakeDatabase(1);
+    assertNull(runTwoStatements(db));
+    assertEquals(20, db.getCommitted().size());
+  }
+
+  public void testDeadlockAfterUncommittedStatement() throws Exception {
+    // The first statement's rows are rolled back with the second; the
+    // thread must report the error rather than commit the retried rows
+    // alone.
+    FakeDatabase db = new FakeDatabase(2);
+    SQLException err = runTwoStatements(db);
+    assertNotNull(err);
+    assertEquals(1213, err.getErrorCode());
+    assertEquals(0, db.getCommitted().size());
+  }
+}
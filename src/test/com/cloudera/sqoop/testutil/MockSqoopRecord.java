@@ -0,0 +1,115 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.cloudera.sqoop.testutil;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import org.apache.hadoop.io.Text;
+
+import com.cloudera.sqoop.lib.DelimiterSet;
+import com.cloudera.sqoop.lib.LargeObjectLoader;
+import com.cloudera.sqoop.lib.SqoopRecord;
+
+/**
+ * SqoopRecord holding a single integer id, for tests which need records
+ * without generating and compiling a class.
+ */
+public class MockSqoopRecord extends SqoopRecord {
+
+  private int id;
+
+  public MockSqoopRecord() {
+  }
+
+  public MockSqoopRecord(int id) {
+    this.id = id;
+  }
+
+  public int getId() {
+    return id;
+  }
+
+  public void setId(int newId) {
+    this.id = newId;
+  }
+
+  public void parse(CharSequence s) {
+    this.id = Integer.parseInt(s.toString().trim());
+  }
+
+  public void parse(Text s) {
+    parse(s.toString());
+  }
+
+  public void parse(byte [] s) {
+    parse(new String(s));
+  }
+
+  public void parse(char [] s) {
+    parse(new String(s));
+  }
+
+  public void parse(ByteBuffer s) {
+    parse(new String(s.array()));
+  }
+
+  public void parse(CharBuffer s) {
+    parse(s.toString());
+  }
+
+  public void loadLargeObjects(LargeObjectLoader loader) {
+  }
+
+  public void readFields(ResultSet rs) throws SQLException {
+    this.id = rs.getInt(1);
+  }
+
+  public void write(PreparedStatement stmt) throws SQLException {
+    write(stmt, 0);
+  }
+
+  public int write(PreparedStatement stmt, int offset) throws SQLException {
+    stmt.setInt(offset + 1, id);
+    return 1;
+  }
+
+  public void readFields(DataInput in) throws IOException {
+    this.id = in.readInt();
+  }
+
+  public void write(DataOutput out) throws IOException {
+    out.writeInt(id);
+  }
+
+  public String toString(DelimiterSet delimiters) {
+    return Integer.toString(id) + delimiters.getLinesTerminatedBy();
+  }
+
+  public int getClassFormatVersion() {
+    return 1;
+  }
+}
@@ -0,0 +1,149 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.SortedMap;
+
+import junit.framework.TestCase;
+
+/**
+ * Test the counters, timers and histograms of MetricsRegistry.
+ */
+public class TestMetricsRegistry extends TestCase {
+
+  private MetricsRegistry registry;
+
+  @Override
+  public void setUp() {
+    registry = new MetricsRegistry();
+  }
+
+  public void testCounter() {
+    registry.counter("rows").increment();
+    registry.counter("rows").add(41);
+    assertEquals(42, registry.counter("rows").getValue());
+    assertSame(registry.counter("rows"), registry.counter("rows"));
+    assertEquals(0, registry.counter("other").getValue());
+  }
+
+  public void testTimer() {
+    MetricsRegistry.Timer t = registry.timer("t");
+    t.update(10);
+    t.update(30);
+    assertEquals(2, t.getCount());
+    assertEquals(40, t.getTotalNanos());
+    assertEquals(30, t.getMaxNanos());
+
+    // stop() only records the event once.
+    MetricsRegistry.Timer.Context ctx = t.start();
+    ctx.stop();
+    ctx.stop();
+    assertEquals(3, t.getCount());
+  }
+
+  public void testPhase() {
+    registry.startPhase("codegen").stop();
+    assertEquals(1, registry.timer(
+        MetricsRegistry.PHASE_PREFIX + "codegen").getCount());
+  }
+
+  public void testProfiledPhase() throws IOException {
+    Profiler profiler = new Profiler();
+    registry.setProfiler(profiler);
+    MetricsRegistry.Timer.Context ctx = registry.startPhase("codegen");
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < 1000; i++) {
+      sb.append(i);
+    }
+    ctx.stop();
+    ctx.stop();
+    registry.setProfiler(null);
+
+    assertEquals(1, registry.timer(
+        MetricsRegistry.PHASE_PREFIX + "codegen").getCount());
+
+    StringWriter summary = new StringWriter();
+    profiler.writeSummary(new PrintWriter(summary));
+    assertTrue(summary.toString(), summary.toString().contains("startup"));
+    assertTrue(summary.toString(), summary.toString().contains("codegen"));
+
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    profiler.writeTrace(out);
+    String trace = out.toString("UTF-8");
+    assertTrue(trace, trace.contains("\"traceEvents\": ["));
+    assertTrue(trace, trace.contains("{ \"name\": \"codegen\", "
+        + "\"cat\": \"sqoop\", \"ph\": \"X\""));
+    // One event for startup and one for the phase, however often stopped.
+    assertEquals(trace.indexOf("codegen"), trace.lastIndexOf("codegen"));
+  }
+
+  public void testHistogram() {
+    MetricsRegistry.Histogram h = registry.histogram("h");
+    assertEquals(0, h.getPercentile(0.5));
+    for (int i = 1; i <= 100; i++) {
+      h.update(i);
+    }
+
+    assertEquals(100, h.getCount());
+    assertEquals(5050, h.getSum());
+    assertEquals(1, h.getMin());
+    assertEquals(100, h.getMax());
+
+    // Estimates are the upper bound of the bucket holding the percentile.
+    long p50 = h.getPercentile(0.5);
+    assertTrue("p50=" + p50, p50 >= 50 && p50 <= 100);
+    assertEquals(100, h.getPercentile(0.99));
+    assertEquals(1, h.getPercentile(0.0));
+  }
+
+  public void testSnapshot() {
+    registry.counter("c").add(5);
+    registry.timer("t").update(3000000L);
+    registry.histogram("h").update(7);
+
+    SortedMap<String, Long> all = registry.snapshot(false);
+    assertEquals(Long.valueOf(5), all.get("c"));
+    assertEquals(Long.valueOf(1), all.get("t.count"));
+    assertEquals(Long.valueOf(3), all.get("t.millis"));
+    assertEquals(Long.valueOf(3), all.get("t.maxMillis"));
+    assertEquals(Long.valueOf(7), all.get("h.max"));
+
+    SortedMap<String, Long> additive = registry.snapshot(true);
+    assertEquals(Long.valueOf(5), additive.get("c"));
+    assertEquals(Long.valueOf(7), additive.get("h.sum"));
+    assertFalse(additive.containsKey("t.maxMillis"));
+    assertFalse(additive.containsKey("h.max"));
+    assertFalse(additive.containsKey("h.p99"));
+  }
+
+  public void testWriteJson() throws IOException {
+    registry.counter("a\"b").add(2);
+    registry.timer("t").update(1);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    registry.writeJson(out);
+    String json = out.toString("UTF-8");
+    assertTrue(json, json.contains("\"a\\\"b\": 2"));
+    assertTrue(json, json.contains("\"t\": { \"count\": 1"));
+    assertTrue(json, json.contains("\"histograms\": {"));
+  }
+}
@@ -0,0 +1,111 @@
+/**
+ * Licensed to Cloudera, Inc. under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  Cloudera, Inc. licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.cloudera.sqoop.util;
+
+import junit.framework.TestCase;
+
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Test the token-bucket Throttle, using a simulated clock.
+ */
+public class TestThrottle extends TestCase {
+
+  private static final long ONE_SEC = 1000L * 1000L * 1000L;
+
+  /**
+   * Throttle whose clock only advances when it sleeps, or when
+   * told to by the test.
+   */
+  private static class FakeClockThrottle extends Throttle {
+    private long time;
+    private long slept;
+
+    FakeClockThrottle(double rowsPerSec, double bytesPerSec) {
+      super(rowsPerSec, bytesPerSec);
+    }
+
+    @Override
+    protected long now() {
+      return time;
+    }
+
+    @Override
+    protected void sleep(long nanos) {
+      time += nanos;
+      slept += nanos;
+    }
+
+    void advance(long nanos) {
+      time += nanos;
+    }
+  }
+
+  public void testBurstWithinBucket() throws InterruptedException {
+    FakeClockThrottle throttle = new FakeClockThrottle(100, 0);
+    throttle.acquire(100, 0);
+    assertEquals(0, throttle.slept);
+  }
+
+  public void testRowRate() throws InterruptedException {
+    FakeClockThrottle throttle = new FakeClockThrottle(100, 0);
+    for (int i = 0; i < 300; i++) {
+      throttle.acquire(1, 1000000);
+    }
+
+    // The first 100 rows are free; the rest take two seconds.
+    assertEquals(2 * ONE_SEC, throttle.slept, ONE_SEC / 100);
+    assertEquals(2000, throttle.getWaitMillis(), 10);
+  }
+
+  public void testByteRate() throws InterruptedException {
+    FakeClockThrottle throttle = new FakeClockThrottle(0, 1000);
+    throttle.acquire(1, 1000);
+    throttle.acquire(1, 5000);
+    assertEquals(5 * ONE_SEC, throttle.slept, ONE_SEC / 100);
+  }
+
+  public void testIdleRefillIsCapped() throws InterruptedException {
+    FakeClockThrottle throttle = new FakeClockThrottle(10, 0);
+    throttle.acquire(10, 0);
+    throttle.advance(60 * ONE_SEC);
+    // Only one second's worth of tokens accumulate while idle.
+    throttle.acquire(20, 0);
+    assertEquals(ONE_SEC, throttle.slept, ONE_SEC / 100);
+  }
+
+  public void testNoLimits() {
+    assertNull(Throttle.getTaskThrottle(new Configuration()));
+  }
+
+  public void testJobLimitDividedAmongTasks() throws InterruptedException {
+    Configuration conf = new Configuration();
+    conf.setInt(Throttle.NUM_TASKS_KEY, 4);
+    conf.set(Throttle.JOB_ROWS_PER_SEC_KEY, "400");
+    conf.set(Throttle.TASK_ROWS_PER_SEC_KEY, "500");
+    Throttle throttle = Throttle.getTaskThrottle(conf);
+    assertNotNull(throttle);
+
+    // 100 rows/sec per task: a full bucket is 100 rows.
+    long start = System.currentTimeMillis();
+    throttle.acquire(100, 0);
+    throttle.acquire(10, 0);
+    assertTrue(System.currentTimeMillis() - start >= 90);
+  }
+}